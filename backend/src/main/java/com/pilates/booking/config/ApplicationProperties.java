@@ -1,6 +1,11 @@
 package com.pilates.booking.config;
 
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Positive;
+import java.time.Duration;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.validation.annotation.Validated;
 
 /**
  * Properties specific to Pilates Booking.
@@ -9,10 +14,422 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
  * See {@link tech.jhipster.config.JHipsterProperties} for a good example.
  */
 @ConfigurationProperties(prefix = "application", ignoreUnknownFields = false)
+@Validated
 public class ApplicationProperties {
+
+    private final UserCache userCache = new UserCache();
+
+    private final JwtCache jwtCache = new JwtCache();
+
+    private final Mail mail = new Mail();
+
+    private final Idempotency idempotency = new Idempotency();
+
+    @Valid
+    private final BookingAdmission bookingAdmission = new BookingAdmission();
+
+    private final SeatAvailability seatAvailability = new SeatAvailability();
+
+    private final BookingPartitions bookingPartitions = new BookingPartitions();
+
+    private final Reminders reminders = new Reminders();
+
+    private final RelationLoading relationLoading = new RelationLoading();
+
+    @Valid
+    private final BatchSave batchSave = new BatchSave();
+
     // jhipster-needle-application-properties-property
 
+    public UserCache getUserCache() {
+        return userCache;
+    }
+
+    public JwtCache getJwtCache() {
+        return jwtCache;
+    }
+
+    public Mail getMail() {
+        return mail;
+    }
+
+    public Idempotency getIdempotency() {
+        return idempotency;
+    }
+
+    public BookingAdmission getBookingAdmission() {
+        return bookingAdmission;
+    }
+
+    public SeatAvailability getSeatAvailability() {
+        return seatAvailability;
+    }
+
+    public BookingPartitions getBookingPartitions() {
+        return bookingPartitions;
+    }
+
+    public Reminders getReminders() {
+        return reminders;
+    }
+
+    public RelationLoading getRelationLoading() {
+        return relationLoading;
+    }
+
+    public BatchSave getBatchSave() {
+        return batchSave;
+    }
+
     // jhipster-needle-application-properties-property-getter
 
+    public static class UserCache {
+
+        private long maxSize = 10_000;
+
+        private Duration timeToLive = Duration.ofMinutes(10);
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    public static class JwtCache {
+
+        private long maxSize = 10_000;
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+    }
+
+    public static class Mail {
+
+        private int queueCapacity = 1_000;
+
+        private int workers = 2;
+
+        private int batchSize = 20;
+
+        private Duration batchWindow = Duration.ofMillis(100);
+
+        private int maxAttempts = 3;
+
+        private Duration retryBackoff = Duration.ofSeconds(2);
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public int getWorkers() {
+            return workers;
+        }
+
+        public void setWorkers(int workers) {
+            this.workers = workers;
+        }
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getBatchWindow() {
+            return batchWindow;
+        }
+
+        public void setBatchWindow(Duration batchWindow) {
+            this.batchWindow = batchWindow;
+        }
+
+        public int getMaxAttempts() {
+            return maxAttempts;
+        }
+
+        public void setMaxAttempts(int maxAttempts) {
+            this.maxAttempts = maxAttempts;
+        }
+
+        public Duration getRetryBackoff() {
+            return retryBackoff;
+        }
+
+        public void setRetryBackoff(Duration retryBackoff) {
+            this.retryBackoff = retryBackoff;
+        }
+    }
+
+    public static class Idempotency {
+
+        private long maxSize = 10_000;
+
+        private Duration timeToLive = Duration.ofHours(24);
+
+        public long getMaxSize() {
+            return maxSize;
+        }
+
+        public void setMaxSize(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        public Duration getTimeToLive() {
+            return timeToLive;
+        }
+
+        public void setTimeToLive(Duration timeToLive) {
+            this.timeToLive = timeToLive;
+        }
+    }
+
+    public static class BookingAdmission {
+
+        // the rates and bursts size the token buckets, whose emission interval divides a second by the rate
+        @Positive
+        private int eventRate = 50;
+
+        @Positive
+        private int eventBurst = 100;
+
+        @Positive
+        private int userRate = 1;
+
+        @Positive
+        private int userBurst = 5;
+
+        private long maxTrackedKeys = 10_000;
+
+        private int maxConcurrent = 8;
+
+        private int queueCapacity = 500;
+
+        private Duration maxWait = Duration.ofSeconds(5);
+
+        public int getEventRate() {
+            return eventRate;
+        }
+
+        public void setEventRate(int eventRate) {
+            this.eventRate = eventRate;
+        }
+
+        public int getEventBurst() {
+            return eventBurst;
+        }
+
+        public void setEventBurst(int eventBurst) {
+            this.eventBurst = eventBurst;
+        }
+
+        public int getUserRate() {
+            return userRate;
+        }
+
+        public void setUserRate(int userRate) {
+            this.userRate = userRate;
+        }
+
+        public int getUserBurst() {
+            return userBurst;
+        }
+
+        public void setUserBurst(int userBurst) {
+            this.userBurst = userBurst;
+        }
+
+        public long getMaxTrackedKeys() {
+            return maxTrackedKeys;
+        }
+
+        public void setMaxTrackedKeys(long maxTrackedKeys) {
+            this.maxTrackedKeys = maxTrackedKeys;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getQueueCapacity() {
+            return queueCapacity;
+        }
+
+        public void setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+
+    public static class SeatAvailability {
+
+        private Duration conflationWindow = Duration.ofMillis(250);
+
+        private Duration heartbeat = Duration.ofSeconds(15);
+
+        public Duration getConflationWindow() {
+            return conflationWindow;
+        }
+
+        public void setConflationWindow(Duration conflationWindow) {
+            this.conflationWindow = conflationWindow;
+        }
+
+        public Duration getHeartbeat() {
+            return heartbeat;
+        }
+
+        public void setHeartbeat(Duration heartbeat) {
+            this.heartbeat = heartbeat;
+        }
+    }
+
+    public static class BookingPartitions {
+
+        private int monthsAhead = 3;
+
+        private int hotMonths = 12;
+
+        public int getMonthsAhead() {
+            return monthsAhead;
+        }
+
+        public void setMonthsAhead(int monthsAhead) {
+            this.monthsAhead = monthsAhead;
+        }
+
+        public int getHotMonths() {
+            return hotMonths;
+        }
+
+        public void setHotMonths(int hotMonths) {
+            this.hotMonths = hotMonths;
+        }
+    }
+
+    public static class Reminders {
+
+        private Duration leadTime = Duration.ofHours(24);
+
+        private Duration noShowDelay = Duration.ofHours(1);
+
+        private Duration tick = Duration.ofSeconds(1);
+
+        private Duration horizon = Duration.ofHours(1);
+
+        private Duration catchUp = Duration.ofHours(24);
+
+        public Duration getLeadTime() {
+            return leadTime;
+        }
+
+        public void setLeadTime(Duration leadTime) {
+            this.leadTime = leadTime;
+        }
+
+        public Duration getNoShowDelay() {
+            return noShowDelay;
+        }
+
+        public void setNoShowDelay(Duration noShowDelay) {
+            this.noShowDelay = noShowDelay;
+        }
+
+        public Duration getTick() {
+            return tick;
+        }
+
+        public void setTick(Duration tick) {
+            this.tick = tick;
+        }
+
+        public Duration getHorizon() {
+            return horizon;
+        }
+
+        public void setHorizon(Duration horizon) {
+            this.horizon = horizon;
+        }
+
+        public Duration getCatchUp() {
+            return catchUp;
+        }
+
+        public void setCatchUp(Duration catchUp) {
+            this.catchUp = catchUp;
+        }
+    }
+
+    public static class RelationLoading {
+
+        private int batchSize = 100;
+
+        private Duration batchWindow = Duration.ofMillis(10);
+
+        public int getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(int batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getBatchWindow() {
+            return batchWindow;
+        }
+
+        public void setBatchWindow(Duration batchWindow) {
+            this.batchWindow = batchWindow;
+        }
+    }
+
+    public static class BatchSave {
+
+        // the rows of an insert share the 65535 bind parameters of a Postgres statement: 3000 rows leave room for
+        // 21 columns a row, the widest table (jhi_user) writing 18 with its id
+        @Positive
+        @Max(3000)
+        private int chunkSize = 500;
+
+        public int getChunkSize() {
+            return chunkSize;
+        }
+
+        public void setChunkSize(int chunkSize) {
+            this.chunkSize = chunkSize;
+        }
+    }
     // jhipster-needle-application-properties-property-class
 }
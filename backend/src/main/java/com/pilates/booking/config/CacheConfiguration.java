@@ -0,0 +1,21 @@
+package com.pilates.booking.config;
+
+import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.security.UserIdentityCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class CacheConfiguration {
+
+    @Bean
+    public UserIdentityCache userIdentityCache(
+        UserRepository userRepository,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        ApplicationProperties.UserCache userCache = applicationProperties.getUserCache();
+        return new UserIdentityCache(userRepository, userCache.getMaxSize(), userCache.getTimeToLive(), meterRegistry);
+    }
+}
@@ -5,10 +5,13 @@ import static com.pilates.booking.security.SecurityUtils.JWT_ALGORITHM;
 import com.nimbusds.jose.jwk.source.ImmutableSecret;
 import com.nimbusds.jose.util.Base64;
 import com.pilates.booking.management.SecurityMetersService;
+import com.pilates.booking.security.CachingJwtDecoder;
+import io.micrometer.core.instrument.MeterRegistry;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.SecretKeySpec;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -26,9 +29,13 @@ public class SecurityJwtConfiguration {
     private String jwtKey;
 
     @Bean
-    public ReactiveJwtDecoder jwtDecoder(SecurityMetersService metersService) {
+    public ReactiveJwtDecoder jwtDecoder(
+        SecurityMetersService metersService,
+        MeterRegistry meterRegistry,
+        ObjectProvider<ApplicationProperties> applicationProperties
+    ) {
         NimbusReactiveJwtDecoder jwtDecoder = NimbusReactiveJwtDecoder.withSecretKey(getSecretKey()).macAlgorithm(JWT_ALGORITHM).build();
-        return token -> {
+        ReactiveJwtDecoder meteredJwtDecoder = token -> {
             try {
                 return jwtDecoder
                     .decode(token)
@@ -57,6 +64,9 @@ public class SecurityJwtConfiguration {
                 throw e;
             }
         };
+        // the properties are not bound in the web slice tests
+        long maxSize = applicationProperties.getIfAvailable(ApplicationProperties::new).getJwtCache().getMaxSize();
+        return new CachingJwtDecoder(meteredJwtDecoder, maxSize, meterRegistry);
     }
 
     @Bean
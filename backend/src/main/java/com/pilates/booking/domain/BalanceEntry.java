@@ -0,0 +1,149 @@
+package com.pilates.booking.domain;
+
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.time.Instant;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A movement of the balance of a user. Entries are only ever appended.
+ */
+@Table("balance_entry")
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class BalanceEntry implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column("id")
+    private Long id;
+
+    @NotNull(message = "must not be null")
+    @Column("user_id")
+    private Long userId;
+
+    @NotNull(message = "must not be null")
+    @Column("amount_cents")
+    private Long amountCents;
+
+    @NotNull(message = "must not be null")
+    @Column("reason")
+    private String reason;
+
+    @Column("booking_id")
+    private Long bookingId;
+
+    @NotNull(message = "must not be null")
+    @Column("created_at")
+    private Instant createdAt;
+
+    public Long getId() {
+        return this.id;
+    }
+
+    public BalanceEntry id(Long id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getUserId() {
+        return this.userId;
+    }
+
+    public BalanceEntry userId(Long userId) {
+        this.setUserId(userId);
+        return this;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public Long getAmountCents() {
+        return this.amountCents;
+    }
+
+    public BalanceEntry amountCents(Long amountCents) {
+        this.setAmountCents(amountCents);
+        return this;
+    }
+
+    public void setAmountCents(Long amountCents) {
+        this.amountCents = amountCents;
+    }
+
+    public String getReason() {
+        return this.reason;
+    }
+
+    public BalanceEntry reason(String reason) {
+        this.setReason(reason);
+        return this;
+    }
+
+    public void setReason(String reason) {
+        this.reason = reason;
+    }
+
+    public Long getBookingId() {
+        return this.bookingId;
+    }
+
+    public BalanceEntry bookingId(Long bookingId) {
+        this.setBookingId(bookingId);
+        return this;
+    }
+
+    public void setBookingId(Long bookingId) {
+        this.bookingId = bookingId;
+    }
+
+    public Instant getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public BalanceEntry createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BalanceEntry)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((BalanceEntry) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "BalanceEntry{" +
+            "id=" + getId() +
+            ", userId=" + getUserId() +
+            ", amountCents=" + getAmountCents() +
+            ", reason='" + getReason() + "'" +
+            ", bookingId=" + getBookingId() +
+            ", createdAt='" + getCreatedAt() + "'" +
+            "}";
+    }
+}
@@ -59,7 +59,9 @@ public class Event implements Serializable {
     @Column("class_type_id")
     private Long classTypeId;
 
-    @org.springframework.data.annotation.Transient
+    // maintained by the booking service, never written from the REST payload
+    @org.springframework.data.annotation.ReadOnlyProperty
+    @Column("bookings_count")
     private Integer bookingsCount;
 
     public Long getId() {
@@ -231,6 +233,7 @@ public class Event implements Serializable {
                 ", capacity=" + getCapacity() +
                 ", status='" + getStatus() + "'" +
                 ", waitlistOpen='" + getWaitlistOpen() + "'" +
+                ", bookingsCount=" + getBookingsCount() +
                 "}";
     }
 }
@@ -0,0 +1,163 @@
+package com.pilates.booking.domain;
+
+import jakarta.validation.constraints.*;
+import java.io.Serializable;
+import java.time.Instant;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Column;
+import org.springframework.data.relational.core.mapping.Table;
+
+/**
+ * A request sent with an {@code Idempotency-Key} header and, once it has completed, the response to replay.
+ */
+@Table("idempotency_record")
+@SuppressWarnings("common-java:DuplicatedBlocks")
+public class IdempotencyRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @Id
+    @Column("id")
+    private String id;
+
+    @NotNull(message = "must not be null")
+    @Column("request_hash")
+    private String requestHash;
+
+    @Column("response_status")
+    private Integer responseStatus;
+
+    @Column("response_headers")
+    private String responseHeaders;
+
+    @Column("response_body")
+    private String responseBody;
+
+    @NotNull(message = "must not be null")
+    @Column("created_at")
+    private Instant createdAt;
+
+    @NotNull(message = "must not be null")
+    @Column("expires_at")
+    private Instant expiresAt;
+
+    public String getId() {
+        return this.id;
+    }
+
+    public IdempotencyRecord id(String id) {
+        this.setId(id);
+        return this;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getRequestHash() {
+        return this.requestHash;
+    }
+
+    public IdempotencyRecord requestHash(String requestHash) {
+        this.setRequestHash(requestHash);
+        return this;
+    }
+
+    public void setRequestHash(String requestHash) {
+        this.requestHash = requestHash;
+    }
+
+    public Integer getResponseStatus() {
+        return this.responseStatus;
+    }
+
+    public IdempotencyRecord responseStatus(Integer responseStatus) {
+        this.setResponseStatus(responseStatus);
+        return this;
+    }
+
+    public void setResponseStatus(Integer responseStatus) {
+        this.responseStatus = responseStatus;
+    }
+
+    public String getResponseHeaders() {
+        return this.responseHeaders;
+    }
+
+    public IdempotencyRecord responseHeaders(String responseHeaders) {
+        this.setResponseHeaders(responseHeaders);
+        return this;
+    }
+
+    public void setResponseHeaders(String responseHeaders) {
+        this.responseHeaders = responseHeaders;
+    }
+
+    public String getResponseBody() {
+        return this.responseBody;
+    }
+
+    public IdempotencyRecord responseBody(String responseBody) {
+        this.setResponseBody(responseBody);
+        return this;
+    }
+
+    public void setResponseBody(String responseBody) {
+        this.responseBody = responseBody;
+    }
+
+    public Instant getCreatedAt() {
+        return this.createdAt;
+    }
+
+    public IdempotencyRecord createdAt(Instant createdAt) {
+        this.setCreatedAt(createdAt);
+        return this;
+    }
+
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Instant getExpiresAt() {
+        return this.expiresAt;
+    }
+
+    public IdempotencyRecord expiresAt(Instant expiresAt) {
+        this.setExpiresAt(expiresAt);
+        return this;
+    }
+
+    public void setExpiresAt(Instant expiresAt) {
+        this.expiresAt = expiresAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdempotencyRecord)) {
+            return false;
+        }
+        return getId() != null && getId().equals(((IdempotencyRecord) o).getId());
+    }
+
+    @Override
+    public int hashCode() {
+        // see https://vladmihalcea.com/how-to-implement-equals-and-hashcode-using-the-jpa-entity-identifier/
+        return getClass().hashCode();
+    }
+
+    // prettier-ignore
+    @Override
+    public String toString() {
+        return "IdempotencyRecord{" +
+            "id='" + getId() + "'" +
+            ", requestHash='" + getRequestHash() + "'" +
+            ", responseStatus=" + getResponseStatus() +
+            ", createdAt='" + getCreatedAt() + "'" +
+            ", expiresAt='" + getExpiresAt() + "'" +
+            "}";
+    }
+}
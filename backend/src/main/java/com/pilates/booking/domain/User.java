@@ -13,6 +13,7 @@ import java.util.Locale;
 import java.util.Set;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
@@ -78,6 +79,8 @@ public class User extends AbstractAuditingEntity<Long> implements Serializable {
     @Column("reset_date")
     private Instant resetDate = null;
 
+    // only written by the balance ledger (see BalanceEntryRepository#adjustBalance), never by saving the user
+    @ReadOnlyProperty
     @Column("balance_cents")
     private Long balanceCents = 0L;
 
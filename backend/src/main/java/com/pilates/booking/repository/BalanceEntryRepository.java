@@ -0,0 +1,70 @@
+package com.pilates.booking.repository;
+
+import com.pilates.booking.domain.BalanceEntry;
+import java.time.Instant;
+import java.util.Collection;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data R2DBC repository for the BalanceEntry entity, the ledger behind {@code jhi_user.balance_cents}.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface BalanceEntryRepository extends ReactiveCrudRepository<BalanceEntry, Long> {
+    /**
+     * Append an entry to the ledger of a user and add its amount to the user's balance, in a single statement: the
+     * balance is incremented in place, so concurrent adjustments never overwrite each other.
+     *
+     * @param userId the id of the user.
+     * @param amountCents the signed amount, negative for a debit.
+     * @param reason why the balance moves.
+     * @param bookingId the booking the movement relates to, if any.
+     * @param createdAt when the movement happens.
+     * @return the balance after the adjustment, or an empty {@link Mono} if there is no such user.
+     */
+    @Query(
+        "WITH entry AS (" +
+        "INSERT INTO balance_entry (user_id, amount_cents, reason, booking_id, created_at) " +
+        "SELECT id, :amountCents, :reason, :bookingId, :createdAt FROM jhi_user WHERE id = :userId) " +
+        "UPDATE jhi_user SET balance_cents = balance_cents + :amountCents WHERE id = :userId RETURNING balance_cents"
+    )
+    Mono<Long> adjustBalance(Long userId, long amountCents, String reason, Long bookingId, Instant createdAt);
+
+    /**
+     * Refund the late cancellation penalties charged on the bookings of a cancelled event, in a single statement
+     * whatever the number of bookings: each penalty gets an opposite EVENT_CANCELLED entry, and each user's balance is
+     * credited once with the sum of their refunds. Penalties already refunded are skipped.
+     *
+     * @param eventId the id of the event.
+     * @param createdAt when the refunds are made.
+     * @return the number of refunded penalties.
+     */
+    @Query(
+        "WITH refunded AS (" +
+        "INSERT INTO balance_entry (user_id, amount_cents, reason, booking_id, created_at) " +
+        "SELECT p.user_id, -p.amount_cents, 'EVENT_CANCELLED', p.booking_id, :createdAt " +
+        "FROM balance_entry p JOIN booking b ON b.id = p.booking_id " +
+        "WHERE b.event_id = :eventId AND p.reason = 'LATE_CANCELLATION' " +
+        "AND NOT EXISTS (SELECT 1 FROM balance_entry r WHERE r.booking_id = p.booking_id AND r.reason = 'EVENT_CANCELLED') " +
+        "RETURNING user_id, amount_cents), " +
+        "credited AS (UPDATE jhi_user u SET balance_cents = u.balance_cents + t.amount_cents " +
+        "FROM (SELECT user_id, sum(amount_cents) AS amount_cents FROM refunded GROUP BY user_id) t WHERE u.id = t.user_id) " +
+        "SELECT count(*) FROM refunded"
+    )
+    Mono<Long> refundPenaltiesOfEvent(Long eventId, Instant createdAt);
+
+    /**
+     * Ledger of a user, newest entries first.
+     */
+    Flux<BalanceEntry> findAllByUserIdOrderByIdDesc(Long userId, Pageable pageable);
+
+    /**
+     * Ledgers of several users at once, grouped by user, each in chronological order.
+     */
+    Flux<BalanceEntry> findAllByUserIdInOrderByUserIdAscIdAsc(Collection<Long> userIds);
+}
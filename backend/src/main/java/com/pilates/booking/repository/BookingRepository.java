@@ -1,10 +1,16 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.Booking;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -14,6 +20,23 @@ import reactor.core.publisher.Mono;
 @SuppressWarnings("unused")
 @Repository
 public interface BookingRepository extends ReactiveCrudRepository<Booking, Long>, BookingRepositoryInternal {
+    // A member's history in one statement: the bookings come from the (user_id, id) index, their event by primary key,
+    // and only the studio and class type names are read.
+    String MEMBER_BOOKING_COLUMNS =
+        "SELECT b.id, b.status, b.created_at, b.cancelled_at, e.id AS event_id, e.coach_name, e.start_at, e.end_at, " +
+        "e.status AS event_status, s.id AS studio_id, s.name AS studio_name, c.id AS class_type_id, c.name AS class_type_name ";
+    String MEMBER_BOOKING_JOINS =
+        "JOIN event e ON e.id = b.event_id LEFT JOIN studio s ON s.id = e.studio_id LEFT JOIN class_type c ON c.id = e.class_type_id ";
+
+    // Bookings of upcoming events are never older than the upcoming horizon (see findUpcomingHorizon): the partitions
+    // of the months before it are pruned. The bookings without a creation date are all in booking_default.
+    // The horizon is cached per node, and a back-dated booking only lowers it on the node which wrote it: the other
+    // nodes leave that booking out of these lookups until their hourly refresh. The seat checks never use it.
+    String CREATED_SINCE_HORIZON = "(b.created_at >= :since OR b.created_at IS NULL) ";
+
+    // The fields a read can be restricted to, see FieldSet
+    Set<String> FIELDS = Set.of("id", "status", "createdAt", "cancelledAt", "userId", "eventId", "user", "event");
+
     @Query("SELECT * FROM booking entity WHERE entity.user_id = :id")
     Flux<Booking> findByUser(Long id);
 
@@ -30,8 +53,108 @@ public interface BookingRepository extends ReactiveCrudRepository<Booking, Long>
 
     Flux<Booking> findAllByEventId(Long eventId);
 
+    Flux<Booking> findAllByEventIdInAndStatus(Collection<Long> eventIds, String status);
+
     Flux<Booking> findAllByUserId(Long userId);
 
+    /**
+     * Keyset page of the bookings of a user for events starting at or after {@code now}, with their event, studio and
+     * class type, soonest first (ordered by event start date, then booking id).
+     *
+     * @param userId the id of the user.
+     * @param now the instant splitting upcoming from past events.
+     * @param since the upcoming horizon as of {@code now}, see {@link #findUpcomingHorizon(Instant)}; a booking
+     * back-dated before it on another node is left out until the horizon is refreshed.
+     * @param afterStartAt the event start date of the last row of the previous page, or {@code now} for the first page.
+     * @param afterId the booking id of the last row of the previous page, or {@code 0} for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    @Query(
+        MEMBER_BOOKING_COLUMNS +
+        "FROM booking b " +
+        MEMBER_BOOKING_JOINS +
+        "WHERE b.user_id = :userId AND " +
+        CREATED_SINCE_HORIZON +
+        "AND e.start_at >= :now AND (e.start_at, b.id) > (:afterStartAt, :afterId) " +
+        "ORDER BY e.start_at, b.id LIMIT :limit"
+    )
+    Flux<MemberBooking> findUpcomingByUserId(Long userId, Instant now, Instant since, Instant afterStartAt, Long afterId, int limit);
+
+    /**
+     * Keyset page of the bookings of a user for events which started before {@code now}, with their event, studio and
+     * class type, most recent first (ordered by event start date, then booking id, both descending). The bookings of the
+     * archived seasons are included.
+     *
+     * @param userId the id of the user.
+     * @param now the instant splitting upcoming from past events.
+     * @param afterStartAt the event start date of the last row of the previous page, or {@code now} for the first page.
+     * @param afterId the booking id of the last row of the previous page, or {@link Long#MAX_VALUE} for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    @Query(
+        MEMBER_BOOKING_COLUMNS +
+        "FROM (SELECT * FROM booking UNION ALL SELECT * FROM booking_archive) b " +
+        MEMBER_BOOKING_JOINS +
+        "WHERE b.user_id = :userId AND e.start_at < :now AND (e.start_at, b.id) < (:afterStartAt, :afterId) " +
+        "ORDER BY e.start_at DESC, b.id DESC LIMIT :limit"
+    )
+    Flux<MemberBooking> findPastByUserId(Long userId, Instant now, Instant afterStartAt, Long afterId, int limit);
+
+    /**
+     * Cancel every BOOKED and FULL booking of an event, and the event itself with no seat taken, in a single statement
+     * whatever the number of bookings. Callers must hold the event row lock (see
+     * {@link EventRepository#findByIdForUpdate(Long)}) so that no reservation slips in meanwhile.
+     *
+     * @param eventId the id of the event.
+     * @param cancelledAt when the bookings are cancelled.
+     * @return the cancelled bookings.
+     */
+    @Query(
+        "WITH cancelled AS (" +
+        "UPDATE booking SET status = 'CANCELLED', cancelled_at = :cancelledAt " +
+        "WHERE event_id = :eventId AND status IN ('BOOKED', 'FULL') RETURNING *), " +
+        "closed AS (UPDATE event SET status = 'CANCELLED', bookings_count = 0 WHERE id = :eventId) " +
+        "SELECT * FROM cancelled"
+    )
+    Flux<Booking> cancelAllByEventId(Long eventId, Instant cancelledAt);
+
+    /**
+     * The upcoming horizon: the start of the oldest month holding a booking of an event starting at or after
+     * {@code now}. Bookings are only made for events which have not started, so the bookings of the upcoming events
+     * made later on are not older either.
+     *
+     * @param now the instant splitting upcoming from past events.
+     * @return the horizon, or an empty {@link Mono} if no upcoming event has a dated booking.
+     */
+    @Query(
+        "SELECT date_trunc('month', min(b.created_at)) FROM event e JOIN booking b ON b.event_id = e.id " +
+        "WHERE e.start_at >= :now HAVING count(b.created_at) > 0"
+    )
+    Mono<Instant> findUpcomingHorizon(Instant now);
+
+    /**
+     * Create the partition of the bookings made during a month, unless it exists or has been archived.
+     *
+     * @param month a day of the month.
+     * @return the name of the created partition, or an empty {@link Mono} if there was one already.
+     */
+    @Query("SELECT p FROM booking_create_partition(:month) p WHERE p IS NOT NULL")
+    Mono<String> createPartition(LocalDate month);
+
+    /**
+     * Move the partitions of the months ended before {@code archivedBefore} to {@code booking_archive}, oldest first,
+     * stopping at the first one holding a booking of an event starting at or after {@code upcomingFrom}. The rows are
+     * not copied, the partitions are detached from the booking table and attached to the archive.
+     *
+     * @param archivedBefore the end of the last month which may be archived.
+     * @param upcomingFrom the instant splitting upcoming from past events.
+     * @return the names of the archived partitions.
+     */
+    @Query("SELECT booking_archive_partitions(:archivedBefore, :upcomingFrom)")
+    Flux<String> archivePartitions(Instant archivedBefore, Instant upcomingFrom);
+
     @Override
     <S extends Booking> Mono<S> save(S entity);
 
@@ -50,7 +173,100 @@ interface BookingRepositoryInternal {
 
     Flux<Booking> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset page of bookings ordered by id.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<Booking> findAllBy(Long afterId, int limit);
+
+    /**
+     * Keyset page of bookings ordered by id, restricted to the given fields.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param fields the fields to read; the user and the event are only joined when requested.
+     * @return the page.
+     */
+    Flux<Booking> findAllBy(Long afterId, int limit, FieldSet fields);
+
+    /**
+     * Keyset page of the bookings of a user ordered by id.
+     *
+     * @param userId the id of the user.
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<Booking> findAllByUserId(Long userId, Long afterId, int limit);
+
+    /**
+     * Keyset page of the bookings of a user ordered by id, restricted to the given fields.
+     *
+     * @param userId the id of the user.
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param fields the fields to read; the user and the event are only joined when requested.
+     * @return the page.
+     */
+    Flux<Booking> findAllByUserId(Long userId, Long afterId, int limit, FieldSet fields);
+
+    /**
+     * Insert new bookings, a multi-row statement per chunk of rows. The events of the bookings are locked first, in
+     * ascending id order, and their stored number of BOOKED bookings recounted once the rows are written. Their
+     * capacity is not checked: members book through the booking service.
+     *
+     * @param bookings the bookings to insert, without id; their id is set once inserted.
+     * @return the inserted bookings.
+     */
+    @Transactional
+    <S extends Booking> Flux<S> insertAll(List<S> bookings);
+
+    /**
+     * Update existing bookings, a batch of statements sent in one round trip per chunk of rows. The events the bookings
+     * leave or join are locked and recounted like in {@link #insertAll(List)}.
+     *
+     * @param bookings the bookings to update, with their id.
+     * @return the updated bookings; an error if one of them does not exist.
+     */
+    @Transactional
+    <S extends Booking> Flux<S> updateAll(List<S> bookings);
+
+    /**
+     * Insert the new bookings and update the others, by chunks of rows, see {@link #insertAll(List)} and
+     * {@link #updateAll(List)}.
+     *
+     * @param bookings the bookings to save.
+     * @return the saved bookings, in order.
+     */
+    @Transactional
+    <S extends Booking> Flux<S> saveAll(Iterable<S> bookings);
+
     Flux<Booking> findAll();
 
     Mono<Booking> findById(Long id);
+
+    /**
+     * Insert the booking as BOOKED while the event still has a free seat, as FULL when it is full but its waitlist
+     * is open. The decision and the insert happen in a single statement; callers must hold the event row lock
+     * (see {@link EventRepository#findByIdForUpdate(Long)}) so that concurrent reservations cannot oversell.
+     *
+     * @param booking the booking to insert, with its user, event and creation date set.
+     * @return the persisted booking, or an empty {@link Mono} if the event is full and its waitlist is closed.
+     */
+    Mono<Booking> insertIfSeatAvailable(Booking booking);
+
+    /**
+     * Give a free seat of the event to the head of its waitlist: the oldest FULL booking (by creation date) becomes
+     * BOOKED, in a single statement that also counts the seat on the event. Nothing happens while every seat is
+     * taken, nor once the event is cancelled. Callers must hold the event row lock
+     * (see {@link EventRepository#findByIdForUpdate(Long)}) so that a seat freed once is given once.
+     *
+     * @param eventId the id of the event.
+     * @return the promoted booking, or an empty {@link Mono} if there is no free seat, the event is cancelled or nobody
+     * is waiting.
+     */
+    Mono<Booking> promoteNextOnWaitlist(Long eventId);
 }
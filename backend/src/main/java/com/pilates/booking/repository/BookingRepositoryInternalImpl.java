@@ -1,24 +1,34 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.Booking;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.EntityManager.LeftJoin;
 import com.pilates.booking.repository.rowmapper.BookingRowMapper;
 import com.pilates.booking.repository.rowmapper.EventRowMapper;
+import com.pilates.booking.repository.rowmapper.ResolvingRowMapper;
 import com.pilates.booking.repository.rowmapper.UserRowMapper;
 import io.r2dbc.spi.Row;
-import io.r2dbc.spi.RowMetadata;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.repository.support.SimpleR2dbcRepository;
 import org.springframework.data.relational.core.sql.Column;
-import org.springframework.data.relational.core.sql.Comparison;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
-import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.repository.support.MappingRelationalEntityInformation;
 import org.springframework.r2dbc.core.DatabaseClient;
@@ -44,6 +54,56 @@ class BookingRepositoryInternalImpl extends SimpleR2dbcRepository<Booking, Long>
     private static final Table userTable = Table.aliased("jhi_user", "e_user");
     private static final Table eventTable = Table.aliased("event", "event");
 
+    // The where clauses of the cached selects, bound on execution; the fields read key the selects too
+    private static final String WHERE_ID = "id";
+    private static final Condition BY_ID = Conditions.isEqual(entityTable.column("id"), SQL.bindMarker(":id"));
+    private static final String WHERE_USER_ID = "user_id";
+    private static final Condition BY_USER_ID = Conditions.isEqual(entityTable.column("user_id"), SQL.bindMarker(":user_id"));
+
+    // Seats are counted and the status decided in the same statement as the insert, against the event row the
+    // caller has locked: nothing is inserted when the event is full and its waitlist is closed. The BOOKED rows are
+    // counted from the (event_id) WHERE status = 'BOOKED' index of every hot partition, without the upcoming horizon
+    // cached per node, nor event.bookings_count, which writes made without the service leave behind. A BOOKED insert
+    // still bumps that count within the statement.
+    // Package visible for the query plan tests.
+    static final String INSERT_IF_SEAT_AVAILABLE =
+        "WITH inserted AS (" +
+        "INSERT INTO booking (status, created_at, user_id, event_id) " +
+        "SELECT CASE WHEN seats.booked < e.capacity THEN 'BOOKED' ELSE 'FULL' END, :createdAt, :userId, e.id " +
+        "FROM event e, LATERAL (SELECT count(*) AS booked FROM booking b WHERE b.event_id = e.id AND b.status = 'BOOKED') seats " +
+        "WHERE e.id = :eventId AND (seats.booked < e.capacity OR e.waitlist_open) " +
+        "RETURNING *), " +
+        "counted AS (UPDATE event SET bookings_count = bookings_count + 1 " +
+        "WHERE id IN (SELECT event_id FROM inserted WHERE status = 'BOOKED')) " +
+        "SELECT * FROM inserted";
+
+    // The head of the waitlist is read from the (event_id, status, created_at) index, and only while the event
+    // the caller has locked still has a free seat, counted like in INSERT_IF_SEAT_AVAILABLE, and is not cancelled.
+    // The promotion bumps event.bookings_count within that statement.
+    // Package visible for the query plan tests.
+    static final String PROMOTE_NEXT_ON_WAITLIST =
+        "WITH next AS (" +
+        "SELECT b.id FROM booking b JOIN event e ON e.id = b.event_id " +
+        "WHERE b.event_id = :eventId AND b.status = 'FULL' AND e.status IS DISTINCT FROM 'CANCELLED' " +
+        "AND (SELECT count(*) FROM booking x WHERE x.event_id = e.id AND x.status = 'BOOKED') < e.capacity " +
+        "ORDER BY b.created_at, b.id LIMIT 1 FOR UPDATE OF b), " +
+        "promoted AS (UPDATE booking SET status = 'BOOKED' WHERE id IN (SELECT id FROM next) RETURNING *), " +
+        "counted AS (UPDATE event SET bookings_count = bookings_count + 1 " +
+        "WHERE id IN (SELECT event_id FROM promoted)) " +
+        "SELECT * FROM promoted";
+
+    // The bulk writes lock the events of their bookings, before and after the write, in ascending id order like the
+    // reservations, then recount the BOOKED bookings of those events into event.bookings_count in the same transaction.
+    private static final String EVENTS_OF_BOOKINGS = "SELECT DISTINCT event_id FROM booking WHERE id = ANY(:ids) AND event_id IS NOT NULL";
+
+    private static final String LOCK_EVENTS = "SELECT id FROM event WHERE id = ANY(:eventIds) ORDER BY id FOR UPDATE";
+
+    private static final String RECOUNT_EVENTS =
+        "UPDATE event e SET bookings_count = " +
+        "(SELECT count(*) FROM booking b WHERE b.event_id = e.id AND b.status = 'BOOKED') + " +
+        "(SELECT count(*) FROM booking_archive a WHERE a.event_id = e.id AND a.status = 'BOOKED') " +
+        "WHERE e.id = ANY(:eventIds)";
+
     public BookingRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -68,25 +128,91 @@ class BookingRepositoryInternalImpl extends SimpleR2dbcRepository<Booking, Long>
 
     @Override
     public Flux<Booking> findAllBy(Pageable pageable) {
-        return createQuery(pageable, null).all();
-    }
-
-    RowsFetchSpec<Booking> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = BookingSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        columns.addAll(UserSqlHelper.getColumns(userTable, "user"));
-        columns.addAll(EventSqlHelper.getColumns(eventTable, "event"));
-        SelectFromAndJoinCondition selectFrom = Select.builder()
-            .select(columns)
-            .from(entityTable)
-            .leftOuterJoin(userTable)
-            .on(Column.create("user_id", entityTable))
-            .equals(Column.create("id", userTable))
-            .leftOuterJoin(eventTable)
-            .on(Column.create("event_id", entityTable))
-            .equals(Column.create("id", eventTable));
+        return createQuery(FieldSet.ALL, pageable, null, null, Map.of()).all();
+    }
+
+    @Override
+    public Flux<Booking> findAllBy(Long afterId, int limit) {
+        return findAllBy(afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    public Flux<Booking> findAllBy(Long afterId, int limit, FieldSet fields) {
+        List<Object> after = afterId != null ? List.of(afterId) : null;
+        return createSeekQuery(fields, List.of(entityTable.column("id")), after, limit, null, null, Map.of()).all();
+    }
+
+    @Override
+    public Flux<Booking> findAllByUserId(Long userId, Long afterId, int limit) {
+        return findAllByUserId(userId, afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    public Flux<Booking> findAllByUserId(Long userId, Long afterId, int limit, FieldSet fields) {
+        List<Object> after = afterId != null ? List.of(afterId) : null;
+        return createSeekQuery(
+            fields,
+            List.of(entityTable.column("id")),
+            after,
+            limit,
+            WHERE_USER_ID,
+            BY_USER_ID,
+            Map.of("user_id", userId)
+        ).all();
+    }
+
+    RowsFetchSpec<Booking> createQuery(
+        FieldSet fields,
+        Pageable pageable,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, Booking.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createCachedSelect(
+            Booking.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            pageable,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.pageBindings(pageable, bindings)).map(process(fields));
+    }
+
+    RowsFetchSpec<Booking> createSeekQuery(
+        FieldSet fields,
+        List<Column> keyColumns,
+        List<?> after,
+        int limit,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
+        String select = entityManager.createCachedSeekSelect(
+            Booking.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            keyColumns,
+            after != null,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.seekBindings(after, limit, bindings)).map(process(fields));
+    }
+
+    private SelectWhere createSelectFrom(FieldSet fields) {
+        List<Expression> columns = fields.select(BookingSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS));
+        List<LeftJoin> joins = new ArrayList<>();
+        if (fields.includes("user")) {
+            columns.addAll(UserSqlHelper.getColumns(userTable, "user"));
+            joins.add(new LeftJoin(userTable, Column.create("user_id", entityTable), Column.create("id", userTable)));
+        }
+        if (fields.includes("event")) {
+            columns.addAll(EventSqlHelper.getColumns(eventTable, "event"));
+            joins.add(new LeftJoin(eventTable, Column.create("event_id", entityTable), Column.create("id", eventTable)));
+        }
+        return EntityManager.createSelectFrom(columns, entityTable, joins);
     }
 
     @Override
@@ -96,19 +222,97 @@ class BookingRepositoryInternalImpl extends SimpleR2dbcRepository<Booking, Long>
 
     @Override
     public Mono<Booking> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        return createQuery(FieldSet.ALL, null, WHERE_ID, BY_ID, Map.of("id", id)).one();
+    }
+
+    @Override
+    public Mono<Booking> insertIfSeatAvailable(Booking booking) {
+        return db
+            .sql(INSERT_IF_SEAT_AVAILABLE)
+            .bind("createdAt", booking.getCreatedAt().toLocalDateTime())
+            .bind("userId", booking.getUserId())
+            .bind("eventId", booking.getEventId())
+            .map((row, metadata) -> r2dbcEntityTemplate.getConverter().read(Booking.class, row, metadata))
+            .one();
+    }
+
+    @Override
+    public Mono<Booking> promoteNextOnWaitlist(Long eventId) {
+        return db
+            .sql(PROMOTE_NEXT_ON_WAITLIST)
+            .bind("eventId", eventId)
+            .map((row, metadata) -> r2dbcEntityTemplate.getConverter().read(Booking.class, row, metadata))
+            .one();
     }
 
-    private Booking process(Row row, RowMetadata metadata) {
-        Booking entity = bookingMapper.apply(row, "e");
-        entity.setUser(userMapper.apply(row, "user"));
-        entity.setEvent(eventMapper.apply(row, "event"));
-        return entity;
+    // a mapper per query, resolved against the columns of its result set
+    private ResolvingRowMapper<Booking> process(FieldSet fields) {
+        return new ResolvingRowMapper<>(metadata -> {
+            Function<Row, Booking> booking = bookingMapper.resolve(metadata, "e");
+            // the relationships left out are not set, which would clear their id
+            Function<Row, User> user = fields.includes("user") ? userMapper.resolve(metadata, "user") : null;
+            Function<Row, Event> event = fields.includes("event") ? eventMapper.resolve(metadata, "event") : null;
+            return row -> {
+                Booking entity = booking.apply(row);
+                if (user != null) {
+                    entity.setUser(user.apply(row));
+                }
+                if (event != null) {
+                    entity.setEvent(event.apply(row));
+                }
+                return entity;
+            };
+        });
     }
 
     @Override
     public <S extends Booking> Mono<S> save(S entity) {
         return super.save(entity);
     }
+
+    @Override
+    public <S extends Booking> Flux<S> insertAll(List<S> bookings) {
+        return withEventsLocked(bookings, () -> entityManager.insertAll(Booking.class, bookings));
+    }
+
+    @Override
+    public <S extends Booking> Flux<S> updateAll(List<S> bookings) {
+        return withEventsLocked(bookings, () -> entityManager.updateAll(Booking.class, bookings));
+    }
+
+    @Override
+    public <S extends Booking> Flux<S> saveAll(Iterable<S> bookings) {
+        List<S> all = new ArrayList<>();
+        bookings.forEach(all::add);
+        return withEventsLocked(all, () -> entityManager.saveAll(Booking.class, all));
+    }
+
+    private <S extends Booking> Flux<S> withEventsLocked(List<S> bookings, Supplier<Flux<S>> write) {
+        Set<Long> eventIds = bookings
+            .stream()
+            .map(Booking::getEventId)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toCollection(TreeSet::new));
+        Long[] ids = bookings.stream().map(Booking::getId).filter(Objects::nonNull).toArray(Long[]::new);
+        // the events the updated bookings leave lose their seats
+        Mono<Set<Long>> affected = ids.length == 0
+            ? Mono.just(eventIds)
+            : db.sql(EVENTS_OF_BOOKINGS).bind("ids", ids).map(row -> row.get(0, Long.class)).all().collect(() -> eventIds, Set::add);
+        return affected.flatMapMany(events -> {
+            if (events.isEmpty()) {
+                return write.get();
+            }
+            Long[] locked = events.toArray(Long[]::new);
+            return db
+                .sql(LOCK_EVENTS)
+                .bind("eventIds", locked)
+                .fetch()
+                .all()
+                .thenMany(Flux.defer(write))
+                .collectList()
+                .flatMapMany(written ->
+                    db.sql(RECOUNT_EVENTS).bind("eventIds", locked).fetch().rowsUpdated().thenMany(Flux.fromIterable(written))
+                );
+        });
+    }
 }
@@ -1,10 +1,14 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.ClassSession;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -14,6 +18,20 @@ import reactor.core.publisher.Mono;
 @SuppressWarnings("unused")
 @Repository
 public interface ClassSessionRepository extends ReactiveCrudRepository<ClassSession, Long>, ClassSessionRepositoryInternal {
+    // The fields a read can be restricted to, see FieldSet
+    Set<String> FIELDS = Set.of(
+        "id",
+        "coachName",
+        "startAt",
+        "endAt",
+        "capacity",
+        "status",
+        "studioId",
+        "classTypeId",
+        "studio",
+        "classType"
+    );
+
     @Query("SELECT * FROM class_session entity WHERE entity.studio_id = :id")
     Flux<ClassSession> findByStudio(Long id);
 
@@ -44,6 +62,54 @@ interface ClassSessionRepositoryInternal {
 
     Flux<ClassSession> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset page of class sessions ordered by start date, then id.
+     *
+     * @param afterStartAt the start date of the last row of the previous page, or null for the first page.
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<ClassSession> findAllBy(ZonedDateTime afterStartAt, Long afterId, int limit);
+
+    /**
+     * Keyset page of class sessions ordered by start date, then id, restricted to the given fields.
+     *
+     * @param afterStartAt the start date of the last row of the previous page, or null for the first page.
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param fields the fields to read; the studio and the class type are only joined when requested.
+     * @return the page.
+     */
+    Flux<ClassSession> findAllBy(ZonedDateTime afterStartAt, Long afterId, int limit, FieldSet fields);
+
+    /**
+     * Insert new class sessions, a multi-row statement per chunk of rows.
+     *
+     * @param classSessions the class sessions to insert, without id; their id is set once inserted.
+     * @return the inserted class sessions.
+     */
+    @Transactional
+    <S extends ClassSession> Flux<S> insertAll(List<S> classSessions);
+
+    /**
+     * Update existing class sessions, a batch of statements sent in one round trip per chunk of rows.
+     *
+     * @param classSessions the class sessions to update, with their id.
+     * @return the updated class sessions; an error if one of them does not exist.
+     */
+    @Transactional
+    <S extends ClassSession> Flux<S> updateAll(List<S> classSessions);
+
+    /**
+     * Insert the new class sessions and update the others, by chunks of rows, see {@link #insertAll(List)} and
+     * {@link #updateAll(List)}.
+     *
+     * @param classSessions the class sessions to save.
+     * @return the saved class sessions, in order.
+     */
+    <S extends ClassSession> Flux<S> saveAll(Iterable<S> classSessions);
+
     Flux<ClassSession> findAll();
 
     Mono<ClassSession> findById(Long id);
@@ -1,24 +1,30 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.ClassSession;
+import com.pilates.booking.domain.ClassType;
+import com.pilates.booking.domain.Studio;
+import com.pilates.booking.repository.EntityManager.LeftJoin;
 import com.pilates.booking.repository.rowmapper.ClassSessionRowMapper;
 import com.pilates.booking.repository.rowmapper.ClassTypeRowMapper;
+import com.pilates.booking.repository.rowmapper.ResolvingRowMapper;
 import com.pilates.booking.repository.rowmapper.StudioRowMapper;
 import io.r2dbc.spi.Row;
-import io.r2dbc.spi.RowMetadata;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.repository.support.SimpleR2dbcRepository;
 import org.springframework.data.relational.core.sql.Column;
-import org.springframework.data.relational.core.sql.Comparison;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
-import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.repository.support.MappingRelationalEntityInformation;
 import org.springframework.r2dbc.core.DatabaseClient;
@@ -44,6 +50,10 @@ class ClassSessionRepositoryInternalImpl extends SimpleR2dbcRepository<ClassSess
     private static final Table studioTable = Table.aliased("studio", "studio");
     private static final Table classTypeTable = Table.aliased("class_type", "classType");
 
+    // The where clauses of the cached selects, bound on execution; the fields read key the selects too
+    private static final String WHERE_ID = "id";
+    private static final Condition BY_ID = Conditions.isEqual(entityTable.column("id"), SQL.bindMarker(":id"));
+
     public ClassSessionRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -68,25 +78,82 @@ class ClassSessionRepositoryInternalImpl extends SimpleR2dbcRepository<ClassSess
 
     @Override
     public Flux<ClassSession> findAllBy(Pageable pageable) {
-        return createQuery(pageable, null).all();
+        return createQuery(FieldSet.ALL, pageable, null, null, Map.of()).all();
+    }
+
+    @Override
+    public Flux<ClassSession> findAllBy(ZonedDateTime afterStartAt, Long afterId, int limit) {
+        return findAllBy(afterStartAt, afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    public Flux<ClassSession> findAllBy(ZonedDateTime afterStartAt, Long afterId, int limit, FieldSet fields) {
+        // start_at is stored as a UTC local date time, see DatabaseConfiguration
+        List<Object> after = afterStartAt != null && afterId != null ? List.of(afterStartAt.toLocalDateTime(), afterId) : null;
+        // the position of the next page is read from the rows of this one
+        return createSeekQuery(
+            fields.with("startAt"),
+            List.of(entityTable.column("start_at"), entityTable.column("id")),
+            after,
+            limit,
+            null,
+            null,
+            Map.of()
+        ).all();
     }
 
-    RowsFetchSpec<ClassSession> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = ClassSessionSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        columns.addAll(StudioSqlHelper.getColumns(studioTable, "studio"));
-        columns.addAll(ClassTypeSqlHelper.getColumns(classTypeTable, "classType"));
-        SelectFromAndJoinCondition selectFrom = Select.builder()
-            .select(columns)
-            .from(entityTable)
-            .leftOuterJoin(studioTable)
-            .on(Column.create("studio_id", entityTable))
-            .equals(Column.create("id", studioTable))
-            .leftOuterJoin(classTypeTable)
-            .on(Column.create("class_type_id", entityTable))
-            .equals(Column.create("id", classTypeTable));
+    RowsFetchSpec<ClassSession> createQuery(
+        FieldSet fields,
+        Pageable pageable,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, ClassSession.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createCachedSelect(
+            ClassSession.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            pageable,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.pageBindings(pageable, bindings)).map(process(fields));
+    }
+
+    RowsFetchSpec<ClassSession> createSeekQuery(
+        FieldSet fields,
+        List<Column> keyColumns,
+        List<?> after,
+        int limit,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
+        String select = entityManager.createCachedSeekSelect(
+            ClassSession.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            keyColumns,
+            after != null,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.seekBindings(after, limit, bindings)).map(process(fields));
+    }
+
+    private SelectWhere createSelectFrom(FieldSet fields) {
+        List<Expression> columns = fields.select(ClassSessionSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS));
+        List<LeftJoin> joins = new ArrayList<>();
+        if (fields.includes("studio")) {
+            columns.addAll(StudioSqlHelper.getColumns(studioTable, "studio"));
+            joins.add(new LeftJoin(studioTable, Column.create("studio_id", entityTable), Column.create("id", studioTable)));
+        }
+        if (fields.includes("classType")) {
+            columns.addAll(ClassTypeSqlHelper.getColumns(classTypeTable, "classType"));
+            joins.add(new LeftJoin(classTypeTable, Column.create("class_type_id", entityTable), Column.create("id", classTypeTable)));
+        }
+        return EntityManager.createSelectFrom(columns, entityTable, joins);
     }
 
     @Override
@@ -96,19 +163,46 @@ class ClassSessionRepositoryInternalImpl extends SimpleR2dbcRepository<ClassSess
 
     @Override
     public Mono<ClassSession> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        return createQuery(FieldSet.ALL, null, WHERE_ID, BY_ID, Map.of("id", id)).one();
     }
 
-    private ClassSession process(Row row, RowMetadata metadata) {
-        ClassSession entity = classsessionMapper.apply(row, "e");
-        entity.setStudio(studioMapper.apply(row, "studio"));
-        entity.setClassType(classtypeMapper.apply(row, "classType"));
-        return entity;
+    // a mapper per query, resolved against the columns of its result set
+    private ResolvingRowMapper<ClassSession> process(FieldSet fields) {
+        return new ResolvingRowMapper<>(metadata -> {
+            Function<Row, ClassSession> classSession = classsessionMapper.resolve(metadata, "e");
+            // the relationships left out are not set, which would clear their id
+            Function<Row, Studio> studio = fields.includes("studio") ? studioMapper.resolve(metadata, "studio") : null;
+            Function<Row, ClassType> classType = fields.includes("classType") ? classtypeMapper.resolve(metadata, "classType") : null;
+            return row -> {
+                ClassSession entity = classSession.apply(row);
+                if (studio != null) {
+                    entity.setStudio(studio.apply(row));
+                }
+                if (classType != null) {
+                    entity.setClassType(classType.apply(row));
+                }
+                return entity;
+            };
+        });
     }
 
     @Override
     public <S extends ClassSession> Mono<S> save(S entity) {
         return super.save(entity);
     }
+
+    @Override
+    public <S extends ClassSession> Flux<S> insertAll(List<S> classSessions) {
+        return entityManager.insertAll(ClassSession.class, classSessions);
+    }
+
+    @Override
+    public <S extends ClassSession> Flux<S> updateAll(List<S> classSessions) {
+        return entityManager.updateAll(ClassSession.class, classSessions);
+    }
+
+    @Override
+    public <S extends ClassSession> Flux<S> saveAll(Iterable<S> classSessions) {
+        return entityManager.saveAll(ClassSession.class, classSessions);
+    }
 }
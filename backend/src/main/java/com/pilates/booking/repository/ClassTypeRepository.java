@@ -1,9 +1,11 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.ClassType;
+import java.util.List;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -31,6 +33,42 @@ interface ClassTypeRepositoryInternal {
 
     Flux<ClassType> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset page of classTypes ordered by id.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<ClassType> findAllBy(Long afterId, int limit);
+
+    /**
+     * Insert new class types, a multi-row statement per chunk of rows.
+     *
+     * @param classTypes the class types to insert, without id; their id is set once inserted.
+     * @return the inserted class types.
+     */
+    @Transactional
+    <S extends ClassType> Flux<S> insertAll(List<S> classTypes);
+
+    /**
+     * Update existing class types, a batch of statements sent in one round trip per chunk of rows.
+     *
+     * @param classTypes the class types to update, with their id.
+     * @return the updated class types; an error if one of them does not exist.
+     */
+    @Transactional
+    <S extends ClassType> Flux<S> updateAll(List<S> classTypes);
+
+    /**
+     * Insert the new class types and update the others, by chunks of rows, see {@link #insertAll(List)} and
+     * {@link #updateAll(List)}.
+     *
+     * @param classTypes the class types to save.
+     * @return the saved class types, in order.
+     */
+    <S extends ClassType> Flux<S> saveAll(Iterable<S> classTypes);
+
     Flux<ClassType> findAll();
 
     Mono<ClassType> findById(Long id);
@@ -2,18 +2,21 @@ package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.ClassType;
 import com.pilates.booking.repository.rowmapper.ClassTypeRowMapper;
+import com.pilates.booking.repository.rowmapper.ResolvingRowMapper;
 import io.r2dbc.spi.Row;
-import io.r2dbc.spi.RowMetadata;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.repository.support.SimpleR2dbcRepository;
-import org.springframework.data.relational.core.sql.Comparison;
+import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.SQL;
 import org.springframework.data.relational.core.sql.Select;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
 import org.springframework.data.relational.core.sql.Table;
@@ -37,6 +40,11 @@ class ClassTypeRepositoryInternalImpl extends SimpleR2dbcRepository<ClassType, L
 
     private static final Table entityTable = Table.aliased("class_type", EntityManager.ENTITY_ALIAS);
 
+    // The shape of the cached selects: the joins of createSelectFrom and the where clauses, bound on execution
+    private static final String JOINS = "none";
+    private static final String WHERE_ID = "id";
+    private static final Condition BY_ID = Conditions.isEqual(entityTable.column("id"), SQL.bindMarker(":id"));
+
     public ClassTypeRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -57,15 +65,44 @@ class ClassTypeRepositoryInternalImpl extends SimpleR2dbcRepository<ClassType, L
 
     @Override
     public Flux<ClassType> findAllBy(Pageable pageable) {
-        return createQuery(pageable, null).all();
+        return createQuery(pageable, null, null, Map.of()).all();
     }
 
-    RowsFetchSpec<ClassType> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = ClassTypeSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        SelectFromAndJoin selectFrom = Select.builder().select(columns).from(entityTable);
+    @Override
+    public Flux<ClassType> findAllBy(Long afterId, int limit) {
+        List<Object> after = afterId != null ? List.of(afterId) : null;
+        return createSeekQuery(List.of(entityTable.column("id")), after, limit, null, null, Map.of()).all();
+    }
+
+    RowsFetchSpec<ClassType> createQuery(Pageable pageable, String whereShape, Condition whereClause, Map<String, ?> bindings) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, ClassType.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createCachedSelect(ClassType.class, JOINS, this::createSelectFrom, pageable, whereShape, whereClause);
+        return db.sql(select).bindValues(EntityManager.pageBindings(pageable, bindings)).map(process());
+    }
+
+    RowsFetchSpec<ClassType> createSeekQuery(
+        List<Column> keyColumns,
+        List<?> after,
+        int limit,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
+        String select = entityManager.createCachedSeekSelect(
+            ClassType.class,
+            JOINS,
+            this::createSelectFrom,
+            keyColumns,
+            after != null,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.seekBindings(after, limit, bindings)).map(process());
+    }
+
+    private SelectFromAndJoin createSelectFrom() {
+        List<Expression> columns = ClassTypeSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
+        return Select.builder().select(columns).from(entityTable);
     }
 
     @Override
@@ -75,17 +112,37 @@ class ClassTypeRepositoryInternalImpl extends SimpleR2dbcRepository<ClassType, L
 
     @Override
     public Mono<ClassType> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        return createQuery(null, WHERE_ID, BY_ID, Map.of("id", id)).one();
     }
 
-    private ClassType process(Row row, RowMetadata metadata) {
-        ClassType entity = classtypeMapper.apply(row, "e");
-        return entity;
+    // a mapper per query, resolved against the columns of its result set
+    private ResolvingRowMapper<ClassType> process() {
+        return new ResolvingRowMapper<>(metadata -> {
+            Function<Row, ClassType> classType = classtypeMapper.resolve(metadata, "e");
+            return row -> {
+                ClassType entity = classType.apply(row);
+                return entity;
+            };
+        });
     }
 
     @Override
     public <S extends ClassType> Mono<S> save(S entity) {
         return super.save(entity);
     }
+
+    @Override
+    public <S extends ClassType> Flux<S> insertAll(List<S> classTypes) {
+        return entityManager.insertAll(ClassType.class, classTypes);
+    }
+
+    @Override
+    public <S extends ClassType> Flux<S> updateAll(List<S> classTypes) {
+        return entityManager.updateAll(ClassType.class, classTypes);
+    }
+
+    @Override
+    public <S extends ClassType> Flux<S> saveAll(Iterable<S> classTypes) {
+        return entityManager.saveAll(ClassType.class, classTypes);
+    }
 }
@@ -1,25 +1,46 @@
 package com.pilates.booking.repository;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pilates.booking.config.ApplicationProperties;
+import io.r2dbc.spi.Result;
+import io.r2dbc.spi.Statement;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
+import org.springframework.dao.TransientDataAccessResourceException;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.core.ReactiveDataAccessStrategy;
 import org.springframework.data.r2dbc.core.StatementMapper;
+import org.springframework.data.r2dbc.mapping.OutboundRow;
 import org.springframework.data.r2dbc.query.UpdateMapper;
 import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
 import org.springframework.data.relational.core.query.Criteria;
 import org.springframework.data.relational.core.sql.Column;
 import org.springframework.data.relational.core.sql.Condition;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Expression;
 import org.springframework.data.relational.core.sql.OrderByField;
+import org.springframework.data.relational.core.sql.SQL;
 import org.springframework.data.relational.core.sql.Select;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoin;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectJoin;
 import org.springframework.data.relational.core.sql.SelectBuilder.SelectOrdered;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.core.sql.render.SqlRenderer;
+import org.springframework.r2dbc.core.DatabaseClient;
 import org.springframework.r2dbc.core.Parameter;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
@@ -36,6 +57,31 @@ public class EntityManager {
     public static final String ENTITY_ALIAS = "e";
     public static final String ALIAS_PREFIX = "e_";
 
+    // The bind parameters of the cached selects, besides the ones of their where clause
+    public static final String LIMIT_PARAMETER = "limit";
+    public static final String OFFSET_PARAMETER = "offset";
+    public static final String AFTER_PARAMETER_PREFIX = "after";
+
+    // The shapes are few per repository, the bound only guards against arbitrary sort parameters and fieldsets
+    private static final int MAX_CACHED_SELECTS = 1_000;
+
+    /**
+     * The key of a cached select: its SQL text only depends on these, the values being bind parameters.
+     * @param entityType the entity type which holds the table name.
+     * @param joins the joined tables, or the fields read (see {@link FieldSet}), as named by the repository.
+     * @param where the where clause, as named by the repository, or null.
+     * @param page the sort, and whether the rows are paged by limit/offset or by seek.
+     */
+    record SelectShape(Class<?> entityType, String joins, String where, String page) {}
+
+    /**
+     * A left outer join of the entity table.
+     * @param table the joined table.
+     * @param from the column of the entity table.
+     * @param to the matching column of the joined table.
+     */
+    public record LeftJoin(Table table, Column from, Column to) {}
+
     public static class LinkTable {
 
         final String tableName;
@@ -56,12 +102,22 @@ public class EntityManager {
     private final UpdateMapper updateMapper;
     private final R2dbcEntityTemplate r2dbcEntityTemplate;
     private final StatementMapper statementMapper;
+    private final ReactiveDataAccessStrategy dataAccessStrategy;
+    private final int chunkSize;
+    private final Cache<SelectShape, String> selectCache = Caffeine.newBuilder().maximumSize(MAX_CACHED_SELECTS).build();
 
-    public EntityManager(SqlRenderer sqlRenderer, UpdateMapper updateMapper, R2dbcEntityTemplate r2dbcEntityTemplate) {
+    public EntityManager(
+        SqlRenderer sqlRenderer,
+        UpdateMapper updateMapper,
+        R2dbcEntityTemplate r2dbcEntityTemplate,
+        ApplicationProperties applicationProperties
+    ) {
         this.sqlRenderer = sqlRenderer;
         this.updateMapper = updateMapper;
         this.r2dbcEntityTemplate = r2dbcEntityTemplate;
         this.statementMapper = r2dbcEntityTemplate.getDataAccessStrategy().getStatementMapper();
+        this.dataAccessStrategy = r2dbcEntityTemplate.getDataAccessStrategy();
+        this.chunkSize = applicationProperties.getBatchSave().getChunkSize();
     }
 
     /**
@@ -128,6 +184,163 @@ public class EntityManager {
         }
     }
 
+    /**
+     * Creates an SQL select statement for keyset (seek) pagination: the first {@code limit} rows, ordered by the given key
+     * columns, which come strictly after the given key values. Unlike limit/offset, the database seeks to the position
+     * through the index instead of reading and discarding the skipped rows, so a deep page costs the same as the first one.
+     * @param selectFrom a representation of a select statement.
+     * @param keyColumns the columns of the sort key; the last one must be unique (usually the id).
+     * @param after the key values of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param where condition or null. The condition to apply as where clause.
+     * @return sql select statement
+     */
+    public String createSeekSelect(
+        SelectFromAndJoin selectFrom,
+        List<Column> keyColumns,
+        List<? extends Expression> after,
+        int limit,
+        Condition where
+    ) {
+        return createSeekSelectImpl(selectFrom.limit(limit), keyColumns, after, where);
+    }
+
+    /**
+     * Creates an SQL select statement for keyset (seek) pagination: the first {@code limit} rows, ordered by the given key
+     * columns, which come strictly after the given key values.
+     * @param selectFrom a representation of a select statement.
+     * @param keyColumns the columns of the sort key; the last one must be unique (usually the id).
+     * @param after the key values of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param where condition or null. The condition to apply as where clause.
+     * @return sql select statement
+     */
+    public String createSeekSelect(
+        SelectFromAndJoinCondition selectFrom,
+        List<Column> keyColumns,
+        List<? extends Expression> after,
+        int limit,
+        Condition where
+    ) {
+        return createSeekSelectImpl(selectFrom.limit(limit), keyColumns, after, where);
+    }
+
+    /**
+     * Creates the select fragment of the given columns, with only the given joins.
+     * @param columns the selected columns.
+     * @param table the entity table.
+     * @param joins the left outer joins, in order.
+     * @return a representation of a select statement.
+     */
+    public static SelectWhere createSelectFrom(List<Expression> columns, Table table, List<LeftJoin> joins) {
+        SelectFromAndJoin selectFrom = Select.builder().select(columns).from(table);
+        SelectJoin joined = selectFrom;
+        SelectWhere select = selectFrom;
+        for (LeftJoin join : joins) {
+            SelectFromAndJoinCondition on = joined.leftOuterJoin(join.table()).on(join.from()).equals(join.to());
+            joined = on;
+            select = on;
+        }
+        return select;
+    }
+
+    /**
+     * Creates a parameterized SQL select, rendered on the first use of its shape then served from a cache. The database
+     * sees the same statement whatever the ids, limits and offsets, so the driver reuses its prepared statement and the
+     * database its plan. Bind the values with {@link #pageBindings(Pageable, Map)}.
+     * @param entityType the entity type which holds the table name.
+     * @param joins the name of the joins made by {@code selectFrom}, or of the fields it reads, one per fragment.
+     * @param selectFrom the select fragment, only built when the shape is not cached yet.
+     * @param pageable page parameter, or null, if everything needs to be returned; the limit and offset are bound.
+     * @param whereShape the name of the where clause, or null if there is none.
+     * @param where condition or null, with bind markers in place of its values.
+     * @return sql select statement, with named bind parameters.
+     */
+    public String createCachedSelect(
+        Class<?> entityType,
+        String joins,
+        Supplier<? extends SelectWhere> selectFrom,
+        Pageable pageable,
+        String whereShape,
+        Condition where
+    ) {
+        Assert.isTrue((whereShape == null) == (where == null), "a where clause needs its shape");
+        boolean paged = pageable != null && pageable.isPaged();
+        Sort sort = pageable != null ? pageable.getSort() : Sort.unsorted();
+        SelectShape shape = new SelectShape(entityType, joins, whereShape, (paged ? "page " : "all ") + sort);
+        return selectCache.get(shape, key -> {
+            SelectWhere select = selectFrom.get();
+            String sql = createSelectImpl(where != null ? select.where(where) : select, entityType, sort);
+            return paged ? sql + " LIMIT :" + LIMIT_PARAMETER + " OFFSET :" + OFFSET_PARAMETER : sql;
+        });
+    }
+
+    /**
+     * Creates a parameterized SQL select for keyset (seek) pagination, rendered on the first use of its shape then
+     * served from a cache, see {@link #createSeekSelect(SelectFromAndJoin, List, List, int, Condition)}. Bind the
+     * values with {@link #seekBindings(List, int, Map)}.
+     * @param entityType the entity type which holds the table name.
+     * @param joins the name of the joins made by {@code selectFrom}, or of the fields it reads, one per fragment.
+     * @param selectFrom the select fragment, only built when the shape is not cached yet.
+     * @param keyColumns the columns of the sort key; the last one must be unique (usually the id).
+     * @param after whether the rows come after a position, false for the first page.
+     * @param whereShape the name of the where clause, or null if there is none.
+     * @param where condition or null, with bind markers in place of its values.
+     * @return sql select statement, with named bind parameters.
+     */
+    public String createCachedSeekSelect(
+        Class<?> entityType,
+        String joins,
+        Supplier<? extends SelectWhere> selectFrom,
+        List<Column> keyColumns,
+        boolean after,
+        String whereShape,
+        Condition where
+    ) {
+        Assert.isTrue((whereShape == null) == (where == null), "a where clause needs its shape");
+        String key = keyColumns.stream().map(column -> column.getName().getReference()).collect(Collectors.joining(", "));
+        SelectShape shape = new SelectShape(entityType, joins, whereShape, (after ? "seek after " : "seek first ") + key);
+        return selectCache.get(shape, cached -> {
+            List<Expression> position = after
+                ? IntStream.range(0, keyColumns.size()).<Expression>mapToObj(i -> SQL.bindMarker(":" + AFTER_PARAMETER_PREFIX + i)).toList()
+                : null;
+            return createSeekSelectImpl(selectFrom.get(), keyColumns, position, where) + " LIMIT :" + LIMIT_PARAMETER;
+        });
+    }
+
+    /**
+     * The values to bind to a select created by {@link #createCachedSelect}.
+     * @param pageable page parameter, or null.
+     * @param bindings the values of the where clause.
+     * @return the values of the where clause and of the page.
+     */
+    public static Map<String, Object> pageBindings(Pageable pageable, Map<String, ?> bindings) {
+        Map<String, Object> values = new HashMap<>(bindings);
+        if (pageable != null && pageable.isPaged()) {
+            values.put(LIMIT_PARAMETER, pageable.getPageSize());
+            values.put(OFFSET_PARAMETER, pageable.getOffset());
+        }
+        return values;
+    }
+
+    /**
+     * The values to bind to a select created by {@link #createCachedSeekSelect}.
+     * @param after the key values of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param bindings the values of the where clause.
+     * @return the values of the where clause and of the page.
+     */
+    public static Map<String, Object> seekBindings(List<?> after, int limit, Map<String, ?> bindings) {
+        Map<String, Object> values = new HashMap<>(bindings);
+        if (after != null) {
+            for (int i = 0; i < after.size(); i++) {
+                values.put(AFTER_PARAMETER_PREFIX + i, after.get(i));
+            }
+        }
+        values.put(LIMIT_PARAMETER, limit);
+        return values;
+    }
+
     /**
      * Generate an actual SQL from the given {@link Select}.
      * @param select a representation of a select statement.
@@ -166,6 +379,171 @@ public class EntityManager {
         return r2dbcEntityTemplate.insert(entity);
     }
 
+    /**
+     * Inserts the given new entities, a multi-row {@code INSERT} statement per chunk of
+     * {@code application.batch-save.chunk-size} rows, and sets their id. The ids of a chunk are drawn beforehand from
+     * the sequence owned by the id column (a serial or identity column). The columns null in every row of a chunk are
+     * left out of its statement, so that they keep their default. The statements run in the current transaction, if
+     * any; otherwise each chunk is committed on its own.
+     * @param <S> the type of the persisted entities.
+     * @param entityType the entity type which holds the table name.
+     * @param entities the entities to insert, without id.
+     * @return the inserted entities, in order.
+     */
+    public <S> Flux<S> insertAll(Class<? super S> entityType, List<S> entities) {
+        RelationalPersistentEntity<S> persistentEntity = getRequiredPersistentEntity(entityType);
+        return Flux.fromIterable(entities).buffer(chunkSize).concatMap(chunk -> insertChunk(persistentEntity, chunk));
+    }
+
+    /**
+     * Updates the given existing entities, every column of their row, in a batch of statements per chunk of
+     * {@code application.batch-save.chunk-size} rows, sent in a single round trip. The statements run in the current
+     * transaction, if any; otherwise each chunk is committed on its own.
+     * @param <S> the type of the persisted entities.
+     * @param entityType the entity type which holds the table name.
+     * @param entities the entities to update, with their id.
+     * @return the updated entities, in order; an error if the row of one of them does not exist.
+     */
+    public <S> Flux<S> updateAll(Class<? super S> entityType, List<S> entities) {
+        RelationalPersistentEntity<S> persistentEntity = getRequiredPersistentEntity(entityType);
+        return Flux.fromIterable(entities).buffer(chunkSize).concatMap(chunk -> updateChunk(persistentEntity, chunk));
+    }
+
+    /**
+     * Inserts the new entities and updates the others, see {@link #insertAll(Class, List)} and
+     * {@link #updateAll(Class, List)}.
+     * @param <S> the type of the persisted entities.
+     * @param entityType the entity type which holds the table name.
+     * @param entities the entities to save.
+     * @return the saved entities, in order.
+     */
+    public <S> Flux<S> saveAll(Class<? super S> entityType, Iterable<S> entities) {
+        RelationalPersistentEntity<S> persistentEntity = getRequiredPersistentEntity(entityType);
+        List<S> all = new ArrayList<>();
+        entities.forEach(all::add);
+        Map<Boolean, List<S>> byNew = all.stream().collect(Collectors.partitioningBy(persistentEntity::isNew));
+        return insertAll(entityType, byNew.get(true))
+            .thenMany(updateAll(entityType, byNew.get(false)))
+            .thenMany(Flux.fromIterable(all));
+    }
+
+    private <S> Flux<S> insertChunk(RelationalPersistentEntity<S> persistentEntity, List<S> chunk) {
+        RelationalPersistentProperty idProperty = persistentEntity.getRequiredIdProperty();
+        SqlIdentifier idColumn = idProperty.getColumnName();
+        String table = dataAccessStrategy.toSql(persistentEntity.getQualifiedTableName());
+        List<OutboundRow> rows = chunk
+            .stream()
+            .map(entity -> {
+                OutboundRow row = dataAccessStrategy.getOutboundRow(entity);
+                row.remove(idColumn);
+                return row;
+            })
+            .toList();
+        List<SqlIdentifier> columns = rows
+            .get(0)
+            .keySet()
+            .stream()
+            .filter(column -> rows.stream().anyMatch(row -> row.get(column).hasValue()))
+            .toList();
+        StringBuilder sql = new StringBuilder("INSERT INTO ")
+            .append(table)
+            .append(" (")
+            .append(Stream.concat(Stream.of(idColumn), columns.stream()).map(dataAccessStrategy::toSql).collect(Collectors.joining(", ")))
+            .append(") VALUES ");
+        int index = 0;
+        for (int row = 0; row < rows.size(); row++) {
+            sql.append(row == 0 ? "(" : ", (");
+            for (int column = 0; column <= columns.size(); column++) {
+                sql.append(column == 0 ? "$" : ", $").append(++index);
+            }
+            sql.append(')');
+        }
+        DatabaseClient db = r2dbcEntityTemplate.getDatabaseClient();
+        // The ids are drawn from the sequence of the id column before the insert, which writes each row with its own:
+        // the order of the rows returned by an INSERT ... RETURNING is not guaranteed.
+        return db
+            .sql("SELECT nextval(pg_get_serial_sequence($1, $2)) FROM generate_series(1, $3)")
+            .bind(0, table)
+            .bind(1, idColumn.getReference())
+            .bind(2, chunk.size())
+            .map(row -> row.get(0, idProperty.getType()))
+            .all()
+            .collectList()
+            .flatMapMany(ids -> {
+                DatabaseClient.GenericExecuteSpec insert = db.sql(sql.toString());
+                int parameter = 0;
+                for (int row = 0; row < rows.size(); row++) {
+                    insert = insert.bind(parameter++, ids.get(row));
+                    for (SqlIdentifier column : columns) {
+                        insert = insert.bind(parameter++, rows.get(row).get(column));
+                    }
+                }
+                return insert
+                    .fetch()
+                    .rowsUpdated()
+                    .thenMany(
+                        Flux.defer(() -> {
+                            for (int row = 0; row < ids.size(); row++) {
+                                persistentEntity.getPropertyAccessor(chunk.get(row)).setProperty(idProperty, ids.get(row));
+                            }
+                            return Flux.fromIterable(chunk);
+                        })
+                    );
+            });
+    }
+
+    private <S> Flux<S> updateChunk(RelationalPersistentEntity<S> persistentEntity, List<S> chunk) {
+        SqlIdentifier idColumn = persistentEntity.getRequiredIdProperty().getColumnName();
+        List<OutboundRow> rows = chunk.stream().map(dataAccessStrategy::getOutboundRow).toList();
+        List<SqlIdentifier> columns = rows.get(0).keySet().stream().filter(column -> !column.equals(idColumn)).toList();
+        StringBuilder sql = new StringBuilder("UPDATE ")
+            .append(dataAccessStrategy.toSql(persistentEntity.getQualifiedTableName()))
+            .append(" SET ");
+        for (int column = 0; column < columns.size(); column++) {
+            sql.append(column == 0 ? "" : ", ").append(dataAccessStrategy.toSql(columns.get(column))).append(" = $").append(column + 1);
+        }
+        sql.append(" WHERE ").append(dataAccessStrategy.toSql(idColumn)).append(" = $").append(columns.size() + 1);
+        return r2dbcEntityTemplate
+            .getDatabaseClient()
+            .inConnectionMany(connection -> {
+                // one statement, a binding per row: the driver sends them all before reading the results
+                Statement update = connection.createStatement(sql.toString());
+                for (int row = 0; row < rows.size(); row++) {
+                    if (row > 0) {
+                        update.add();
+                    }
+                    for (int column = 0; column < columns.size(); column++) {
+                        bind(update, column, rows.get(row).get(columns.get(column)));
+                    }
+                    bind(update, columns.size(), rows.get(row).get(idColumn));
+                }
+                return Flux.from(update.execute()).concatMap(Result::getRowsUpdated);
+            })
+            .collectList()
+            .flatMapIterable(updated -> {
+                for (int row = 0; row < updated.size(); row++) {
+                    if (updated.get(row) == 0) {
+                        throw new TransientDataAccessResourceException(
+                            String.format(
+                                "Failed to update table [%s]; Row with Id [%s] does not exist",
+                                persistentEntity.getQualifiedTableName(),
+                                rows.get(row).get(idColumn).getValue()
+                            )
+                        );
+                    }
+                }
+                return chunk;
+            });
+    }
+
+    private static void bind(Statement statement, int index, Parameter parameter) {
+        if (parameter.hasValue()) {
+            statement.bind(index, parameter.getValue());
+        } else {
+            statement.bindNull(index, parameter.getType());
+        }
+    }
+
     /**
      * Updates the table, which links the entity with the referred entities.
      * @param table describes the link table, it contains a table name, the column name for the id, and for the referred entity id.
@@ -213,10 +591,58 @@ public class EntityManager {
         return createSelect(selectFrom.build());
     }
 
+    private String createSeekSelectImpl(
+        SelectWhere selectFrom,
+        List<Column> keyColumns,
+        List<? extends Expression> after,
+        Condition where
+    ) {
+        Assert.notEmpty(keyColumns, "keyColumns is empty");
+        Condition condition = where;
+        if (after != null) {
+            Assert.isTrue(after.size() == keyColumns.size(), "after must hold one value per key column");
+            Condition seek = createSeekCondition(keyColumns, after);
+            condition = condition != null ? condition.and(Conditions.nest(seek)) : seek;
+        }
+        List<OrderByField> orderBy = keyColumns.stream().map(column -> OrderByField.from(column).asc()).toList();
+        SelectOrdered select = condition != null ? selectFrom.where(condition) : selectFrom;
+        return createSelect(select.orderBy(orderBy).build());
+    }
+
+    /**
+     * Row value comparison {@code (k1, .., kn) > (v1, .., vn)}, spelled out as
+     * {@code k1 >= v1 AND (k1 > v1 OR (k1 = v1 AND k2 > v2) OR ..)} since the SQL builder has no row constructor.
+     * The leading {@code k1 >= v1} is redundant but lets the database start the index scan at the position,
+     * instead of filtering every row before it.
+     */
+    private static Condition createSeekCondition(List<Column> keyColumns, List<? extends Expression> after) {
+        Condition seek = null;
+        Condition equalPrefix = null;
+        for (int i = 0; i < keyColumns.size(); i++) {
+            Condition greater = Conditions.isGreater(keyColumns.get(i), after.get(i));
+            Condition branch = equalPrefix != null ? Conditions.nest(equalPrefix.and(greater)) : greater;
+            seek = seek != null ? seek.or(branch) : branch;
+            Condition equal = Conditions.isEqual(keyColumns.get(i), after.get(i));
+            equalPrefix = equalPrefix != null ? equalPrefix.and(equal) : equal;
+        }
+        if (keyColumns.size() == 1) {
+            return seek;
+        }
+        return Conditions.isGreaterOrEqualTo(keyColumns.get(0), after.get(0)).and(Conditions.nest(seek));
+    }
+
     private RelationalPersistentEntity<?> getPersistentEntity(Class<?> entityType) {
         return r2dbcEntityTemplate.getConverter().getMappingContext().getPersistentEntity(entityType);
     }
 
+    @SuppressWarnings("unchecked")
+    private <S> RelationalPersistentEntity<S> getRequiredPersistentEntity(Class<? super S> entityType) {
+        return (RelationalPersistentEntity<S>) r2dbcEntityTemplate
+            .getConverter()
+            .getMappingContext()
+            .getRequiredPersistentEntity(entityType);
+    }
+
     private static Collection<? extends OrderByField> createOrderByFields(Table table, Sort sortToUse) {
         List<OrderByField> fields = new ArrayList<>();
 
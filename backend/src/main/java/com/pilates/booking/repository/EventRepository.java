@@ -1,10 +1,17 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.Event;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.r2dbc.repository.Modifying;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -14,6 +21,28 @@ import reactor.core.publisher.Mono;
 @SuppressWarnings("unused")
 @Repository
 public interface EventRepository extends ReactiveCrudRepository<Event, Long>, EventRepositoryInternal {
+    // The fields a read can be restricted to, see FieldSet
+    Set<String> FIELDS = Set.of(
+        "id",
+        "coachName",
+        "startAt",
+        "endAt",
+        "capacity",
+        "status",
+        "waitlistOpen",
+        "bookingsCount",
+        "studioId",
+        "classTypeId",
+        "studio",
+        "classType"
+    );
+
+    // The reminders and waitlist closings still to be done, read through idx_event__notification_pending.
+    String PENDING_NOTIFICATION_COLUMNS =
+        "id, start_at, end_at, reminded_at IS NOT NULL AS reminded, no_show_checked_at IS NOT NULL AS no_show_checked ";
+    String NOTIFICATION_PENDING =
+        "status IS DISTINCT FROM 'CANCELLED' AND (reminded_at IS NULL OR no_show_checked_at IS NULL) ";
+
     @Query("SELECT * FROM event entity WHERE entity.studio_id = :id")
     Flux<Event> findByStudio(Long id);
 
@@ -26,6 +55,138 @@ public interface EventRepository extends ReactiveCrudRepository<Event, Long>, Ev
     @Query("SELECT * FROM event entity WHERE entity.class_type_id IS NULL")
     Flux<Event> findAllWhereClassTypeIsNull();
 
+    /**
+     * Read the event and hold its row lock until the end of the current transaction, so that seat reservations
+     * on the same event are serialized.
+     */
+    @Query("SELECT * FROM event entity WHERE entity.id = :id FOR UPDATE")
+    Mono<Event> findByIdForUpdate(Long id);
+
+    /**
+     * Add {@code delta} to the number of BOOKED bookings stored on the event, never going below zero.
+     */
+    @Modifying
+    @Query("UPDATE event SET bookings_count = GREATEST(bookings_count + :delta, 0) WHERE id = :id")
+    Mono<Long> adjustBookingsCount(Long id, int delta);
+
+    /**
+     * The ids of the events whose stored number of BOOKED bookings differs from the booking table and its archive,
+     * in ascending order. Read without locks: the count of an event may have moved since, see
+     * {@link #repairBookingsCount(Long)}.
+     */
+    @Query(
+        "SELECT e.id FROM event e LEFT JOIN (SELECT b.event_id, count(*) AS booked FROM (" +
+        "SELECT event_id FROM booking WHERE status = 'BOOKED' " +
+        "UNION ALL SELECT event_id FROM booking_archive WHERE status = 'BOOKED') b GROUP BY b.event_id) c " +
+        "ON c.event_id = e.id WHERE e.bookings_count <> coalesce(c.booked, 0) ORDER BY e.id"
+    )
+    Flux<Long> findIdsWithDriftedBookingsCount();
+
+    /**
+     * Recount the BOOKED bookings of the event, archived ones included, into its stored number when it drifted.
+     * Callers must hold the event row lock (see {@link #findByIdForUpdate(Long)}) from a previous statement: the
+     * recount then sees every reservation committed before the lock, and no other can move the count meanwhile.
+     *
+     * @return 1 if the count was repaired, 0 otherwise.
+     */
+    @Modifying
+    @Query(
+        "UPDATE event e SET bookings_count = c.booked FROM (SELECT " +
+        "(SELECT count(*) FROM booking b WHERE b.event_id = :id AND b.status = 'BOOKED') + " +
+        "(SELECT count(*) FROM booking_archive a WHERE a.event_id = :id AND a.status = 'BOOKED') AS booked) c " +
+        "WHERE e.id = :id AND e.bookings_count <> c.booked"
+    )
+    Mono<Long> repairBookingsCount(Long id);
+
+    /**
+     * The events starting from {@code since} and before {@code until} which are not cancelled, without their
+     * relationships.
+     */
+    @Query(
+        "SELECT * FROM event entity WHERE entity.start_at >= :since AND entity.start_at < :until " +
+        "AND entity.status IS DISTINCT FROM 'CANCELLED'"
+    )
+    Flux<Event> findAllActiveStartingBetween(Instant since, Instant until);
+
+    /**
+     * Keyset page of the events starting before {@code until} whose reminder or waitlist closing is still to be done,
+     * ordered by start date, then id. Cancelled events are left out.
+     *
+     * @param afterStartAt the start date of the last row of the previous page.
+     * @param afterId the id of the last row of the previous page, {@code 0} for the first page.
+     * @param until the end of the loaded start dates, exclusive.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    @Query(
+        "SELECT " + PENDING_NOTIFICATION_COLUMNS + "FROM event " +
+        "WHERE (start_at, id) > (:afterStartAt, :afterId) AND start_at < :until AND " + NOTIFICATION_PENDING +
+        "ORDER BY start_at, id LIMIT :limit"
+    )
+    Flux<PendingEventNotification> findPendingNotifications(Instant afterStartAt, Long afterId, Instant until, int limit);
+
+    /**
+     * The notifications still to be done of the given events. Cancelled events, and events whose notifications are
+     * all done, are absent from the result.
+     */
+    @Query("SELECT " + PENDING_NOTIFICATION_COLUMNS + "FROM event WHERE id IN (:eventIds) AND " + NOTIFICATION_PENDING)
+    Flux<PendingEventNotification> findPendingNotificationsByIdIn(Collection<Long> eventIds);
+
+    /**
+     * Claim the reminders of the given events which are due: a reminder is claimed once, by a single node, and only
+     * while the event has not started.
+     *
+     * @param eventIds the ids of the events.
+     * @param now the claim date.
+     * @param dueBefore the latest start date of the events due for a reminder.
+     * @return the events whose reminder was claimed.
+     */
+    @Query(
+        "UPDATE event SET reminded_at = :now " +
+        "WHERE id IN (:eventIds) AND reminded_at IS NULL AND status IS DISTINCT FROM 'CANCELLED' " +
+        "AND start_at > :now AND start_at <= :dueBefore RETURNING *"
+    )
+    Flux<Event> claimReminders(Collection<Long> eventIds, Instant now, Instant dueBefore);
+
+    /**
+     * Check the given events which are over: their waitlist is closed, the bookings still waiting for a seat are
+     * cancelled. Each event is checked once, by a single node.
+     *
+     * @param eventIds the ids of the events.
+     * @param now the check date.
+     * @param dueBefore the latest end date of the events due for a check.
+     * @return the ids of the checked events.
+     */
+    @Query(
+        "WITH checked AS (" +
+        "UPDATE event SET no_show_checked_at = :now " +
+        "WHERE id IN (:eventIds) AND no_show_checked_at IS NULL AND status IS DISTINCT FROM 'CANCELLED' " +
+        "AND coalesce(end_at, start_at) <= :dueBefore RETURNING id), " +
+        "expired AS (UPDATE booking SET status = 'CANCELLED', cancelled_at = :now " +
+        "WHERE event_id IN (SELECT id FROM checked) AND status = 'FULL') " +
+        "SELECT id FROM checked"
+    )
+    Flux<Long> claimNoShowChecks(Collection<Long> eventIds, Instant now, Instant dueBefore);
+
+    /**
+     * Reopen the notifications of a moved event: the reminder again if the event now starts after {@code dueBefore},
+     * the check again if it now ends after {@code now}.
+     *
+     * @param id the id of the event.
+     * @param now the current date.
+     * @param dueBefore the latest start date of the events due for a reminder.
+     * @return the number of reopened events.
+     */
+    @Modifying
+    @Query(
+        "UPDATE event SET " +
+        "reminded_at = CASE WHEN start_at > :dueBefore THEN NULL ELSE reminded_at END, " +
+        "no_show_checked_at = CASE WHEN coalesce(end_at, start_at) > :now THEN NULL ELSE no_show_checked_at END " +
+        "WHERE id = :id AND (reminded_at IS NOT NULL AND start_at > :dueBefore " +
+        "OR no_show_checked_at IS NOT NULL AND coalesce(end_at, start_at) > :now)"
+    )
+    Mono<Long> reopenNotifications(Long id, Instant now, Instant dueBefore);
+
     @Override
     <S extends Event> Mono<S> save(S entity);
 
@@ -44,6 +205,54 @@ interface EventRepositoryInternal {
 
     Flux<Event> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset page of events ordered by start date, then id.
+     *
+     * @param afterStartAt the start date of the last row of the previous page, or null for the first page.
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<Event> findAllBy(ZonedDateTime afterStartAt, Long afterId, int limit);
+
+    /**
+     * Keyset page of events ordered by start date, then id, restricted to the given fields.
+     *
+     * @param afterStartAt the start date of the last row of the previous page, or null for the first page.
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param fields the fields to read; the studio and the class type are only joined when requested.
+     * @return the page.
+     */
+    Flux<Event> findAllBy(ZonedDateTime afterStartAt, Long afterId, int limit, FieldSet fields);
+
+    /**
+     * Insert new events, a multi-row statement per chunk of rows.
+     *
+     * @param events the events to insert, without id; their id is set once inserted.
+     * @return the inserted events.
+     */
+    @Transactional
+    <S extends Event> Flux<S> insertAll(List<S> events);
+
+    /**
+     * Update existing events, a batch of statements sent in one round trip per chunk of rows.
+     *
+     * @param events the events to update, with their id.
+     * @return the updated events; an error if one of them does not exist.
+     */
+    @Transactional
+    <S extends Event> Flux<S> updateAll(List<S> events);
+
+    /**
+     * Insert the new events and update the others, by chunks of rows, see {@link #insertAll(List)} and
+     * {@link #updateAll(List)}.
+     *
+     * @param events the events to save.
+     * @return the saved events, in order.
+     */
+    <S extends Event> Flux<S> saveAll(Iterable<S> events);
+
     Flux<Event> findAll();
 
     Mono<Event> findById(Long id);
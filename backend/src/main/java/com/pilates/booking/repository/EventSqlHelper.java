@@ -16,6 +16,8 @@ public class EventSqlHelper {
         columns.add(Column.aliased("end_at", table, columnPrefix + "_end_at"));
         columns.add(Column.aliased("capacity", table, columnPrefix + "_capacity"));
         columns.add(Column.aliased("status", table, columnPrefix + "_status"));
+        columns.add(Column.aliased("waitlist_open", table, columnPrefix + "_waitlist_open"));
+        columns.add(Column.aliased("bookings_count", table, columnPrefix + "_bookings_count"));
 
         columns.add(Column.aliased("studio_id", table, columnPrefix + "_studio_id"));
         columns.add(Column.aliased("class_type_id", table, columnPrefix + "_class_type_id"));
@@ -0,0 +1,108 @@
+package com.pilates.booking.repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.springframework.data.relational.core.sql.Column;
+import org.springframework.data.relational.core.sql.Expression;
+
+/**
+ * The fields of an entity a read is restricted to (a sparse fieldset), by property name: a column is only selected,
+ * and a relationship (e.g. {@code user}) only joined, when its field is in the set. The id is always included.
+ */
+public final class FieldSet {
+
+    /**
+     * Every field, every relationship joined.
+     */
+    public static final FieldSet ALL = new FieldSet(null);
+
+    private static final String ID = "id";
+
+    // sorted, so that the same fields in any order key the same cached select; null for all the fields
+    private final SortedSet<String> names;
+
+    private FieldSet(SortedSet<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * @param names the property names of the fields.
+     * @return the set of these fields and the id.
+     */
+    public static FieldSet of(Collection<String> names) {
+        SortedSet<String> sorted = new TreeSet<>(names);
+        sorted.add(ID);
+        return new FieldSet(Collections.unmodifiableSortedSet(sorted));
+    }
+
+    /**
+     * @param names the property names of the fields the read needs besides the requested ones, e.g. its sort key.
+     * @return the set of these fields and of the fields of this set.
+     */
+    public FieldSet with(String... names) {
+        if (isAll()) {
+            return this;
+        }
+        SortedSet<String> sorted = new TreeSet<>(this.names);
+        Collections.addAll(sorted, names);
+        return new FieldSet(Collections.unmodifiableSortedSet(sorted));
+    }
+
+    /**
+     * @param names the property names of the fields to leave out, e.g. the relationships attached after the read.
+     * @return the set of the fields of this set but these, the id being kept.
+     * @throws UnsupportedOperationException for all the fields, which are not named: use {@link #of(Collection)}.
+     */
+    public FieldSet without(String... names) {
+        if (isAll()) {
+            throw new UnsupportedOperationException("The fields are not named");
+        }
+        SortedSet<String> sorted = new TreeSet<>(this.names);
+        for (String name : names) {
+            if (!ID.equals(name)) {
+                sorted.remove(name);
+            }
+        }
+        return new FieldSet(Collections.unmodifiableSortedSet(sorted));
+    }
+
+    public boolean isAll() {
+        return names == null;
+    }
+
+    public boolean includes(String name) {
+        return names == null || names.contains(name);
+    }
+
+    /**
+     * @return the property names of the fields, or an empty set for all the fields.
+     */
+    public Set<String> names() {
+        return names != null ? names : Set.of();
+    }
+
+    /**
+     * @param columns the columns of an entity table, as listed by its SqlHelper.
+     * @return the columns of the fields of this set.
+     */
+    public List<Expression> select(List<Expression> columns) {
+        if (isAll()) {
+            return columns;
+        }
+        Set<String> selected = names.stream().map(EntityManager::camelCaseToSnakeCase).collect(Collectors.toSet());
+        return columns
+            .stream()
+            .filter(column -> selected.contains(((Column) column).getName().getReference()))
+            .collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return names != null ? String.join(",", names) : "*";
+    }
+}
@@ -0,0 +1,55 @@
+package com.pilates.booking.repository;
+
+import com.pilates.booking.domain.IdempotencyRecord;
+import java.time.Instant;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+/**
+ * Spring Data R2DBC repository for the IdempotencyRecord entity.
+ */
+@SuppressWarnings("unused")
+@Repository
+public interface IdempotencyRecordRepository extends ReactiveCrudRepository<IdempotencyRecord, String> {
+    /**
+     * Claim a key for a request about to run: insert its record, or take over the record if it has expired.
+     *
+     * @return the id of the record, or an empty {@link Mono} if the key is held by another request.
+     */
+    @Query(
+        "INSERT INTO idempotency_record (id, request_hash, created_at, expires_at) VALUES (:id, :requestHash, :createdAt, :expiresAt) " +
+        "ON CONFLICT (id) DO UPDATE SET request_hash = EXCLUDED.request_hash, response_status = NULL, response_headers = NULL, " +
+        "response_body = NULL, created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+        "WHERE idempotency_record.expires_at <= EXCLUDED.created_at RETURNING id"
+    )
+    Mono<String> claim(String id, String requestHash, Instant createdAt, Instant expiresAt);
+
+    /**
+     * Store the response of a claimed request.
+     */
+    @Modifying
+    @Query(
+        "UPDATE idempotency_record SET response_status = :responseStatus, response_headers = :responseHeaders, " +
+        "response_body = :responseBody WHERE id = :id"
+    )
+    Mono<Long> complete(String id, int responseStatus, String responseHeaders, String responseBody);
+
+    /**
+     * Give up a claimed key whose request failed, so that it can be retried with the same key.
+     */
+    @Modifying
+    @Query("DELETE FROM idempotency_record WHERE id = :id AND response_status IS NULL")
+    Mono<Long> release(String id);
+
+    /**
+     * Delete the records expired at {@code now}.
+     *
+     * @return the number of deleted records.
+     */
+    @Modifying
+    @Query("DELETE FROM idempotency_record WHERE expires_at <= :now")
+    Mono<Long> deleteExpired(Instant now);
+}
@@ -0,0 +1,36 @@
+package com.pilates.booking.repository;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Read-only projection of a booking of a member together with the event it is for, as shown in the member's history.
+ *
+ * @param id the id of the booking.
+ * @param status the status of the booking.
+ * @param createdAt when the booking was made.
+ * @param cancelledAt when the booking was cancelled, if it was.
+ * @param eventId the id of the event.
+ * @param coachName the coach of the event.
+ * @param startAt the start of the event.
+ * @param endAt the end of the event.
+ * @param eventStatus the status of the event.
+ * @param studioId the id of the studio of the event, if any.
+ * @param studioName the name of the studio of the event, if any.
+ * @param classTypeId the id of the class type of the event, if any.
+ * @param classTypeName the name of the class type of the event, if any.
+ */
+public record MemberBooking(
+    Long id,
+    String status,
+    ZonedDateTime createdAt,
+    ZonedDateTime cancelledAt,
+    Long eventId,
+    String coachName,
+    ZonedDateTime startAt,
+    ZonedDateTime endAt,
+    String eventStatus,
+    Long studioId,
+    String studioName,
+    Long classTypeId,
+    String classTypeName
+) {}
@@ -1,10 +1,13 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.Pack;
+import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -14,6 +17,9 @@ import reactor.core.publisher.Mono;
 @SuppressWarnings("unused")
 @Repository
 public interface PackRepository extends ReactiveCrudRepository<Pack, Long>, PackRepositoryInternal {
+    // The fields a read can be restricted to, see FieldSet
+    Set<String> FIELDS = Set.of("id", "packName", "description", "price", "billingPeriod", "credits", "validityDays", "userId", "user");
+
     @Query("SELECT * FROM pack entity WHERE entity.user_id = :id")
     Flux<Pack> findByUser(Long id);
 
@@ -38,6 +44,52 @@ interface PackRepositoryInternal {
 
     Flux<Pack> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset page of packs ordered by id.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<Pack> findAllBy(Long afterId, int limit);
+
+    /**
+     * Keyset page of packs ordered by id, restricted to the given fields.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param fields the fields to read; the user is only joined when requested.
+     * @return the page.
+     */
+    Flux<Pack> findAllBy(Long afterId, int limit, FieldSet fields);
+
+    /**
+     * Insert new packs, a multi-row statement per chunk of rows.
+     *
+     * @param packs the packs to insert, without id; their id is set once inserted.
+     * @return the inserted packs.
+     */
+    @Transactional
+    <S extends Pack> Flux<S> insertAll(List<S> packs);
+
+    /**
+     * Update existing packs, a batch of statements sent in one round trip per chunk of rows.
+     *
+     * @param packs the packs to update, with their id.
+     * @return the updated packs; an error if one of them does not exist.
+     */
+    @Transactional
+    <S extends Pack> Flux<S> updateAll(List<S> packs);
+
+    /**
+     * Insert the new packs and update the others, by chunks of rows, see {@link #insertAll(List)} and
+     * {@link #updateAll(List)}.
+     *
+     * @param packs the packs to save.
+     * @return the saved packs, in order.
+     */
+    <S extends Pack> Flux<S> saveAll(Iterable<S> packs);
+
     Flux<Pack> findAll();
 
     Mono<Pack> findById(Long id);
@@ -1,23 +1,27 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.Pack;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.EntityManager.LeftJoin;
 import com.pilates.booking.repository.rowmapper.PackRowMapper;
+import com.pilates.booking.repository.rowmapper.ResolvingRowMapper;
 import com.pilates.booking.repository.rowmapper.UserRowMapper;
 import io.r2dbc.spi.Row;
-import io.r2dbc.spi.RowMetadata;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.repository.support.SimpleR2dbcRepository;
 import org.springframework.data.relational.core.sql.Column;
-import org.springframework.data.relational.core.sql.Comparison;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
-import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.repository.support.MappingRelationalEntityInformation;
 import org.springframework.r2dbc.core.DatabaseClient;
@@ -41,6 +45,10 @@ class PackRepositoryInternalImpl extends SimpleR2dbcRepository<Pack, Long> imple
     private static final Table entityTable = Table.aliased("pack", EntityManager.ENTITY_ALIAS);
     private static final Table userTable = Table.aliased("jhi_user", "e_user");
 
+    // The where clauses of the cached selects, bound on execution; the fields read key the selects too
+    private static final String WHERE_ID = "id";
+    private static final Condition BY_ID = Conditions.isEqual(entityTable.column("id"), SQL.bindMarker(":id"));
+
     public PackRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -63,21 +71,68 @@ class PackRepositoryInternalImpl extends SimpleR2dbcRepository<Pack, Long> imple
 
     @Override
     public Flux<Pack> findAllBy(Pageable pageable) {
-        return createQuery(pageable, null).all();
+        return createQuery(FieldSet.ALL, pageable, null, null, Map.of()).all();
+    }
+
+    @Override
+    public Flux<Pack> findAllBy(Long afterId, int limit) {
+        return findAllBy(afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    public Flux<Pack> findAllBy(Long afterId, int limit, FieldSet fields) {
+        List<Object> after = afterId != null ? List.of(afterId) : null;
+        return createSeekQuery(fields, List.of(entityTable.column("id")), after, limit, null, null, Map.of()).all();
     }
 
-    RowsFetchSpec<Pack> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = PackSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        columns.addAll(UserSqlHelper.getColumns(userTable, "user"));
-        SelectFromAndJoinCondition selectFrom = Select.builder()
-            .select(columns)
-            .from(entityTable)
-            .leftOuterJoin(userTable)
-            .on(Column.create("user_id", entityTable))
-            .equals(Column.create("id", userTable));
+    RowsFetchSpec<Pack> createQuery(
+        FieldSet fields,
+        Pageable pageable,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, Pack.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createCachedSelect(
+            Pack.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            pageable,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.pageBindings(pageable, bindings)).map(process(fields));
+    }
+
+    RowsFetchSpec<Pack> createSeekQuery(
+        FieldSet fields,
+        List<Column> keyColumns,
+        List<?> after,
+        int limit,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
+        String select = entityManager.createCachedSeekSelect(
+            Pack.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            keyColumns,
+            after != null,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.seekBindings(after, limit, bindings)).map(process(fields));
+    }
+
+    private SelectWhere createSelectFrom(FieldSet fields) {
+        List<Expression> columns = fields.select(PackSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS));
+        List<LeftJoin> joins = new ArrayList<>();
+        if (fields.includes("user")) {
+            columns.addAll(UserSqlHelper.getColumns(userTable, "user"));
+            joins.add(new LeftJoin(userTable, Column.create("user_id", entityTable), Column.create("id", userTable)));
+        }
+        return EntityManager.createSelectFrom(columns, entityTable, joins);
     }
 
     @Override
@@ -87,18 +142,42 @@ class PackRepositoryInternalImpl extends SimpleR2dbcRepository<Pack, Long> imple
 
     @Override
     public Mono<Pack> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        return createQuery(FieldSet.ALL, null, WHERE_ID, BY_ID, Map.of("id", id)).one();
     }
 
-    private Pack process(Row row, RowMetadata metadata) {
-        Pack entity = packMapper.apply(row, "e");
-        entity.setUser(userMapper.apply(row, "user"));
-        return entity;
+    // a mapper per query, resolved against the columns of its result set
+    private ResolvingRowMapper<Pack> process(FieldSet fields) {
+        return new ResolvingRowMapper<>(metadata -> {
+            Function<Row, Pack> pack = packMapper.resolve(metadata, "e");
+            // the relationships left out are not set, which would clear their id
+            Function<Row, User> user = fields.includes("user") ? userMapper.resolve(metadata, "user") : null;
+            return row -> {
+                Pack entity = pack.apply(row);
+                if (user != null) {
+                    entity.setUser(user.apply(row));
+                }
+                return entity;
+            };
+        });
     }
 
     @Override
     public <S extends Pack> Mono<S> save(S entity) {
         return super.save(entity);
     }
+
+    @Override
+    public <S extends Pack> Flux<S> insertAll(List<S> packs) {
+        return entityManager.insertAll(Pack.class, packs);
+    }
+
+    @Override
+    public <S extends Pack> Flux<S> updateAll(List<S> packs) {
+        return entityManager.updateAll(Pack.class, packs);
+    }
+
+    @Override
+    public <S extends Pack> Flux<S> saveAll(Iterable<S> packs) {
+        return entityManager.saveAll(Pack.class, packs);
+    }
 }
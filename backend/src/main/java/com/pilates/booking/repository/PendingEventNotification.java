@@ -0,0 +1,14 @@
+package com.pilates.booking.repository;
+
+import java.time.Instant;
+
+/**
+ * Read-only projection of the notifications still to be done for an event.
+ *
+ * @param id the id of the event.
+ * @param startAt the start of the event.
+ * @param endAt the end of the event, if known.
+ * @param reminded whether the members were reminded of the event.
+ * @param noShowChecked whether the event was checked once over.
+ */
+public record PendingEventNotification(Long id, Instant startAt, Instant endAt, boolean reminded, boolean noShowChecked) {}
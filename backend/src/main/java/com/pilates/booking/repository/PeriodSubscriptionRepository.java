@@ -1,10 +1,13 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.PeriodSubscription;
+import java.util.List;
+import java.util.Set;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -15,6 +18,20 @@ import reactor.core.publisher.Mono;
 @Repository
 public interface PeriodSubscriptionRepository
     extends ReactiveCrudRepository<PeriodSubscription, Long>, PeriodSubscriptionRepositoryInternal {
+    // The fields a read can be restricted to, see FieldSet
+    Set<String> FIELDS = Set.of(
+        "id",
+        "subscriptionName",
+        "description",
+        "price",
+        "billingPeriod",
+        "creditsPerPeriod",
+        "startDate",
+        "endDate",
+        "userId",
+        "user"
+    );
+
     @Query("SELECT * FROM period_subscription entity WHERE entity.user_id = :id")
     Flux<PeriodSubscription> findByUser(Long id);
 
@@ -39,6 +56,52 @@ interface PeriodSubscriptionRepositoryInternal {
 
     Flux<PeriodSubscription> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset page of periodSubscriptions ordered by id.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<PeriodSubscription> findAllBy(Long afterId, int limit);
+
+    /**
+     * Keyset page of period subscriptions ordered by id, restricted to the given fields.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @param fields the fields to read; the user is only joined when requested.
+     * @return the page.
+     */
+    Flux<PeriodSubscription> findAllBy(Long afterId, int limit, FieldSet fields);
+
+    /**
+     * Insert new period subscriptions, a multi-row statement per chunk of rows.
+     *
+     * @param periodSubscriptions the period subscriptions to insert, without id; their id is set once inserted.
+     * @return the inserted period subscriptions.
+     */
+    @Transactional
+    <S extends PeriodSubscription> Flux<S> insertAll(List<S> periodSubscriptions);
+
+    /**
+     * Update existing period subscriptions, a batch of statements sent in one round trip per chunk of rows.
+     *
+     * @param periodSubscriptions the period subscriptions to update, with their id.
+     * @return the updated period subscriptions; an error if one of them does not exist.
+     */
+    @Transactional
+    <S extends PeriodSubscription> Flux<S> updateAll(List<S> periodSubscriptions);
+
+    /**
+     * Insert the new period subscriptions and update the others, by chunks of rows, see {@link #insertAll(List)} and
+     * {@link #updateAll(List)}.
+     *
+     * @param periodSubscriptions the period subscriptions to save.
+     * @return the saved period subscriptions, in order.
+     */
+    <S extends PeriodSubscription> Flux<S> saveAll(Iterable<S> periodSubscriptions);
+
     Flux<PeriodSubscription> findAll();
 
     Mono<PeriodSubscription> findById(Long id);
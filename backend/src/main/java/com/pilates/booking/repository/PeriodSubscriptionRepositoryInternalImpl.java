@@ -1,23 +1,27 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.PeriodSubscription;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.EntityManager.LeftJoin;
 import com.pilates.booking.repository.rowmapper.PeriodSubscriptionRowMapper;
+import com.pilates.booking.repository.rowmapper.ResolvingRowMapper;
 import com.pilates.booking.repository.rowmapper.UserRowMapper;
 import io.r2dbc.spi.Row;
-import io.r2dbc.spi.RowMetadata;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.core.R2dbcEntityOperations;
 import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
 import org.springframework.data.r2dbc.repository.support.SimpleR2dbcRepository;
 import org.springframework.data.relational.core.sql.Column;
-import org.springframework.data.relational.core.sql.Comparison;
 import org.springframework.data.relational.core.sql.Condition;
 import org.springframework.data.relational.core.sql.Conditions;
 import org.springframework.data.relational.core.sql.Expression;
-import org.springframework.data.relational.core.sql.Select;
-import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectWhere;
 import org.springframework.data.relational.core.sql.Table;
 import org.springframework.data.relational.repository.support.MappingRelationalEntityInformation;
 import org.springframework.r2dbc.core.DatabaseClient;
@@ -43,6 +47,10 @@ class PeriodSubscriptionRepositoryInternalImpl
     private static final Table entityTable = Table.aliased("period_subscription", EntityManager.ENTITY_ALIAS);
     private static final Table userTable = Table.aliased("jhi_user", "e_user");
 
+    // The where clauses of the cached selects, bound on execution; the fields read key the selects too
+    private static final String WHERE_ID = "id";
+    private static final Condition BY_ID = Conditions.isEqual(entityTable.column("id"), SQL.bindMarker(":id"));
+
     public PeriodSubscriptionRepositoryInternalImpl(
         R2dbcEntityTemplate template,
         EntityManager entityManager,
@@ -65,21 +73,68 @@ class PeriodSubscriptionRepositoryInternalImpl
 
     @Override
     public Flux<PeriodSubscription> findAllBy(Pageable pageable) {
-        return createQuery(pageable, null).all();
+        return createQuery(FieldSet.ALL, pageable, null, null, Map.of()).all();
+    }
+
+    @Override
+    public Flux<PeriodSubscription> findAllBy(Long afterId, int limit) {
+        return findAllBy(afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    public Flux<PeriodSubscription> findAllBy(Long afterId, int limit, FieldSet fields) {
+        List<Object> after = afterId != null ? List.of(afterId) : null;
+        return createSeekQuery(fields, List.of(entityTable.column("id")), after, limit, null, null, Map.of()).all();
     }
 
-    RowsFetchSpec<PeriodSubscription> createQuery(Pageable pageable, Condition whereClause) {
-        List<Expression> columns = PeriodSubscriptionSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS);
-        columns.addAll(UserSqlHelper.getColumns(userTable, "user"));
-        SelectFromAndJoinCondition selectFrom = Select.builder()
-            .select(columns)
-            .from(entityTable)
-            .leftOuterJoin(userTable)
-            .on(Column.create("user_id", entityTable))
-            .equals(Column.create("id", userTable));
+    RowsFetchSpec<PeriodSubscription> createQuery(
+        FieldSet fields,
+        Pageable pageable,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
         // we do not support Criteria here for now as of https://github.com/jhipster/generator-jhipster/issues/18269
-        String select = entityManager.createSelect(selectFrom, PeriodSubscription.class, pageable, whereClause);
-        return db.sql(select).map(this::process);
+        String select = entityManager.createCachedSelect(
+            PeriodSubscription.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            pageable,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.pageBindings(pageable, bindings)).map(process(fields));
+    }
+
+    RowsFetchSpec<PeriodSubscription> createSeekQuery(
+        FieldSet fields,
+        List<Column> keyColumns,
+        List<?> after,
+        int limit,
+        String whereShape,
+        Condition whereClause,
+        Map<String, ?> bindings
+    ) {
+        String select = entityManager.createCachedSeekSelect(
+            PeriodSubscription.class,
+            fields.toString(),
+            () -> createSelectFrom(fields),
+            keyColumns,
+            after != null,
+            whereShape,
+            whereClause
+        );
+        return db.sql(select).bindValues(EntityManager.seekBindings(after, limit, bindings)).map(process(fields));
+    }
+
+    private SelectWhere createSelectFrom(FieldSet fields) {
+        List<Expression> columns = fields.select(PeriodSubscriptionSqlHelper.getColumns(entityTable, EntityManager.ENTITY_ALIAS));
+        List<LeftJoin> joins = new ArrayList<>();
+        if (fields.includes("user")) {
+            columns.addAll(UserSqlHelper.getColumns(userTable, "user"));
+            joins.add(new LeftJoin(userTable, Column.create("user_id", entityTable), Column.create("id", userTable)));
+        }
+        return EntityManager.createSelectFrom(columns, entityTable, joins);
     }
 
     @Override
@@ -89,18 +144,42 @@ class PeriodSubscriptionRepositoryInternalImpl
 
     @Override
     public Mono<PeriodSubscription> findById(Long id) {
-        Comparison whereClause = Conditions.isEqual(entityTable.column("id"), Conditions.just(id.toString()));
-        return createQuery(null, whereClause).one();
+        return createQuery(FieldSet.ALL, null, WHERE_ID, BY_ID, Map.of("id", id)).one();
     }
 
-    private PeriodSubscription process(Row row, RowMetadata metadata) {
-        PeriodSubscription entity = periodsubscriptionMapper.apply(row, "e");
-        entity.setUser(userMapper.apply(row, "user"));
-        return entity;
+    // a mapper per query, resolved against the columns of its result set
+    private ResolvingRowMapper<PeriodSubscription> process(FieldSet fields) {
+        return new ResolvingRowMapper<>(metadata -> {
+            Function<Row, PeriodSubscription> periodSubscription = periodsubscriptionMapper.resolve(metadata, "e");
+            // the relationships left out are not set, which would clear their id
+            Function<Row, User> user = fields.includes("user") ? userMapper.resolve(metadata, "user") : null;
+            return row -> {
+                PeriodSubscription entity = periodSubscription.apply(row);
+                if (user != null) {
+                    entity.setUser(user.apply(row));
+                }
+                return entity;
+            };
+        });
     }
 
     @Override
     public <S extends PeriodSubscription> Mono<S> save(S entity) {
         return super.save(entity);
     }
+
+    @Override
+    public <S extends PeriodSubscription> Flux<S> insertAll(List<S> periodSubscriptions) {
+        return entityManager.insertAll(PeriodSubscription.class, periodSubscriptions);
+    }
+
+    @Override
+    public <S extends PeriodSubscription> Flux<S> updateAll(List<S> periodSubscriptions) {
+        return entityManager.updateAll(PeriodSubscription.class, periodSubscriptions);
+    }
+
+    @Override
+    public <S extends PeriodSubscription> Flux<S> saveAll(Iterable<S> periodSubscriptions) {
+        return entityManager.saveAll(PeriodSubscription.class, periodSubscriptions);
+    }
 }
@@ -1,9 +1,11 @@
 package com.pilates.booking.repository;
 
 import com.pilates.booking.domain.Studio;
+import java.util.List;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -31,6 +33,42 @@ interface StudioRepositoryInternal {
 
     Flux<Studio> findAllBy(Pageable pageable);
 
+    /**
+     * Keyset page of studios ordered by id.
+     *
+     * @param afterId the id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<Studio> findAllBy(Long afterId, int limit);
+
+    /**
+     * Insert new studios, a multi-row statement per chunk of rows.
+     *
+     * @param studios the studios to insert, without id; their id is set once inserted.
+     * @return the inserted studios.
+     */
+    @Transactional
+    <S extends Studio> Flux<S> insertAll(List<S> studios);
+
+    /**
+     * Update existing studios, a batch of statements sent in one round trip per chunk of rows.
+     *
+     * @param studios the studios to update, with their id.
+     * @return the updated studios; an error if one of them does not exist.
+     */
+    @Transactional
+    <S extends Studio> Flux<S> updateAll(List<S> studios);
+
+    /**
+     * Insert the new studios and update the others, by chunks of rows, see {@link #insertAll(List)} and
+     * {@link #updateAll(List)}.
+     *
+     * @param studios the studios to save.
+     * @return the saved studios, in order.
+     */
+    <S extends Studio> Flux<S> saveAll(Iterable<S> studios);
+
     Flux<Studio> findAll();
 
     Mono<Studio> findById(Long id);
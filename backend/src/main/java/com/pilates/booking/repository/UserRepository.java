@@ -6,10 +6,12 @@ import static org.springframework.data.relational.core.query.Query.query;
 import com.pilates.booking.domain.Authority;
 import com.pilates.booking.domain.User;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import org.apache.commons.beanutils.BeanComparator;
 import org.springframework.data.domain.*;
 import org.springframework.data.domain.Sort;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
@@ -28,6 +30,20 @@ import reactor.util.function.Tuples;
  */
 @Repository
 public interface UserRepository extends R2dbcRepository<User, Long>, UserRepositoryInternal {
+    // sortable properties of the admin user list, and the columns they are ordered by; unknown sorts are rejected
+    Map<String, String> SORTABLE_COLUMNS = Map.ofEntries(
+            Map.entry("id", "id"),
+            Map.entry("login", "login"),
+            Map.entry("firstName", "first_name"),
+            Map.entry("lastName", "last_name"),
+            Map.entry("email", "email"),
+            Map.entry("activated", "activated"),
+            Map.entry("langKey", "lang_key"),
+            Map.entry("createdBy", "created_by"),
+            Map.entry("createdDate", "created_date"),
+            Map.entry("lastModifiedBy", "last_modified_by"),
+            Map.entry("lastModifiedDate", "last_modified_date"));
+
     Mono<User> findOneByActivationKey(String activationKey);
 
     Flux<User> findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(LocalDateTime dateTime);
@@ -96,25 +112,53 @@ class UserRepositoryInternalImpl implements UserRepositoryInternal {
 
     @Override
     public Flux<User> findAllWithAuthorities(Pageable pageable) {
-        String property = pageable.getSort().stream().map(Sort.Order::getProperty).findFirst().orElse("id");
-        String direction = String.valueOf(
-                pageable.getSort().stream().map(Sort.Order::getDirection).findFirst().orElse(Sort.DEFAULT_DIRECTION));
-        long page = pageable.getPageNumber();
-        long size = pageable.getPageSize();
+        for (Sort.Order order : pageable.getSort()) {
+            if (!UserRepository.SORTABLE_COLUMNS.containsKey(order.getProperty())) {
+                return Flux.error(new IllegalArgumentException("Users cannot be sorted by " + order.getProperty()));
+            }
+        }
+        String orderBy = orderBy(pageable.getSort());
+        // only the requested page is read, and each user carries its authority names as an array
+        String page = "SELECT * FROM jhi_user ORDER BY " + orderBy + (pageable.isPaged() ? " LIMIT :limit OFFSET :offset" : "");
+        DatabaseClient.GenericExecuteSpec spec = db.sql(
+                "SELECT u.*, ARRAY(SELECT ua.authority_name FROM jhi_user_authority ua WHERE ua.user_id = u.id) AS authority_names "
+                        + "FROM (" + page + ") u ORDER BY " + orderBy);
+        if (pageable.isPaged()) {
+            spec = spec.bind("limit", pageable.getPageSize()).bind("offset", pageable.getOffset());
+        }
+        return spec
+                .map((row, metadata) -> {
+                    User user = r2dbcConverter.read(User.class, row, metadata);
+                    String[] authorityNames = row.get("authority_names", String[].class);
+                    user.setAuthorities(
+                            Arrays.stream(authorityNames != null ? authorityNames : new String[0])
+                                    .map(name -> {
+                                        Authority authority = new Authority();
+                                        authority.setName(name);
+                                        return authority;
+                                    })
+                                    .collect(Collectors.toSet()));
+                    return user;
+                })
+                .all();
+    }
 
-        return db
-                .sql("SELECT * FROM jhi_user u LEFT JOIN jhi_user_authority ua ON u.id=ua.user_id")
-                .map((row, metadata) -> Tuples.of(r2dbcConverter.read(User.class, row, metadata),
-                        Optional.ofNullable(row.get("authority_name", String.class))))
-                .all()
-                .groupBy(t -> t.getT1().getLogin())
-                .flatMap(l -> l.collectList().map(t -> updateUserWithAuthorities(t.get(0).getT1(), t)))
-                .sort(
-                        Sort.Direction.fromString(direction) == Sort.DEFAULT_DIRECTION
-                                ? new BeanComparator<>(property)
-                                : new BeanComparator<>(property).reversed())
-                .skip(page * size)
-                .take(size);
+    /**
+     * Translates the sort, checked against the whitelisted columns, into an ORDER BY clause with the id as
+     * tie-breaker so that pages are stable.
+     */
+    private static String orderBy(Sort sort) {
+        List<String> fields = new ArrayList<>();
+        boolean sortedById = false;
+        for (Sort.Order order : sort) {
+            String column = UserRepository.SORTABLE_COLUMNS.get(order.getProperty());
+            sortedById |= "id".equals(column);
+            fields.add(column + (order.isAscending() ? " ASC" : " DESC"));
+        }
+        if (!sortedById) {
+            fields.add("id ASC");
+        }
+        return String.join(", ", fields);
     }
 
     @Override
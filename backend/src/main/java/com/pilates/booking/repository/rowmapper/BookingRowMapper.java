@@ -1,9 +1,12 @@
 package com.pilates.booking.repository.rowmapper;
 
 import com.pilates.booking.domain.Booking;
+import com.pilates.booking.repository.rowmapper.ColumnConverter.ColumnReader;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import java.time.ZonedDateTime;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
 /**
@@ -24,13 +27,29 @@ public class BookingRowMapper implements BiFunction<Row, String, Booking> {
      */
     @Override
     public Booking apply(Row row, String prefix) {
-        Booking entity = new Booking();
-        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
-        entity.setStatus(converter.fromRow(row, prefix + "_status", String.class));
-        entity.setCreatedAt(converter.fromRow(row, prefix + "_created_at", ZonedDateTime.class));
-        entity.setCancelledAt(converter.fromRow(row, prefix + "_cancelled_at", ZonedDateTime.class));
-        entity.setUserId(converter.fromRow(row, prefix + "_user_id", Long.class));
-        entity.setEventId(converter.fromRow(row, prefix + "_event_id", Long.class));
-        return entity;
+        return resolve(row.getMetadata(), prefix).apply(row);
+    }
+
+    /**
+     * Resolve the columns of the given prefix once against the metadata of a result set.
+     * @return the mapper of the rows of that result set to {@link Booking}.
+     */
+    public Function<Row, Booking> resolve(RowMetadata metadata, String prefix) {
+        ColumnReader<Long> id = converter.reader(metadata, prefix + "_id", Long.class);
+        ColumnReader<String> status = converter.reader(metadata, prefix + "_status", String.class);
+        ColumnReader<ZonedDateTime> createdAt = converter.reader(metadata, prefix + "_created_at", ZonedDateTime.class);
+        ColumnReader<ZonedDateTime> cancelledAt = converter.reader(metadata, prefix + "_cancelled_at", ZonedDateTime.class);
+        ColumnReader<Long> userId = converter.reader(metadata, prefix + "_user_id", Long.class);
+        ColumnReader<Long> eventId = converter.reader(metadata, prefix + "_event_id", Long.class);
+        return row -> {
+            Booking entity = new Booking();
+            entity.setId(id.read(row));
+            entity.setStatus(status.read(row));
+            entity.setCreatedAt(createdAt.read(row));
+            entity.setCancelledAt(cancelledAt.read(row));
+            entity.setUserId(userId.read(row));
+            entity.setEventId(eventId.read(row));
+            return entity;
+        };
     }
 }
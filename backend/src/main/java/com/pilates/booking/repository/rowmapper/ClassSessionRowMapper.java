@@ -1,9 +1,12 @@
 package com.pilates.booking.repository.rowmapper;
 
 import com.pilates.booking.domain.ClassSession;
+import com.pilates.booking.repository.rowmapper.ColumnConverter.ColumnReader;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import java.time.ZonedDateTime;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
 /**
@@ -24,15 +27,33 @@ public class ClassSessionRowMapper implements BiFunction<Row, String, ClassSessi
      */
     @Override
     public ClassSession apply(Row row, String prefix) {
-        ClassSession entity = new ClassSession();
-        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
-        entity.setCoachName(converter.fromRow(row, prefix + "_coach_name", String.class));
-        entity.setStartAt(converter.fromRow(row, prefix + "_start_at", ZonedDateTime.class));
-        entity.setEndAt(converter.fromRow(row, prefix + "_end_at", ZonedDateTime.class));
-        entity.setCapacity(converter.fromRow(row, prefix + "_capacity", Integer.class));
-        entity.setStatus(converter.fromRow(row, prefix + "_status", String.class));
-        entity.setStudioId(converter.fromRow(row, prefix + "_studio_id", Long.class));
-        entity.setClassTypeId(converter.fromRow(row, prefix + "_class_type_id", Long.class));
-        return entity;
+        return resolve(row.getMetadata(), prefix).apply(row);
+    }
+
+    /**
+     * Resolve the columns of the given prefix once against the metadata of a result set.
+     * @return the mapper of the rows of that result set to {@link ClassSession}.
+     */
+    public Function<Row, ClassSession> resolve(RowMetadata metadata, String prefix) {
+        ColumnReader<Long> id = converter.reader(metadata, prefix + "_id", Long.class);
+        ColumnReader<String> coachName = converter.reader(metadata, prefix + "_coach_name", String.class);
+        ColumnReader<ZonedDateTime> startAt = converter.reader(metadata, prefix + "_start_at", ZonedDateTime.class);
+        ColumnReader<ZonedDateTime> endAt = converter.reader(metadata, prefix + "_end_at", ZonedDateTime.class);
+        ColumnReader<Integer> capacity = converter.reader(metadata, prefix + "_capacity", Integer.class);
+        ColumnReader<String> status = converter.reader(metadata, prefix + "_status", String.class);
+        ColumnReader<Long> studioId = converter.reader(metadata, prefix + "_studio_id", Long.class);
+        ColumnReader<Long> classTypeId = converter.reader(metadata, prefix + "_class_type_id", Long.class);
+        return row -> {
+            ClassSession entity = new ClassSession();
+            entity.setId(id.read(row));
+            entity.setCoachName(coachName.read(row));
+            entity.setStartAt(startAt.read(row));
+            entity.setEndAt(endAt.read(row));
+            entity.setCapacity(capacity.read(row));
+            entity.setStatus(status.read(row));
+            entity.setStudioId(studioId.read(row));
+            entity.setClassTypeId(classTypeId.read(row));
+            return entity;
+        };
     }
 }
@@ -1,8 +1,11 @@
 package com.pilates.booking.repository.rowmapper;
 
 import com.pilates.booking.domain.ClassType;
+import com.pilates.booking.repository.rowmapper.ColumnConverter.ColumnReader;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
 /**
@@ -23,11 +26,25 @@ public class ClassTypeRowMapper implements BiFunction<Row, String, ClassType> {
      */
     @Override
     public ClassType apply(Row row, String prefix) {
-        ClassType entity = new ClassType();
-        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
-        entity.setName(converter.fromRow(row, prefix + "_name", String.class));
-        entity.setDescription(converter.fromRow(row, prefix + "_description", String.class));
-        entity.setCapacity(converter.fromRow(row, prefix + "_capacity", Integer.class));
-        return entity;
+        return resolve(row.getMetadata(), prefix).apply(row);
+    }
+
+    /**
+     * Resolve the columns of the given prefix once against the metadata of a result set.
+     * @return the mapper of the rows of that result set to {@link ClassType}.
+     */
+    public Function<Row, ClassType> resolve(RowMetadata metadata, String prefix) {
+        ColumnReader<Long> id = converter.reader(metadata, prefix + "_id", Long.class);
+        ColumnReader<String> name = converter.reader(metadata, prefix + "_name", String.class);
+        ColumnReader<String> description = converter.reader(metadata, prefix + "_description", String.class);
+        ColumnReader<Integer> capacity = converter.reader(metadata, prefix + "_capacity", Integer.class);
+        return row -> {
+            ClassType entity = new ClassType();
+            entity.setId(id.read(row));
+            entity.setName(name.read(row));
+            entity.setDescription(description.read(row));
+            entity.setCapacity(capacity.read(row));
+            return entity;
+        };
     }
 }
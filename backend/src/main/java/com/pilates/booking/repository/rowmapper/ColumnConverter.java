@@ -1,6 +1,9 @@
 package com.pilates.booking.repository.rowmapper;
 
+import io.r2dbc.spi.ColumnMetadata;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.util.List;
 import org.springframework.core.convert.ConversionService;
 import org.springframework.data.r2dbc.convert.R2dbcConverter;
 import org.springframework.data.r2dbc.convert.R2dbcCustomConversions;
@@ -15,6 +18,16 @@ import tech.jhipster.service.ColumnConverterReactive;
 @Component
 public class ColumnConverter implements ColumnConverterReactive {
 
+    /**
+     * Reads a column of the rows of a result set, resolved once against its {@link RowMetadata}.
+     * @param <T> the type of the value read.
+     */
+    @FunctionalInterface
+    public interface ColumnReader<T> {
+        @Nullable
+        T read(Row row);
+    }
+
     private final ConversionService conversionService;
     private final R2dbcCustomConversions conversions;
 
@@ -65,4 +78,40 @@ public class ColumnConverter implements ColumnConverterReactive {
             return convert(obj, target);
         }
     }
+
+    /**
+     * Resolve the reader of a column against the metadata of a result set: the value is read by position, straight
+     * from the driver when it decodes the column to the target type, else decoded to the driver's own type then
+     * converted. Unlike {@link #fromRow(Row, String, Class)}, no lookup by name nor failed decoding is left per row.
+     * @param metadata the metadata of the result set.
+     * @param columnName the name of the column to read.
+     * @param target class.
+     * @param <T> the parameter for the intended type.
+     * @return the reader of the column, reading null if the result set has no such column (e.g. a table not joined).
+     */
+    public <T> ColumnReader<T> reader(RowMetadata metadata, String columnName, Class<T> target) {
+        int index = indexOf(metadata, columnName);
+        if (index < 0) {
+            return row -> null;
+        }
+        Class<?> driverType = metadata.getColumnMetadata(index).getJavaType();
+        if (driverType == null) {
+            return row -> convert(row.get(index), target);
+        }
+        if (ClassUtils.isAssignable(target, driverType)) {
+            return row -> row.get(index, target);
+        }
+        return row -> convert(row.get(index, driverType), target);
+    }
+
+    private static int indexOf(RowMetadata metadata, String columnName) {
+        // the unquoted aliases are folded by the database, as the driver's lookup by name does
+        List<? extends ColumnMetadata> columns = metadata.getColumnMetadatas();
+        for (int i = 0; i < columns.size(); i++) {
+            if (columns.get(i).getName().equalsIgnoreCase(columnName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
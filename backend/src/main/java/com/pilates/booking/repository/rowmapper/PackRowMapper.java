@@ -1,8 +1,11 @@
 package com.pilates.booking.repository.rowmapper;
 
 import com.pilates.booking.domain.Pack;
+import com.pilates.booking.repository.rowmapper.ColumnConverter.ColumnReader;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
 /**
@@ -23,15 +26,33 @@ public class PackRowMapper implements BiFunction<Row, String, Pack> {
      */
     @Override
     public Pack apply(Row row, String prefix) {
-        Pack entity = new Pack();
-        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
-        entity.setPackName(converter.fromRow(row, prefix + "_pack_name", String.class));
-        entity.setDescription(converter.fromRow(row, prefix + "_description", String.class));
-        entity.setPrice(converter.fromRow(row, prefix + "_price", Integer.class));
-        entity.setBillingPeriod(converter.fromRow(row, prefix + "_billing_period", String.class));
-        entity.setCredits(converter.fromRow(row, prefix + "_credits", Integer.class));
-        entity.setValidityDays(converter.fromRow(row, prefix + "_validity_days", Integer.class));
-        entity.setUserId(converter.fromRow(row, prefix + "_user_id", Long.class));
-        return entity;
+        return resolve(row.getMetadata(), prefix).apply(row);
+    }
+
+    /**
+     * Resolve the columns of the given prefix once against the metadata of a result set.
+     * @return the mapper of the rows of that result set to {@link Pack}.
+     */
+    public Function<Row, Pack> resolve(RowMetadata metadata, String prefix) {
+        ColumnReader<Long> id = converter.reader(metadata, prefix + "_id", Long.class);
+        ColumnReader<String> packName = converter.reader(metadata, prefix + "_pack_name", String.class);
+        ColumnReader<String> description = converter.reader(metadata, prefix + "_description", String.class);
+        ColumnReader<Integer> price = converter.reader(metadata, prefix + "_price", Integer.class);
+        ColumnReader<String> billingPeriod = converter.reader(metadata, prefix + "_billing_period", String.class);
+        ColumnReader<Integer> credits = converter.reader(metadata, prefix + "_credits", Integer.class);
+        ColumnReader<Integer> validityDays = converter.reader(metadata, prefix + "_validity_days", Integer.class);
+        ColumnReader<Long> userId = converter.reader(metadata, prefix + "_user_id", Long.class);
+        return row -> {
+            Pack entity = new Pack();
+            entity.setId(id.read(row));
+            entity.setPackName(packName.read(row));
+            entity.setDescription(description.read(row));
+            entity.setPrice(price.read(row));
+            entity.setBillingPeriod(billingPeriod.read(row));
+            entity.setCredits(credits.read(row));
+            entity.setValidityDays(validityDays.read(row));
+            entity.setUserId(userId.read(row));
+            return entity;
+        };
     }
 }
@@ -1,9 +1,12 @@
 package com.pilates.booking.repository.rowmapper;
 
 import com.pilates.booking.domain.PeriodSubscription;
+import com.pilates.booking.repository.rowmapper.ColumnConverter.ColumnReader;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import java.time.LocalDate;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
 /**
@@ -24,16 +27,35 @@ public class PeriodSubscriptionRowMapper implements BiFunction<Row, String, Peri
      */
     @Override
     public PeriodSubscription apply(Row row, String prefix) {
-        PeriodSubscription entity = new PeriodSubscription();
-        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
-        entity.setSubscriptionName(converter.fromRow(row, prefix + "_subscription_name", String.class));
-        entity.setDescription(converter.fromRow(row, prefix + "_description", String.class));
-        entity.setPrice(converter.fromRow(row, prefix + "_price", Integer.class));
-        entity.setBillingPeriod(converter.fromRow(row, prefix + "_billing_period", String.class));
-        entity.setCreditsPerPeriod(converter.fromRow(row, prefix + "_credits_per_period", Integer.class));
-        entity.setStartDate(converter.fromRow(row, prefix + "_start_date", LocalDate.class));
-        entity.setEndDate(converter.fromRow(row, prefix + "_end_date", LocalDate.class));
-        entity.setUserId(converter.fromRow(row, prefix + "_user_id", Long.class));
-        return entity;
+        return resolve(row.getMetadata(), prefix).apply(row);
+    }
+
+    /**
+     * Resolve the columns of the given prefix once against the metadata of a result set.
+     * @return the mapper of the rows of that result set to {@link PeriodSubscription}.
+     */
+    public Function<Row, PeriodSubscription> resolve(RowMetadata metadata, String prefix) {
+        ColumnReader<Long> id = converter.reader(metadata, prefix + "_id", Long.class);
+        ColumnReader<String> subscriptionName = converter.reader(metadata, prefix + "_subscription_name", String.class);
+        ColumnReader<String> description = converter.reader(metadata, prefix + "_description", String.class);
+        ColumnReader<Integer> price = converter.reader(metadata, prefix + "_price", Integer.class);
+        ColumnReader<String> billingPeriod = converter.reader(metadata, prefix + "_billing_period", String.class);
+        ColumnReader<Integer> creditsPerPeriod = converter.reader(metadata, prefix + "_credits_per_period", Integer.class);
+        ColumnReader<LocalDate> startDate = converter.reader(metadata, prefix + "_start_date", LocalDate.class);
+        ColumnReader<LocalDate> endDate = converter.reader(metadata, prefix + "_end_date", LocalDate.class);
+        ColumnReader<Long> userId = converter.reader(metadata, prefix + "_user_id", Long.class);
+        return row -> {
+            PeriodSubscription entity = new PeriodSubscription();
+            entity.setId(id.read(row));
+            entity.setSubscriptionName(subscriptionName.read(row));
+            entity.setDescription(description.read(row));
+            entity.setPrice(price.read(row));
+            entity.setBillingPeriod(billingPeriod.read(row));
+            entity.setCreditsPerPeriod(creditsPerPeriod.read(row));
+            entity.setStartDate(startDate.read(row));
+            entity.setEndDate(endDate.read(row));
+            entity.setUserId(userId.read(row));
+            return entity;
+        };
     }
 }
@@ -0,0 +1,40 @@
+package com.pilates.booking.repository.rowmapper;
+
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Maps the rows of a result set with a mapper resolved against its {@link RowMetadata}: the column positions and
+ * readers are looked up on the first row, then reused for the following rows, which share their metadata.
+ * <p>
+ * Create one per query: {@code db.sql(select).map(new ResolvingRowMapper<>(resolver))}.
+ * @param <T> the type of the mapped rows.
+ */
+public class ResolvingRowMapper<T> implements BiFunction<Row, RowMetadata, T> {
+
+    private record Resolved<T>(RowMetadata metadata, Function<Row, T> mapper) {}
+
+    private final Function<RowMetadata, Function<Row, T>> resolver;
+
+    private volatile Resolved<T> resolved;
+
+    /**
+     * @param resolver resolves the mapper of the rows against the metadata of their result set.
+     */
+    public ResolvingRowMapper(Function<RowMetadata, Function<Row, T>> resolver) {
+        this.resolver = resolver;
+    }
+
+    @Override
+    public T apply(Row row, RowMetadata metadata) {
+        Resolved<T> current = resolved;
+        // a driver handing out new metadata per row is mapped correctly, only slower
+        if (current == null || current.metadata() != metadata) {
+            current = new Resolved<>(metadata, resolver.apply(metadata));
+            resolved = current;
+        }
+        return current.mapper().apply(row);
+    }
+}
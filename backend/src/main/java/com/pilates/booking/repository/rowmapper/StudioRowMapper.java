@@ -1,8 +1,11 @@
 package com.pilates.booking.repository.rowmapper;
 
 import com.pilates.booking.domain.Studio;
+import com.pilates.booking.repository.rowmapper.ColumnConverter.ColumnReader;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
 /**
@@ -23,11 +26,25 @@ public class StudioRowMapper implements BiFunction<Row, String, Studio> {
      */
     @Override
     public Studio apply(Row row, String prefix) {
-        Studio entity = new Studio();
-        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
-        entity.setName(converter.fromRow(row, prefix + "_name", String.class));
-        entity.setAddress(converter.fromRow(row, prefix + "_address", String.class));
-        entity.setCategory(converter.fromRow(row, prefix + "_category", String.class));
-        return entity;
+        return resolve(row.getMetadata(), prefix).apply(row);
+    }
+
+    /**
+     * Resolve the columns of the given prefix once against the metadata of a result set.
+     * @return the mapper of the rows of that result set to {@link Studio}.
+     */
+    public Function<Row, Studio> resolve(RowMetadata metadata, String prefix) {
+        ColumnReader<Long> id = converter.reader(metadata, prefix + "_id", Long.class);
+        ColumnReader<String> name = converter.reader(metadata, prefix + "_name", String.class);
+        ColumnReader<String> address = converter.reader(metadata, prefix + "_address", String.class);
+        ColumnReader<String> category = converter.reader(metadata, prefix + "_category", String.class);
+        return row -> {
+            Studio entity = new Studio();
+            entity.setId(id.read(row));
+            entity.setName(name.read(row));
+            entity.setAddress(address.read(row));
+            entity.setCategory(category.read(row));
+            return entity;
+        };
     }
 }
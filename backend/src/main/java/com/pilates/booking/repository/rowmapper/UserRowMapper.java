@@ -1,9 +1,12 @@
 package com.pilates.booking.repository.rowmapper;
 
 import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.rowmapper.ColumnConverter.ColumnReader;
 import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
 import java.time.Instant;
 import java.util.function.BiFunction;
+import java.util.function.Function;
 import org.springframework.stereotype.Service;
 
 /**
@@ -24,19 +27,41 @@ public class UserRowMapper implements BiFunction<Row, String, User> {
      */
     @Override
     public User apply(Row row, String prefix) {
-        User entity = new User();
-        entity.setId(row.get(prefix + "_id", Long.class));
-        entity.setLogin(converter.fromRow(row, prefix + "_login", String.class));
-        entity.setPassword(converter.fromRow(row, prefix + "_password", String.class));
-        entity.setFirstName(converter.fromRow(row, prefix + "_first_name", String.class));
-        entity.setLastName(converter.fromRow(row, prefix + "_last_name", String.class));
-        entity.setEmail(converter.fromRow(row, prefix + "_email", String.class));
-        entity.setActivated(Boolean.TRUE.equals(converter.fromRow(row, prefix + "_activated", Boolean.class)));
-        entity.setLangKey(converter.fromRow(row, prefix + "_lang_key", String.class));
-        entity.setImageUrl(converter.fromRow(row, prefix + "_image_url", String.class));
-        entity.setActivationKey(converter.fromRow(row, prefix + "_activation_key", String.class));
-        entity.setResetKey(converter.fromRow(row, prefix + "_reset_key", String.class));
-        entity.setResetDate(converter.fromRow(row, prefix + "_reset_date", Instant.class));
-        return entity;
+        return resolve(row.getMetadata(), prefix).apply(row);
+    }
+
+    /**
+     * Resolve the columns of the given prefix once against the metadata of a result set.
+     * @return the mapper of the rows of that result set to {@link User}.
+     */
+    public Function<Row, User> resolve(RowMetadata metadata, String prefix) {
+        ColumnReader<Long> id = converter.reader(metadata, prefix + "_id", Long.class);
+        ColumnReader<String> login = converter.reader(metadata, prefix + "_login", String.class);
+        ColumnReader<String> password = converter.reader(metadata, prefix + "_password", String.class);
+        ColumnReader<String> firstName = converter.reader(metadata, prefix + "_first_name", String.class);
+        ColumnReader<String> lastName = converter.reader(metadata, prefix + "_last_name", String.class);
+        ColumnReader<String> email = converter.reader(metadata, prefix + "_email", String.class);
+        ColumnReader<Boolean> activated = converter.reader(metadata, prefix + "_activated", Boolean.class);
+        ColumnReader<String> langKey = converter.reader(metadata, prefix + "_lang_key", String.class);
+        ColumnReader<String> imageUrl = converter.reader(metadata, prefix + "_image_url", String.class);
+        ColumnReader<String> activationKey = converter.reader(metadata, prefix + "_activation_key", String.class);
+        ColumnReader<String> resetKey = converter.reader(metadata, prefix + "_reset_key", String.class);
+        ColumnReader<Instant> resetDate = converter.reader(metadata, prefix + "_reset_date", Instant.class);
+        return row -> {
+            User entity = new User();
+            entity.setId(id.read(row));
+            entity.setLogin(login.read(row));
+            entity.setPassword(password.read(row));
+            entity.setFirstName(firstName.read(row));
+            entity.setLastName(lastName.read(row));
+            entity.setEmail(email.read(row));
+            entity.setActivated(Boolean.TRUE.equals(activated.read(row)));
+            entity.setLangKey(langKey.read(row));
+            entity.setImageUrl(imageUrl.read(row));
+            entity.setActivationKey(activationKey.read(row));
+            entity.setResetKey(resetKey.read(row));
+            entity.setResetDate(resetDate.read(row));
+            return entity;
+        };
     }
 }
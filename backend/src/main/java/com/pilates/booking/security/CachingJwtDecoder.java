@@ -0,0 +1,94 @@
+package com.pilates.booking.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import org.springframework.security.oauth2.jwt.Jwt;
+import org.springframework.security.oauth2.jwt.JwtException;
+import org.springframework.security.oauth2.jwt.ReactiveJwtDecoder;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link ReactiveJwtDecoder} remembering the tokens it has already verified.
+ * <p>
+ * The same bearer token comes back on every request of a session, so the parsing and the signature check are done
+ * once per token: entries are keyed by the SHA-256 of the raw token and expire at the token's own {@code exp} claim.
+ * Only accepted tokens are cached, so every rejection still goes through the delegate and its meters. Hits, misses and
+ * evictions are published as the {@code cache.*} meters tagged {@code cache=jwtDecode}.
+ */
+public class CachingJwtDecoder implements ReactiveJwtDecoder {
+
+    public static final String CACHE_NAME = "jwtDecode";
+
+    private final ReactiveJwtDecoder delegate;
+
+    private final Cache<String, Jwt> cache;
+
+    public CachingJwtDecoder(ReactiveJwtDecoder delegate, long maximumSize, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfter(new UntilExpiresAt()).recordStats().build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    @Override
+    public Mono<Jwt> decode(String token) throws JwtException {
+        String key = hash(token);
+        Jwt jwt = cache.getIfPresent(key);
+        if (jwt != null) {
+            return Mono.just(jwt);
+        }
+        return delegate
+            .decode(token)
+            .doOnNext(decoded -> {
+                // a token without expiry would stay cached until evicted by size
+                if (decoded.getExpiresAt() != null) {
+                    cache.put(key, decoded);
+                }
+            });
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static final class UntilExpiresAt implements Expiry<String, Jwt> {
+
+        // the longest Duration counted in nanoseconds, about 292 years
+        private static final Duration LONGEST = Duration.ofNanos(Long.MAX_VALUE);
+
+        @Override
+        public long expireAfterCreate(String key, Jwt jwt, long currentTime) {
+            if (jwt.getExpiresAt() == null) {
+                return 0;
+            }
+            Duration remaining = Duration.between(Instant.now(), jwt.getExpiresAt());
+            if (remaining.isNegative()) {
+                return 0;
+            }
+            return remaining.compareTo(LONGEST) < 0 ? remaining.toNanos() : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, jwt, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, Jwt jwt, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -26,8 +26,11 @@ public class DomainUserDetailsService implements ReactiveUserDetailsService {
 
     private final UserRepository userRepository;
 
-    public DomainUserDetailsService(UserRepository userRepository) {
+    private final UserIdentityCache userIdentityCache;
+
+    public DomainUserDetailsService(UserRepository userRepository, UserIdentityCache userIdentityCache) {
         this.userRepository = userRepository;
+        this.userIdentityCache = userIdentityCache;
     }
 
     @Override
@@ -43,10 +46,10 @@ public class DomainUserDetailsService implements ReactiveUserDetailsService {
         }
 
         String lowercaseLogin = login.toLowerCase(Locale.ENGLISH);
-        return userRepository
-            .findOneWithAuthoritiesByLogin(lowercaseLogin)
+        return userIdentityCache
+            .get(lowercaseLogin)
             .switchIfEmpty(Mono.error(new UsernameNotFoundException("User " + lowercaseLogin + " was not found in the database")))
-            .map(user -> createSpringSecurityUser(lowercaseLogin, user));
+            .map(identity -> createSpringSecurityUser(lowercaseLogin, identity));
     }
 
     private org.springframework.security.core.userdetails.User createSpringSecurityUser(String lowercaseLogin, User user) {
@@ -56,6 +59,16 @@ public class DomainUserDetailsService implements ReactiveUserDetailsService {
         return UserWithId.fromUser(user);
     }
 
+    private org.springframework.security.core.userdetails.User createSpringSecurityUser(
+        String lowercaseLogin,
+        UserIdentityCache.UserIdentity identity
+    ) {
+        if (!identity.activated()) {
+            throw new UserNotActivatedException("User " + lowercaseLogin + " was not activated");
+        }
+        return UserWithId.fromIdentity(identity);
+    }
+
     public static class UserWithId extends org.springframework.security.core.userdetails.User {
 
         private final Long id;
@@ -79,6 +92,15 @@ public class DomainUserDetailsService implements ReactiveUserDetailsService {
             return super.hashCode();
         }
 
+        public static UserWithId fromIdentity(UserIdentityCache.UserIdentity identity) {
+            return new UserWithId(
+                identity.login(),
+                identity.password(),
+                identity.authorities().stream().map(SimpleGrantedAuthority::new).toList(),
+                identity.id()
+            );
+        }
+
         public static UserWithId fromUser(User user) {
             return new UserWithId(
                 user.getLogin(),
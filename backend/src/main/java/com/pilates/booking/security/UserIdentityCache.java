@@ -0,0 +1,101 @@
+package com.pilates.booking.security;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pilates.booking.domain.Authority;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.time.Duration;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+/**
+ * Bounded, expiring cache of the identity of the users, keyed by login.
+ * <p>
+ * Spares the user and authorities queries on each login and on each request needing the current user id or
+ * authorities. Eviction is size based (W-TinyLFU) and entries expire after a fixed time to live; the user service
+ * also evicts a user whenever it is saved or deleted. Hits, misses and evictions are published as the
+ * {@code cache.*} meters tagged {@code cache=userIdentity}.
+ */
+public class UserIdentityCache {
+
+    public static final String CACHE_NAME = "userIdentity";
+
+    /**
+     * What is cached about a user.
+     */
+    public record UserIdentity(Long id, String login, String password, boolean activated, Set<String> authorities) {
+        public static UserIdentity fromUser(User user) {
+            return new UserIdentity(
+                user.getId(),
+                user.getLogin(),
+                user.getPassword(),
+                user.isActivated(),
+                user.getAuthorities().stream().map(Authority::getName).collect(Collectors.toUnmodifiableSet())
+            );
+        }
+    }
+
+    private final UserRepository userRepository;
+
+    private final AsyncCache<String, UserIdentity> cache;
+
+    public UserIdentityCache(UserRepository userRepository, long maximumSize, Duration timeToLive, MeterRegistry meterRegistry) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder().maximumSize(maximumSize).expireAfterWrite(timeToLive).recordStats().buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    /**
+     * Get the identity of a user, loading it from the database on a miss. Concurrent misses on the same login
+     * share a single load.
+     *
+     * @param login the login of the user.
+     * @return the identity, or an empty {@link Mono} if there is no such user.
+     */
+    public Mono<UserIdentity> get(String login) {
+        // a cancelled subscriber must not cancel a load other subscribers are waiting for
+        return Mono.fromFuture(
+            () ->
+                cache.get(login, (key, executor) ->
+                    userRepository.findOneWithAuthoritiesByLogin(key).map(UserIdentity::fromUser).toFuture()
+                ),
+            true
+        );
+    }
+
+    /**
+     * Evict the identity of a user, right away and again when the current transaction completes, so that a request
+     * reading the user before the commit cannot put the old row back in the cache.
+     *
+     * @param login the login of the user.
+     * @return a completed {@link Mono}.
+     */
+    public Mono<Void> evict(String login) {
+        if (login == null) {
+            return Mono.empty();
+        }
+        return Mono.fromRunnable(() -> cache.synchronous().invalidate(login)).then(
+            TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager ->
+                    synchronizationManager.registerSynchronization(
+                        new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCompletion(int status) {
+                                return Mono.fromRunnable(() -> cache.synchronous().invalidate(login));
+                            }
+                        }
+                    )
+                )
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .then()
+        );
+    }
+}
@@ -0,0 +1,249 @@
+package com.pilates.booking.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.security.SecurityUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+import java.util.function.LongSupplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Service shedding the booking requests the database cannot take when a popular class opens for booking.
+ * <p>
+ * A request first takes a token from the bucket of its user, or is rejected with {@code 429 (Too Many Requests)}, then
+ * one from the bucket of its event, or is rejected with {@code 503 (Service Unavailable)}. It then waits in a bounded
+ * queue, first come first served, until one of the {@code max-concurrent} reservation slots is free: a request
+ * finding the queue full, or still waiting after {@code max-wait}, is rejected with {@code 503 (Service Unavailable)}.
+ * Every rejection carries a {@code Retry-After} header. Buckets, queue and slots are lock free.
+ * <p>
+ * Published meters: {@code booking.admission.queue.depth}, {@code booking.admission.in.flight} and
+ * {@code booking.admission.rejections} tagged by {@code reason}.
+ */
+@Service
+public class BookingAdmissionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookingAdmissionService.class);
+
+    public static final String QUEUE_POSITION_HEADER = "X-Queue-Position";
+
+    private final LongSupplier nanoTime;
+
+    private final TokenBucket<String> userBuckets;
+
+    private final TokenBucket<Long> eventBuckets;
+
+    private final int maxConcurrent;
+
+    private final int queueCapacity;
+
+    private final Duration maxWait;
+
+    private final AtomicInteger freeSlots;
+
+    private final AtomicInteger waiting = new AtomicInteger();
+
+    private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+    private final Counter userRateRejections;
+
+    private final Counter eventRateRejections;
+
+    private final Counter queueFullRejections;
+
+    private final Counter timeoutRejections;
+
+    @Autowired
+    public BookingAdmissionService(ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this(applicationProperties.getBookingAdmission(), meterRegistry, System::nanoTime);
+    }
+
+    BookingAdmissionService(ApplicationProperties.BookingAdmission admission, MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.nanoTime = nanoTime;
+        this.userBuckets = new TokenBucket<>(admission.getUserRate(), admission.getUserBurst(), admission.getMaxTrackedKeys());
+        this.eventBuckets = new TokenBucket<>(admission.getEventRate(), admission.getEventBurst(), admission.getMaxTrackedKeys());
+        this.maxConcurrent = admission.getMaxConcurrent();
+        this.queueCapacity = admission.getQueueCapacity();
+        this.maxWait = admission.getMaxWait();
+        this.freeSlots = new AtomicInteger(maxConcurrent);
+
+        Gauge.builder("booking.admission.queue.depth", waiting, AtomicInteger::get)
+            .description("Number of booking requests waiting for a reservation slot")
+            .register(meterRegistry);
+        Gauge.builder("booking.admission.in.flight", freeSlots, free -> maxConcurrent - free.get())
+            .description("Number of booking requests holding a reservation slot")
+            .register(meterRegistry);
+        this.userRateRejections = rejectionsCounter("user_rate", meterRegistry);
+        this.eventRateRejections = rejectionsCounter("event_rate", meterRegistry);
+        this.queueFullRejections = rejectionsCounter("queue_full", meterRegistry);
+        this.timeoutRejections = rejectionsCounter("timeout", meterRegistry);
+    }
+
+    private static Counter rejectionsCounter(String reason, MeterRegistry meterRegistry) {
+        return Counter.builder("booking.admission.rejections")
+            .description("Number of booking requests shed by admission control")
+            .tag("reason", reason)
+            .register(meterRegistry);
+    }
+
+    /**
+     * Run a reservation once it is admitted.
+     *
+     * @param eventId the id of the event to book.
+     * @param reservation the reservation, given the position the request had in the queue ({@code 0} if it did not wait).
+     * @param <T> the type of the reservation result.
+     * @return the result of the reservation, or an {@link AdmissionRejectedException} if the request is shed.
+     */
+    public <T> Mono<T> admit(Long eventId, IntFunction<Mono<T>> reservation) {
+        return SecurityUtils.getCurrentUserLogin()
+            .defaultIfEmpty("")
+            .flatMap(login ->
+                Mono.defer(() -> {
+                    long now = nanoTime.getAsLong();
+                    long userWait = userBuckets.tryAcquire(login, now);
+                    if (userWait > 0) {
+                        userRateRejections.increment();
+                        return Mono.error(
+                            new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, "Too many booking requests", Duration.ofNanos(userWait))
+                        );
+                    }
+                    long eventWait = eventId == null ? 0 : eventBuckets.tryAcquire(eventId, now);
+                    if (eventWait > 0) {
+                        eventRateRejections.increment();
+                        return Mono.error(
+                            new AdmissionRejectedException(
+                                HttpStatus.SERVICE_UNAVAILABLE,
+                                "Too many booking requests for this event",
+                                Duration.ofNanos(eventWait)
+                            )
+                        );
+                    }
+                    return enqueue(reservation);
+                })
+            );
+    }
+
+    private <T> Mono<T> enqueue(IntFunction<Mono<T>> reservation) {
+        int position = waiting.incrementAndGet();
+        if (position > queueCapacity) {
+            waiting.decrementAndGet();
+            queueFullRejections.increment();
+            LOG.debug("Booking queue full, request shed");
+            return Mono.error(new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, "Booking queue is full", maxWait));
+        }
+        Waiter waiter = new Waiter();
+        waiters.offer(waiter);
+        drain();
+        int queuePosition = waiter.state.get() == Waiter.WAITING ? position : 0;
+        return waiter.admission
+            .asMono()
+            .timeout(
+                maxWait,
+                Mono.defer(() -> {
+                    timeoutRejections.increment();
+                    return Mono.error(new AdmissionRejectedException(HttpStatus.SERVICE_UNAVAILABLE, "Booking queue is full", maxWait));
+                })
+            )
+            .then(Mono.defer(() -> reservation.apply(queuePosition)))
+            .doFinally(signal -> leave(waiter));
+    }
+
+    /**
+     * Hand the free slots to the oldest waiters.
+     */
+    private void drain() {
+        while (!waiters.isEmpty()) {
+            int free = freeSlots.get();
+            if (free <= 0) {
+                return;
+            }
+            if (!freeSlots.compareAndSet(free, free - 1)) {
+                continue;
+            }
+            Waiter waiter = waiters.poll();
+            if (waiter == null || !waiter.state.compareAndSet(Waiter.WAITING, Waiter.ADMITTED)) {
+                // nobody to admit, or a waiter which gave up: give the slot back and look again
+                freeSlots.incrementAndGet();
+                continue;
+            }
+            waiting.decrementAndGet();
+            waiter.admission.tryEmitEmpty();
+        }
+    }
+
+    private void leave(Waiter waiter) {
+        if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.LEFT)) {
+            waiting.decrementAndGet();
+            waiters.remove(waiter);
+        } else if (waiter.state.compareAndSet(Waiter.ADMITTED, Waiter.LEFT)) {
+            freeSlots.incrementAndGet();
+            drain();
+        }
+    }
+
+    private static final class Waiter {
+
+        static final int WAITING = 0;
+        static final int ADMITTED = 1;
+        static final int LEFT = 2;
+
+        final AtomicInteger state = new AtomicInteger(WAITING);
+
+        final Sinks.Empty<Void> admission = Sinks.empty();
+    }
+
+    /**
+     * Token buckets by key, as a generic cell rate algorithm: each key only holds the time at which its bucket will be
+     * full again, moved forward by one emission interval per token taken.
+     */
+    static final class TokenBucket<K> {
+
+        private final long intervalNanos;
+
+        private final long burstNanos;
+
+        private final Cache<K, AtomicLong> fullAt;
+
+        TokenBucket(int ratePerSecond, int burst, long maxKeys) {
+            this.intervalNanos = TimeUnit.SECONDS.toNanos(1) / ratePerSecond;
+            this.burstNanos = intervalNanos * burst;
+            // a bucket idle for the time it takes to fill up is full: forgetting it changes nothing
+            this.fullAt = Caffeine.newBuilder().maximumSize(maxKeys).expireAfterAccess(Duration.ofNanos(burstNanos)).build();
+        }
+
+        /**
+         * Take a token from the bucket of a key.
+         *
+         * @return {@code 0} if a token was taken, otherwise the time in nanoseconds until the next token.
+         */
+        long tryAcquire(K key, long now) {
+            AtomicLong bucket = fullAt.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+            while (true) {
+                long current = bucket.get();
+                long next = Math.max(current, now) + intervalNanos;
+                long wait = next - burstNanos - now;
+                if (wait > 0) {
+                    return wait;
+                }
+                if (bucket.compareAndSet(current, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package com.pilates.booking.service;
+
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.repository.BookingRepository;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service maintaining the monthly partitions of the booking table.
+ * <p>
+ * The partitions of the coming months are created ahead of the bookings, and the months older than the configured
+ * number of hot months are moved to {@code booking_archive} once all their events are over. The service also keeps
+ * the upcoming horizon, the start of the oldest month holding a booking of an upcoming event: the lookups of the
+ * bookings of upcoming events skip the partitions before it.
+ */
+@Service
+public class BookingPartitionService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookingPartitionService.class);
+
+    private final BookingRepository bookingRepository;
+
+    private final int monthsAhead;
+
+    private final int hotMonths;
+
+    // null until first read from the database
+    private final AtomicReference<Instant> upcomingHorizon = new AtomicReference<>();
+
+    // creation dates of the bookings moved by hand since the last refresh started
+    private final AtomicReference<Instant> covered = new AtomicReference<>();
+
+    public BookingPartitionService(BookingRepository bookingRepository, ApplicationProperties applicationProperties) {
+        this.bookingRepository = bookingRepository;
+        this.monthsAhead = applicationProperties.getBookingPartitions().getMonthsAhead();
+        this.hotMonths = applicationProperties.getBookingPartitions().getHotMonths();
+    }
+
+    /**
+     * Get the upcoming horizon: no booking of an event which has not started yet is older.
+     *
+     * @return the horizon, read from the database on first use.
+     */
+    public Mono<Instant> upcomingHorizon() {
+        return Mono.defer(() -> {
+            Instant horizon = upcomingHorizon.get();
+            return horizon != null ? Mono.just(horizon) : refreshUpcomingHorizon();
+        });
+    }
+
+    /**
+     * Keep the upcoming horizon below the creation date of a booking written by hand, which may be older than the
+     * horizon while its event is upcoming. The other nodes catch up on their next refresh.
+     *
+     * @param createdAt the creation date of the booking, ignored if {@code null}.
+     */
+    public void coverCreatedAt(ZonedDateTime createdAt) {
+        if (createdAt == null) {
+            return;
+        }
+        Instant instant = createdAt.toInstant();
+        covered.accumulateAndGet(instant, BookingPartitionService::earliest);
+        upcomingHorizon.updateAndGet(horizon -> horizon == null ? null : earliest(horizon, instant));
+    }
+
+    /**
+     * Read the upcoming horizon back from the database: it moves forward as the events pass.
+     *
+     * @return the new horizon.
+     */
+    public Mono<Instant> refreshUpcomingHorizon() {
+        return Mono.defer(() -> {
+            Instant pending = covered.getAndSet(null);
+            Instant now = Instant.now();
+            return bookingRepository
+                .findUpcomingHorizon(now)
+                // no upcoming booking yet, the next ones are made from now on
+                .defaultIfEmpty(monthStart(now).atStartOfDay(ZoneOffset.UTC).toInstant())
+                .map(horizon -> {
+                    upcomingHorizon.set(earliest(horizon, pending));
+                    // a booking moved while the horizon was read
+                    Instant late = covered.get();
+                    return late == null ? upcomingHorizon.get() : upcomingHorizon.accumulateAndGet(late, BookingPartitionService::earliest);
+                })
+                .doOnNext(horizon -> LOG.debug("Upcoming bookings horizon: {}", horizon));
+        });
+    }
+
+    /**
+     * Create the partitions of the current and coming months, archive the months past the hot ones whose events are
+     * all over, then refresh the upcoming horizon.
+     *
+     * @return a completed {@link Mono}.
+     */
+    public Mono<Void> maintainPartitions() {
+        Instant now = Instant.now();
+        LocalDate currentMonth = monthStart(now);
+        Instant archivedBefore = currentMonth.minusMonths(hotMonths).atStartOfDay(ZoneOffset.UTC).toInstant();
+        return Flux.range(0, monthsAhead + 1)
+            .concatMap(i -> bookingRepository.createPartition(currentMonth.plusMonths(i)))
+            .doOnNext(partition -> LOG.info("Created booking partition {}", partition))
+            .thenMany(bookingRepository.archivePartitions(archivedBefore, now))
+            .doOnNext(partition -> LOG.info("Archived booking partition {}", partition))
+            .then(refreshUpcomingHorizon())
+            .then();
+    }
+
+    /**
+     * Partitions are created ahead of the bookings and past seasons are archived.
+     * <p>
+     * This is scheduled to get fired every day, at 03:30 (am).
+     */
+    @Scheduled(cron = "0 30 3 * * ?")
+    public void maintainPartitionsDaily() {
+        maintainPartitions().block();
+    }
+
+    /**
+     * The upcoming horizon moves forward as the events pass.
+     * <p>
+     * This is scheduled to get fired every hour.
+     */
+    @Scheduled(cron = "0 45 * * * ?")
+    public void refreshUpcomingHorizonHourly() {
+        refreshUpcomingHorizon().block();
+    }
+
+    private static LocalDate monthStart(Instant instant) {
+        return LocalDate.ofInstant(instant, ZoneOffset.UTC).withDayOfMonth(1);
+    }
+
+    private static Instant earliest(Instant a, Instant b) {
+        if (a == null) {
+            return b;
+        }
+        return b == null || a.isBefore(b) ? a : b;
+    }
+}
@@ -1,6 +1,9 @@
 package com.pilates.booking.service;
 
 import com.pilates.booking.domain.Booking;
+import com.pilates.booking.repository.FieldSet;
+import com.pilates.booking.repository.MemberBooking;
+import java.time.Instant;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -16,6 +19,28 @@ public interface BookingService {
 
     Flux<Booking> findAll();
 
+    /**
+     * Keyset page of the bookings ordered by id: all of them for an admin, the user's own otherwise.
+     */
+    Flux<Booking> findAll(Long afterId, int limit);
+
+    /**
+     * Keyset page of the bookings ordered by id, as {@link #findAll(Long, int)}, restricted to the given fields.
+     */
+    Flux<Booking> findAll(Long afterId, int limit, FieldSet fields);
+
+    /**
+     * Keyset page of the current user's bookings with their event, studio and class type, read in a single query:
+     * upcoming ones soonest first, or past ones most recent first.
+     *
+     * @param upcoming {@code true} for the events not started yet, {@code false} for the past ones.
+     * @param afterStartAt the event start date of the last row of the previous page, or null for the first page.
+     * @param afterId the booking id of the last row of the previous page, or null for the first page.
+     * @param limit the maximum number of rows to return.
+     * @return the page.
+     */
+    Flux<MemberBooking> findMyBookings(boolean upcoming, Instant afterStartAt, Long afterId, int limit);
+
     Mono<Long> countAll();
 
     Mono<Booking> findOne(Long id);
@@ -1,6 +1,8 @@
 package com.pilates.booking.service;
 
 import com.pilates.booking.domain.ClassSession;
+import com.pilates.booking.repository.FieldSet;
+import java.time.ZonedDateTime;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -39,6 +41,27 @@ public interface ClassSessionService {
      */
     Flux<ClassSession> findAll();
 
+    /**
+     * Get a keyset page of the class sessions, ordered by start date then id.
+     *
+     * @param afterStartAt the start date of the last entity of the previous page, or null for the first page.
+     * @param afterId the id of the last entity of the previous page, or null for the first page.
+     * @param limit the maximum number of entities.
+     * @return the page of entities.
+     */
+    Flux<ClassSession> findAll(ZonedDateTime afterStartAt, Long afterId, int limit);
+
+    /**
+     * Get a keyset page of the class sessions, ordered by start date then id, restricted to the given fields.
+     *
+     * @param afterStartAt the start date of the last entity of the previous page, or null for the first page.
+     * @param afterId the id of the last entity of the previous page, or null for the first page.
+     * @param limit the maximum number of entities.
+     * @param fields the fields to read.
+     * @return the page of entities.
+     */
+    Flux<ClassSession> findAll(ZonedDateTime afterStartAt, Long afterId, int limit, FieldSet fields);
+
     /**
      * Returns the number of classSessions available.
      * @return the number of entities in the database.
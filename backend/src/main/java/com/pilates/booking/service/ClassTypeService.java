@@ -39,6 +39,15 @@ public interface ClassTypeService {
      */
     Flux<ClassType> findAll();
 
+    /**
+     * Get a keyset page of the class types, ordered by id.
+     *
+     * @param afterId the id of the last entity of the previous page, or null for the first page.
+     * @param limit the maximum number of entities.
+     * @return the page of entities.
+     */
+    Flux<ClassType> findAll(Long afterId, int limit);
+
     /**
      * Returns the number of classTypes available.
      * @return the number of entities in the database.
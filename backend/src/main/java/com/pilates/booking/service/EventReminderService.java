@@ -0,0 +1,566 @@
+package com.pilates.booking.service;
+
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.BookingRepository;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.PendingEventNotification;
+import com.pilates.booking.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Service reminding the members of their booked events, and closing the waitlist of the events once they are over.
+ * <p>
+ * The notifications due soon are held in memory by a hierarchical timing wheel instead of polling the event table:
+ * the events are loaded into it a batch at a time, {@code horizon} ahead of their reminder, and the event service
+ * updates it as events are created, moved, cancelled or deleted. Every {@code tick}, the due notifications are claimed
+ * in the database in a single statement per kind, so that each runs once whatever the number of nodes, and the
+ * reminders are handed over to the {@link MailService} in batches. The wheel only lives in memory: it is rebuilt from
+ * the database on startup, including the notifications missed during the last {@code catch-up}.
+ */
+@Service
+public class EventReminderService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventReminderService.class);
+
+    private static final int REMINDER = 0;
+
+    private static final int NO_SHOW_CHECK = 1;
+
+    private static final int BATCH_SIZE = 1_000;
+
+    // a notification which failed is tried again after
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private static final String STATUS_BOOKED = "BOOKED";
+
+    private final EventRepository eventRepository;
+
+    private final BookingRepository bookingRepository;
+
+    private final UserRepository userRepository;
+
+    private final MailService mailService;
+
+    private final Duration leadTime;
+
+    private final Duration noShowDelay;
+
+    private final Duration horizon;
+
+    private final Duration catchUp;
+
+    // guarded by itself
+    private final TimingWheel wheel;
+
+    // the events starting from then on are not loaded into the wheel yet
+    private final AtomicReference<Instant> loadedUntil;
+
+    private final Scheduler ticker;
+
+    public EventReminderService(
+        EventRepository eventRepository,
+        BookingRepository bookingRepository,
+        UserRepository userRepository,
+        MailService mailService,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.eventRepository = eventRepository;
+        this.bookingRepository = bookingRepository;
+        this.userRepository = userRepository;
+        this.mailService = mailService;
+
+        ApplicationProperties.Reminders reminders = applicationProperties.getReminders();
+        this.leadTime = reminders.getLeadTime();
+        this.noShowDelay = reminders.getNoShowDelay();
+        this.horizon = reminders.getHorizon();
+        this.catchUp = reminders.getCatchUp();
+        long tickMillis = reminders.getTick().toMillis();
+        this.wheel = new TimingWheel(tickMillis, System.currentTimeMillis());
+        this.loadedUntil = new AtomicReference<>(Instant.now().minus(catchUp));
+
+        Gauge.builder("reminders.pending", this, EventReminderService::pendingCount)
+            .description("Number of event notifications waiting in the timing wheel")
+            .register(meterRegistry);
+        this.ticker = Schedulers.newSingle("event-reminders", true);
+        ticker.schedulePeriodically(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        ticker.dispose();
+    }
+
+    /**
+     * Rebuild the timing wheel from the database once the application is started.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rehydrateOnStartup() {
+        rehydrate().block();
+    }
+
+    /**
+     * Rebuild the timing wheel from the database: the notifications still to be done of the events starting within
+     * {@code lead-time} and {@code horizon}, and of the events started during the last {@code catch-up}.
+     *
+     * @return a completed {@link Mono}.
+     */
+    public Mono<Void> rehydrate() {
+        return Mono.defer(() -> {
+            synchronized (wheel) {
+                wheel.clear();
+            }
+            loadedUntil.set(Instant.now().minus(catchUp));
+            return loadUpcoming();
+        });
+    }
+
+    /**
+     * Load into the timing wheel the events starting within {@code lead-time} and {@code horizon} which were not
+     * loaded yet, a batch at a time.
+     *
+     * @return a completed {@link Mono}.
+     */
+    public Mono<Void> loadUpcoming() {
+        return Mono.defer(() -> {
+            Instant until = Instant.now().plus(leadTime).plus(horizon);
+            Instant from = loadedUntil.getAndAccumulate(until, (current, next) -> current.isAfter(next) ? current : next);
+            if (!from.isBefore(until)) {
+                return Mono.empty();
+            }
+            return eventRepository
+                .findPendingNotifications(from, 0L, until, BATCH_SIZE)
+                .collectList()
+                .expand(page -> {
+                    if (page.size() < BATCH_SIZE) {
+                        return Mono.empty();
+                    }
+                    PendingEventNotification last = page.get(page.size() - 1);
+                    return eventRepository.findPendingNotifications(last.startAt(), last.id(), until, BATCH_SIZE).collectList();
+                })
+                .doOnNext(this::schedule)
+                .reduce(0, (count, page) -> count + page.size())
+                .doOnNext(count -> LOG.debug("Loaded the notifications of {} event(s) starting before {}", count, until))
+                .then();
+        });
+    }
+
+    /**
+     * The events come into the horizon as time passes.
+     * <p>
+     * This is scheduled to get fired every 5 minutes.
+     */
+    @Scheduled(cron = "0 */5 * * * ?")
+    public void loadUpcomingPeriodically() {
+        loadUpcoming().block();
+    }
+
+    /**
+     * Reschedule the notifications of an event which was created or changed, reopening them if it was moved after
+     * they were done. Run it in the transaction changing the event.
+     *
+     * @param event the saved event.
+     * @return a completed {@link Mono}.
+     */
+    public Mono<Void> eventChanged(Event event) {
+        if (event.getId() == null) {
+            return Mono.empty();
+        }
+        Instant now = Instant.now();
+        return eventRepository.reopenNotifications(event.getId(), now, now.plus(leadTime)).then(reschedule(List.of(event.getId())));
+    }
+
+    /**
+     * Schedule the notifications of new events, inserted without the event service.
+     *
+     * @param events the inserted events.
+     */
+    public void eventsCreated(List<Event> events) {
+        schedule(
+            events
+                .stream()
+                .map(event ->
+                    new PendingEventNotification(
+                        event.getId(),
+                        event.getStartAt().toInstant(),
+                        event.getEndAt() == null ? null : event.getEndAt().toInstant(),
+                        false,
+                        false
+                    )
+                )
+                .toList()
+        );
+    }
+
+    /**
+     * Drop the notifications of an event which was cancelled or deleted.
+     *
+     * @param id the id of the event.
+     */
+    public void eventRemoved(Long id) {
+        synchronized (wheel) {
+            wheel.cancel(key(id, REMINDER));
+            wheel.cancel(key(id, NO_SHOW_CHECK));
+        }
+    }
+
+    /**
+     * @return the number of notifications waiting in the timing wheel.
+     */
+    public int pendingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    private void tick() {
+        List<Long> reminders = new ArrayList<>();
+        List<Long> checks = new ArrayList<>();
+        try {
+            synchronized (wheel) {
+                wheel.advance(System.currentTimeMillis(), key -> (kind(key) == REMINDER ? reminders : checks).add(eventId(key)));
+            }
+            if (!reminders.isEmpty()) {
+                remind(reminders).subscribe();
+            }
+            if (!checks.isEmpty()) {
+                checkNoShows(checks).subscribe();
+            }
+        } catch (RuntimeException e) {
+            // an exception would cancel the periodic task
+            LOG.error("Event notifications tick failed", e);
+        }
+    }
+
+    private Mono<Void> remind(List<Long> eventIds) {
+        return Flux.fromIterable(eventIds)
+            .buffer(BATCH_SIZE)
+            .concatMap(batch -> {
+                Instant now = Instant.now();
+                return eventRepository
+                    .claimReminders(batch, now, now.plus(leadTime))
+                    .collectList()
+                    .flatMap(claimed -> rescheduleUnclaimed(batch, claimed.stream().map(Event::getId).toList()).then(sendReminders(claimed)))
+                    .onErrorResume(e -> {
+                        LOG.warn("Reminders of {} event(s) failed, retrying in {}", batch.size(), RETRY_DELAY, e);
+                        retry(batch, REMINDER);
+                        return Mono.empty();
+                    });
+            })
+            .then();
+    }
+
+    private Mono<Void> sendReminders(List<Event> events) {
+        if (events.isEmpty()) {
+            return Mono.empty();
+        }
+        Map<Long, Event> eventsById = events.stream().collect(Collectors.toMap(Event::getId, event -> event));
+        return bookingRepository
+            .findAllByEventIdInAndStatus(eventsById.keySet(), STATUS_BOOKED)
+            .filter(booking -> booking.getUserId() != null)
+            .collectMultimap(Booking::getEventId, Booking::getUserId)
+            .flatMap(userIdsByEvent -> {
+                Set<Long> userIds = userIdsByEvent.values().stream().flatMap(Collection::stream).collect(Collectors.toSet());
+                return userRepository
+                    .findAllById(userIds)
+                    .collectMap(User::getId)
+                    .doOnNext(users ->
+                        userIdsByEvent.forEach((eventId, eventUserIds) -> {
+                            List<User> members = eventUserIds.stream().map(users::get).filter(Objects::nonNull).toList();
+                            mailService.sendEventReminderMail(members, eventsById.get(eventId));
+                        })
+                    );
+            })
+            .doOnSuccess(sent -> LOG.info("Reminded the members of {} event(s)", events.size()))
+            .then();
+    }
+
+    private Mono<Void> checkNoShows(List<Long> eventIds) {
+        return Flux.fromIterable(eventIds)
+            .buffer(BATCH_SIZE)
+            .concatMap(batch -> {
+                Instant now = Instant.now();
+                return eventRepository
+                    .claimNoShowChecks(batch, now, now.minus(noShowDelay))
+                    .collectList()
+                    .doOnNext(checked -> LOG.debug("Closed the waitlist of {} event(s)", checked.size()))
+                    .flatMap(checked -> rescheduleUnclaimed(batch, checked))
+                    .onErrorResume(e -> {
+                        LOG.warn("Checks of {} event(s) failed, retrying in {}", batch.size(), RETRY_DELAY, e);
+                        retry(batch, NO_SHOW_CHECK);
+                        return Mono.empty();
+                    });
+            })
+            .then();
+    }
+
+    /**
+     * A due notification which could not be claimed was done by another node, or its event changed meanwhile.
+     */
+    private Mono<Void> rescheduleUnclaimed(List<Long> eventIds, List<Long> claimedIds) {
+        Set<Long> unclaimed = new LinkedHashSet<>(eventIds);
+        claimedIds.forEach(unclaimed::remove);
+        return unclaimed.isEmpty() ? Mono.empty() : reschedule(unclaimed);
+    }
+
+    private Mono<Void> reschedule(Collection<Long> eventIds) {
+        return eventRepository
+            .findPendingNotificationsByIdIn(eventIds)
+            .collectList()
+            .doOnNext(pending -> {
+                Set<Long> done = new HashSet<>(eventIds);
+                pending.forEach(event -> done.remove(event.id()));
+                schedule(pending);
+                done.forEach(this::eventRemoved);
+            })
+            .then();
+    }
+
+    private void retry(List<Long> eventIds, int kind) {
+        long deadline = System.currentTimeMillis() + RETRY_DELAY.toMillis();
+        synchronized (wheel) {
+            eventIds.forEach(eventId -> wheel.schedule(key(eventId, kind), deadline));
+        }
+    }
+
+    private void schedule(List<PendingEventNotification> events) {
+        Instant now = Instant.now();
+        Instant loaded = loadedUntil.get();
+        synchronized (wheel) {
+            for (PendingEventNotification event : events) {
+                long reminder = key(event.id(), REMINDER);
+                long check = key(event.id(), NO_SHOW_CHECK);
+                if (!event.startAt().isBefore(loaded)) {
+                    // moved out of the horizon, loaded again later on
+                    wheel.cancel(reminder);
+                    wheel.cancel(check);
+                    continue;
+                }
+                if (event.reminded() || !event.startAt().isAfter(now)) {
+                    wheel.cancel(reminder);
+                } else {
+                    wheel.schedule(reminder, event.startAt().minus(leadTime).toEpochMilli());
+                }
+                if (event.noShowChecked()) {
+                    wheel.cancel(check);
+                } else {
+                    Instant endAt = event.endAt() != null ? event.endAt() : event.startAt();
+                    wheel.schedule(check, endAt.plus(noShowDelay).toEpochMilli());
+                }
+            }
+        }
+    }
+
+    private static long key(long eventId, int kind) {
+        return eventId << 1 | kind;
+    }
+
+    private static long eventId(long key) {
+        return key >>> 1;
+    }
+
+    private static int kind(long key) {
+        return (int) (key & 1);
+    }
+
+    /**
+     * Hashed hierarchical timing wheel of timers identified by a {@code long} key, as described by Varghese and Lauck.
+     * <p>
+     * Time is cut into ticks. Level {@code n} has 64 slots of 64<sup>n</sup> ticks each: a timer sits in the slot of
+     * the lowest level at which its tick and the current tick only differ by their slot there, and moves down a level
+     * when the wheel reaches that slot, until it fires from level 0. Scheduling and cancelling are constant time, and
+     * advancing costs one step per tick plus one move per timer and level, whatever the number of timers. Each timer
+     * is a node of an intrusive list, indexed by key so that it can be moved or cancelled. Not thread safe.
+     */
+    static final class TimingWheel {
+
+        private static final int SLOT_BITS = 6;
+
+        private static final int SLOTS = 1 << SLOT_BITS;
+
+        private static final int SLOT_MASK = SLOTS - 1;
+
+        private final long tickMillis;
+
+        private final Map<Long, Node> timers = new HashMap<>();
+
+        // created as the deadlines get further away
+        private Node[][] levels = new Node[0][];
+
+        private long currentTick;
+
+        TimingWheel(long tickMillis, long nowMillis) {
+            this.tickMillis = tickMillis;
+            this.currentTick = nowMillis / tickMillis;
+        }
+
+        /**
+         * Schedule a timer, or move it if it is scheduled already.
+         *
+         * @param key the key of the timer.
+         * @param deadlineMillis when the timer fires; a deadline already passed fires on the next tick.
+         */
+        void schedule(long key, long deadlineMillis) {
+            Node node = timers.get(key);
+            if (node == null) {
+                node = new Node(key);
+                timers.put(key, node);
+            } else {
+                node.unlink();
+            }
+            node.tick = Math.max(-Math.floorDiv(-deadlineMillis, tickMillis), currentTick + 1);
+            place(node);
+        }
+
+        /**
+         * @return whether the timer was scheduled.
+         */
+        boolean cancel(long key) {
+            Node node = timers.remove(key);
+            if (node == null) {
+                return false;
+            }
+            node.unlink();
+            return true;
+        }
+
+        boolean contains(long key) {
+            return timers.containsKey(key);
+        }
+
+        int size() {
+            return timers.size();
+        }
+
+        void clear() {
+            timers.values().forEach(Node::unlink);
+            timers.clear();
+        }
+
+        /**
+         * Move the wheel forward to the current time, firing the timers due meanwhile.
+         *
+         * @param nowMillis the current time.
+         * @param expired called with the key of each fired timer, which is no longer scheduled.
+         */
+        void advance(long nowMillis, LongConsumer expired) {
+            long targetTick = nowMillis / tickMillis;
+            while (currentTick < targetTick) {
+                currentTick++;
+                if (timers.isEmpty()) {
+                    currentTick = targetTick;
+                    return;
+                }
+                // the highest levels first, as their timers may move down into a slot reached at this tick too
+                int level = Math.min(Long.numberOfTrailingZeros(currentTick) / SLOT_BITS, levels.length - 1);
+                for (; level > 0; level--) {
+                    Node head = levels[level][slot(currentTick, level)];
+                    Node node = head.next;
+                    head.next = head;
+                    head.previous = head;
+                    while (node != head) {
+                        Node next = node.next;
+                        place(node);
+                        node = next;
+                    }
+                }
+                if (levels.length > 0) {
+                    Node head = levels[0][slot(currentTick, 0)];
+                    while (head.next != head) {
+                        Node node = head.next;
+                        node.unlink();
+                        timers.remove(node.key);
+                        expired.accept(node.key);
+                    }
+                }
+            }
+        }
+
+        private void place(Node node) {
+            // level 0 for the timers of the current tick, moved down while the wheel reaches it
+            int level = (Long.SIZE - 1 - Long.numberOfLeadingZeros(node.tick ^ currentTick)) / SLOT_BITS;
+            if (level >= levels.length) {
+                grow(level + 1);
+            }
+            node.linkBefore(levels[level][slot(node.tick, level)]);
+        }
+
+        private void grow(int levelCount) {
+            Node[][] grown = new Node[levelCount][];
+            System.arraycopy(levels, 0, grown, 0, levels.length);
+            for (int level = levels.length; level < levelCount; level++) {
+                grown[level] = new Node[SLOTS];
+                for (int slot = 0; slot < SLOTS; slot++) {
+                    grown[level][slot] = new Node(0);
+                }
+            }
+            levels = grown;
+        }
+
+        private static int slot(long tick, int level) {
+            return (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+        }
+
+        /**
+         * A timer, or the head of the circular list of the timers of a slot.
+         */
+        private static final class Node {
+
+            final long key;
+
+            long tick;
+
+            Node previous = this;
+
+            Node next = this;
+
+            Node(long key) {
+                this.key = key;
+            }
+
+            void linkBefore(Node head) {
+                previous = head.previous;
+                next = head;
+                head.previous.next = this;
+                head.previous = this;
+            }
+
+            void unlink() {
+                previous.next = next;
+                next.previous = previous;
+                previous = this;
+                next = this;
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.pilates.booking.service;
+
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.service.dto.EventScheduleDTO;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service publishing the timetable of a term: the weekly slots are expanded into events, checked in memory against
+ * each other and against the events already planned over the term, then inserted a chunk of rows per statement.
+ */
+@Service
+public class EventScheduleService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventScheduleService.class);
+
+    // a few hundred classes a week over a year
+    static final int MAX_OCCURRENCES = 20_000;
+
+    // the events already planned are read from the term start minus this, no class lasts longer
+    private static final Duration LONGEST_EVENT = Duration.ofDays(1);
+
+    private static final int MAX_REPORTED_CONFLICTS = 20;
+
+    private static final String STATUS_OPEN = "OPEN";
+
+    /**
+     * Progress of a timetable publication, sent after each inserted chunk.
+     *
+     * @param created the number of events inserted so far.
+     * @param total the number of events of the timetable.
+     */
+    public record Progress(int created, int total) {}
+
+    private final EventRepository eventRepository;
+
+    private final EventReminderService eventReminderService;
+
+    // rows per insertAll, hence per progress step: a single INSERT statement each
+    private final int insertChunkSize;
+
+    public EventScheduleService(
+        EventRepository eventRepository,
+        EventReminderService eventReminderService,
+        ApplicationProperties applicationProperties
+    ) {
+        this.eventRepository = eventRepository;
+        this.eventReminderService = eventReminderService;
+        this.insertChunkSize = applicationProperties.getBatchSave().getChunkSize();
+    }
+
+    /**
+     * Expand a timetable into its events, in start order.
+     *
+     * @param schedule the timetable.
+     * @return the events, not saved.
+     * @throws ResponseStatusException {@code 400 (Bad Request)} if the timetable is invalid or too large.
+     */
+    public List<Event> expand(EventScheduleDTO schedule) {
+        if (schedule.getEndDate().isBefore(schedule.getStartDate())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The schedule ends before it starts");
+        }
+        for (EventScheduleDTO.Slot slot : schedule.getSlots()) {
+            if (slot.getDuration().isNegative() || slot.getDuration().isZero() || slot.getDuration().compareTo(LONGEST_EVENT) > 0) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The duration of a slot must be positive and at most a day");
+            }
+        }
+        List<Event> events = new ArrayList<>();
+        for (LocalDate day = schedule.getStartDate(); !day.isAfter(schedule.getEndDate()); day = day.plusDays(1)) {
+            if (schedule.getExceptions().contains(day)) {
+                continue;
+            }
+            for (EventScheduleDTO.Slot slot : schedule.getSlots()) {
+                if (!slot.getDaysOfWeek().contains(day.getDayOfWeek())) {
+                    continue;
+                }
+                if (events.size() == MAX_OCCURRENCES) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The schedule has more than " + MAX_OCCURRENCES + " events");
+                }
+                // stored in UTC, see DatabaseConfiguration
+                ZonedDateTime startAt = ZonedDateTime.of(day, slot.getStartTime(), schedule.getTimeZone()).withZoneSameInstant(ZoneOffset.UTC);
+                Event event = new Event()
+                    .coachName(slot.getCoachName())
+                    .startAt(startAt)
+                    .endAt(startAt.plus(slot.getDuration()))
+                    .capacity(slot.getCapacity())
+                    .status(STATUS_OPEN);
+                event.setStudioId(slot.getStudioId());
+                event.setClassTypeId(slot.getClassTypeId());
+                events.add(event);
+            }
+        }
+        events.sort(Comparator.comparing(Event::getStartAt));
+        return events;
+    }
+
+    /**
+     * Publish a timetable in one transaction, committed once the progress stream completes.
+     *
+     * @param schedule the timetable.
+     * @return the progress, once per inserted chunk; an error {@code 409 (Conflict)} before any insert if a coach or a
+     * studio would be in two events at once.
+     */
+    @Transactional
+    public Flux<Progress> publish(EventScheduleDTO schedule) {
+        LOG.debug("Request to publish the schedule : {}", schedule);
+        return Mono.fromCallable(() -> expand(schedule)).flatMapMany(events -> {
+            if (events.isEmpty()) {
+                return Flux.just(new Progress(0, 0));
+            }
+            Instant since = events.get(0).getStartAt().toInstant().minus(LONGEST_EVENT);
+            Instant until = events.stream().map(Event::getEndAt).max(Comparator.naturalOrder()).orElseThrow().toInstant();
+            return eventRepository
+                .findAllActiveStartingBetween(since, until)
+                .collectList()
+                .flatMapMany(planned -> {
+                    List<String> conflicts = findConflicts(events, planned);
+                    if (!conflicts.isEmpty()) {
+                        return Flux.error(new ResponseStatusException(HttpStatus.CONFLICT, String.join("; ", conflicts)));
+                    }
+                    return Flux.fromIterable(events)
+                        .buffer(insertChunkSize)
+                        .concatMap(chunk -> eventRepository.insertAll(chunk).collectList())
+                        .doOnNext(eventReminderService::eventsCreated)
+                        .scan(new Progress(0, events.size()), (progress, chunk) -> new Progress(progress.created() + chunk.size(), progress.total()))
+                        .skip(1)
+                        .doOnComplete(() -> LOG.info("Published a schedule of {} events", events.size()));
+                });
+        });
+    }
+
+    /**
+     * The overlaps of the new events with each other and with the events already planned, per coach and per studio.
+     * The events without an end take no time.
+     *
+     * @param events the new events.
+     * @param planned the events already planned over the same period.
+     * @return the descriptions of the first conflicts found.
+     */
+    static List<String> findConflicts(List<Event> events, List<Event> planned) {
+        List<String> conflicts = new ArrayList<>();
+        List<Event> all = Stream.concat(events.stream(), planned.stream()).toList();
+        findOverlaps(all, Event::getCoachName, "coach", conflicts);
+        findOverlaps(all, Event::getStudioId, "studio", conflicts);
+        return conflicts;
+    }
+
+    private static void findOverlaps(List<Event> events, Function<Event, Object> resource, String kind, List<String> conflicts) {
+        Map<Object, List<Event>> byResource = events
+            .stream()
+            .filter(event -> resource.apply(event) != null)
+            .collect(Collectors.groupingBy(resource));
+        for (Map.Entry<Object, List<Event>> entry : byResource.entrySet()) {
+            List<Event> sorted = new ArrayList<>(entry.getValue());
+            sorted.sort(Comparator.comparing(Event::getStartAt));
+            // the event ending last among the ones started so far
+            Event latest = null;
+            for (Event event : sorted) {
+                if (conflicts.size() == MAX_REPORTED_CONFLICTS) {
+                    return;
+                }
+                // the events already planned may overlap: left as they are
+                if (latest != null && event.getStartAt().isBefore(endOf(latest)) && (event.getId() == null || latest.getId() == null)) {
+                    conflicts.add(kind + " " + entry.getKey() + " at " + event.getStartAt() + " overlaps " + describe(latest));
+                }
+                if (latest == null || endOf(event).isAfter(endOf(latest))) {
+                    latest = event;
+                }
+            }
+        }
+    }
+
+    private static ZonedDateTime endOf(Event event) {
+        return Objects.requireNonNullElse(event.getEndAt(), event.getStartAt());
+    }
+
+    private static String describe(Event event) {
+        return (event.getId() == null ? "the new event" : "event " + event.getId()) + " from " + event.getStartAt() + " to " + endOf(event);
+    }
+}
@@ -1,6 +1,7 @@
 package com.pilates.booking.service;
 
 import com.pilates.booking.domain.Event;
+import java.time.ZonedDateTime;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -39,6 +40,16 @@ public interface EventService {
      */
     Flux<Event> findAll();
 
+    /**
+     * Get a keyset page of the events, ordered by start date then id.
+     *
+     * @param afterStartAt the start date of the last entity of the previous page, or null for the first page.
+     * @param afterId the id of the last entity of the previous page, or null for the first page.
+     * @param limit the maximum number of entities.
+     * @return the page of entities.
+     */
+    Flux<Event> findAll(ZonedDateTime afterStartAt, Long afterId, int limit);
+
     /**
      * Returns the number of events available.
      * @return the number of entities in the database.
@@ -61,4 +72,22 @@ public interface EventService {
      * @return a Mono to signal the deletion
      */
     Mono<Void> delete(Long id);
+
+    /**
+     * Cancel the "id" event with all its BOOKED and FULL bookings, in one transaction and a fixed number of statements
+     * whatever the number of bookings: no late cancellation penalty is charged, the ones already charged on the event
+     * are refunded, and the members are mailed in a batch once the transaction has committed.
+     *
+     * @param id the id of the entity.
+     * @return the cancelled entity, or an empty {@link Mono} if there is no such event.
+     */
+    Mono<Event> cancel(Long id);
+
+    /**
+     * Repair the stored number of BOOKED bookings of the events where it drifted from the booking table, each event
+     * under its row lock.
+     *
+     * @return the number of repaired events.
+     */
+    Mono<Long> reconcileBookingsCounts();
 }
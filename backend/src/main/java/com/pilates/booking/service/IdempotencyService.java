@@ -0,0 +1,243 @@
+package com.pilates.booking.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.domain.IdempotencyRecord;
+import com.pilates.booking.repository.IdempotencyRecordRepository;
+import com.pilates.booking.security.SecurityUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service running the requests sent with an {@code Idempotency-Key} header at most once.
+ * <p>
+ * A key is scoped to the current user and to the endpoint. The first request with a key runs and its successful
+ * response is kept for the configured time to live, in a bounded in-memory cache and in the
+ * {@code idempotency_record} table shared by the nodes; later requests with the same key get that response back,
+ * flagged with the {@value #REPLAYED_HEADER} header, without running again. Concurrent requests with the same key on
+ * one node wait for the same execution, while a request whose key is still in progress on another node is rejected
+ * with {@code 409 (Conflict)}. A failed request does not keep its key, so it can be retried. Reusing a key for a
+ * different request is rejected with {@code 422 (Unprocessable Entity)}.
+ */
+@Service
+public class IdempotencyService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdempotencyService.class);
+
+    public static final String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    public static final String CACHE_NAME = "idempotency";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final TypeReference<LinkedHashMap<String, List<String>>> HEADERS_TYPE = new TypeReference<>() {};
+
+    /**
+     * What is kept of a completed request.
+     */
+    private record StoredResponse(String requestHash, int status, Map<String, List<String>> headers, String body, boolean replayed) {}
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final ObjectMapper objectMapper;
+
+    private final Duration timeToLive;
+
+    private final AsyncCache<String, StoredResponse> cache;
+
+    public IdempotencyService(
+        IdempotencyRecordRepository idempotencyRecordRepository,
+        ObjectMapper objectMapper,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
+    ) {
+        this.idempotencyRecordRepository = idempotencyRecordRepository;
+        this.objectMapper = objectMapper;
+
+        ApplicationProperties.Idempotency idempotency = applicationProperties.getIdempotency();
+        this.timeToLive = idempotency.getTimeToLive();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(idempotency.getMaxSize())
+            .expireAfterWrite(timeToLive)
+            .recordStats()
+            .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache.synchronous(), CACHE_NAME);
+    }
+
+    /**
+     * Run a request at most once per idempotency key.
+     *
+     * @param idempotencyKey the value of the {@value #IDEMPOTENCY_KEY_HEADER} header, or {@code null} to always run.
+     * @param scope the endpoint, including its path variables.
+     * @param request the request body, compared with the one first sent with the key.
+     * @param bodyType the type of the response body.
+     * @param action the request to run.
+     * @param <T> the type of the response body.
+     * @return the response of the request, or the stored response of the first request with the same key.
+     */
+    public <T> Mono<ResponseEntity<T>> execute(
+        String idempotencyKey,
+        String scope,
+        Object request,
+        Class<T> bodyType,
+        Supplier<Mono<ResponseEntity<T>>> action
+    ) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            return Mono.error(
+                new ResponseStatusException(HttpStatus.BAD_REQUEST, "Idempotency-Key must be 1 to " + MAX_KEY_LENGTH + " characters long")
+            );
+        }
+        String requestHash = hash(write(request));
+        return SecurityUtils.getCurrentUserLogin()
+            .defaultIfEmpty("")
+            .flatMap(login ->
+                Mono.deferContextual(context -> {
+                    String id = recordId(login, scope, idempotencyKey);
+                    AtomicBoolean executed = new AtomicBoolean();
+                    // a cancelled subscriber must not cancel an execution other subscribers are waiting for
+                    return Mono.fromFuture(
+                        () ->
+                            cache.get(id, (key, executor) -> {
+                                executed.set(true);
+                                return resolve(key, requestHash, action).contextWrite(context).toFuture();
+                            }),
+                        true
+                    ).map(stored -> {
+                        if (!stored.requestHash().equals(requestHash)) {
+                            throw new ResponseStatusException(
+                                HttpStatus.UNPROCESSABLE_ENTITY,
+                                "Idempotency-Key already used for a different request"
+                            );
+                        }
+                        return toResponseEntity(stored, bodyType, stored.replayed() || !executed.get());
+                    });
+                })
+            );
+    }
+
+    /**
+     * Remove the expired records.
+     * <p>
+     * This is scheduled to get fired every hour.
+     */
+    @Scheduled(cron = "0 15 * * * ?")
+    public void removeExpiredRecords() {
+        Long removed = idempotencyRecordRepository.deleteExpired(Instant.now()).block();
+        LOG.debug("Deleted {} expired idempotency records", removed);
+    }
+
+    static String recordId(String login, String scope, String idempotencyKey) {
+        return hash(login + '\n' + scope + '\n' + idempotencyKey);
+    }
+
+    private <T> Mono<StoredResponse> resolve(String id, String requestHash, Supplier<Mono<ResponseEntity<T>>> action) {
+        Instant now = Instant.now();
+        return idempotencyRecordRepository
+            .claim(id, requestHash, now, now.plus(timeToLive))
+            .hasElement()
+            .flatMap(claimed -> claimed ? run(id, requestHash, action) : replay(id));
+    }
+
+    private <T> Mono<StoredResponse> run(String id, String requestHash, Supplier<Mono<ResponseEntity<T>>> action) {
+        return action
+            .get()
+            .map(response ->
+                new StoredResponse(
+                    requestHash,
+                    response.getStatusCode().value(),
+                    new LinkedHashMap<>(response.getHeaders()),
+                    response.getBody() == null ? null : write(response.getBody()),
+                    false
+                )
+            )
+            .flatMap(stored ->
+                idempotencyRecordRepository.complete(id, stored.status(), write(stored.headers()), stored.body()).thenReturn(stored)
+            )
+            .switchIfEmpty(idempotencyRecordRepository.release(id).then(Mono.<StoredResponse>empty()))
+            .onErrorResume(e -> idempotencyRecordRepository.release(id).then(Mono.<StoredResponse>error(e)));
+    }
+
+    private Mono<StoredResponse> replay(String id) {
+        return idempotencyRecordRepository
+            .findById(id)
+            .filter(idempotencyRecord -> idempotencyRecord.getResponseStatus() != null)
+            .map(this::toStoredResponse)
+            .switchIfEmpty(
+                Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still in progress"))
+            );
+    }
+
+    private StoredResponse toStoredResponse(IdempotencyRecord idempotencyRecord) {
+        try {
+            return new StoredResponse(
+                idempotencyRecord.getRequestHash(),
+                idempotencyRecord.getResponseStatus(),
+                objectMapper.readValue(idempotencyRecord.getResponseHeaders(), HEADERS_TYPE),
+                idempotencyRecord.getResponseBody(),
+                true
+            );
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable idempotency record " + idempotencyRecord.getId(), e);
+        }
+    }
+
+    private <T> ResponseEntity<T> toResponseEntity(StoredResponse stored, Class<T> bodyType, boolean replayed) {
+        HttpHeaders headers = new HttpHeaders();
+        stored.headers().forEach(headers::addAll);
+        if (replayed) {
+            headers.set(REPLAYED_HEADER, "true");
+        }
+        try {
+            T body = stored.body() == null ? null : objectMapper.readValue(stored.body(), bodyType);
+            return ResponseEntity.status(stored.status()).headers(headers).body(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unreadable stored response", e);
+        }
+    }
+
+    private String write(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unwritable idempotent request or response", e);
+        }
+    }
+
+    private static String hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -1,24 +1,57 @@
 package com.pilates.booking.service;
 
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.domain.Event;
 import com.pilates.booking.domain.User;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.context.MessageSource;
-import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 import org.thymeleaf.context.Context;
 import org.thymeleaf.spring6.SpringTemplateEngine;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+import reactor.util.retry.Retry;
 import tech.jhipster.config.JHipsterProperties;
 
 /**
  * Service for sending emails asynchronously.
+ * <p>
+ * Mails are put in a bounded queue and returned from at once: the rendering and the SMTP exchanges happen on the
+ * dedicated {@code mail} threads, never on the caller's. Templated mails are rendered a batch of users at a time, with
+ * the subjects cached by key and locale and the parsed templates kept in the Thymeleaf template cache. Mails are sent
+ * in batches sharing one SMTP session, a batch failing to send is retried with backoff, and mails arriving while the
+ * queue is full are dropped. The queue size, the send latency and the sent, failed and rejected mails are published as
+ * the {@code mail.*} meters.
  */
 @Service
 public class MailService {
@@ -29,6 +62,10 @@ public class MailService {
 
     private static final String BASE_URL = "baseUrl";
 
+    private static final String EVENT = "event";
+
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
     private final JHipsterProperties jHipsterProperties;
 
     private final JavaMailSender javaMailSender;
@@ -37,26 +74,224 @@ public class MailService {
 
     private final SpringTemplateEngine templateEngine;
 
+    private final int batchSize;
+
+    private final int maxAttempts;
+
+    private final Duration retryBackoff;
+
+    private final int workers;
+
+    private final int queueCapacity;
+
+    private final Duration batchWindow;
+
+    private final Scheduler mailScheduler;
+
+    // the queue accepts a single producer at a time, and is replaced when its pipeline is restarted
+    private final Object queueLock = new Object();
+
+    private volatile Sinks.Many<MailJob> queue;
+
+    private volatile CompletableFuture<Void> pipeline;
+
+    private volatile boolean shuttingDown;
+
+    // the jobs waiting in the queue: its buffer is rounded up to a power of two, the capacity is enforced on this count
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final Map<SubjectKey, String> subjects = new ConcurrentHashMap<>();
+
+    private final AtomicInteger pending = new AtomicInteger();
+
+    private final Counter sentCounter;
+
+    private final Counter failedCounter;
+
+    private final Counter rejectedCounter;
+
+    private final Timer sendTimer;
+
     public MailService(
         JHipsterProperties jHipsterProperties,
         JavaMailSender javaMailSender,
         MessageSource messageSource,
-        SpringTemplateEngine templateEngine
+        SpringTemplateEngine templateEngine,
+        ApplicationProperties applicationProperties,
+        MeterRegistry meterRegistry
     ) {
         this.jHipsterProperties = jHipsterProperties;
         this.javaMailSender = javaMailSender;
         this.messageSource = messageSource;
         this.templateEngine = templateEngine;
+
+        ApplicationProperties.Mail mail = applicationProperties.getMail();
+        this.batchSize = mail.getBatchSize();
+        this.maxAttempts = mail.getMaxAttempts();
+        this.retryBackoff = mail.getRetryBackoff();
+        this.workers = mail.getWorkers();
+        this.queueCapacity = mail.getQueueCapacity();
+        this.batchWindow = mail.getBatchWindow();
+        this.mailScheduler = Schedulers.newBoundedElastic(workers, queueCapacity, "mail");
+
+        Gauge.builder("mail.queue.size", pending, AtomicInteger::get)
+            .description("Number of emails waiting to be sent")
+            .register(meterRegistry);
+        this.sentCounter = messagesCounter("sent", meterRegistry);
+        this.failedCounter = messagesCounter("failed", meterRegistry);
+        this.rejectedCounter = messagesCounter("rejected", meterRegistry);
+        this.sendTimer = Timer.builder("mail.send").description("Duration of the SMTP sessions").register(meterRegistry);
+
+        start();
+    }
+
+    /**
+     * Subscribe the mail threads to a new queue. Each stage absorbs the errors of its own mails, and a pipeline which
+     * still stops before {@link #shutdown()} is started again, the mails left in its queue being counted as failed.
+     */
+    private void start() {
+        synchronized (queueLock) {
+            queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<MailJob>get(queueCapacity).get());
+            pipeline = queue
+                .asFlux()
+                .doOnNext(job -> queued.decrementAndGet())
+                .flatMap(
+                    job ->
+                        Mono.fromCallable(() -> prepare(job))
+                            .subscribeOn(mailScheduler)
+                            .onErrorResume(e -> {
+                                prepareFailed(job.size(), e);
+                                return Mono.empty();
+                            }),
+                    workers
+                )
+                .flatMapIterable(Function.identity())
+                .bufferTimeout(batchSize, batchWindow, mailScheduler, true)
+                .flatMap(this::send, workers)
+                .doOnDiscard(MailJob.class, job -> {
+                    queued.decrementAndGet();
+                    pending.addAndGet(-job.size());
+                    failedCounter.increment(job.size());
+                })
+                .then()
+                .toFuture();
+        }
+        pipeline.whenComplete((done, e) -> {
+            if (!shuttingDown) {
+                LOG.error("Mail queue stopped, starting it again", e);
+                start();
+            }
+        });
+    }
+
+    private static Counter messagesCounter(String result, MeterRegistry meterRegistry) {
+        return Counter.builder("mail.messages").description("Number of emails by outcome").tag("result", result).register(meterRegistry);
     }
 
     public void sendEmail(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
-        Mono.defer(() -> {
-            sendEmailSync(to, subject, content, isMultipart, isHtml);
-            return Mono.empty();
-        }).subscribe();
+        enqueue(new MailJob(1, () -> List.of(createMessage(to, subject, content, isMultipart, isHtml))));
     }
 
-    private void sendEmailSync(String to, String subject, String content, boolean isMultipart, boolean isHtml) {
+    public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
+        sendEmailFromTemplate(List.of(user), templateName, titleKey, Map.of());
+    }
+
+    public void sendEmailFromTemplate(Collection<User> users, String templateName, String titleKey) {
+        sendEmailFromTemplate(users, templateName, titleKey, Map.of());
+    }
+
+    /**
+     * Send the same templated email to several users. The users are rendered by chunks of one batch, each chunk in a
+     * single pass sharing its subjects and template contexts.
+     *
+     * @param users        the recipients.
+     * @param templateName the Thymeleaf template of the body.
+     * @param titleKey     the message key of the subject.
+     * @param variables    the template variables besides {@code user} and {@code baseUrl}.
+     */
+    public void sendEmailFromTemplate(Collection<User> users, String templateName, String titleKey, Map<String, Object> variables) {
+        List<User> recipients = new ArrayList<>(users.size());
+        for (User user : users) {
+            if (user.getEmail() == null) {
+                LOG.debug("Email doesn't exist for user '{}'", user.getLogin());
+            } else {
+                recipients.add(user);
+            }
+        }
+        for (int from = 0; from < recipients.size(); from += batchSize) {
+            List<User> chunk = List.copyOf(recipients.subList(from, Math.min(from + batchSize, recipients.size())));
+            enqueue(new MailJob(chunk.size(), () -> renderFromTemplate(chunk, templateName, titleKey, variables)));
+        }
+    }
+
+    private void enqueue(MailJob job) {
+        pending.addAndGet(job.size());
+        Sinks.EmitResult result;
+        synchronized (queueLock) {
+            result = queued.incrementAndGet() > queueCapacity ? Sinks.EmitResult.FAIL_OVERFLOW : queue.tryEmitNext(job);
+            if (result.isFailure()) {
+                queued.decrementAndGet();
+            }
+        }
+        if (result.isFailure()) {
+            pending.addAndGet(-job.size());
+            rejectedCounter.increment(job.size());
+            LOG.warn("{} email(s) dropped, the mail queue could not accept them: {}", job.size(), result);
+        }
+    }
+
+    private List<MimeMessage> prepare(MailJob job) {
+        try {
+            return job.render().call();
+        } catch (Exception e) {
+            prepareFailed(job.size(), e);
+            return List.of();
+        }
+    }
+
+    private void prepareFailed(int size, Throwable e) {
+        pending.addAndGet(-size);
+        failedCounter.increment(size);
+        LOG.warn("Email could not be prepared", e);
+    }
+
+    private List<MimeMessage> renderFromTemplate(
+        List<User> users,
+        String templateName,
+        String titleKey,
+        Map<String, Object> variables
+    ) {
+        List<MimeMessage> messages = new ArrayList<>(users.size());
+        Map<Locale, Context> contexts = new HashMap<>();
+        for (User user : users) {
+            try {
+                Locale locale = Locale.forLanguageTag(user.getLangKey());
+                Context context = contexts.computeIfAbsent(locale, key -> createContext(key, variables));
+                context.setVariable(USER, user);
+                String content = templateEngine.process(templateName, context);
+                messages.add(createMessage(user.getEmail(), subject(titleKey, locale), content, false, true));
+            } catch (Exception e) {
+                prepareFailed(1, e);
+            }
+        }
+        return messages;
+    }
+
+    private Context createContext(Locale locale, Map<String, Object> variables) {
+        Context context = new Context(locale, variables);
+        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
+        return context;
+    }
+
+    private String subject(String titleKey, Locale locale) {
+        // the message bundles are only reloaded in development, where a restart picks up a changed subject
+        return subjects.computeIfAbsent(new SubjectKey(titleKey, locale), key ->
+            messageSource.getMessage(key.titleKey(), null, key.locale())
+        );
+    }
+
+    private MimeMessage createMessage(String to, String subject, String content, boolean isMultipart, boolean isHtml)
+        throws MessagingException {
         LOG.debug(
             "Send email[multipart '{}' and html '{}'] to '{}' with subject '{}' and content={}",
             isMultipart,
@@ -68,38 +303,69 @@ public class MailService {
 
         // Prepare message using a Spring helper
         MimeMessage mimeMessage = javaMailSender.createMimeMessage();
-        try {
-            MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
-            message.setTo(to);
-            message.setFrom(jHipsterProperties.getMail().getFrom());
-            message.setSubject(subject);
-            message.setText(content, isHtml);
-            javaMailSender.send(mimeMessage);
-            LOG.debug("Sent email to User '{}'", to);
-        } catch (MailException | MessagingException e) {
-            LOG.warn("Email could not be sent to user '{}'", to, e);
-        }
+        MimeMessageHelper message = new MimeMessageHelper(mimeMessage, isMultipart, StandardCharsets.UTF_8.name());
+        message.setTo(to);
+        message.setFrom(jHipsterProperties.getMail().getFrom());
+        message.setSubject(subject);
+        message.setText(content, isHtml);
+        return mimeMessage;
     }
 
-    public void sendEmailFromTemplate(User user, String templateName, String titleKey) {
-        Mono.defer(() -> {
-            sendEmailFromTemplateSync(user, templateName, titleKey);
-            return Mono.empty();
-        }).subscribe();
+    private Mono<Void> send(List<MimeMessage> batch) {
+        // only the messages the SMTP server refused are sent again
+        List<MimeMessage> unsent = new ArrayList<>(batch);
+        return Mono.<Void>fromRunnable(() -> sendTimer.record(() -> sendSync(unsent)))
+            .subscribeOn(mailScheduler)
+            .retryWhen(Retry.backoff(maxAttempts - 1L, retryBackoff).filter(MailSendException.class::isInstance))
+            .doOnSuccess(v -> {
+                sentCounter.increment(batch.size());
+                LOG.debug("Sent {} email(s)", batch.size());
+            })
+            .onErrorResume(e -> {
+                sentCounter.increment(batch.size() - unsent.size());
+                failedCounter.increment(unsent.size());
+                LOG.warn("{} email(s) could not be sent", unsent.size(), e);
+                return Mono.empty();
+            })
+            .doFinally(signal -> pending.addAndGet(-batch.size()));
     }
 
-    private void sendEmailFromTemplateSync(User user, String templateName, String titleKey) {
-        if (user.getEmail() == null) {
-            LOG.debug("Email doesn't exist for user '{}'", user.getLogin());
-            return;
+    private void sendSync(List<MimeMessage> unsent) {
+        try {
+            if (unsent.size() == 1) {
+                javaMailSender.send(unsent.get(0));
+            } else {
+                javaMailSender.send(unsent.toArray(MimeMessage[]::new));
+            }
+        } catch (MailSendException e) {
+            Map<Object, Exception> failedMessages = e.getFailedMessages();
+            if (failedMessages != null && !failedMessages.isEmpty()) {
+                unsent.retainAll(failedMessages.keySet());
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Send the emails still in the queue, for at most {@link #SHUTDOWN_TIMEOUT}, then stop the mail threads.
+     */
+    @PreDestroy
+    public void shutdown() {
+        synchronized (queueLock) {
+            shuttingDown = true;
+            queue.tryEmitComplete();
+        }
+        try {
+            pipeline.get(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            LOG.warn("{} email(s) were not sent before shutdown", pending.get());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            LOG.warn("Mail queue stopped with an error", e.getCause());
+        } finally {
+            mailScheduler.dispose();
         }
-        Locale locale = Locale.forLanguageTag(user.getLangKey());
-        Context context = new Context(locale);
-        context.setVariable(USER, user);
-        context.setVariable(BASE_URL, jHipsterProperties.getMail().getBaseUrl());
-        String content = templateEngine.process(templateName, context);
-        String subject = messageSource.getMessage(titleKey, null, locale);
-        sendEmailSync(user.getEmail(), subject, content, false, true);
     }
 
     public void sendActivationEmail(User user) {
@@ -116,4 +382,26 @@ public class MailService {
         LOG.debug("Sending password reset email to '{}'", user.getEmail());
         sendEmailFromTemplate(user, "mail/passwordResetEmail", "email.reset.title");
     }
+
+    public void sendWaitlistPromotionMail(User user, Event event) {
+        LOG.debug("Sending waitlist promotion email to '{}'", user.getEmail());
+        sendEmailFromTemplate(List.of(user), "mail/waitlistPromotionEmail", "email.waitlist.title", Map.of(EVENT, event));
+    }
+
+    public void sendEventCancelledMail(Collection<User> users, Event event) {
+        LOG.debug("Sending event cancellation email to {} user(s)", users.size());
+        sendEmailFromTemplate(users, "mail/eventCancelledEmail", "email.eventcancelled.title", Map.of(EVENT, event));
+    }
+
+    public void sendEventReminderMail(Collection<User> users, Event event) {
+        LOG.debug("Sending event reminder email to {} user(s)", users.size());
+        sendEmailFromTemplate(users, "mail/eventReminderEmail", "email.eventreminder.title", Map.of(EVENT, event));
+    }
+
+    /**
+     * Emails enqueued together and rendered in one pass on a mail thread.
+     */
+    private record MailJob(int size, Callable<List<MimeMessage>> render) {}
+
+    private record SubjectKey(String titleKey, Locale locale) {}
 }
@@ -1,6 +1,7 @@
 package com.pilates.booking.service;
 
 import com.pilates.booking.domain.Pack;
+import com.pilates.booking.repository.FieldSet;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -39,6 +40,25 @@ public interface PackService {
      */
     Flux<Pack> findAll();
 
+    /**
+     * Get a keyset page of the packs, ordered by id.
+     *
+     * @param afterId the id of the last entity of the previous page, or null for the first page.
+     * @param limit the maximum number of entities.
+     * @return the page of entities.
+     */
+    Flux<Pack> findAll(Long afterId, int limit);
+
+    /**
+     * Get a keyset page of the packs, ordered by id, restricted to the given fields.
+     *
+     * @param afterId the id of the last entity of the previous page, or null for the first page.
+     * @param limit the maximum number of entities.
+     * @param fields the fields to read.
+     * @return the page of entities.
+     */
+    Flux<Pack> findAll(Long afterId, int limit, FieldSet fields);
+
     /**
      * Returns the number of packs available.
      * @return the number of entities in the database.
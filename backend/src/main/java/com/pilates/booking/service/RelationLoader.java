@@ -0,0 +1,175 @@
+package com.pilates.booking.service;
+
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.domain.ClassType;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.Studio;
+import com.pilates.booking.repository.ClassTypeRepository;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.StudioRepository;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Service attaching their related entities (event, studio, class type) to the entities of a {@link Flux}, in batches.
+ * <p>
+ * The foreign keys of up to {@code batch-size} entities, or of those read within the {@code batch-window}, are
+ * collected, then the related table is read once for all of them with a {@code WHERE id IN (...)} query. The related
+ * entities read are kept until the end of the request (see {@link #withScope(Context)}): an id met again, later in the
+ * flux or in another read of the same request, is not read twice. Outside of a request, they are kept for the flux.
+ */
+@Service
+public class RelationLoader {
+
+    /**
+     * The related entities read during a request, by type then id; empty for the ids which do not exist.
+     */
+    static final class Scope {
+
+        private final Map<Class<?>, Map<Long, Optional<?>>> loaded = new ConcurrentHashMap<>();
+
+        @SuppressWarnings("unchecked")
+        <V> Map<Long, Optional<V>> of(Class<V> type) {
+            return (Map<Long, Optional<V>>) (Map<?, ?>) loaded.computeIfAbsent(type, t -> new ConcurrentHashMap<>());
+        }
+    }
+
+    private record Relation<V>(Class<V> type, Function<Collection<Long>, Flux<V>> fetch, Function<V, Long> idOf) {}
+
+    private final Relation<Event> events;
+
+    private final Relation<Studio> studios;
+
+    private final Relation<ClassType> classTypes;
+
+    private final int batchSize;
+
+    private final Duration batchWindow;
+
+    @Autowired
+    public RelationLoader(
+        EventRepository eventRepository,
+        StudioRepository studioRepository,
+        ClassTypeRepository classTypeRepository,
+        ApplicationProperties applicationProperties
+    ) {
+        this(
+            eventRepository,
+            studioRepository,
+            classTypeRepository,
+            applicationProperties.getRelationLoading().getBatchSize(),
+            applicationProperties.getRelationLoading().getBatchWindow()
+        );
+    }
+
+    RelationLoader(
+        EventRepository eventRepository,
+        StudioRepository studioRepository,
+        ClassTypeRepository classTypeRepository,
+        int batchSize,
+        Duration batchWindow
+    ) {
+        // findAllById reads the table alone, without the joins of the repository fragments
+        this.events = new Relation<>(Event.class, eventRepository::findAllById, Event::getId);
+        this.studios = new Relation<>(Studio.class, studioRepository::findAllById, Studio::getId);
+        this.classTypes = new Relation<>(ClassType.class, classTypeRepository::findAllById, ClassType::getId);
+        this.batchSize = batchSize;
+        this.batchWindow = batchWindow;
+    }
+
+    /**
+     * Keep the related entities read from now on until the end of the request.
+     *
+     * @param context the context of the request.
+     * @return the context, with a new scope unless it already has one.
+     */
+    public static Context withScope(Context context) {
+        return context.hasKey(Scope.class) ? context : context.put(Scope.class, new Scope());
+    }
+
+    /**
+     * Attach their event to the entities.
+     *
+     * @param entities the entities.
+     * @param eventIdOf reads the event id of an entity.
+     * @param setEvent sets the event of an entity.
+     * @param <E> the type of the entities.
+     * @return the entities, in order, with their event.
+     */
+    public <E> Flux<E> loadEvents(Flux<E> entities, Function<E, Long> eventIdOf, BiConsumer<E, Event> setEvent) {
+        return load(entities, events, eventIdOf, setEvent);
+    }
+
+    /**
+     * Attach their studio to the entities.
+     *
+     * @param entities the entities.
+     * @param studioIdOf reads the studio id of an entity.
+     * @param setStudio sets the studio of an entity.
+     * @param <E> the type of the entities.
+     * @return the entities, in order, with their studio.
+     */
+    public <E> Flux<E> loadStudios(Flux<E> entities, Function<E, Long> studioIdOf, BiConsumer<E, Studio> setStudio) {
+        return load(entities, studios, studioIdOf, setStudio);
+    }
+
+    /**
+     * Attach their class type to the entities.
+     *
+     * @param entities the entities.
+     * @param classTypeIdOf reads the class type id of an entity.
+     * @param setClassType sets the class type of an entity.
+     * @param <E> the type of the entities.
+     * @return the entities, in order, with their class type.
+     */
+    public <E> Flux<E> loadClassTypes(Flux<E> entities, Function<E, Long> classTypeIdOf, BiConsumer<E, ClassType> setClassType) {
+        return load(entities, classTypes, classTypeIdOf, setClassType);
+    }
+
+    private <E, V> Flux<E> load(Flux<E> entities, Relation<V> relation, Function<E, Long> keyOf, BiConsumer<E, V> setter) {
+        return Flux.deferContextual(context -> {
+            Map<Long, Optional<V>> loaded = context.<Scope>getOrEmpty(Scope.class).orElseGet(Scope::new).of(relation.type());
+            return entities
+                .bufferTimeout(batchSize, batchWindow, true)
+                .concatMap(batch -> fetchMissing(relation, loaded, batch.stream().map(keyOf).toList()).thenMany(Flux.fromIterable(batch)))
+                .doOnNext(entity -> {
+                    Long id = keyOf.apply(entity);
+                    // setting null for an id without a row would clear the id
+                    if (id != null) {
+                        loaded.get(id).ifPresent(value -> setter.accept(entity, value));
+                    }
+                });
+        });
+    }
+
+    private <V> Mono<Void> fetchMissing(Relation<V> relation, Map<Long, Optional<V>> loaded, List<Long> ids) {
+        Set<Long> missing = ids
+            .stream()
+            .filter(Objects::nonNull)
+            .filter(id -> !loaded.containsKey(id))
+            .collect(Collectors.toCollection(TreeSet::new));
+        if (missing.isEmpty()) {
+            return Mono.empty();
+        }
+        return relation
+            .fetch()
+            .apply(missing)
+            .doOnNext(value -> loaded.put(relation.idOf().apply(value), Optional.of(value)))
+            .then(Mono.fromRunnable(() -> missing.forEach(id -> loaded.putIfAbsent(id, Optional.empty()))));
+    }
+}
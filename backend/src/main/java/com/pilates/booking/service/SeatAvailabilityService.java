@@ -0,0 +1,176 @@
+package com.pilates.booking.service;
+
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.repository.EventRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Service pushing the seats left on the events to the planning views as bookings take and free them.
+ * <p>
+ * The booking service marks the events whose seats changed once its transaction has committed. Every
+ * {@code conflation-window}, the marked events are read back in a single query and their availability is multicast to
+ * the subscribers, so a burst of bookings on an event costs one read and one update per window. Each subscriber then
+ * only keeps the latest availability of each event it has not consumed yet: a slow client skips intermediate counts
+ * instead of buffering them or holding back the others.
+ */
+@Service
+public class SeatAvailabilityService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatAvailabilityService.class);
+
+    /**
+     * Seats of an event, as pushed to the subscribers.
+     */
+    public record SeatAvailability(Long eventId, Integer capacity, Integer booked, Integer remaining) {
+        public static SeatAvailability fromEvent(Event event) {
+            int capacity = event.getCapacity() == null ? 0 : event.getCapacity();
+            int booked = event.getBookingsCount() == null ? 0 : event.getBookingsCount();
+            return new SeatAvailability(event.getId(), capacity, booked, Math.max(capacity - booked, 0));
+        }
+    }
+
+    private final EventRepository eventRepository;
+
+    private final Set<Long> changedEventIds = ConcurrentHashMap.newKeySet();
+
+    private final Sinks.Many<SeatAvailability> hub = Sinks.many().multicast().directBestEffort();
+
+    private final Disposable refresher;
+
+    @Autowired
+    public SeatAvailabilityService(EventRepository eventRepository, ApplicationProperties applicationProperties, MeterRegistry meterRegistry) {
+        this(eventRepository, applicationProperties.getSeatAvailability().getConflationWindow(), meterRegistry);
+    }
+
+    SeatAvailabilityService(EventRepository eventRepository, Duration conflationWindow, MeterRegistry meterRegistry) {
+        this.eventRepository = eventRepository;
+        Gauge.builder("seats.subscribers", hub, Sinks.Many::currentSubscriberCount)
+            .description("Number of clients following the seats left on the events")
+            .register(meterRegistry);
+        this.refresher = Flux.interval(conflationWindow)
+            .onBackpressureDrop()
+            .concatMap(tick -> refresh(), 1)
+            .subscribe();
+    }
+
+    /**
+     * Mark events whose seats changed, once the current transaction has committed, or right away outside of a
+     * transaction.
+     *
+     * @param eventIds the ids of the events, {@code null} ids being ignored.
+     * @return a completed {@link Mono}.
+     */
+    public Mono<Void> markChanged(Long... eventIds) {
+        List<Long> ids = new ArrayList<>(eventIds.length);
+        for (Long eventId : eventIds) {
+            if (eventId != null) {
+                ids.add(eventId);
+            }
+        }
+        if (ids.isEmpty()) {
+            return Mono.empty();
+        }
+        return TransactionSynchronizationManager.forCurrentTransaction()
+            .filter(TransactionSynchronizationManager::isSynchronizationActive)
+            .doOnNext(synchronizationManager ->
+                synchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return Mono.fromRunnable(() -> changedEventIds.addAll(ids));
+                        }
+                    }
+                )
+            )
+            .hasElement()
+            .onErrorResume(NoTransactionException.class, e -> Mono.just(false))
+            .doOnNext(registered -> {
+                if (!registered) {
+                    changedEventIds.addAll(ids);
+                }
+            })
+            .then();
+    }
+
+    /**
+     * Follow the seats left on some events.
+     *
+     * @param eventIds the ids of the events to follow, or an empty collection for all of them.
+     * @return the availability of the events each time it changes, the latest one only if the subscriber lags behind.
+     */
+    public Flux<SeatAvailability> updates(Collection<Long> eventIds) {
+        Set<Long> followed = Set.copyOf(eventIds);
+        return Flux.defer(() -> {
+            // latest availability not consumed yet, by event
+            Map<Long, SeatAvailability> pending = new LinkedHashMap<>();
+            return hub
+                .asFlux()
+                .filter(update -> followed.isEmpty() || followed.contains(update.eventId()))
+                .doOnNext(update -> {
+                    synchronized (pending) {
+                        pending.put(update.eventId(), update);
+                    }
+                })
+                .onBackpressureLatest()
+                .concatMapIterable(
+                    update -> {
+                        synchronized (pending) {
+                            List<SeatAvailability> latest = new ArrayList<>(pending.values());
+                            pending.clear();
+                            return latest;
+                        }
+                    },
+                    1
+                );
+        });
+    }
+
+    /**
+     * Read back the events marked since the last refresh and push their availability.
+     */
+    Mono<Void> refresh() {
+        if (changedEventIds.isEmpty()) {
+            return Mono.empty();
+        }
+        List<Long> eventIds = new ArrayList<>(changedEventIds);
+        changedEventIds.removeAll(eventIds);
+        return eventRepository
+            .findAllById(eventIds)
+            .map(SeatAvailability::fromEvent)
+            .doOnNext(hub::tryEmitNext)
+            .then()
+            .onErrorResume(e -> {
+                LOG.warn("Seats of events {} could not be refreshed", eventIds, e);
+                changedEventIds.addAll(eventIds);
+                return Mono.empty();
+            });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.dispose();
+        hub.tryEmitComplete();
+    }
+}
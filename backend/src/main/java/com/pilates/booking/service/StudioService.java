@@ -39,6 +39,15 @@ public interface StudioService {
      */
     Flux<Studio> findAll();
 
+    /**
+     * Get a keyset page of the studios, ordered by id.
+     *
+     * @param afterId the id of the last entity of the previous page, or null for the first page.
+     * @param limit the maximum number of entities.
+     * @return the page of entities.
+     */
+    Flux<Studio> findAll(Long afterId, int limit);
+
     /**
      * Returns the number of studios available.
      * @return the number of entities in the database.
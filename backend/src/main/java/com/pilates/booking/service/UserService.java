@@ -7,6 +7,7 @@ import com.pilates.booking.repository.AuthorityRepository;
 import com.pilates.booking.repository.UserRepository;
 import com.pilates.booking.security.AuthoritiesConstants;
 import com.pilates.booking.security.SecurityUtils;
+import com.pilates.booking.security.UserIdentityCache;
 import com.pilates.booking.service.dto.AdminUserDTO;
 import com.pilates.booking.service.dto.UserDTO;
 import java.time.Instant;
@@ -41,11 +42,14 @@ public class UserService {
 
     private final AuthorityRepository authorityRepository;
 
+    private final UserIdentityCache userIdentityCache;
+
     public UserService(UserRepository userRepository, PasswordEncoder passwordEncoder,
-            AuthorityRepository authorityRepository) {
+            AuthorityRepository authorityRepository, UserIdentityCache userIdentityCache) {
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.authorityRepository = authorityRepository;
+        this.userIdentityCache = userIdentityCache;
     }
 
     @Transactional
@@ -98,7 +102,7 @@ public class UserService {
                 .findOneByLogin(userDTO.getLogin().toLowerCase())
                 .flatMap(existingUser -> {
                     if (!existingUser.isActivated()) {
-                        return userRepository.delete(existingUser);
+                        return deleteAndEvict(existingUser);
                     } else {
                         return Mono.error(new UsernameAlreadyUsedException());
                     }
@@ -106,7 +110,7 @@ public class UserService {
                 .then(userRepository.findOneByEmailIgnoreCase(userDTO.getEmail()))
                 .flatMap(existingUser -> {
                     if (!existingUser.isActivated()) {
-                        return userRepository.delete(existingUser);
+                        return deleteAndEvict(existingUser);
                     } else {
                         return Mono.error(new EmailAlreadyUsedException());
                     }
@@ -116,7 +120,7 @@ public class UserService {
                                 .flatMap(phone -> userRepository.findOneByPhone(phone))
                                 .flatMap(existingUser -> {
                                     if (!existingUser.isActivated()) {
-                                        return userRepository.delete(existingUser);
+                                        return deleteAndEvict(existingUser);
                                     } else {
                                         return Mono.error(new PhoneAlreadyUsedException());
                                     }
@@ -198,6 +202,8 @@ public class UserService {
         return userRepository
                 .findById(userDTO.getId())
                 .flatMap(user -> {
+                    // the login may change: the cache entry under the previous one must go too
+                    String previousLogin = user.getLogin();
                     user.setLogin(userDTO.getLogin().toLowerCase());
                     user.setFirstName(userDTO.getFirstName());
                     user.setLastName(userDTO.getLastName());
@@ -209,8 +215,9 @@ public class UserService {
                     user.setLangKey(userDTO.getLangKey());
                     Set<Authority> managedAuthorities = user.getAuthorities();
                     managedAuthorities.clear();
-                    return userRepository
-                            .deleteUserAuthorities(user.getId())
+                    return userIdentityCache
+                            .evict(previousLogin)
+                            .then(userRepository.deleteUserAuthorities(user.getId()))
                             .thenMany(Flux.fromIterable(userDTO.getAuthorities()))
                             .flatMap(authorityRepository::findById)
                             .map(managedAuthorities::add)
@@ -225,7 +232,7 @@ public class UserService {
     public Mono<Void> deleteUser(String login) {
         return userRepository
                 .findOneByLogin(login)
-                .flatMap(user -> userRepository.delete(user).thenReturn(user))
+                .flatMap(user -> deleteAndEvict(user).thenReturn(user))
                 .doOnNext(user -> LOG.debug("Deleted User: {}", user))
                 .then();
     }
@@ -275,10 +282,15 @@ public class UserService {
                             .flatMap(savedUser -> Flux.fromIterable(user.getAuthorities())
                                     .flatMap(authority -> userRepository.saveUserAuthority(savedUser.getId(),
                                             authority.getName()))
+                                    .then(userIdentityCache.evict(savedUser.getLogin()))
                                     .then(Mono.just(savedUser)));
                 });
     }
 
+    private Mono<Void> deleteAndEvict(User user) {
+        return userRepository.delete(user).then(userIdentityCache.evict(user.getLogin()));
+    }
+
     @Transactional
     public Mono<Void> changePassword(String currentClearTextPassword, String newPassword) {
         return SecurityUtils.getCurrentUserLogin()
@@ -323,16 +335,18 @@ public class UserService {
      * Cette méthode récupère l'utilisateur courant avec ses autorités (rôles).
      * Elle est cruciale pour le fonctionnement du frontend (Account).
      * Note: @Transactional a été retiré ici pour éviter des blocages AOP réactifs.
-     * On récupère d'abord l'utilisateur, puis ses rôles manuellement pour éviter
-     * les problèmes de performance/blocage avec les JOINs.
+     * On récupère d'abord l'utilisateur, puis ses rôles depuis le cache des
+     * identités pour éviter les problèmes de performance/blocage avec les JOINs.
      */
     public Mono<User> getUserWithAuthorities() {
         return SecurityUtils.getCurrentUserLogin()
-                .flatMap(userRepository::findOneByLogin)
-                .flatMap(user -> userRepository.findAllAuthoritiesByUserId(user.getId())
-                        .collect(Collectors.toSet())
-                        .doOnNext(authorities -> user.setAuthorities(authorities))
-                        .thenReturn(user));
+                .flatMap(login -> userRepository.findOneByLogin(login)
+                        .zipWith(userIdentityCache.get(login), (user, identity) -> {
+                            user.setAuthorities(identity.authorities().stream()
+                                    .map(name -> new Authority().name(name))
+                                    .collect(Collectors.toSet()));
+                            return user;
+                        }));
     }
 
     /**
@@ -350,7 +364,7 @@ public class UserService {
         return userRepository
                 .findAllByActivatedIsFalseAndActivationKeyIsNotNullAndCreatedDateBefore(
                         LocalDateTime.ofInstant(Instant.now().minus(3, ChronoUnit.DAYS), ZoneOffset.UTC))
-                .flatMap(user -> userRepository.delete(user).thenReturn(user))
+                .flatMap(user -> deleteAndEvict(user).thenReturn(user))
                 .doOnNext(user -> LOG.debug("Deleted User: {}", user));
     }
 
@@ -0,0 +1,88 @@
+package com.pilates.booking.service;
+
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.repository.BookingRepository;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
+import reactor.core.publisher.Mono;
+
+/**
+ * Service moving the waitlisted (FULL) bookings of an event to BOOKED as seats are freed, first come first served.
+ */
+@Service
+public class WaitlistService {
+
+    private static final Logger LOG = LoggerFactory.getLogger(WaitlistService.class);
+
+    private final BookingRepository bookingRepository;
+
+    private final EventRepository eventRepository;
+
+    private final UserRepository userRepository;
+
+    private final MailService mailService;
+
+    public WaitlistService(
+        BookingRepository bookingRepository,
+        EventRepository eventRepository,
+        UserRepository userRepository,
+        MailService mailService
+    ) {
+        this.bookingRepository = bookingRepository;
+        this.eventRepository = eventRepository;
+        this.userRepository = userRepository;
+        this.mailService = mailService;
+    }
+
+    /**
+     * Give the seat just freed on an event to the oldest waitlisted booking, in the caller's transaction. The member
+     * is mailed once that transaction has committed.
+     * <p>
+     * The caller must hold the event row lock, taken before it released the seat.
+     *
+     * @param eventId the id of the event.
+     * @return the promoted booking, or an empty {@link Mono} if nobody was waiting or the event is still full.
+     */
+    public Mono<Booking> promoteNext(Long eventId) {
+        return bookingRepository
+            .promoteNextOnWaitlist(eventId)
+            .doOnNext(promoted -> LOG.debug("Promoted Booking from the waitlist : {}", promoted))
+            .flatMap(promoted -> notifyAfterCommit(promoted).thenReturn(promoted));
+    }
+
+    private Mono<Void> notifyAfterCommit(Booking promoted) {
+        return TransactionSynchronizationManager.forCurrentTransaction()
+            .filter(TransactionSynchronizationManager::isSynchronizationActive)
+            .doOnNext(synchronizationManager ->
+                synchronizationManager.registerSynchronization(
+                    new TransactionSynchronization() {
+                        @Override
+                        public Mono<Void> afterCommit() {
+                            return notifyPromotion(promoted);
+                        }
+                    }
+                )
+            )
+            .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+            .then();
+    }
+
+    private Mono<Void> notifyPromotion(Booking promoted) {
+        return userRepository
+            .findById(promoted.getUserId())
+            .zipWith(eventRepository.findById(promoted.getEventId()))
+            .doOnNext(userAndEvent -> mailService.sendWaitlistPromotionMail(userAndEvent.getT1(), userAndEvent.getT2()))
+            .then()
+            // the promotion is committed whether the member could be told or not
+            .onErrorResume(e -> {
+                LOG.warn("Waitlist promotion of Booking {} could not be notified", promoted.getId(), e);
+                return Mono.empty();
+            });
+    }
+}
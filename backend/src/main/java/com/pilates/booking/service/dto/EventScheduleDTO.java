@@ -0,0 +1,190 @@
+package com.pilates.booking.service.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import java.io.Serializable;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A DTO representing the timetable of a term: weekly slots repeated from {@code startDate} to {@code endDate}, both
+ * included, except on the {@code exceptions} dates (bank holidays, closing days).
+ */
+public class EventScheduleDTO implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    @NotNull
+    private LocalDate startDate;
+
+    @NotNull
+    private LocalDate endDate;
+
+    // the slot times are wall-clock times in this zone, whatever the daylight saving time
+    @NotNull
+    private ZoneId timeZone = ZoneOffset.UTC;
+
+    @NotNull
+    private Set<LocalDate> exceptions = new HashSet<>();
+
+    @NotEmpty
+    @Valid
+    private List<Slot> slots = new ArrayList<>();
+
+    public LocalDate getStartDate() {
+        return startDate;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    public LocalDate getEndDate() {
+        return endDate;
+    }
+
+    public void setEndDate(LocalDate endDate) {
+        this.endDate = endDate;
+    }
+
+    public ZoneId getTimeZone() {
+        return timeZone;
+    }
+
+    public void setTimeZone(ZoneId timeZone) {
+        this.timeZone = timeZone;
+    }
+
+    public Set<LocalDate> getExceptions() {
+        return exceptions;
+    }
+
+    public void setExceptions(Set<LocalDate> exceptions) {
+        this.exceptions = exceptions;
+    }
+
+    public List<Slot> getSlots() {
+        return slots;
+    }
+
+    public void setSlots(List<Slot> slots) {
+        this.slots = slots;
+    }
+
+    @Override
+    public String toString() {
+        return "EventScheduleDTO{" +
+            "startDate=" + startDate +
+            ", endDate=" + endDate +
+            ", timeZone=" + timeZone +
+            ", exceptions=" + exceptions.size() +
+            ", slots=" + slots.size() +
+            "}";
+    }
+
+    /**
+     * A class given every week on the same days, at the same time.
+     */
+    public static class Slot implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        @NotEmpty
+        private Set<DayOfWeek> daysOfWeek = new HashSet<>();
+
+        @NotNull
+        private LocalTime startTime;
+
+        @NotNull
+        private Duration duration;
+
+        private String coachName;
+
+        private Long studioId;
+
+        private Long classTypeId;
+
+        @NotNull
+        @Min(1)
+        private Integer capacity;
+
+        public Set<DayOfWeek> getDaysOfWeek() {
+            return daysOfWeek;
+        }
+
+        public void setDaysOfWeek(Set<DayOfWeek> daysOfWeek) {
+            this.daysOfWeek = daysOfWeek;
+        }
+
+        public LocalTime getStartTime() {
+            return startTime;
+        }
+
+        public void setStartTime(LocalTime startTime) {
+            this.startTime = startTime;
+        }
+
+        public Duration getDuration() {
+            return duration;
+        }
+
+        public void setDuration(Duration duration) {
+            this.duration = duration;
+        }
+
+        public String getCoachName() {
+            return coachName;
+        }
+
+        public void setCoachName(String coachName) {
+            this.coachName = coachName;
+        }
+
+        public Long getStudioId() {
+            return studioId;
+        }
+
+        public void setStudioId(Long studioId) {
+            this.studioId = studioId;
+        }
+
+        public Long getClassTypeId() {
+            return classTypeId;
+        }
+
+        public void setClassTypeId(Long classTypeId) {
+            this.classTypeId = classTypeId;
+        }
+
+        public Integer getCapacity() {
+            return capacity;
+        }
+
+        public void setCapacity(Integer capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public String toString() {
+            return "Slot{" +
+                "daysOfWeek=" + daysOfWeek +
+                ", startTime=" + startTime +
+                ", duration=" + duration +
+                ", coachName='" + coachName + "'" +
+                ", studioId=" + studioId +
+                ", classTypeId=" + classTypeId +
+                ", capacity=" + capacity +
+                "}";
+        }
+    }
+}
@@ -1,15 +1,25 @@
 package com.pilates.booking.service.impl;
 
 import com.pilates.booking.domain.Booking;
-import com.pilates.booking.domain.User;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.repository.BalanceEntryRepository;
 import com.pilates.booking.repository.BookingRepository;
 import com.pilates.booking.repository.EventRepository;
-import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.repository.FieldSet;
+import com.pilates.booking.repository.MemberBooking;
 import com.pilates.booking.security.AuthoritiesConstants;
 import com.pilates.booking.security.SecurityUtils;
+import com.pilates.booking.security.UserIdentityCache;
+import com.pilates.booking.service.BookingPartitionService;
 import com.pilates.booking.service.BookingService;
+import com.pilates.booking.service.RelationLoader;
+import com.pilates.booking.service.SeatAvailabilityService;
+import com.pilates.booking.service.WaitlistService;
 import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.Objects;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -34,15 +44,39 @@ public class BookingServiceImpl implements BookingService {
 
     private static final long PENALTY_CENTS = 500L; // 5€
     private static final long PENALTY_WINDOW_HOURS = 12L;
+    private static final String REASON_PENALTY = "LATE_CANCELLATION";
+
+    // The pages are read without their event, attached afterwards by batches: the bookings of a page share a few
+    // events, which are read once instead of being repeated on every row
+    private static final FieldSet ALL_FIELDS = FieldSet.of(BookingRepository.FIELDS);
 
     private final BookingRepository bookingRepository;
     private final EventRepository eventRepository;
-    private final UserRepository userRepository;
-
-    public BookingServiceImpl(BookingRepository bookingRepository, EventRepository eventRepository, UserRepository userRepository) {
+    private final BalanceEntryRepository balanceEntryRepository;
+    private final UserIdentityCache userIdentityCache;
+    private final WaitlistService waitlistService;
+    private final SeatAvailabilityService seatAvailabilityService;
+    private final BookingPartitionService bookingPartitionService;
+    private final RelationLoader relationLoader;
+
+    public BookingServiceImpl(
+        BookingRepository bookingRepository,
+        EventRepository eventRepository,
+        BalanceEntryRepository balanceEntryRepository,
+        UserIdentityCache userIdentityCache,
+        WaitlistService waitlistService,
+        SeatAvailabilityService seatAvailabilityService,
+        BookingPartitionService bookingPartitionService,
+        RelationLoader relationLoader
+    ) {
         this.bookingRepository = bookingRepository;
         this.eventRepository = eventRepository;
-        this.userRepository = userRepository;
+        this.balanceEntryRepository = balanceEntryRepository;
+        this.userIdentityCache = userIdentityCache;
+        this.waitlistService = waitlistService;
+        this.seatAvailabilityService = seatAvailabilityService;
+        this.bookingPartitionService = bookingPartitionService;
+        this.relationLoader = relationLoader;
     }
 
     private Mono<Boolean> isAdmin() {
@@ -52,7 +86,7 @@ public class BookingServiceImpl implements BookingService {
     private Mono<Long> getCurrentUserIdOrFail() {
         return SecurityUtils.getCurrentUserId()
             .switchIfEmpty(
-                SecurityUtils.getCurrentUserLogin().flatMap(userRepository::findOneByLogin).map(User::getId).switchIfEmpty(Mono.empty())
+                SecurityUtils.getCurrentUserLogin().flatMap(userIdentityCache::get).map(UserIdentityCache.UserIdentity::id)
             )
             .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.UNAUTHORIZED, "Current user not available")));
     }
@@ -73,6 +107,75 @@ public class BookingServiceImpl implements BookingService {
             });
     }
 
+    private static Long bookedEventId(Long eventId, String status) {
+        return STATUS_BOOKED.equals(status) ? eventId : null;
+    }
+
+    /**
+     * Rejects a booking holding or waiting for a seat of a cancelled event: cancelling an event cancels its bookings
+     * and frees all its seats, which must stay free. Locks the event, so that it is not cancelled before the commit.
+     */
+    private Mono<Void> assertEventNotCancelled(Long eventId, String status) {
+        if (eventId == null || !(STATUS_BOOKED.equals(status) || STATUS_FULL.equals(status))) {
+            return Mono.empty();
+        }
+        return eventRepository
+            .findByIdForUpdate(eventId)
+            .filter(event -> STATUS_CANCELLED.equals(event.getStatus()))
+            .flatMap(event -> Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Event is cancelled")))
+            .then();
+    }
+
+    /**
+     * Keeps event.bookings_count in step when a booking leaves or takes a BOOKED seat, in the caller's transaction,
+     * and has the new counts pushed once it commits.
+     */
+    private Mono<Void> moveBookedSeat(Long fromEventId, Long toEventId) {
+        if (Objects.equals(fromEventId, toEventId)) {
+            return Mono.empty();
+        }
+        Mono<Long> release = fromEventId == null ? Mono.empty() : eventRepository.adjustBookingsCount(fromEventId, -1);
+        Mono<Long> take = toEventId == null ? Mono.empty() : eventRepository.adjustBookingsCount(toEventId, 1);
+        return release.then(take).then(seatAvailabilityService.markChanged(fromEventId, toEventId));
+    }
+
+    /**
+     * Frees a BOOKED seat and hands it to the head of the event's waitlist. The caller holds the event row lock.
+     */
+    private Mono<Void> releaseBookedSeat(Long eventId) {
+        if (eventId == null) {
+            return Mono.empty();
+        }
+        return moveBookedSeat(eventId, null).then(waitlistService.promoteNext(eventId)).then();
+    }
+
+    /**
+     * Moves a BOOKED seat from one event to another, the freed seat going to the head of the waitlist. The caller
+     * holds the row lock of both events.
+     */
+    private Mono<Void> transferBookedSeat(Long fromEventId, Long toEventId) {
+        if (Objects.equals(fromEventId, toEventId)) {
+            return Mono.empty();
+        }
+        return moveBookedSeat(null, toEventId).then(releaseBookedSeat(fromEventId));
+    }
+
+    /**
+     * Locks the event a booking leaves and the one it joins, in ascending id order, then reads the booking again under
+     * those locks: a concurrent cancellation or deletion may have gone through since it was first read.
+     */
+    private Mono<Booking> lockEventsAndReload(Booking booking, Long toEventId) {
+        Long fromEventId = booking.getEventId();
+        return Flux.fromStream(Stream.of(fromEventId, toEventId).filter(Objects::nonNull).distinct().sorted())
+            .concatMap(eventRepository::findByIdForUpdate)
+            .then(bookingRepository.findById(booking.getId()))
+            .flatMap(lockedBooking ->
+                Objects.equals(lockedBooking.getEventId(), fromEventId)
+                    ? Mono.just(lockedBooking)
+                    : Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Booking was moved concurrently"))
+            );
+    }
+
     @Override
     public Mono<Booking> save(Booking booking) {
         LOG.debug("Request to save Booking with business checks : {}", booking);
@@ -104,37 +207,36 @@ public class BookingServiceImpl implements BookingService {
 
         return effectiveUserIdMono.then(
             eventRepository
-                .findById(booking.getEventId())
+                // le verrou sur la séance sérialise les réservations concurrentes jusqu'au commit
+                .findByIdForUpdate(booking.getEventId())
                 .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Event not found")))
                 .flatMap(event -> {
                     ZonedDateTime now = ZonedDateTime.now();
 
+                    // une séance annulée a rendu toutes ses places, qui ne se réservent plus
+                    if (STATUS_CANCELLED.equals(event.getStatus())) {
+                        return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Event is cancelled"));
+                    }
+
                     // séance doit être dans le futur
                     if (!event.getStartAt().isAfter(now)) {
                         return Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Cannot book past or ongoing event"));
                     }
 
-                    return bookingRepository
-                        .countByEventIdAndStatus(event.getId(), STATUS_BOOKED)
-                        .flatMap(bookedCount -> {
-                            booking.setCreatedAt(now);
-                            booking.setCancelledAt(null);
-
-                            // capacité dispo
-                            if (bookedCount < event.getCapacity()) {
-                                booking.setStatus(STATUS_BOOKED);
-                                return bookingRepository.save(booking);
-                            }
-
-                            // capacité pleine -> FULL si waitlist ouverte
-                            if (Boolean.TRUE.equals(event.getWaitlistOpen())) {
-                                booking.setStatus(STATUS_FULL);
-                                return bookingRepository.save(booking);
-                            }
+                    booking.setCreatedAt(now);
+                    booking.setCancelledAt(null);
 
-                            // capacité pleine et waitlist fermée -> refus
-                            return Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Session is full and waitlist is closed"));
-                        });
+                    // BOOKED si capacité dispo, FULL si waitlist ouverte, sinon rien n'est inséré
+                    return bookingRepository
+                        .insertIfSeatAvailable(booking)
+                        .switchIfEmpty(
+                            Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Session is full and waitlist is closed"))
+                        )
+                        .flatMap(saved ->
+                            STATUS_BOOKED.equals(saved.getStatus())
+                                ? seatAvailabilityService.markChanged(saved.getEventId()).thenReturn(saved)
+                                : Mono.just(saved)
+                        );
                 })
         );
     }
@@ -147,7 +249,21 @@ public class BookingServiceImpl implements BookingService {
                 if (!admin) {
                     return Mono.error(new ResponseStatusException(HttpStatus.FORBIDDEN, "Only admins can update bookings"));
                 }
-                return bookingRepository.save(booking);
+                return bookingRepository
+                    .findById(booking.getId())
+                    // la séance quittée et celle rejointe sont verrouillées, la réservation relue sous leurs verrous
+                    .flatMap(existingBooking -> lockEventsAndReload(existingBooking, booking.getEventId()))
+                    .flatMap(lockedBooking -> {
+                        Long previousBookedEventId = bookedEventId(lockedBooking.getEventId(), lockedBooking.getStatus());
+                        return assertEventNotCancelled(booking.getEventId(), booking.getStatus())
+                            .then(bookingRepository.save(booking))
+                            // une réservation modifiée à la main peut être antérieure à l'horizon des séances à venir
+                            .doOnNext(saved -> bookingPartitionService.coverCreatedAt(saved.getCreatedAt()))
+                            .flatMap(saved -> {
+                                Long nowBookedEventId = bookedEventId(saved.getEventId(), saved.getStatus());
+                                return transferBookedSeat(previousBookedEventId, nowBookedEventId).thenReturn(saved);
+                            });
+                    });
             });
     }
 
@@ -163,7 +279,9 @@ public class BookingServiceImpl implements BookingService {
 
                 return bookingRepository
                     .findById(booking.getId())
-                    .map(existingBooking -> {
+                    .flatMap(existingBooking -> lockEventsAndReload(existingBooking, booking.getEventId()))
+                    .flatMap(existingBooking -> {
+                        Long previousBookedEventId = bookedEventId(existingBooking.getEventId(), existingBooking.getStatus());
                         if (booking.getStatus() != null) {
                             existingBooking.setStatus(booking.getStatus());
                         }
@@ -179,9 +297,14 @@ public class BookingServiceImpl implements BookingService {
                         if (booking.getEventId() != null) {
                             existingBooking.setEventId(booking.getEventId());
                         }
-                        return existingBooking;
-                    })
-                    .flatMap(bookingRepository::save);
+                        return assertEventNotCancelled(existingBooking.getEventId(), existingBooking.getStatus())
+                            .then(bookingRepository.save(existingBooking))
+                            .doOnNext(saved -> bookingPartitionService.coverCreatedAt(saved.getCreatedAt()))
+                            .flatMap(saved -> {
+                                Long nowBookedEventId = bookedEventId(saved.getEventId(), saved.getStatus());
+                                return transferBookedSeat(previousBookedEventId, nowBookedEventId).thenReturn(saved);
+                            });
+                    });
             });
     }
 
@@ -198,6 +321,47 @@ public class BookingServiceImpl implements BookingService {
             });
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<Booking> findAll(Long afterId, int limit) {
+        return findAll(afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<Booking> findAll(Long afterId, int limit, FieldSet fields) {
+        LOG.debug("Request to get Bookings after : {}, fields : {}", afterId, fields);
+        FieldSet requested = fields.isAll() ? ALL_FIELDS : fields;
+        FieldSet read = requested.includes("event") ? requested.without("event").with("eventId") : requested;
+        Flux<Booking> bookings = isAdmin()
+            .flatMapMany(admin -> {
+                if (admin) {
+                    return bookingRepository.findAllBy(afterId, limit, read);
+                }
+                return getCurrentUserIdOrFail().flatMapMany(userId -> bookingRepository.findAllByUserId(userId, afterId, limit, read));
+            });
+        return requested.includes("event") ? relationLoader.loadEvents(bookings, Booking::getEventId, Booking::setEvent) : bookings;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<MemberBooking> findMyBookings(boolean upcoming, Instant afterStartAt, Long afterId, int limit) {
+        LOG.debug("Request to get the {} Bookings of the current user after : {}, {}", upcoming ? "upcoming" : "past", afterStartAt, afterId);
+        Instant now = Instant.now();
+        boolean firstPage = afterStartAt == null || afterId == null;
+        // Sans curseur, la page part de maintenant : le découpage à venir / passé est la borne de la recherche
+        return getCurrentUserIdOrFail()
+            .flatMapMany(userId ->
+                upcoming
+                    ? bookingPartitionService
+                        .upcomingHorizon()
+                        .flatMapMany(since ->
+                            bookingRepository.findUpcomingByUserId(userId, now, since, firstPage ? now : afterStartAt, firstPage ? 0L : afterId, limit)
+                        )
+                    : bookingRepository.findPastByUserId(userId, now, firstPage ? now : afterStartAt, firstPage ? Long.MAX_VALUE : afterId, limit)
+            );
+    }
+
     @Override
     public Mono<Long> countAll() {
         return bookingRepository.count();
@@ -219,7 +383,17 @@ public class BookingServiceImpl implements BookingService {
         return bookingRepository
             .findById(id)
             .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND, "Booking not found")))
-            .flatMap(booking -> assertCurrentUserCanAccessBooking(booking).then(bookingRepository.deleteById(id)));
+            .flatMap(booking ->
+                assertCurrentUserCanAccessBooking(booking)
+                    .then(booking.getEventId() == null ? Mono.<Event>empty() : eventRepository.findByIdForUpdate(booking.getEventId()))
+                    // relue sous le verrou : une suppression ou annulation concurrente a pu passer entre-temps
+                    .then(bookingRepository.findById(id))
+                    .flatMap(lockedBooking ->
+                        bookingRepository
+                            .deleteById(id)
+                            .then(releaseBookedSeat(bookedEventId(lockedBooking.getEventId(), lockedBooking.getStatus())))
+                    )
+            );
     }
 
     @Override
@@ -232,15 +406,27 @@ public class BookingServiceImpl implements BookingService {
             .flatMap(booking -> assertCurrentUserCanAccessBooking(booking).thenReturn(booking))
             .flatMap(booking ->
                 eventRepository
-                    .findById(booking.getEventId())
+                    // le verrou sur la séance sérialise les annulations concurrentes et la promotion de la liste d'attente
+                    .findByIdForUpdate(booking.getEventId())
                     .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.BAD_REQUEST, "Linked event not found")))
-                    .flatMap(event -> {
+                    .zipWhen(event -> bookingRepository.findById(id))
+                    .flatMap(eventAndBooking -> {
+                        Event event = eventAndBooking.getT1();
+                        // relue sous le verrou : une annulation concurrente a pu passer entre-temps
+                        Booking lockedBooking = eventAndBooking.getT2();
+                        if (STATUS_CANCELLED.equals(lockedBooking.getStatus())) {
+                            return Mono.just(lockedBooking);
+                        }
+
                         ZonedDateTime now = ZonedDateTime.now();
 
-                        booking.setStatus(STATUS_CANCELLED);
-                        booking.setCancelledAt(now);
+                        Long previousBookedEventId = bookedEventId(lockedBooking.getEventId(), lockedBooking.getStatus());
+                        lockedBooking.setStatus(STATUS_CANCELLED);
+                        lockedBooking.setCancelledAt(now);
 
-                        Mono<Booking> saveBookingMono = bookingRepository.save(booking);
+                        Mono<Booking> saveBookingMono = bookingRepository
+                            .save(lockedBooking)
+                            .flatMap(saved -> releaseBookedSeat(previousBookedEventId).thenReturn(saved));
 
                         Duration untilStart = Duration.between(now, event.getStartAt());
                         boolean penaltyApplies = !untilStart.isNegative() && untilStart.toHours() < PENALTY_WINDOW_HOURS;
@@ -250,13 +436,9 @@ public class BookingServiceImpl implements BookingService {
                         }
 
                         return saveBookingMono.flatMap(saved ->
-                            userRepository
-                                .findById(saved.getUserId())
-                                .flatMap(user -> {
-                                    long current = user.getBalanceCents() == null ? 0L : user.getBalanceCents();
-                                    user.setBalanceCents(current - PENALTY_CENTS);
-                                    return userRepository.save(user).thenReturn(saved);
-                                })
+                            balanceEntryRepository
+                                .adjustBalance(saved.getUserId(), -PENALTY_CENTS, REASON_PENALTY, saved.getId(), now.toInstant())
+                                .thenReturn(saved)
                         );
                     })
             );
@@ -2,7 +2,10 @@ package com.pilates.booking.service.impl;
 
 import com.pilates.booking.domain.ClassSession;
 import com.pilates.booking.repository.ClassSessionRepository;
+import com.pilates.booking.repository.FieldSet;
 import com.pilates.booking.service.ClassSessionService;
+import com.pilates.booking.service.RelationLoader;
+import java.time.ZonedDateTime;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -19,10 +22,17 @@ public class ClassSessionServiceImpl implements ClassSessionService {
 
     private static final Logger LOG = LoggerFactory.getLogger(ClassSessionServiceImpl.class);
 
+    // The sessions are read without their studio and class type, attached afterwards by batches: a page of sessions
+    // only holds a few distinct ones, which are read once instead of being repeated on every row
+    private static final FieldSet ALL_FIELDS = FieldSet.of(ClassSessionRepository.FIELDS);
+
     private final ClassSessionRepository classSessionRepository;
 
-    public ClassSessionServiceImpl(ClassSessionRepository classSessionRepository) {
+    private final RelationLoader relationLoader;
+
+    public ClassSessionServiceImpl(ClassSessionRepository classSessionRepository, RelationLoader relationLoader) {
         this.classSessionRepository = classSessionRepository;
+        this.relationLoader = relationLoader;
     }
 
     @Override
@@ -72,6 +82,34 @@ public class ClassSessionServiceImpl implements ClassSessionService {
         return classSessionRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<ClassSession> findAll(ZonedDateTime afterStartAt, Long afterId, int limit) {
+        return findAll(afterStartAt, afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<ClassSession> findAll(ZonedDateTime afterStartAt, Long afterId, int limit, FieldSet fields) {
+        LOG.debug("Request to get ClassSessions after : {}, {}, fields : {}", afterStartAt, afterId, fields);
+        FieldSet requested = fields.isAll() ? ALL_FIELDS : fields;
+        FieldSet read = requested.without("studio", "classType");
+        if (requested.includes("studio")) {
+            read = read.with("studioId");
+        }
+        if (requested.includes("classType")) {
+            read = read.with("classTypeId");
+        }
+        Flux<ClassSession> classSessions = classSessionRepository.findAllBy(afterStartAt, afterId, limit, read);
+        if (requested.includes("studio")) {
+            classSessions = relationLoader.loadStudios(classSessions, ClassSession::getStudioId, ClassSession::setStudio);
+        }
+        if (requested.includes("classType")) {
+            classSessions = relationLoader.loadClassTypes(classSessions, ClassSession::getClassTypeId, ClassSession::setClassType);
+        }
+        return classSessions;
+    }
+
     public Mono<Long> countAll() {
         return classSessionRepository.count();
     }
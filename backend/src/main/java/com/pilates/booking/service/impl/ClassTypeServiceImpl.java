@@ -66,6 +66,13 @@ public class ClassTypeServiceImpl implements ClassTypeService {
         return classTypeRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<ClassType> findAll(Long afterId, int limit) {
+        LOG.debug("Request to get ClassTypes after : {}", afterId);
+        return classTypeRepository.findAllBy(afterId, limit);
+    }
+
     public Mono<Long> countAll() {
         return classTypeRepository.count();
     }
@@ -1,12 +1,31 @@
 package com.pilates.booking.service.impl;
 
+import com.pilates.booking.domain.Booking;
 import com.pilates.booking.domain.Event;
+import com.pilates.booking.repository.BalanceEntryRepository;
+import com.pilates.booking.repository.BookingRepository;
 import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.FieldSet;
+import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.service.EventReminderService;
 import com.pilates.booking.service.EventService;
+import com.pilates.booking.service.MailService;
+import com.pilates.booking.service.RelationLoader;
+import com.pilates.booking.service.SeatAvailabilityService;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionSynchronization;
+import org.springframework.transaction.reactive.TransactionSynchronizationManager;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -19,25 +38,57 @@ public class EventServiceImpl implements EventService {
 
     private static final Logger LOG = LoggerFactory.getLogger(EventServiceImpl.class);
 
+    private static final String STATUS_CANCELLED = "CANCELLED";
+
+    // The pages are read without their studio and class type, attached afterwards by batches: a page of events only
+    // holds a few distinct ones, which are read once instead of being repeated on every row
+    private static final FieldSet WITHOUT_RELATIONS = FieldSet.of(EventRepository.FIELDS).without("studio", "classType");
+
     private final EventRepository eventRepository;
-    private final com.pilates.booking.repository.BookingRepository bookingRepository;
 
-    public EventServiceImpl(EventRepository eventRepository,
-            com.pilates.booking.repository.BookingRepository bookingRepository) {
+    private final BookingRepository bookingRepository;
+
+    private final BalanceEntryRepository balanceEntryRepository;
+
+    private final UserRepository userRepository;
+
+    private final MailService mailService;
+
+    private final SeatAvailabilityService seatAvailabilityService;
+
+    private final EventReminderService eventReminderService;
+
+    private final RelationLoader relationLoader;
+
+    public EventServiceImpl(
+            EventRepository eventRepository,
+            BookingRepository bookingRepository,
+            BalanceEntryRepository balanceEntryRepository,
+            UserRepository userRepository,
+            MailService mailService,
+            SeatAvailabilityService seatAvailabilityService,
+            EventReminderService eventReminderService,
+            RelationLoader relationLoader) {
         this.eventRepository = eventRepository;
         this.bookingRepository = bookingRepository;
+        this.balanceEntryRepository = balanceEntryRepository;
+        this.userRepository = userRepository;
+        this.mailService = mailService;
+        this.seatAvailabilityService = seatAvailabilityService;
+        this.eventReminderService = eventReminderService;
+        this.relationLoader = relationLoader;
     }
 
     @Override
     public Mono<Event> save(Event event) {
         LOG.debug("Request to save Event : {}", event);
-        return eventRepository.save(event);
+        return eventRepository.save(event).flatMap(this::rescheduleNotifications);
     }
 
     @Override
     public Mono<Event> update(Event event) {
         LOG.debug("Request to update Event : {}", event);
-        return eventRepository.save(event);
+        return eventRepository.save(event).flatMap(this::rescheduleNotifications);
     }
 
     @Override
@@ -65,20 +116,31 @@ public class EventServiceImpl implements EventService {
 
                     return existingEvent;
                 })
-                .flatMap(eventRepository::save);
+                .flatMap(eventRepository::save)
+                .flatMap(this::rescheduleNotifications);
+    }
+
+    private Mono<Event> rescheduleNotifications(Event event) {
+        return eventReminderService.eventChanged(event).thenReturn(event);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Flux<Event> findAll() {
         LOG.debug("Request to get all Events");
-        return eventRepository.findAll()
-                .flatMap(event -> bookingRepository.countByEventIdAndStatus(event.getId(), "BOOKED")
-                        .defaultIfEmpty(0L)
-                        .map(count -> {
-                            event.setBookingsCount(count.intValue());
-                            return event;
-                        }));
+        return eventRepository.findAll();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<Event> findAll(ZonedDateTime afterStartAt, Long afterId, int limit) {
+        LOG.debug("Request to get Events after : {}, {}", afterStartAt, afterId);
+        Flux<Event> events = eventRepository.findAllBy(afterStartAt, afterId, limit, WITHOUT_RELATIONS);
+        return relationLoader.loadClassTypes(
+            relationLoader.loadStudios(events, Event::getStudioId, Event::setStudio),
+            Event::getClassTypeId,
+            Event::setClassType
+        );
     }
 
     public Mono<Long> countAll() {
@@ -89,18 +151,106 @@ public class EventServiceImpl implements EventService {
     @Transactional(readOnly = true)
     public Mono<Event> findOne(Long id) {
         LOG.debug("Request to get Event : {}", id);
-        return eventRepository.findById(id)
-                .flatMap(event -> bookingRepository.countByEventIdAndStatus(event.getId(), "BOOKED")
-                        .defaultIfEmpty(0L)
-                        .map(count -> {
-                            event.setBookingsCount(count.intValue());
-                            return event;
-                        }));
+        return eventRepository.findById(id);
     }
 
     @Override
     public Mono<Void> delete(Long id) {
         LOG.debug("Request to delete Event : {}", id);
-        return eventRepository.deleteById(id);
+        return eventRepository.deleteById(id).doOnSuccess(deleted -> eventReminderService.eventRemoved(id));
+    }
+
+    @Override
+    public Mono<Event> cancel(Long id) {
+        LOG.debug("Request to cancel Event : {}", id);
+        Instant now = Instant.now();
+        return eventRepository
+                // the lock keeps reservations and single cancellations out until the bulk cancellation commits
+                .findByIdForUpdate(id)
+                .flatMap(event -> {
+                    if (STATUS_CANCELLED.equals(event.getStatus())) {
+                        return Mono.just(event);
+                    }
+                    return bookingRepository
+                            .cancelAllByEventId(id, now)
+                            .collectList()
+                            .zipWhen(cancelled -> balanceEntryRepository.refundPenaltiesOfEvent(id, now))
+                            .flatMap(cancelledAndRefunded -> {
+                                List<Booking> cancelled = cancelledAndRefunded.getT1();
+                                LOG.info(
+                                        "Cancelled Event {} with {} booking(s), refunded {} penalty(ies)",
+                                        id,
+                                        cancelled.size(),
+                                        cancelledAndRefunded.getT2());
+                                event.setStatus(STATUS_CANCELLED);
+                                event.setBookingsCount(0);
+                                Set<Long> userIds = cancelled
+                                        .stream()
+                                        .map(Booking::getUserId)
+                                        .filter(Objects::nonNull)
+                                        .collect(Collectors.toSet());
+                                eventReminderService.eventRemoved(id);
+                                return seatAvailabilityService
+                                        .markChanged(id)
+                                        .then(notifyAfterCommit(event, userIds))
+                                        .thenReturn(event);
+                            });
+                });
+    }
+
+    private Mono<Void> notifyAfterCommit(Event event, Set<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return Mono.empty();
+        }
+        return TransactionSynchronizationManager.forCurrentTransaction()
+                .filter(TransactionSynchronizationManager::isSynchronizationActive)
+                .doOnNext(synchronizationManager -> synchronizationManager.registerSynchronization(
+                        new TransactionSynchronization() {
+                            @Override
+                            public Mono<Void> afterCommit() {
+                                return notifyCancellation(event, userIds);
+                            }
+                        }))
+                .onErrorResume(NoTransactionException.class, e -> Mono.empty())
+                .then();
+    }
+
+    private Mono<Void> notifyCancellation(Event event, Set<Long> userIds) {
+        return userRepository
+                .findAllById(userIds)
+                .collectList()
+                .doOnNext(users -> mailService.sendEventCancelledMail(users, event))
+                .then()
+                // the cancellation is committed whether the members could be told or not
+                .onErrorResume(e -> {
+                    LOG.warn("Cancellation of Event {} could not be notified", event.getId(), e);
+                    return Mono.empty();
+                });
+    }
+
+    @Override
+    public Mono<Long> reconcileBookingsCounts() {
+        LOG.debug("Request to reconcile the bookings count of Events");
+        // each drifted event is recounted under its row lock, in ascending id order: a count read before a
+        // reservation commits is never written over it
+        return eventRepository
+                .findIdsWithDriftedBookingsCount()
+                .concatMap(id -> eventRepository.findByIdForUpdate(id).then(eventRepository.repairBookingsCount(id)))
+                .reduce(0L, Long::sum)
+                .doOnNext(repaired -> {
+                    if (repaired > 0) {
+                        LOG.warn("Repaired the bookings count of {} events", repaired);
+                    }
+                });
+    }
+
+    /**
+     * Bookings written outside of the booking service leave the stored counts behind.
+     * <p>
+     * This is scheduled to get fired every day, at 02:00 (am).
+     */
+    @Scheduled(cron = "0 0 2 * * ?")
+    public void reconcileBookingsCountsDaily() {
+        reconcileBookingsCounts().block();
     }
 }
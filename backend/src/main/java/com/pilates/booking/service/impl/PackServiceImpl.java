@@ -1,6 +1,7 @@
 package com.pilates.booking.service.impl;
 
 import com.pilates.booking.domain.Pack;
+import com.pilates.booking.repository.FieldSet;
 import com.pilates.booking.repository.PackRepository;
 import com.pilates.booking.service.PackService;
 import org.slf4j.Logger;
@@ -75,6 +76,19 @@ public class PackServiceImpl implements PackService {
         return packRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<Pack> findAll(Long afterId, int limit) {
+        return findAll(afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<Pack> findAll(Long afterId, int limit, FieldSet fields) {
+        LOG.debug("Request to get Packs after : {}, fields : {}", afterId, fields);
+        return packRepository.findAllBy(afterId, limit, fields);
+    }
+
     public Mono<Long> countAll() {
         return packRepository.count();
     }
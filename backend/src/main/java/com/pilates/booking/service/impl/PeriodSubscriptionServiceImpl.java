@@ -1,6 +1,7 @@
 package com.pilates.booking.service.impl;
 
 import com.pilates.booking.domain.PeriodSubscription;
+import com.pilates.booking.repository.FieldSet;
 import com.pilates.booking.repository.PeriodSubscriptionRepository;
 import com.pilates.booking.service.PeriodSubscriptionService;
 import org.slf4j.Logger;
@@ -78,6 +79,19 @@ public class PeriodSubscriptionServiceImpl implements PeriodSubscriptionService
         return periodSubscriptionRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<PeriodSubscription> findAll(Long afterId, int limit) {
+        return findAll(afterId, limit, FieldSet.ALL);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<PeriodSubscription> findAll(Long afterId, int limit, FieldSet fields) {
+        LOG.debug("Request to get PeriodSubscriptions after : {}, fields : {}", afterId, fields);
+        return periodSubscriptionRepository.findAllBy(afterId, limit, fields);
+    }
+
     public Mono<Long> countAll() {
         return periodSubscriptionRepository.count();
     }
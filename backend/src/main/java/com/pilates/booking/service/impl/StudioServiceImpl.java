@@ -66,6 +66,13 @@ public class StudioServiceImpl implements StudioService {
         return studioRepository.findAll();
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Flux<Studio> findAll(Long afterId, int limit) {
+        LOG.debug("Request to get Studios after : {}", afterId);
+        return studioRepository.findAllBy(afterId, limit);
+    }
+
     public Mono<Long> countAll() {
         return studioRepository.count();
     }
@@ -0,0 +1,20 @@
+package com.pilates.booking.web.filter;
+
+import com.pilates.booking.service.RelationLoader;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+@Component
+public class RelationLoaderScopeFilter implements WebFilter {
+
+    /**
+     * Keeps the related entities read by the {@link RelationLoader} until the end of the request, and no longer.
+     */
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return chain.filter(exchange).contextWrite(RelationLoader::withScope);
+    }
+}
@@ -1,21 +1,33 @@
 package com.pilates.booking.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.pilates.booking.domain.Booking;
 import com.pilates.booking.repository.BookingRepository;
+import com.pilates.booking.repository.FieldSet;
+import com.pilates.booking.repository.MemberBooking;
+import com.pilates.booking.service.BookingAdmissionService;
 import com.pilates.booking.service.BookingService;
+import com.pilates.booking.service.IdempotencyService;
 import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import com.pilates.booking.web.rest.util.FieldSetUtil;
+import com.pilates.booking.web.rest.util.KeysetPaginationUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
 import java.util.List;
 import java.util.Objects;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.ForwardedHeaderUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
@@ -32,6 +44,10 @@ public class BookingResource {
 
     private static final String ENTITY_NAME = "booking";
 
+    private static final String SCOPE_UPCOMING = "upcoming";
+
+    private static final String SCOPE_PAST = "past";
+
     @Value("${jhipster.clientApp.name}")
     private String applicationName;
 
@@ -39,36 +55,68 @@ public class BookingResource {
 
     private final BookingRepository bookingRepository;
 
-    public BookingResource(BookingService bookingService, BookingRepository bookingRepository) {
+    private final IdempotencyService idempotencyService;
+
+    private final BookingAdmissionService bookingAdmissionService;
+
+    private final ObjectMapper objectMapper;
+
+    public BookingResource(
+        BookingService bookingService,
+        BookingRepository bookingRepository,
+        IdempotencyService idempotencyService,
+        BookingAdmissionService bookingAdmissionService,
+        ObjectMapper objectMapper
+    ) {
         this.bookingService = bookingService;
         this.bookingRepository = bookingRepository;
+        this.idempotencyService = idempotencyService;
+        this.bookingAdmissionService = bookingAdmissionService;
+        this.objectMapper = objectMapper;
     }
 
     /**
      * {@code POST  /bookings} : Create a new booking.
      *
      * @param booking the booking to create.
+     * @param idempotencyKey the optional key identifying the request across its retries.
      * @return the {@link ResponseEntity} with status {@code 201 (Created)} and with body the new booking,
-     * or with status {@code 400 (Bad Request)} if the booking has already an ID.
+     * or with status {@code 400 (Bad Request)} if the booking has already an ID,
+     * or with status {@code 429 (Too Many Requests)} or {@code 503 (Service Unavailable)} and a {@code Retry-After}
+     * header if the request is shed by admission control.
      * @throws URISyntaxException if the Location URI syntax is incorrect.
      */
     @PostMapping("")
-    public Mono<ResponseEntity<Booking>> createBooking(@RequestBody Booking booking) throws URISyntaxException {
+    public Mono<ResponseEntity<Booking>> createBooking(
+        @RequestBody Booking booking,
+        @RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) throws URISyntaxException {
         LOG.debug("REST request to save Booking : {}", booking);
         if (booking.getId() != null) {
             throw new BadRequestAlertException("A new booking cannot already have an ID", ENTITY_NAME, "idexists");
         }
-        return bookingService
-            .save(booking)
-            .map(result -> {
-                try {
-                    return ResponseEntity.created(new URI("/api/bookings/" + result.getId()))
-                        .headers(HeaderUtil.createEntityCreationAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
-                        .body(result);
-                } catch (URISyntaxException e) {
-                    throw new RuntimeException(e);
-                }
-            });
+        return idempotencyService.execute(idempotencyKey, "POST /api/bookings", booking, Booking.class, () ->
+            bookingAdmissionService.admit(booking.getEventId(), queuePosition ->
+                bookingService
+                    .save(booking)
+                    .map(result -> {
+                        HttpHeaders headers = HeaderUtil.createEntityCreationAlert(
+                            applicationName,
+                            false,
+                            ENTITY_NAME,
+                            result.getId().toString()
+                        );
+                        if (queuePosition > 0) {
+                            headers.set(BookingAdmissionService.QUEUE_POSITION_HEADER, String.valueOf(queuePosition));
+                        }
+                        try {
+                            return ResponseEntity.created(new URI("/api/bookings/" + result.getId())).headers(headers).body(result);
+                        } catch (URISyntaxException e) {
+                            throw new RuntimeException(e);
+                        }
+                    })
+            )
+        );
     }
 
     /**
@@ -144,24 +192,96 @@ public class BookingResource {
      * Métier annulation.
      */
     @PostMapping("/{id}/cancel")
-    public Mono<ResponseEntity<Booking>> cancelBooking(@PathVariable("id") Long id) {
+    public Mono<ResponseEntity<Booking>> cancelBooking(
+        @PathVariable("id") Long id,
+        @RequestHeader(name = IdempotencyService.IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey
+    ) {
         LOG.debug("REST request to cancel Booking : {}", id);
+        return idempotencyService.execute(idempotencyKey, "POST /api/bookings/" + id + "/cancel", null, Booking.class, () ->
+            bookingService
+                .cancel(id)
+                .map(result ->
+                    ResponseEntity.ok()
+                        .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+                        .body(result)
+                )
+        );
+    }
+
+    /**
+     * {@code GET  /bookings} : get all the bookings, or a page of them ordered by id when a {@code cursor} or a {@code limit} is given.
+     *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of bookings in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of bookings in body.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<Booking>>> getAllBookings(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        LOG.debug("REST request to get all Bookings");
+        if (cursor == null && limit == null) {
+            return bookingService.findAll().collectList().map(ResponseEntity::ok);
+        }
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[0]));
         return bookingService
-            .cancel(id)
-            .map(result ->
+            .findAll(afterId, pageSize)
+            .collectList()
+            .map(page ->
                 ResponseEntity.ok()
-                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
-                    .body(result)
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            booking -> KeysetPaginationUtil.encodeCursor(booking.getId())
+                        )
+                    )
+                    .body(page)
             );
     }
 
     /**
-     * {@code GET  /bookings} : get all the bookings.
+     * {@code GET  /bookings?fields=} : get a page of the bookings ordered by id, restricted to the requested
+     * fields, e.g. {@code ?fields=id,status,eventId}: the relationships which are not requested are not read.
+     *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param fields the comma separated names of the fields; the id is always included.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of bookings in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of bookings in body,
+     * or with status {@code 400 (Bad Request)} if a field is unknown.
      */
-    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<List<Booking>> getAllBookings() {
-        LOG.debug("REST request to get all Bookings");
-        return bookingService.findAll().collectList();
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = "fields")
+    public Mono<ResponseEntity<List<ObjectNode>>> getAllBookingsFields(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "fields") String fields,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        LOG.debug("REST request to get Bookings : {}", fields);
+        FieldSet fieldSet = FieldSetUtil.parse(fields, BookingRepository.FIELDS, ENTITY_NAME);
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[0]));
+        return bookingService
+            .findAll(afterId, pageSize, fieldSet)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            booking -> KeysetPaginationUtil.encodeCursor(booking.getId())
+                        )
+                    )
+                    .body(FieldSetUtil.project(objectMapper, page, fieldSet))
+            );
     }
 
     /**
@@ -173,6 +293,48 @@ public class BookingResource {
         return bookingService.findAll();
     }
 
+    /**
+     * {@code GET  /bookings/mine} : get a page of the current user's bookings with their event, studio and class type.
+     *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param scope {@code upcoming} (the default) for the events not started yet, soonest first, or {@code past} for the
+     * others, most recent first.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of bookings in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of bookings in body,
+     * or with status {@code 400 (Bad Request)} if the scope is unknown.
+     */
+    @GetMapping(value = "/mine", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<List<MemberBooking>>> getMyBookings(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "scope", defaultValue = SCOPE_UPCOMING) String scope,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        LOG.debug("REST request to get the {} Bookings of the current user", scope);
+        if (!SCOPE_UPCOMING.equals(scope) && !SCOPE_PAST.equals(scope)) {
+            throw new BadRequestAlertException("Scope must be " + SCOPE_UPCOMING + " or " + SCOPE_PAST, ENTITY_NAME, "scopeinvalid");
+        }
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Instant afterStartAt = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Instant.parse(keys[0]));
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[1]));
+        return bookingService
+            .findMyBookings(SCOPE_UPCOMING.equals(scope), afterStartAt, afterId, pageSize)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            booking -> KeysetPaginationUtil.encodeCursor(booking.startAt().toInstant(), booking.id())
+                        )
+                    )
+                    .body(page)
+            );
+    }
+
     /**
      * {@code GET  /bookings/:id} : get the "id" booking.
      */
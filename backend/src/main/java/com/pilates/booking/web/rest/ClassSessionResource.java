@@ -1,13 +1,21 @@
 package com.pilates.booking.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.pilates.booking.domain.ClassSession;
 import com.pilates.booking.repository.ClassSessionRepository;
+import com.pilates.booking.repository.FieldSet;
 import com.pilates.booking.service.ClassSessionService;
 import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import com.pilates.booking.web.rest.util.FieldSetUtil;
+import com.pilates.booking.web.rest.util.KeysetPaginationUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Objects;
 import org.slf4j.Logger;
@@ -16,8 +24,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.ForwardedHeaderUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
@@ -41,9 +51,16 @@ public class ClassSessionResource {
 
     private final ClassSessionRepository classSessionRepository;
 
-    public ClassSessionResource(ClassSessionService classSessionService, ClassSessionRepository classSessionRepository) {
+    private final ObjectMapper objectMapper;
+
+    public ClassSessionResource(
+        ClassSessionService classSessionService,
+        ClassSessionRepository classSessionRepository,
+        ObjectMapper objectMapper
+    ) {
         this.classSessionService = classSessionService;
         this.classSessionRepository = classSessionRepository;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -157,14 +174,85 @@ public class ClassSessionResource {
     }
 
     /**
-     * {@code GET  /class-sessions} : get all the classSessions.
+     * {@code GET  /class-sessions} : get all the class sessions, or a page of them ordered by start date and id when a {@code cursor} or a {@code limit} is given.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of classSessions in body.
+     * @param request a {@link ServerHttpRequest} request.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of class sessions in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of class sessions in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<List<ClassSession>> getAllClassSessions() {
+    public Mono<ResponseEntity<List<ClassSession>>> getAllClassSessions(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
         LOG.debug("REST request to get all ClassSessions");
-        return classSessionService.findAll().collectList();
+        if (cursor == null && limit == null) {
+            return classSessionService.findAll().collectList().map(ResponseEntity::ok);
+        }
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        ZonedDateTime afterStartAt = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys ->
+            ZonedDateTime.ofInstant(Instant.parse(keys[0]), ZoneOffset.UTC)
+        );
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[1]));
+        return classSessionService
+            .findAll(afterStartAt, afterId, pageSize)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            classSession -> KeysetPaginationUtil.encodeCursor(classSession.getStartAt().toInstant(), classSession.getId())
+                        )
+                    )
+                    .body(page)
+            );
+    }
+
+    /**
+     * {@code GET  /class-sessions?fields=} : get a page of the class sessions ordered by start date and id, restricted to the requested
+     * fields, e.g. {@code ?fields=id,startAt,coachName}: the relationships which are not requested are not read.
+     *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param fields the comma separated names of the fields; the id is always included.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of class sessions in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of class sessions in body,
+     * or with status {@code 400 (Bad Request)} if a field is unknown.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = "fields")
+    public Mono<ResponseEntity<List<ObjectNode>>> getAllClassSessionsFields(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "fields") String fields,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        LOG.debug("REST request to get ClassSessions : {}", fields);
+        FieldSet fieldSet = FieldSetUtil.parse(fields, ClassSessionRepository.FIELDS, ENTITY_NAME);
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        ZonedDateTime afterStartAt = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys ->
+            ZonedDateTime.ofInstant(Instant.parse(keys[0]), ZoneOffset.UTC)
+        );
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[1]));
+        return classSessionService
+            .findAll(afterStartAt, afterId, pageSize, fieldSet)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            classSession -> KeysetPaginationUtil.encodeCursor(classSession.getStartAt().toInstant(), classSession.getId())
+                        )
+                    )
+                    .body(FieldSetUtil.project(objectMapper, page, fieldSet))
+            );
     }
 
     /**
@@ -1,13 +1,25 @@
 package com.pilates.booking.web.rest;
 
+import com.pilates.booking.config.ApplicationProperties;
 import com.pilates.booking.domain.Event;
 import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.security.AuthoritiesConstants;
+import com.pilates.booking.service.EventScheduleService;
+import com.pilates.booking.service.EventScheduleService.Progress;
 import com.pilates.booking.service.EventService;
+import com.pilates.booking.service.SeatAvailabilityService;
+import com.pilates.booking.service.SeatAvailabilityService.SeatAvailability;
+import com.pilates.booking.service.dto.EventScheduleDTO;
 import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import com.pilates.booking.web.rest.util.KeysetPaginationUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Objects;
 import org.slf4j.Logger;
@@ -16,8 +28,12 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.ForwardedHeaderUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
@@ -41,9 +57,24 @@ public class EventResource {
 
     private final EventRepository eventRepository;
 
-    public EventResource(EventService eventService, EventRepository eventRepository) {
+    private final SeatAvailabilityService seatAvailabilityService;
+
+    private final EventScheduleService eventScheduleService;
+
+    private final Duration seatAvailabilityHeartbeat;
+
+    public EventResource(
+        EventService eventService,
+        EventRepository eventRepository,
+        SeatAvailabilityService seatAvailabilityService,
+        EventScheduleService eventScheduleService,
+        ApplicationProperties applicationProperties
+    ) {
         this.eventService = eventService;
         this.eventRepository = eventRepository;
+        this.seatAvailabilityService = seatAvailabilityService;
+        this.eventScheduleService = eventScheduleService;
+        this.seatAvailabilityHeartbeat = applicationProperties.getSeatAvailability().getHeartbeat();
     }
 
     /**
@@ -72,6 +103,20 @@ public class EventResource {
             });
     }
 
+    /**
+     * {@code POST  /events/schedule} : Publish the timetable of a term, its weekly slots being expanded into events.
+     *
+     * @param schedule the timetable to publish.
+     * @return the {@link Flux} of the progress, once per chunk of inserted events, or with status {@code 400 (Bad Request)}
+     * if the timetable is invalid, or with status {@code 409 (Conflict)} if a coach or a studio would be in two events at once.
+     */
+    @PostMapping(value = "/schedule", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Flux<Progress> publishSchedule(@Valid @RequestBody EventScheduleDTO schedule) {
+        LOG.debug("REST request to publish a schedule : {}", schedule);
+        return eventScheduleService.publish(schedule);
+    }
+
     /**
      * {@code PUT  /events/:id} : Updates an existing event.
      *
@@ -157,14 +202,43 @@ public class EventResource {
     }
 
     /**
-     * {@code GET  /events} : get all the events.
+     * {@code GET  /events} : get all the events, or a page of them ordered by start date and id when a {@code cursor} or a {@code limit} is given.
      *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of events in the page.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of events in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<List<Event>> getAllEvents() {
+    public Mono<ResponseEntity<List<Event>>> getAllEvents(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
         LOG.debug("REST request to get all Events");
-        return eventService.findAll().collectList();
+        if (cursor == null && limit == null) {
+            return eventService.findAll().collectList().map(ResponseEntity::ok);
+        }
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        ZonedDateTime afterStartAt = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys ->
+            ZonedDateTime.ofInstant(Instant.parse(keys[0]), ZoneOffset.UTC)
+        );
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[1]));
+        return eventService
+            .findAll(afterStartAt, afterId, pageSize)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            event -> KeysetPaginationUtil.encodeCursor(event.getStartAt().toInstant(), event.getId())
+                        )
+                    )
+                    .body(page)
+            );
     }
 
     /**
@@ -177,6 +251,27 @@ public class EventResource {
         return eventService.findAll();
     }
 
+    /**
+     * {@code GET  /events/seats} : follow the seats left on the events, instead of polling {@code GET /events}.
+     *
+     * @param eventIds the ids of the events to follow, all of them if none is given.
+     * @return the {@link Flux} of the seat availabilities as server-sent events named {@code seats}, sent each time they
+     * change, with a comment every heartbeat to keep idle connections open.
+     */
+    @GetMapping(value = "/seats", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<SeatAvailability>> streamSeatAvailability(
+        @RequestParam(name = "eventId", required = false) List<Long> eventIds
+    ) {
+        LOG.debug("REST request to follow the seats of Events : {}", eventIds);
+        Flux<ServerSentEvent<SeatAvailability>> updates = seatAvailabilityService
+            .updates(eventIds == null ? List.of() : eventIds)
+            .map(seats -> ServerSentEvent.builder(seats).event("seats").build());
+        Flux<ServerSentEvent<SeatAvailability>> heartbeats = Flux.interval(seatAvailabilityHeartbeat).map(tick ->
+            ServerSentEvent.<SeatAvailability>builder().comment("heartbeat").build()
+        );
+        return Flux.merge(updates, heartbeats);
+    }
+
     /**
      * {@code GET  /events/:id} : get the "id" event.
      *
@@ -190,6 +285,27 @@ public class EventResource {
         return ResponseUtil.wrapOrNotFound(event);
     }
 
+    /**
+     * {@code POST  /events/:id/cancel} : cancel the "id" event together with all its bookings, refunding the late
+     * cancellation penalties already charged on it.
+     *
+     * @param id the id of the event to cancel.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and with body the cancelled event, or with status {@code 404 (Not Found)}.
+     */
+    @PostMapping("/{id}/cancel")
+    @PreAuthorize("hasAuthority(\"" + AuthoritiesConstants.ADMIN + "\")")
+    public Mono<ResponseEntity<Event>> cancelEvent(@PathVariable("id") Long id) {
+        LOG.debug("REST request to cancel Event : {}", id);
+        return eventService
+            .cancel(id)
+            .switchIfEmpty(Mono.error(new ResponseStatusException(HttpStatus.NOT_FOUND)))
+            .map(result ->
+                ResponseEntity.ok()
+                    .headers(HeaderUtil.createEntityUpdateAlert(applicationName, false, ENTITY_NAME, result.getId().toString()))
+                    .body(result)
+            );
+    }
+
     /**
      * {@code DELETE  /events/:id} : delete the "id" event.
      *
@@ -1,9 +1,14 @@
 package com.pilates.booking.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.pilates.booking.domain.Pack;
+import com.pilates.booking.repository.FieldSet;
 import com.pilates.booking.repository.PackRepository;
 import com.pilates.booking.service.PackService;
 import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import com.pilates.booking.web.rest.util.FieldSetUtil;
+import com.pilates.booking.web.rest.util.KeysetPaginationUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
@@ -16,8 +21,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.ForwardedHeaderUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
@@ -41,9 +48,12 @@ public class PackResource {
 
     private final PackRepository packRepository;
 
-    public PackResource(PackService packService, PackRepository packRepository) {
+    private final ObjectMapper objectMapper;
+
+    public PackResource(PackService packService, PackRepository packRepository, ObjectMapper objectMapper) {
         this.packService = packService;
         this.packRepository = packRepository;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -157,14 +167,79 @@ public class PackResource {
     }
 
     /**
-     * {@code GET  /packs} : get all the packs.
+     * {@code GET  /packs} : get all the packs, or a page of them ordered by id when a {@code cursor} or a {@code limit} is given.
      *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of packs in the page.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of packs in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<List<Pack>> getAllPacks() {
+    public Mono<ResponseEntity<List<Pack>>> getAllPacks(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
         LOG.debug("REST request to get all Packs");
-        return packService.findAll().collectList();
+        if (cursor == null && limit == null) {
+            return packService.findAll().collectList().map(ResponseEntity::ok);
+        }
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[0]));
+        return packService
+            .findAll(afterId, pageSize)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            pack -> KeysetPaginationUtil.encodeCursor(pack.getId())
+                        )
+                    )
+                    .body(page)
+            );
+    }
+
+    /**
+     * {@code GET  /packs?fields=} : get a page of the packs ordered by id, restricted to the requested
+     * fields, e.g. {@code ?fields=id,packName,price}: the relationships which are not requested are not read.
+     *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param fields the comma separated names of the fields; the id is always included.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of packs in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of packs in body,
+     * or with status {@code 400 (Bad Request)} if a field is unknown.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = "fields")
+    public Mono<ResponseEntity<List<ObjectNode>>> getAllPacksFields(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "fields") String fields,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        LOG.debug("REST request to get Packs : {}", fields);
+        FieldSet fieldSet = FieldSetUtil.parse(fields, PackRepository.FIELDS, ENTITY_NAME);
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[0]));
+        return packService
+            .findAll(afterId, pageSize, fieldSet)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            pack -> KeysetPaginationUtil.encodeCursor(pack.getId())
+                        )
+                    )
+                    .body(FieldSetUtil.project(objectMapper, page, fieldSet))
+            );
     }
 
     /**
@@ -1,9 +1,14 @@
 package com.pilates.booking.web.rest;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.pilates.booking.domain.PeriodSubscription;
+import com.pilates.booking.repository.FieldSet;
 import com.pilates.booking.repository.PeriodSubscriptionRepository;
 import com.pilates.booking.service.PeriodSubscriptionService;
 import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import com.pilates.booking.web.rest.util.FieldSetUtil;
+import com.pilates.booking.web.rest.util.KeysetPaginationUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
@@ -16,8 +21,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.ForwardedHeaderUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
@@ -41,12 +48,16 @@ public class PeriodSubscriptionResource {
 
     private final PeriodSubscriptionRepository periodSubscriptionRepository;
 
+    private final ObjectMapper objectMapper;
+
     public PeriodSubscriptionResource(
         PeriodSubscriptionService periodSubscriptionService,
-        PeriodSubscriptionRepository periodSubscriptionRepository
+        PeriodSubscriptionRepository periodSubscriptionRepository,
+        ObjectMapper objectMapper
     ) {
         this.periodSubscriptionService = periodSubscriptionService;
         this.periodSubscriptionRepository = periodSubscriptionRepository;
+        this.objectMapper = objectMapper;
     }
 
     /**
@@ -161,14 +172,79 @@ public class PeriodSubscriptionResource {
     }
 
     /**
-     * {@code GET  /period-subscriptions} : get all the periodSubscriptions.
+     * {@code GET  /period-subscriptions} : get all the period subscriptions, or a page of them ordered by id when a {@code cursor} or a {@code limit} is given.
      *
-     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of periodSubscriptions in body.
+     * @param request a {@link ServerHttpRequest} request.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of period subscriptions in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of period subscriptions in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<List<PeriodSubscription>> getAllPeriodSubscriptions() {
+    public Mono<ResponseEntity<List<PeriodSubscription>>> getAllPeriodSubscriptions(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
         LOG.debug("REST request to get all PeriodSubscriptions");
-        return periodSubscriptionService.findAll().collectList();
+        if (cursor == null && limit == null) {
+            return periodSubscriptionService.findAll().collectList().map(ResponseEntity::ok);
+        }
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[0]));
+        return periodSubscriptionService
+            .findAll(afterId, pageSize)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            periodSubscription -> KeysetPaginationUtil.encodeCursor(periodSubscription.getId())
+                        )
+                    )
+                    .body(page)
+            );
+    }
+
+    /**
+     * {@code GET  /period-subscriptions?fields=} : get a page of the period subscriptions ordered by id, restricted to the requested
+     * fields, e.g. {@code ?fields=id,subscriptionName,endDate}: the relationships which are not requested are not read.
+     *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param fields the comma separated names of the fields; the id is always included.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of period subscriptions in the page.
+     * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of period subscriptions in body,
+     * or with status {@code 400 (Bad Request)} if a field is unknown.
+     */
+    @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE, params = "fields")
+    public Mono<ResponseEntity<List<ObjectNode>>> getAllPeriodSubscriptionsFields(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "fields") String fields,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
+        LOG.debug("REST request to get PeriodSubscriptions : {}", fields);
+        FieldSet fieldSet = FieldSetUtil.parse(fields, PeriodSubscriptionRepository.FIELDS, ENTITY_NAME);
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[0]));
+        return periodSubscriptionService
+            .findAll(afterId, pageSize, fieldSet)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            periodSubscription -> KeysetPaginationUtil.encodeCursor(periodSubscription.getId())
+                        )
+                    )
+                    .body(FieldSetUtil.project(objectMapper, page, fieldSet))
+            );
     }
 
     /**
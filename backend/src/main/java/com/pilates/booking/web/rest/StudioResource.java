@@ -4,6 +4,7 @@ import com.pilates.booking.domain.Studio;
 import com.pilates.booking.repository.StudioRepository;
 import com.pilates.booking.service.StudioService;
 import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import com.pilates.booking.web.rest.util.KeysetPaginationUtil;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import java.net.URI;
@@ -16,8 +17,10 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.ForwardedHeaderUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import tech.jhipster.web.util.HeaderUtil;
@@ -157,14 +160,40 @@ public class StudioResource {
     }
 
     /**
-     * {@code GET  /studios} : get all the studios.
+     * {@code GET  /studios} : get all the studios, or a page of them ordered by id when a {@code cursor} or a {@code limit} is given.
      *
+     * @param request a {@link ServerHttpRequest} request.
+     * @param cursor the position after which the page starts, taken from the {@code next} link of the previous page.
+     * @param limit the maximum number of studios in the page.
      * @return the {@link ResponseEntity} with status {@code 200 (OK)} and the list of studios in body.
      */
     @GetMapping(value = "", produces = MediaType.APPLICATION_JSON_VALUE)
-    public Mono<List<Studio>> getAllStudios() {
+    public Mono<ResponseEntity<List<Studio>>> getAllStudios(
+        @org.springdoc.core.annotations.ParameterObject ServerHttpRequest request,
+        @RequestParam(name = "cursor", required = false) String cursor,
+        @RequestParam(name = "limit", required = false) Integer limit
+    ) {
         LOG.debug("REST request to get all Studios");
-        return studioService.findAll().collectList();
+        if (cursor == null && limit == null) {
+            return studioService.findAll().collectList().map(ResponseEntity::ok);
+        }
+        int pageSize = KeysetPaginationUtil.limit(limit, ENTITY_NAME);
+        Long afterId = KeysetPaginationUtil.decodeCursor(cursor, ENTITY_NAME, keys -> Long.valueOf(keys[0]));
+        return studioService
+            .findAll(afterId, pageSize)
+            .collectList()
+            .map(page ->
+                ResponseEntity.ok()
+                    .headers(
+                        KeysetPaginationUtil.generateKeysetHttpHeaders(
+                            ForwardedHeaderUtils.adaptFromForwardedHeaders(request.getURI(), request.getHeaders()),
+                            page,
+                            pageSize,
+                            studio -> KeysetPaginationUtil.encodeCursor(studio.getId())
+                        )
+                    )
+                    .body(page)
+            );
     }
 
     /**
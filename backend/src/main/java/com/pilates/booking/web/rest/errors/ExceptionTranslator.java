@@ -260,14 +260,22 @@ public class ExceptionTranslator extends ResponseEntityExceptionHandler implemen
     }
 
     private HttpHeaders buildHeaders(Throwable err) {
-        return err instanceof BadRequestAlertException badRequestAlertException
-                ? HeaderUtil.createFailureAlert(
-                        applicationName,
-                        true,
-                        badRequestAlertException.getEntityName(),
-                        badRequestAlertException.getErrorKey(),
-                        badRequestAlertException.getMessage())
-                : null;
+        if (err instanceof BadRequestAlertException badRequestAlertException) {
+            return HeaderUtil.createFailureAlert(
+                    applicationName,
+                    true,
+                    badRequestAlertException.getEntityName(),
+                    badRequestAlertException.getErrorKey(),
+                    badRequestAlertException.getMessage());
+        }
+        // e.g. the Retry-After of a rejected booking
+        if (err instanceof ErrorResponse errorResponse && !errorResponse.getHeaders().isEmpty()) {
+            HttpHeaders headers = new HttpHeaders();
+            headers.putAll(errorResponse.getHeaders());
+            headers.setContentType(MediaType.APPLICATION_PROBLEM_JSON);
+            return headers;
+        }
+        return null;
     }
 
     private HttpHeaders updateContentType(HttpHeaders headers) {
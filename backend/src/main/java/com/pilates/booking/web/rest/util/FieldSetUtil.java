@@ -0,0 +1,65 @@
+package com.pilates.booking.web.rest.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.pilates.booking.repository.FieldSet;
+import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Utility class for handling sparse fieldsets.
+ * <p>
+ * A list is restricted to some fields with a {@code fields} request parameter holding their comma separated names,
+ * e.g. {@code ?fields=id,status,event}: only their columns are read, the relationships not listed are not joined,
+ * and the other fields are left out of the response.
+ */
+public final class FieldSetUtil {
+
+    private FieldSetUtil() {}
+
+    /**
+     * Parse the requested fields.
+     *
+     * @param fields the comma separated names of the fields.
+     * @param known the names of the fields of the entity.
+     * @param entityName the entity name, used in the error.
+     * @return the fields.
+     * @throws BadRequestAlertException if a field is unknown, or none is given.
+     */
+    public static FieldSet parse(String fields, Set<String> known, String entityName) {
+        Set<String> names = new TreeSet<>();
+        Arrays.stream(fields.split(",")).map(String::trim).filter(name -> !name.isEmpty()).forEach(names::add);
+        if (names.isEmpty()) {
+            throw new BadRequestAlertException("No field requested", entityName, "fieldsinvalid");
+        }
+        for (String name : names) {
+            if (!known.contains(name)) {
+                throw new BadRequestAlertException("Unknown field " + name, entityName, "fieldsinvalid");
+            }
+        }
+        return FieldSet.of(names);
+    }
+
+    /**
+     * Leave the fields which are not requested out of the entities.
+     *
+     * @param objectMapper the mapper serializing the entities.
+     * @param entities the entities read with the fields.
+     * @param fields the requested fields.
+     * @param <T> the type of the entities.
+     * @return the entities as JSON objects holding the requested fields only.
+     */
+    public static <T> List<ObjectNode> project(ObjectMapper objectMapper, List<T> entities, FieldSet fields) {
+        return entities
+            .stream()
+            .map(entity -> {
+                ObjectNode node = objectMapper.valueToTree(entity);
+                node.retain(fields.names());
+                return node;
+            })
+            .toList();
+    }
+}
@@ -0,0 +1,116 @@
+package com.pilates.booking.web.rest.util;
+
+import com.pilates.booking.web.rest.errors.BadRequestAlertException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+/**
+ * Utility class for handling keyset (cursor) pagination.
+ * <p>
+ * A page is requested with a {@code limit} and an opaque {@code cursor} holding the sort key of the last row of the
+ * previous page; the next page is advertised in a <a href="https://tools.ietf.org/html/rfc5988">RFC 5988</a>
+ * {@code Link} header, the same way {@link tech.jhipster.web.util.PaginationUtil} does for offset pages.
+ */
+public final class KeysetPaginationUtil {
+
+    public static final int DEFAULT_LIMIT = 20;
+
+    public static final int MAX_LIMIT = 100;
+
+    private static final String HEADER_LINK_FORMAT = "<%s>; rel=\"%s\"";
+
+    private KeysetPaginationUtil() {}
+
+    /**
+     * Validate the requested page size.
+     *
+     * @param limit the requested page size, or null for the default one.
+     * @param entityName the entity name, used in the error.
+     * @return the page size.
+     * @throws BadRequestAlertException if the limit is out of bounds.
+     */
+    public static int limit(Integer limit, String entityName) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestAlertException("Limit must be between 1 and " + MAX_LIMIT, entityName, "limitinvalid");
+        }
+        return limit;
+    }
+
+    /**
+     * Encode the sort key of a row into an opaque cursor.
+     *
+     * @param keys the values of the sort key, in order.
+     * @return the cursor.
+     */
+    public static String encodeCursor(Object... keys) {
+        String joined = Arrays.stream(keys).map(String::valueOf).collect(Collectors.joining(","));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(joined.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decode a cursor created by {@link #encodeCursor(Object...)}.
+     *
+     * @param cursor the cursor, or null for the first page.
+     * @param entityName the entity name, used in the error.
+     * @param parser reads the wanted value from the sort key values.
+     * @param <T> the type of the value.
+     * @return the parsed value, or null for the first page.
+     * @throws BadRequestAlertException if the cursor cannot be parsed.
+     */
+    public static <T> T decodeCursor(String cursor, String entityName, Function<String[], T> parser) {
+        if (cursor == null) {
+            return null;
+        }
+        try {
+            String[] keys = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(",", -1);
+            return parser.apply(keys);
+        } catch (RuntimeException e) {
+            throw new BadRequestAlertException("Invalid cursor", entityName, "cursorinvalid");
+        }
+    }
+
+    /**
+     * Generate the {@code Link} header of a keyset page: {@code next} when the page is full, and {@code first}.
+     *
+     * @param uriBuilder the uri builder of the current request.
+     * @param page the rows of the current page.
+     * @param limit the page size.
+     * @param cursorOf creates the cursor of a row.
+     * @param <T> the type of object.
+     * @return http header.
+     */
+    public static <T> HttpHeaders generateKeysetHttpHeaders(
+        UriComponentsBuilder uriBuilder,
+        List<T> page,
+        int limit,
+        Function<T, String> cursorOf
+    ) {
+        List<String> links = new ArrayList<>();
+        if (page.size() == limit) {
+            links.add(prepareLink(uriBuilder, cursorOf.apply(page.get(page.size() - 1)), limit, "next"));
+        }
+        links.add(prepareLink(uriBuilder, null, limit, "first"));
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(HttpHeaders.LINK, String.join(",", links));
+        return headers;
+    }
+
+    private static String prepareLink(UriComponentsBuilder uriBuilder, String cursor, int limit, String relType) {
+        if (cursor != null) {
+            uriBuilder.replaceQueryParam("cursor", cursor);
+        } else {
+            uriBuilder.replaceQueryParam("cursor");
+        }
+        return String.format(HEADER_LINK_FORMAT, uriBuilder.replaceQueryParam("limit", limit).toUriString(), relType);
+    }
+}
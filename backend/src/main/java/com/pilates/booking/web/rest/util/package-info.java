@@ -0,0 +1,4 @@
+/**
+ * Rest layer utilities.
+ */
+package com.pilates.booking.web.rest.util;
@@ -0,0 +1,52 @@
+package com.pilates.booking.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Test class for the validation of the {@link ApplicationProperties} on startup.
+ */
+class ApplicationPropertiesUnitTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner().withUserConfiguration(
+        PropertiesConfiguration.class
+    );
+
+    @Test
+    void testDefaultsAreValid() {
+        contextRunner.run(context -> assertThat(context).hasNotFailed().hasSingleBean(ApplicationProperties.class));
+    }
+
+    @Test
+    void testZeroBookingAdmissionRateFailsStartup() {
+        contextRunner
+            .withPropertyValues("application.booking-admission.user-rate=0")
+            .run(context ->
+                assertThat(context).hasFailed().getFailure().rootCause().hasMessageContaining("bookingAdmission.userRate")
+            );
+    }
+
+    @Test
+    void testZeroBookingAdmissionBurstFailsStartup() {
+        contextRunner
+            .withPropertyValues("application.booking-admission.event-burst=0")
+            .run(context ->
+                assertThat(context).hasFailed().getFailure().rootCause().hasMessageContaining("bookingAdmission.eventBurst")
+            );
+    }
+
+    @Test
+    void testBatchSaveChunkSizeOverflowingTheBindParametersFailsStartup() {
+        contextRunner
+            .withPropertyValues("application.batch-save.chunk-size=4000")
+            .run(context -> assertThat(context).hasFailed().getFailure().rootCause().hasMessageContaining("batchSave.chunkSize"));
+    }
+
+    @Configuration
+    @EnableConfigurationProperties(ApplicationProperties.class)
+    static class PropertiesConfiguration {}
+}
@@ -0,0 +1,83 @@
+package com.pilates.booking.config;
+
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.util.ClassUtils;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Records the SQL statements run by a reactive pipeline, to assert how many round trips an operation costs.
+ * <p>
+ * Import it in an integration test to wrap the {@link ConnectionFactory}, then write {@link #recordInto(List)} into
+ * the context of the pipeline under test: the connections it opens, including the transactional one, record each
+ * statement they create. Statements run by other pipelines (schedulers, other tests) are not recorded.
+ */
+public class SqlStatementRecorder implements BeanPostProcessor {
+
+    private static final String CONTEXT_KEY = SqlStatementRecorder.class.getName();
+
+    /**
+     * @param statements the synchronized list collecting the statements.
+     * @return the context write recording the statements of the pipeline into the list.
+     */
+    public static Function<Context, Context> recordInto(List<String> statements) {
+        return context -> context.put(CONTEXT_KEY, statements);
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof ConnectionFactory connectionFactory) {
+            return proxy(connectionFactory, (target, method, args) -> {
+                if ("create".equals(method.getName()) && method.getParameterCount() == 0) {
+                    // the connection is only acquired on subscription, with the context of the subscriber
+                    Mono<Connection> connection = Mono.from((Publisher<?>) invoke(target, method, args)).cast(Connection.class);
+                    return Mono.deferContextual(context -> {
+                        Optional<List<String>> statements = context.getOrEmpty(CONTEXT_KEY);
+                        return statements.map(recorded -> connection.map(c -> recording(c, recorded))).orElse(connection);
+                    });
+                }
+                return invoke(target, method, args);
+            });
+        }
+        return bean;
+    }
+
+    private static Connection recording(Connection connection, List<String> statements) {
+        return proxy(connection, (target, method, args) -> {
+            if ("createStatement".equals(method.getName())) {
+                statements.add((String) args[0]);
+            }
+            return invoke(target, method, args);
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(T target, TargetInvocationHandler<T> handler) {
+        Class<?>[] interfaces = ClassUtils.getAllInterfacesForClass(target.getClass(), target.getClass().getClassLoader());
+        InvocationHandler invocationHandler = (proxy, method, args) -> handler.invoke(target, method, args);
+        return (T) Proxy.newProxyInstance(target.getClass().getClassLoader(), interfaces, invocationHandler);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    @FunctionalInterface
+    private interface TargetInvocationHandler<T> {
+        Object invoke(T target, Method method, Object[] args) throws Throwable;
+    }
+}
@@ -0,0 +1,24 @@
+package com.pilates.booking.domain;
+
+import static com.pilates.booking.domain.BalanceEntryTestSamples.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.web.rest.TestUtil;
+import org.junit.jupiter.api.Test;
+
+class BalanceEntryTest {
+
+    @Test
+    void equalsVerifier() throws Exception {
+        TestUtil.equalsVerifier(BalanceEntry.class);
+        BalanceEntry balanceEntry1 = getBalanceEntrySample1();
+        BalanceEntry balanceEntry2 = new BalanceEntry();
+        assertThat(balanceEntry1).isNotEqualTo(balanceEntry2);
+
+        balanceEntry2.setId(balanceEntry1.getId());
+        assertThat(balanceEntry1).isEqualTo(balanceEntry2);
+
+        balanceEntry2 = getBalanceEntrySample2();
+        assertThat(balanceEntry1).isNotEqualTo(balanceEntry2);
+    }
+}
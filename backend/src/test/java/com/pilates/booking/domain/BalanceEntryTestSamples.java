@@ -0,0 +1,28 @@
+package com.pilates.booking.domain;
+
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class BalanceEntryTestSamples {
+
+    private static final Random random = new Random();
+    private static final AtomicLong longCount = new AtomicLong(random.nextInt() + (2 * Integer.MAX_VALUE));
+
+    public static BalanceEntry getBalanceEntrySample1() {
+        return new BalanceEntry().id(1L).userId(1L).amountCents(1L).reason("reason1").bookingId(1L);
+    }
+
+    public static BalanceEntry getBalanceEntrySample2() {
+        return new BalanceEntry().id(2L).userId(2L).amountCents(2L).reason("reason2").bookingId(2L);
+    }
+
+    public static BalanceEntry getBalanceEntryRandomSampleGenerator() {
+        return new BalanceEntry()
+            .id(longCount.incrementAndGet())
+            .userId(longCount.incrementAndGet())
+            .amountCents(longCount.incrementAndGet())
+            .reason(UUID.randomUUID().toString())
+            .bookingId(longCount.incrementAndGet());
+    }
+}
@@ -0,0 +1,24 @@
+package com.pilates.booking.domain;
+
+import static com.pilates.booking.domain.IdempotencyRecordTestSamples.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.web.rest.TestUtil;
+import org.junit.jupiter.api.Test;
+
+class IdempotencyRecordTest {
+
+    @Test
+    void equalsVerifier() throws Exception {
+        TestUtil.equalsVerifier(IdempotencyRecord.class);
+        IdempotencyRecord idempotencyRecord1 = getIdempotencyRecordSample1();
+        IdempotencyRecord idempotencyRecord2 = new IdempotencyRecord();
+        assertThat(idempotencyRecord1).isNotEqualTo(idempotencyRecord2);
+
+        idempotencyRecord2.setId(idempotencyRecord1.getId());
+        assertThat(idempotencyRecord1).isEqualTo(idempotencyRecord2);
+
+        idempotencyRecord2 = getIdempotencyRecordSample2();
+        assertThat(idempotencyRecord1).isNotEqualTo(idempotencyRecord2);
+    }
+}
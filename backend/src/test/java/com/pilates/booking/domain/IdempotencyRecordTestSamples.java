@@ -0,0 +1,22 @@
+package com.pilates.booking.domain;
+
+import java.util.UUID;
+
+public class IdempotencyRecordTestSamples {
+
+    public static IdempotencyRecord getIdempotencyRecordSample1() {
+        return new IdempotencyRecord().id("id1").requestHash("requestHash1").responseStatus(1).responseHeaders("{}").responseBody("body1");
+    }
+
+    public static IdempotencyRecord getIdempotencyRecordSample2() {
+        return new IdempotencyRecord().id("id2").requestHash("requestHash2").responseStatus(2).responseHeaders("{}").responseBody("body2");
+    }
+
+    public static IdempotencyRecord getIdempotencyRecordRandomSampleGenerator() {
+        return new IdempotencyRecord()
+            .id(UUID.randomUUID().toString())
+            .requestHash(UUID.randomUUID().toString())
+            .responseHeaders("{}")
+            .responseBody(UUID.randomUUID().toString());
+    }
+}
@@ -0,0 +1,253 @@
+package com.pilates.booking.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.config.SqlStatementRecorder;
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.User;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+
+/**
+ * Integration tests for the batched {@code insertAll}, {@code updateAll} and {@code saveAll} of the repositories.
+ */
+@IntegrationTest
+@Import(SqlStatementRecorder.class)
+class BatchSaveIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BatchSaveIT.class);
+
+    private static final String SEED = "batch-save";
+
+    // far away from the events of the other tests
+    private static final ZonedDateTime FIRST_START = ZonedDateTime.of(2043, 3, 2, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    // the default application.batch-save.chunk-size
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    private User user;
+
+    @BeforeEach
+    void initUser() {
+        user = userRepository.findOneByLogin("user").block();
+    }
+
+    @AfterEach
+    void cleanup() {
+        execute("DELETE FROM booking WHERE event_id IN (SELECT id FROM event WHERE coach_name = '" + SEED + "')");
+        execute("DELETE FROM event WHERE coach_name = '" + SEED + "'");
+    }
+
+    @Test
+    void assertThatInsertAllWritesAChunkOfRowsPerStatement() {
+        List<Event> events = createEvents(2 * CHUNK_SIZE + 1);
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        List<Event> inserted = eventRepository
+            .insertAll(events)
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .collectList()
+            .block(Duration.ofMinutes(1));
+
+        assertThat(inserted).containsExactlyElementsOf(events).allMatch(event -> event.getId() != null);
+        // each preceded by the draw of its ids
+        assertThat(statements).hasSize(6).filteredOn(sql -> sql.startsWith("INSERT INTO event")).hasSize(3);
+        // the rows are matched to their id in order, and bookings_count, null in every row, keeps its default
+        Event last = eventRepository.findById(inserted.get(inserted.size() - 1).getId()).block();
+        assertThat(last.getStartAt()).isEqualTo(events.get(events.size() - 1).getStartAt());
+        assertThat(last.getBookingsCount()).isZero();
+        assertThat(inserted).extracting(Event::getId).doesNotHaveDuplicates();
+        assertThat(eventRepository.findById(inserted.get(0).getId()).block().getStartAt()).isEqualTo(events.get(0).getStartAt());
+    }
+
+    @Test
+    void assertThatUpdateAllSendsAChunkOfRowsPerRoundTrip() {
+        Event event = eventRepository.insertAll(createEvents(1)).blockLast();
+        List<Booking> bookings = bookingRepository.insertAll(createBookings(event, CHUNK_SIZE + 1)).collectList().block();
+        bookings.forEach(booking -> booking.status("CANCELLED").cancelledAt(ZonedDateTime.now()));
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        bookingRepository.updateAll(bookings).contextWrite(SqlStatementRecorder.recordInto(statements)).blockLast(Duration.ofMinutes(1));
+
+        // besides the locking and the recount of the event
+        assertThat(statements).filteredOn(sql -> sql.startsWith("UPDATE booking")).hasSize(2);
+        assertThat(bookingRepository.findAllById(bookings.stream().map(Booking::getId).toList()).collectList().block())
+            .hasSize(bookings.size())
+            .allMatch(booking -> "CANCELLED".equals(booking.getStatus()) && booking.getCancelledAt() != null);
+    }
+
+    @Test
+    void assertThatBulkWritesRecountTheBookingsOfTheirEvents() {
+        List<Event> events = eventRepository.insertAll(createEvents(2)).collectList().block();
+        List<Booking> bookings = bookingRepository.insertAll(createBookings(events, 4)).collectList().block();
+
+        assertThat(bookingsCountOf(events.get(0))).isEqualTo(2);
+        assertThat(bookingsCountOf(events.get(1))).isEqualTo(2);
+
+        // moved to the second event
+        bookings.get(0).setEventId(events.get(1).getId());
+        bookings.get(2).status("CANCELLED").cancelledAt(ZonedDateTime.now());
+        bookingRepository.saveAll(List.of(bookings.get(0), bookings.get(2))).blockLast();
+
+        assertThat(bookingsCountOf(events.get(0))).isZero();
+        assertThat(bookingsCountOf(events.get(1))).isEqualTo(3);
+    }
+
+    @Test
+    void assertThatUpdateAllFailsOnAMissingRow() {
+        Event event = eventRepository.insertAll(createEvents(1)).blockLast();
+        Event missing = createEvents(1).get(0).id(Long.MAX_VALUE);
+
+        assertThatThrownBy(() -> eventRepository.updateAll(List.of(event, missing)).blockLast()).isInstanceOf(
+            TransientDataAccessResourceException.class
+        );
+    }
+
+    @Test
+    void assertThatSaveAllInsertsTheNewEntitiesAndUpdatesTheOthers() {
+        Event existing = eventRepository.insertAll(createEvents(1)).blockLast();
+        existing.setCapacity(20);
+        List<Event> events = new ArrayList<>(createEvents(2));
+        events.add(1, existing);
+
+        List<Event> saved = eventRepository.saveAll(events).collectList().block();
+
+        assertThat(saved).containsExactlyElementsOf(events).allMatch(event -> event.getId() != null);
+        assertThat(eventRepository.findById(existing.getId()).block().getCapacity()).isEqualTo(20);
+        assertThat(countSeededEvents()).isEqualTo(3);
+    }
+
+    @Test
+    void assertThatInsertAllJoinsTheCurrentTransaction() {
+        TransactionalOperator transactionalOperator = TransactionalOperator.create(transactionManager);
+
+        transactionalOperator
+            .execute(transaction -> {
+                transaction.setRollbackOnly();
+                return eventRepository.insertAll(createEvents(2 * CHUNK_SIZE));
+            })
+            .blockLast(Duration.ofMinutes(1));
+
+        // both chunks are rolled back with the transaction
+        assertThat(countSeededEvents()).isZero();
+    }
+
+    /**
+     * Inserts 10 000 events and 100 000 bookings with {@code insertAll}, then with {@code save} one row at a time.
+     * Run with {@code -Dbenchmark.batch-save=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.batch-save", matches = "true")
+    void benchmarkInsertAllAgainstSequentialSave() {
+        int eventCount = 10_000;
+        int bookingCount = 100_000;
+
+        long start = System.nanoTime();
+        List<Event> events = eventRepository.insertAll(createEvents(eventCount)).collectList().block(Duration.ofMinutes(5));
+        long eventsInserted = System.nanoTime() - start;
+        start = System.nanoTime();
+        bookingRepository.insertAll(createBookings(events, bookingCount)).blockLast(Duration.ofMinutes(5));
+        long bookingsInserted = System.nanoTime() - start;
+        cleanup();
+
+        start = System.nanoTime();
+        events = Flux.fromIterable(createEvents(eventCount)).concatMap(eventRepository::save).collectList().block(Duration.ofMinutes(30));
+        long eventsSaved = System.nanoTime() - start;
+        start = System.nanoTime();
+        Flux.fromIterable(createBookings(events, bookingCount)).concatMap(bookingRepository::save).blockLast(Duration.ofMinutes(30));
+        long bookingsSaved = System.nanoTime() - start;
+
+        LOG.info(
+            "{} events: inserted in {} ms, saved one at a time in {} ms; {} bookings: inserted in {} ms, saved one at a time in {} ms",
+            eventCount,
+            TimeUnit.NANOSECONDS.toMillis(eventsInserted),
+            TimeUnit.NANOSECONDS.toMillis(eventsSaved),
+            bookingCount,
+            TimeUnit.NANOSECONDS.toMillis(bookingsInserted),
+            TimeUnit.NANOSECONDS.toMillis(bookingsSaved)
+        );
+        assertThat(eventsInserted).isLessThan(eventsSaved);
+        assertThat(bookingsInserted).isLessThan(bookingsSaved);
+    }
+
+    private static List<Event> createEvents(int count) {
+        return IntStream.range(0, count)
+            .mapToObj(i ->
+                new Event()
+                    .coachName(SEED)
+                    .startAt(FIRST_START.plusHours(i))
+                    .endAt(FIRST_START.plusHours(i).plusMinutes(50))
+                    .capacity(10)
+                    .status("OPEN")
+            )
+            .toList();
+    }
+
+    private List<Booking> createBookings(Event event, int count) {
+        return createBookings(List.of(event), count);
+    }
+
+    // the bookings are spread over the events
+    private List<Booking> createBookings(List<Event> events, int count) {
+        ZonedDateTime now = ZonedDateTime.now();
+        return IntStream.range(0, count)
+            .mapToObj(i ->
+                new Booking().status("BOOKED").createdAt(now).userId(user.getId()).eventId(events.get(i % events.size()).getId())
+            )
+            .toList();
+    }
+
+    private int bookingsCountOf(Event event) {
+        return eventRepository.findById(event.getId()).block().getBookingsCount();
+    }
+
+    private long countSeededEvents() {
+        return template
+            .getDatabaseClient()
+            .sql("SELECT count(*) AS seeded FROM event WHERE coach_name = '" + SEED + "'")
+            .map(row -> row.get("seeded", Long.class))
+            .one()
+            .block();
+    }
+
+    private void execute(String sql) {
+        template.getDatabaseClient().sql(sql).fetch().rowsUpdated().block();
+    }
+}
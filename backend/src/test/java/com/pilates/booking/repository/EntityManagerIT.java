@@ -0,0 +1,239 @@
+package com.pilates.booking.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.config.SqlStatementRecorder;
+import com.pilates.booking.domain.Event;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.sql.Column;
+import org.springframework.data.relational.core.sql.Condition;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.Expression;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.Select;
+import org.springframework.data.relational.core.sql.SelectBuilder.SelectFromAndJoinCondition;
+import org.springframework.data.relational.core.sql.Table;
+import reactor.core.publisher.Flux;
+
+/**
+ * Integration tests for the cached, parameterized selects of the {@link EntityManager}.
+ */
+@IntegrationTest
+@Import(SqlStatementRecorder.class)
+class EntityManagerIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityManagerIT.class);
+
+    private static final String SEED = "entity-manager";
+
+    // far away from the events of the other tests
+    private static final ZonedDateTime FIRST_START = ZonedDateTime.of(2040, 1, 1, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final int SELECTS = 100_000;
+
+    private static final Table eventTable = Table.aliased("event", EntityManager.ENTITY_ALIAS);
+    private static final Table studioTable = Table.aliased("studio", "studio");
+    private static final Table classTypeTable = Table.aliased("class_type", "classType");
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    private List<Event> events;
+
+    @BeforeEach
+    void seed() {
+        events = Flux.range(0, 3)
+            .concatMap(i -> eventRepository.save(new Event().coachName(SEED).startAt(FIRST_START.plusHours(i)).capacity(10).status("OPEN")))
+            .collectList()
+            .block();
+    }
+
+    @AfterEach
+    void cleanup() {
+        template.getDatabaseClient().sql("DELETE FROM event WHERE coach_name = '" + SEED + "'").fetch().rowsUpdated().block();
+    }
+
+    @Test
+    void assertThatFindByIdRunsTheSameStatementWhateverTheId() {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        List<Event> found = Flux.fromIterable(events)
+            .concatMap(event -> eventRepository.findById(event.getId()))
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .collectList()
+            .block();
+
+        assertThat(found).extracting(Event::getId).containsExactlyElementsOf(events.stream().map(Event::getId).toList());
+        assertThat(statements).hasSize(events.size()).containsOnly(statements.get(0));
+        assertThat(statements.get(0)).contains("e.id = $1");
+        events.forEach(event -> assertThat(statements.get(0)).doesNotContain("= " + event.getId()));
+    }
+
+    @Test
+    void assertThatPagesRunTheSameStatementWhateverTheLimitAndOffset() {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        Flux.concat(
+            eventRepository.findAllBy(PageRequest.of(0, 20, Sort.by("id"))),
+            eventRepository.findAllBy(PageRequest.of(3, 5, Sort.by("id")))
+        )
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .blockLast();
+
+        assertThat(statements).hasSize(2).containsOnly(statements.get(0));
+        assertThat(statements.get(0)).endsWith("LIMIT $1 OFFSET $2");
+    }
+
+    @Test
+    void assertThatSeekPagesBindTheirPosition() {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        Event first = events.get(0);
+        Event second = events.get(1);
+
+        List<Event> page = Flux.concat(
+            eventRepository.findAllBy(first.getStartAt(), first.getId(), 1),
+            eventRepository.findAllBy(second.getStartAt(), second.getId(), 1)
+        )
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .collectList()
+            .block();
+
+        assertThat(page).extracting(Event::getId).containsExactly(second.getId(), events.get(2).getId());
+        assertThat(statements).hasSize(2).containsOnly(statements.get(0));
+        assertThat(statements.get(0)).doesNotContain("2040").doesNotContain("> " + first.getId()).contains("LIMIT $");
+    }
+
+    @Test
+    void assertThatSelectIsRenderedOncePerShape() {
+        AtomicInteger built = new AtomicInteger();
+        Condition byCoach = Conditions.isEqual(eventTable.column("coach_name"), SQL.bindMarker(":coach_name"));
+
+        String first = entityManager.createCachedSelect(
+            Event.class,
+            "test",
+            () -> {
+                built.incrementAndGet();
+                return createSelectFrom();
+            },
+            PageRequest.of(0, 10),
+            "coach_name",
+            byCoach
+        );
+        String second = entityManager.createCachedSelect(
+            Event.class,
+            "test",
+            () -> {
+                built.incrementAndGet();
+                return createSelectFrom();
+            },
+            PageRequest.of(7, 50),
+            "coach_name",
+            byCoach
+        );
+
+        assertThat(built).hasValue(1);
+        assertThat(second).isSameAs(first).contains("e.coach_name = :coach_name").endsWith("LIMIT :limit OFFSET :offset");
+    }
+
+    @Test
+    void assertThatOnlyTheRequestedFieldsAreSelectedAndJoined() {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        Flux.concat(
+            bookingRepository.findAllBy(null, 10, FieldSet.of(List.of("status"))),
+            bookingRepository.findAllBy(null, 10, FieldSet.of(List.of("status", "event"))),
+            bookingRepository.findAllBy(null, 10, FieldSet.ALL)
+        )
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .blockLast();
+
+        assertThat(statements).hasSize(3);
+        assertThat(statements.get(0)).startsWith("SELECT e.id AS e_id, e.status AS e_status FROM booking e").doesNotContain("JOIN");
+        assertThat(statements.get(1)).contains("LEFT OUTER JOIN event").doesNotContain("jhi_user").doesNotContain("e_created_at");
+        assertThat(statements.get(2)).contains("LEFT OUTER JOIN jhi_user").contains("LEFT OUTER JOIN event").contains("e_created_at");
+    }
+
+    /**
+     * Cost of building the SQL of a page of events: rendered from the builder API on every call as before, then from
+     * the cache. Run with {@code -Dbenchmark.select=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.select", matches = "true")
+    void benchmarkSelectConstruction() {
+        Condition byId = Conditions.isEqual(eventTable.column("id"), SQL.bindMarker(":id"));
+        long checksum = 0;
+        // the first run warms both paths up
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < SELECTS; i++) {
+                Condition literal = Conditions.isEqual(eventTable.column("id"), Conditions.just(Integer.toString(i)));
+                checksum += entityManager.createSelect(createSelectFrom(), Event.class, null, literal).length();
+            }
+            long rendered = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < SELECTS; i++) {
+                checksum += entityManager.createCachedSelect(Event.class, "benchmark", this::createSelectFrom, null, "id", byId).length();
+            }
+            long cached = System.nanoTime() - start;
+
+            LOG.info(
+                "{} selects of an event by id: rendered in {} ms, cached in {} ms (checksum {})",
+                SELECTS,
+                TimeUnit.NANOSECONDS.toMillis(rendered),
+                TimeUnit.NANOSECONDS.toMillis(cached),
+                checksum
+            );
+            assertThat(cached).isLessThan(rendered);
+        }
+
+        // and end to end, against the database
+        Long id = events.get(0).getId();
+        long start = System.nanoTime();
+        long found = Flux.range(0, SELECTS / 10).concatMap(i -> eventRepository.findById(id)).count().block();
+        LOG.info("{} finds of an event by id in {} ms", found, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    // the fragment of EventRepositoryInternalImpl
+    private SelectFromAndJoinCondition createSelectFrom() {
+        List<Expression> columns = EventSqlHelper.getColumns(eventTable, EntityManager.ENTITY_ALIAS);
+        columns.addAll(StudioSqlHelper.getColumns(studioTable, "studio"));
+        columns.addAll(ClassTypeSqlHelper.getColumns(classTypeTable, "classType"));
+        return Select.builder()
+            .select(columns)
+            .from(eventTable)
+            .leftOuterJoin(studioTable)
+            .on(Column.create("studio_id", eventTable))
+            .equals(Column.create("id", studioTable))
+            .leftOuterJoin(classTypeTable)
+            .on(Column.create("class_type_id", eventTable))
+            .equals(Column.create("id", classTypeTable));
+    }
+}
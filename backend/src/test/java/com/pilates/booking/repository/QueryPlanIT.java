@@ -0,0 +1,203 @@
+package com.pilates.booking.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.IntegrationTest;
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.relational.core.sql.Conditions;
+import org.springframework.data.relational.core.sql.SQL;
+import org.springframework.data.relational.core.sql.Select;
+import org.springframework.data.relational.core.sql.Table;
+
+/**
+ * Query plan regression tests for the booking and event lookups: on a dataset large enough for the planner to
+ * prefer indexes, none of these queries may read the whole booking or event table.
+ */
+@IntegrationTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanIT {
+
+    private static final String SEED = "plan-seed";
+
+    private static final int STUDIOS = 50;
+    private static final int CLASS_TYPES = 20;
+    private static final int USERS = 2_000;
+    private static final int EVENTS = 20_000;
+    private static final int BOOKINGS_PER_EVENT = 10;
+
+    // Queries which read every row on purpose
+    private static final Set<String> FULL_SCANS_BY_DESIGN = Set.of("findIdsWithDriftedBookingsCount");
+
+    // The plan only depends on the column statistics, not on the value being present
+    private static final Map<String, String> SAMPLE_PARAMETERS = Map.ofEntries(
+        Map.entry("id", "42"),
+        Map.entry("eventId", "42"),
+        Map.entry("userId", "42"),
+        Map.entry("eventIds", "42, 43, 44"),
+        Map.entry("status", "'BOOKED'"),
+        Map.entry("delta", "1"),
+        Map.entry("createdAt", "localtimestamp"),
+        Map.entry("cancelledAt", "localtimestamp"),
+        Map.entry("now", "localtimestamp"),
+        Map.entry("afterStartAt", "localtimestamp"),
+        Map.entry("afterId", "0"),
+        Map.entry("limit", "20"),
+        Map.entry("since", "date_trunc('month', localtimestamp)"),
+        Map.entry("month", "current_date"),
+        Map.entry("archivedBefore", "localtimestamp - interval '1 year'"),
+        Map.entry("upcomingFrom", "localtimestamp"),
+        Map.entry("until", "localtimestamp + interval '25 hours'"),
+        Map.entry("dueBefore", "localtimestamp + interval '24 hours'")
+    );
+
+    private static final Pattern NAMED_PARAMETER = Pattern.compile("(?<!:):(\\w+)");
+
+    // The monthly booking partitions are scanned under their own name, scanning an empty one costs nothing.
+    // booking_default only holds the few bookings without a creation date.
+    private static final Pattern FULL_SCAN = Pattern.compile(
+        "Seq Scan on (booking(_\\d{4}_\\d{2})?|event)\\b[^(]*\\((?!cost=0\\.00\\.\\.0\\.00 )"
+    );
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @BeforeAll
+    void seed() {
+        execute("INSERT INTO studio (name) SELECT '" + SEED + "-' || g FROM generate_series(1, " + STUDIOS + ") g");
+        execute("INSERT INTO class_type (name) SELECT '" + SEED + "-' || g FROM generate_series(1, " + CLASS_TYPES + ") g");
+        execute(
+            "INSERT INTO jhi_user (login, created_by, activated) " +
+            "SELECT '" + SEED + "-' || g, 'system', true FROM generate_series(1, " + USERS + ") g"
+        );
+        execute(
+            "INSERT INTO event (coach_name, start_at, end_at, capacity, status, studio_id, class_type_id) " +
+            "SELECT '" + SEED + "', localtimestamp + g * interval '1 hour', " +
+            "localtimestamp + g * interval '1 hour' + interval '50 minutes', " + BOOKINGS_PER_EVENT + ", 'OPEN', " +
+            "s.ids[1 + g % " + STUDIOS + "], c.ids[1 + g % " + CLASS_TYPES + "] " +
+            "FROM generate_series(1, " + EVENTS + ") g, " +
+            "(SELECT array(SELECT id FROM studio WHERE name LIKE '" + SEED + "-%') AS ids) s, " +
+            "(SELECT array(SELECT id FROM class_type WHERE name LIKE '" + SEED + "-%') AS ids) c"
+        );
+        execute(
+            "INSERT INTO booking (status, created_at, user_id, event_id) " +
+            "SELECT CASE WHEN n = 1 THEN 'CANCELLED' WHEN n = 2 THEN 'FULL' ELSE 'BOOKED' END, localtimestamp, " +
+            "u.ids[1 + (e.id + n) % " + USERS + "], e.id " +
+            "FROM event e, generate_series(1, " + BOOKINGS_PER_EVENT + ") n, " +
+            "(SELECT array(SELECT id FROM jhi_user WHERE login LIKE '" + SEED + "-%') AS ids) u " +
+            "WHERE e.coach_name = '" + SEED + "'"
+        );
+        execute("ANALYZE studio, class_type, jhi_user, event, booking");
+    }
+
+    @AfterAll
+    void cleanup() {
+        execute("DELETE FROM booking WHERE event_id IN (SELECT id FROM event WHERE coach_name = '" + SEED + "')");
+        execute("DELETE FROM event WHERE coach_name = '" + SEED + "'");
+        execute("DELETE FROM studio WHERE name LIKE '" + SEED + "-%'");
+        execute("DELETE FROM class_type WHERE name LIKE '" + SEED + "-%'");
+        execute("DELETE FROM jhi_user WHERE login LIKE '" + SEED + "-%'");
+    }
+
+    @Test
+    void hotQueriesDoNotScanWholeTables() {
+        Map<String, String> offenders = new LinkedHashMap<>();
+        hotQueries().forEach((name, sql) -> {
+            String plan = explain(inlineParameters(sql));
+            if (FULL_SCAN.matcher(plan).find()) {
+                offenders.put(name, plan);
+            }
+        });
+
+        assertThat(offenders).as("queries falling back to a sequential scan, with their plan").isEmpty();
+    }
+
+    private Map<String, String> hotQueries() {
+        Map<String, String> queries = new LinkedHashMap<>();
+        for (Class<?> repository : List.of(BookingRepository.class, EventRepository.class)) {
+            for (Method method : repository.getDeclaredMethods()) {
+                Query query = method.getAnnotation(Query.class);
+                if (query != null && !FULL_SCANS_BY_DESIGN.contains(method.getName())) {
+                    queries.put(repository.getSimpleName() + "." + method.getName(), query.value());
+                }
+            }
+        }
+
+        // Derived queries, as Spring Data renders them
+        queries.put(
+            "BookingRepository.countByEventIdAndStatus",
+            "SELECT COUNT(booking.id) FROM booking WHERE booking.event_id = :eventId AND booking.status = :status"
+        );
+        queries.put("BookingRepository.findAllByEventId", "SELECT booking.* FROM booking WHERE booking.event_id = :eventId");
+        queries.put("BookingRepository.findAllByUserId", "SELECT booking.* FROM booking WHERE booking.user_id = :userId");
+
+        queries.put("BookingRepositoryInternal.insertIfSeatAvailable", BookingRepositoryInternalImpl.INSERT_IF_SEAT_AVAILABLE);
+        queries.put("BookingRepositoryInternal.promoteNextOnWaitlist", BookingRepositoryInternalImpl.PROMOTE_NEXT_ON_WAITLIST);
+
+        // Keyset pages deep into the tables
+        Table event = Table.aliased("event", EntityManager.ENTITY_ALIAS);
+        queries.put(
+            "EventRepositoryInternal.findAllBy(afterStartAt, afterId, limit)",
+            entityManager.createSeekSelect(
+                Select.builder().select(event.asterisk()).from(event),
+                List.of(event.column("start_at"), event.column("id")),
+                List.of(SQL.literalOf(LocalDateTime.now().plusDays(EVENTS / 48).toString()), SQL.literalOf(42L)),
+                20,
+                null
+            )
+        );
+        Table booking = Table.aliased("booking", EntityManager.ENTITY_ALIAS);
+        queries.put(
+            "BookingRepositoryInternal.findAllByUserId(userId, afterId, limit)",
+            entityManager.createSeekSelect(
+                Select.builder().select(booking.asterisk()).from(booking),
+                List.of(booking.column("id")),
+                List.of(SQL.literalOf(42L)),
+                20,
+                Conditions.isEqual(booking.column("user_id"), SQL.literalOf(42L))
+            )
+        );
+        return queries;
+    }
+
+    private static String inlineParameters(String sql) {
+        Matcher matcher = NAMED_PARAMETER.matcher(sql);
+        return matcher.replaceAll(parameter ->
+            Matcher.quoteReplacement(
+                Objects.requireNonNull(SAMPLE_PARAMETERS.get(parameter.group(1)), "no sample value for :" + parameter.group(1))
+            )
+        );
+    }
+
+    private String explain(String sql) {
+        return template
+            .getDatabaseClient()
+            .sql("EXPLAIN " + sql)
+            .map(row -> row.get(0, String.class))
+            .all()
+            .collect(Collectors.joining("\n"))
+            .block();
+    }
+
+    private void execute(String sql) {
+        template.getDatabaseClient().sql(sql).fetch().rowsUpdated().block();
+    }
+}
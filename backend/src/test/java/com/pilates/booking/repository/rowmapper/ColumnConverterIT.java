@@ -0,0 +1,250 @@
+package com.pilates.booking.repository.rowmapper;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.Studio;
+import io.r2dbc.spi.ColumnMetadata;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Row;
+import io.r2dbc.spi.RowMetadata;
+import io.r2dbc.spi.Type;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Integration tests for the column readers of the {@link ColumnConverter}, on rows decoded as the Postgres driver
+ * does: a timestamp column is only decoded to a {@link LocalDateTime}, asking for anything else fails.
+ */
+@IntegrationTest
+class ColumnConverterIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ColumnConverterIT.class);
+
+    private static final int ROWS = 100_000;
+
+    private static final LocalDateTime START_AT = LocalDateTime.of(2031, 3, 3, 9, 0);
+
+    private static final StubRowMetadata EVENT_METADATA = new StubRowMetadata(
+        List.of(
+            new StubColumn("e_id", R2dbcType.BIGINT),
+            new StubColumn("e_coach_name", R2dbcType.VARCHAR),
+            new StubColumn("e_start_at", R2dbcType.TIMESTAMP),
+            new StubColumn("e_end_at", R2dbcType.TIMESTAMP),
+            new StubColumn("e_capacity", R2dbcType.INTEGER),
+            new StubColumn("e_status", R2dbcType.VARCHAR),
+            new StubColumn("e_waitlist_open", R2dbcType.BOOLEAN),
+            new StubColumn("e_bookings_count", R2dbcType.INTEGER),
+            new StubColumn("e_studio_id", R2dbcType.BIGINT),
+            new StubColumn("e_class_type_id", R2dbcType.BIGINT)
+        )
+    );
+
+    @Autowired
+    private ColumnConverter converter;
+
+    @Autowired
+    private EventRowMapper eventMapper;
+
+    @Autowired
+    private StudioRowMapper studioMapper;
+
+    @Test
+    void assertThatResolvedMapperReadsEveryColumn() {
+        Event event = eventMapper.resolve(EVENT_METADATA, "e").apply(eventRow(42));
+
+        assertThat(event.getId()).isEqualTo(42L);
+        assertThat(event.getCoachName()).isEqualTo("coach-42");
+        assertThat(event.getStartAt()).isEqualTo(ZonedDateTime.of(START_AT, ZoneOffset.UTC));
+        assertThat(event.getEndAt()).isNull();
+        assertThat(event.getCapacity()).isEqualTo(12);
+        assertThat(event.getStatus()).isEqualTo("OPEN");
+        assertThat(event.getWaitlistOpen()).isTrue();
+        assertThat(event.getBookingsCount()).isEqualTo(3);
+        assertThat(event.getStudioId()).isEqualTo(7L);
+        assertThat(event.getClassTypeId()).isNull();
+    }
+
+    @Test
+    void assertThatResolvedMapperMatchesTheLookupByName() {
+        Row row = eventRow(42);
+
+        Event resolved = eventMapper.resolve(EVENT_METADATA, "e").apply(row);
+        Event byName = mapByName(row);
+
+        assertThat(resolved).usingRecursiveComparison().isEqualTo(byName);
+    }
+
+    @Test
+    void assertThatColumnsMissingFromTheResultSetReadAsNull() {
+        // the studio table is not joined
+        Studio studio = studioMapper.resolve(EVENT_METADATA, "studio").apply(eventRow(42));
+
+        assertThat(studio.getId()).isNull();
+        assertThat(studio.getName()).isNull();
+    }
+
+    @Test
+    void assertThatRowsOfAResultSetShareTheirResolvedMapper() {
+        List<RowMetadata> resolutions = new ArrayList<>();
+        ResolvingRowMapper<Event> mapper = new ResolvingRowMapper<>(metadata -> {
+            resolutions.add(metadata);
+            return eventMapper.resolve(metadata, "e");
+        });
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(mapper.apply(eventRow(i), EVENT_METADATA).getId()).isEqualTo((long) i);
+        }
+
+        assertThat(resolutions).containsExactly(EVENT_METADATA);
+    }
+
+    /**
+     * Mapping of 100k event rows: by column name with a failed decoding of the timestamps as before, then with the
+     * readers resolved once. Run with {@code -Dbenchmark.rowmapper=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.rowmapper", matches = "true")
+    void benchmarkMappingRows() {
+        List<Row> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(eventRow(i));
+        }
+        long checksum = 0;
+        // the first run warms both paths up
+        for (int run = 0; run < 2; run++) {
+            long start = System.nanoTime();
+            for (Row row : rows) {
+                checksum += mapByName(row).getId();
+            }
+            long byName = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            ResolvingRowMapper<Event> mapper = new ResolvingRowMapper<>(metadata -> eventMapper.resolve(metadata, "e"));
+            for (Row row : rows) {
+                checksum += mapper.apply(row, EVENT_METADATA).getId();
+            }
+            long resolved = System.nanoTime() - start;
+
+            LOG.info(
+                "{} event rows: mapped by name in {} ms, with resolved readers in {} ms (checksum {})",
+                ROWS,
+                TimeUnit.NANOSECONDS.toMillis(byName),
+                TimeUnit.NANOSECONDS.toMillis(resolved),
+                checksum
+            );
+            assertThat(resolved).isLessThan(byName);
+        }
+    }
+
+    // the mapping as EventRowMapper did it before the readers
+    private Event mapByName(Row row) {
+        String prefix = "e";
+        Event entity = new Event();
+        entity.setId(converter.fromRow(row, prefix + "_id", Long.class));
+        entity.setCoachName(converter.fromRow(row, prefix + "_coach_name", String.class));
+        entity.setStartAt(converter.fromRow(row, prefix + "_start_at", ZonedDateTime.class));
+        entity.setEndAt(converter.fromRow(row, prefix + "_end_at", ZonedDateTime.class));
+        entity.setCapacity(converter.fromRow(row, prefix + "_capacity", Integer.class));
+        entity.setStatus(converter.fromRow(row, prefix + "_status", String.class));
+        entity.setWaitlistOpen(converter.fromRow(row, prefix + "_waitlist_open", Boolean.class));
+        entity.setBookingsCount(converter.fromRow(row, prefix + "_bookings_count", Integer.class));
+        entity.setStudioId(converter.fromRow(row, prefix + "_studio_id", Long.class));
+        entity.setClassTypeId(converter.fromRow(row, prefix + "_class_type_id", Long.class));
+        return entity;
+    }
+
+    private static Row eventRow(long id) {
+        return new StubRow(EVENT_METADATA, new Object[] { id, "coach-" + id, START_AT, null, 12, "OPEN", true, 3, 7L, null });
+    }
+
+    private record StubColumn(String name, R2dbcType type) implements ColumnMetadata {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public Type getType() {
+            return type;
+        }
+
+        @Override
+        public Class<?> getJavaType() {
+            return type.getJavaType();
+        }
+    }
+
+    private record StubRowMetadata(List<StubColumn> columns) implements RowMetadata {
+        @Override
+        public ColumnMetadata getColumnMetadata(int index) {
+            return columns.get(index);
+        }
+
+        @Override
+        public ColumnMetadata getColumnMetadata(String name) {
+            return columns.get(indexOf(name));
+        }
+
+        @Override
+        public List<? extends ColumnMetadata> getColumnMetadatas() {
+            return columns;
+        }
+
+        @Override
+        public boolean contains(String name) {
+            return columns.stream().anyMatch(column -> column.getName().equalsIgnoreCase(name));
+        }
+
+        int indexOf(String name) {
+            for (int i = 0; i < columns.size(); i++) {
+                if (columns.get(i).getName().equalsIgnoreCase(name)) {
+                    return i;
+                }
+            }
+            throw new NoSuchElementException("Column name '" + name + "' does not exist");
+        }
+    }
+
+    private record StubRow(StubRowMetadata metadata, Object[] values) implements Row {
+        @Override
+        public RowMetadata getMetadata() {
+            return metadata;
+        }
+
+        @Override
+        public <T> T get(int index, Class<T> type) {
+            Object value = values[index];
+            if (value != null && !type.isInstance(value)) {
+                throw new IllegalArgumentException("Cannot decode value of type " + type.getName());
+            }
+            return type.cast(value);
+        }
+
+        @Override
+        public <T> T get(String name, Class<T> type) {
+            return get(metadata.indexOf(name), type);
+        }
+
+        @Override
+        public Object get(int index) {
+            return get(index, Object.class);
+        }
+
+        @Override
+        public Object get(String name) {
+            return get(name, Object.class);
+        }
+    }
+}
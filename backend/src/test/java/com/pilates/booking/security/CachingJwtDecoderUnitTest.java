@@ -0,0 +1,105 @@
+package com.pilates.booking.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.oauth2.jwt.BadJwtException;
+import org.springframework.security.oauth2.jwt.Jwt;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for the {@link CachingJwtDecoder}.
+ */
+class CachingJwtDecoderUnitTest {
+
+    private AtomicInteger decodeCount;
+
+    private Instant expiresAt;
+
+    private MeterRegistry meterRegistry;
+
+    private CachingJwtDecoder jwtDecoder;
+
+    @BeforeEach
+    void setup() {
+        decodeCount = new AtomicInteger();
+        expiresAt = Instant.now().plusSeconds(60);
+        meterRegistry = new SimpleMeterRegistry();
+        jwtDecoder = new CachingJwtDecoder(
+            token -> {
+                decodeCount.incrementAndGet();
+                if (token.startsWith("bad")) {
+                    return Mono.error(new BadJwtException("Failed to validate the token"));
+                }
+                Jwt.Builder jwt = Jwt.withTokenValue(token).header("alg", "HS512").subject("user").issuedAt(Instant.now());
+                return Mono.just(expiresAt != null ? jwt.expiresAt(expiresAt).build() : jwt.build());
+            },
+            100,
+            meterRegistry
+        );
+    }
+
+    @Test
+    void testRepeatedTokenIsDecodedOnce() {
+        Jwt first = jwtDecoder.decode("token").block();
+        Jwt second = jwtDecoder.decode("token").block();
+
+        assertThat(second).isSameAs(first);
+        assertThat(decodeCount).hasValue(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", CachingJwtDecoder.CACHE_NAME).tag("result", "hit").functionCounter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testDistinctTokensAreDecodedSeparately() {
+        jwtDecoder.decode("token-one").block();
+        jwtDecoder.decode("token-two").block();
+
+        assertThat(decodeCount).hasValue(2);
+    }
+
+    @Test
+    void testRejectedTokenIsNotCached() {
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jwtDecoder.decode("bad-token").block());
+        assertThatExceptionOfType(BadJwtException.class).isThrownBy(() -> jwtDecoder.decode("bad-token").block());
+
+        assertThat(decodeCount).hasValue(2);
+    }
+
+    @Test
+    void testExpiredEntryIsDecodedAgain() {
+        expiresAt = Instant.now().minusSeconds(1);
+
+        jwtDecoder.decode("token").block();
+        jwtDecoder.decode("token").block();
+
+        assertThat(decodeCount).hasValue(2);
+    }
+
+    @Test
+    void testTokenWithoutExpiryIsNotCached() {
+        expiresAt = null;
+
+        assertThat(jwtDecoder.decode("token").block().getExpiresAt()).isNull();
+        jwtDecoder.decode("token").block();
+
+        assertThat(decodeCount).hasValue(2);
+    }
+
+    @Test
+    void testTokenExpiringCenturiesAheadIsCached() {
+        expiresAt = Instant.now().plus(Duration.ofDays(400 * 365));
+
+        jwtDecoder.decode("token").block();
+        jwtDecoder.decode("token").block();
+
+        assertThat(decodeCount).hasValue(1);
+    }
+}
@@ -8,20 +8,27 @@ import com.pilates.booking.config.Constants;
 import com.pilates.booking.domain.User;
 import com.pilates.booking.repository.UserRepository;
 import com.pilates.booking.service.UserService;
+import com.pilates.booking.service.dto.AdminUserDTO;
 import java.util.Locale;
+import java.util.Set;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.userdetails.ReactiveUserDetailsService;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.context.TestPropertySource;
 
 /**
  * Integrations tests for {@link DomainUserDetailsService}.
  */
 @IntegrationTest
+// the other tests run without the user cache; here it is live, so that the evictions of the user service are tested
+@TestPropertySource(properties = "application.user-cache.time-to-live=10m")
 class DomainUserDetailsServiceIT {
 
     private static final String USER_ONE_LOGIN = "test-user-one";
@@ -135,4 +142,44 @@ class DomainUserDetailsServiceIT {
             domainUserDetailsService.findByUsername(USER_THREE_LOGIN).block()
         );
     }
+
+    @Test
+    void assertThatUserIsServedFromTheCache() {
+        UserDetails userDetails = domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block();
+        assertThat(userDetails).isNotNull();
+
+        // written behind the back of the user service, which would evict the user
+        User user = userRepository.findOneByLogin(USER_ONE_LOGIN).block();
+        user.setPassword(RandomStringUtils.insecure().nextAlphanumeric(60));
+        userRepository.save(user).block();
+
+        assertThat(domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block().getPassword()).isEqualTo(userDetails.getPassword());
+    }
+
+    @Test
+    void assertThatCachedUserIsEvictedWhenUpdated() {
+        UserDetails userDetails = domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block();
+        assertThat(userDetails).isNotNull();
+        assertThat(userDetails.getAuthorities()).isEmpty();
+
+        User user = userRepository.findOneWithAuthoritiesByLogin(USER_ONE_LOGIN).block();
+        AdminUserDTO userDTO = new AdminUserDTO(user);
+        userDTO.setAuthorities(Set.of(AuthoritiesConstants.ADMIN));
+        userService.updateUser(userDTO).block();
+
+        userDetails = domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block();
+        assertThat(userDetails).isNotNull();
+        assertThat(userDetails.getAuthorities()).extracting(GrantedAuthority::getAuthority).containsExactly(AuthoritiesConstants.ADMIN);
+    }
+
+    @Test
+    void assertThatDeletedUserIsEvicted() {
+        assertThat(domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block()).isNotNull();
+
+        userService.deleteUser(USER_ONE_LOGIN).block();
+
+        assertThatExceptionOfType(UsernameNotFoundException.class).isThrownBy(() ->
+            domainUserDetailsService.findByUsername(USER_ONE_LOGIN).block()
+        );
+    }
 }
@@ -0,0 +1,81 @@
+package com.pilates.booking.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.pilates.booking.domain.Authority;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.Set;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+/**
+ * Test class for the {@link UserIdentityCache}.
+ */
+class UserIdentityCacheUnitTest {
+
+    private static final String LOGIN = "cached-user";
+
+    private UserRepository userRepository;
+
+    private MeterRegistry meterRegistry;
+
+    private UserIdentityCache userIdentityCache;
+
+    @BeforeEach
+    void setup() {
+        userRepository = mock(UserRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        userIdentityCache = new UserIdentityCache(userRepository, 100, Duration.ofMinutes(10), meterRegistry);
+
+        User user = new User();
+        user.setId(42L);
+        user.setLogin(LOGIN);
+        user.setPassword("hash");
+        user.setActivated(true);
+        user.setAuthorities(Set.of(new Authority().name(AuthoritiesConstants.USER)));
+        when(userRepository.findOneWithAuthoritiesByLogin(LOGIN)).thenReturn(Mono.just(user));
+        when(userRepository.findOneWithAuthoritiesByLogin("unknown")).thenReturn(Mono.empty());
+    }
+
+    @Test
+    void testGetLoadsOnceThenHits() {
+        UserIdentityCache.UserIdentity identity = userIdentityCache.get(LOGIN).block();
+        assertThat(identity).isNotNull();
+        assertThat(identity.id()).isEqualTo(42L);
+        assertThat(identity.authorities()).containsExactly(AuthoritiesConstants.USER);
+
+        assertThat(userIdentityCache.get(LOGIN).block()).isEqualTo(identity);
+
+        verify(userRepository, times(1)).findOneWithAuthoritiesByLogin(LOGIN);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", UserIdentityCache.CACHE_NAME).tag("result", "hit").functionCounter().count())
+            .isEqualTo(1);
+        assertThat(meterRegistry.get("cache.gets").tag("cache", UserIdentityCache.CACHE_NAME).tag("result", "miss").functionCounter().count())
+            .isEqualTo(1);
+    }
+
+    @Test
+    void testEvictForcesReload() {
+        userIdentityCache.get(LOGIN).block();
+        userIdentityCache.evict(LOGIN).block();
+        userIdentityCache.get(LOGIN).block();
+
+        verify(userRepository, times(2)).findOneWithAuthoritiesByLogin(LOGIN);
+    }
+
+    @Test
+    void testUnknownUserIsNotCached() {
+        assertThat(userIdentityCache.get("unknown").blockOptional()).isEmpty();
+        assertThat(userIdentityCache.get("unknown").blockOptional()).isEmpty();
+
+        verify(userRepository, times(2)).findOneWithAuthoritiesByLogin("unknown");
+    }
+}
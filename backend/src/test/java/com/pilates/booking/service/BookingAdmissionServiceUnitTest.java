@@ -0,0 +1,166 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.pilates.booking.config.ApplicationProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+/**
+ * Test class for the {@link BookingAdmissionService}.
+ */
+class BookingAdmissionServiceUnitTest {
+
+    private static final Long EVENT_ID = 1L;
+
+    private final AtomicLong now = new AtomicLong();
+
+    private ApplicationProperties.BookingAdmission admission;
+
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setup() {
+        admission = new ApplicationProperties.BookingAdmission();
+        admission.setUserRate(1);
+        admission.setUserBurst(1000);
+        admission.setEventRate(1);
+        admission.setEventBurst(1000);
+        admission.setMaxConcurrent(1);
+        admission.setQueueCapacity(1);
+        admission.setMaxWait(Duration.ofSeconds(10));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    void testUserOverItsRateIsRejectedWith429() {
+        admission.setUserBurst(2);
+        BookingAdmissionService service = newService();
+
+        assertThat(admitAs("alice", service, Mono.just(1)).block()).isEqualTo(1);
+        assertThat(admitAs("alice", service, Mono.just(2)).block()).isEqualTo(2);
+        assertThatThrownBy(() -> admitAs("alice", service, Mono.just(3)).block()).isInstanceOfSatisfying(
+            AdmissionRejectedException.class,
+            e -> {
+                assertThat(e.getStatusCode()).isEqualTo(HttpStatus.TOO_MANY_REQUESTS);
+                assertThat(e.getHeaders().getFirst(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+            }
+        );
+        // another member still has tokens
+        assertThat(admitAs("bob", service, Mono.just(4)).block()).isEqualTo(4);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(admitAs("alice", service, Mono.just(5)).block()).isEqualTo(5);
+        assertThat(rejections("user_rate")).isEqualTo(1);
+    }
+
+    @Test
+    void testEventOverItsRateIsRejectedWith503() {
+        admission.setEventBurst(1);
+        BookingAdmissionService service = newService();
+
+        assertThat(service.admit(EVENT_ID, position -> Mono.just(1)).block()).isEqualTo(1);
+        assertThatThrownBy(() -> service.admit(EVENT_ID, position -> Mono.just(2)).block()).isInstanceOfSatisfying(
+            AdmissionRejectedException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE)
+        );
+        assertThat(service.admit(2L, position -> Mono.just(3)).block()).isEqualTo(3);
+        assertThat(rejections("event_rate")).isEqualTo(1);
+    }
+
+    @Test
+    void testRequestsWaitTheirTurnAndOverflowIsShed() {
+        BookingAdmissionService service = newService();
+        Sinks.One<Integer> first = Sinks.one();
+        Sinks.One<Integer> second = Sinks.one();
+
+        CompletableFuture<List<Integer>> firstResult = service
+            .admit(EVENT_ID, position -> first.asMono().map(value -> List.of(value, position)))
+            .toFuture();
+        CompletableFuture<List<Integer>> secondResult = service
+            .admit(EVENT_ID, position -> second.asMono().map(value -> List.of(value, position)))
+            .toFuture();
+
+        assertThat(gauge("booking.admission.in.flight")).isEqualTo(1);
+        assertThat(gauge("booking.admission.queue.depth")).isEqualTo(1);
+        assertThatThrownBy(() -> service.admit(EVENT_ID, position -> Mono.just(List.of(3, position))).block()).isInstanceOfSatisfying(
+            AdmissionRejectedException.class,
+            e -> {
+                assertThat(e.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+                assertThat(e.getRetryAfterSeconds()).isEqualTo(10);
+            }
+        );
+
+        first.tryEmitValue(1);
+        assertThat(firstResult.join()).containsExactly(1, 0);
+        assertThat(secondResult).isNotDone();
+        second.tryEmitValue(2);
+        // the second request waited in first position
+        assertThat(secondResult.join()).containsExactly(2, 1);
+
+        assertThat(gauge("booking.admission.queue.depth")).isZero();
+        assertThat(gauge("booking.admission.in.flight")).isZero();
+        assertThat(rejections("queue_full")).isEqualTo(1);
+    }
+
+    @Test
+    void testRequestWaitingTooLongIsShedAndGivesUpItsPlace() {
+        admission.setMaxWait(Duration.ofMillis(50));
+        BookingAdmissionService service = newService();
+        Sinks.One<Integer> first = Sinks.one();
+
+        CompletableFuture<Integer> firstResult = service.admit(EVENT_ID, position -> first.asMono()).toFuture();
+        assertThatThrownBy(() -> service.admit(EVENT_ID, position -> Mono.just(2)).block(Duration.ofSeconds(5))).isInstanceOf(
+            AdmissionRejectedException.class
+        );
+        assertThat(rejections("timeout")).isEqualTo(1);
+        assertThat(gauge("booking.admission.queue.depth")).isZero();
+
+        first.tryEmitValue(1);
+        assertThat(firstResult.join()).isEqualTo(1);
+        assertThat(service.admit(EVENT_ID, position -> Mono.just(3)).block()).isEqualTo(3);
+    }
+
+    @Test
+    void testCancelledRequestReleasesItsSlot() {
+        BookingAdmissionService service = newService();
+
+        StepVerifier.create(service.admit(EVENT_ID, position -> Mono.never())).thenCancel().verify();
+
+        assertThat(gauge("booking.admission.in.flight")).isZero();
+        assertThat(service.admit(EVENT_ID, position -> Mono.just(1)).block()).isEqualTo(1);
+    }
+
+    private BookingAdmissionService newService() {
+        return new BookingAdmissionService(admission, meterRegistry, now::get);
+    }
+
+    private static <T> Mono<T> admitAs(String login, BookingAdmissionService service, Mono<T> reservation) {
+        return service
+            .admit(EVENT_ID, position -> reservation)
+            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(new UsernamePasswordAuthenticationToken(login, login)));
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).gauge().value();
+    }
+
+    private double rejections(String reason) {
+        return meterRegistry.get("booking.admission.rejections").tag("reason", reason).counter().count();
+    }
+}
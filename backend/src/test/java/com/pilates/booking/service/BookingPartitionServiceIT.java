@@ -0,0 +1,331 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.BookingRepository;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.MemberBooking;
+import com.pilates.booking.repository.UserRepository;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.r2dbc.repository.Query;
+
+/**
+ * Integration tests for the {@link BookingPartitionService}.
+ */
+@IntegrationTest
+class BookingPartitionServiceIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BookingPartitionServiceIT.class);
+
+    private static final String SEED = "booking-partitions";
+
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyy_MM");
+
+    // Months of synthetic history seeded by the benchmark, all but the hot ones being archived
+    private static final int HISTORY_MONTHS = 36;
+
+    private static final int HISTORY_BOOKINGS = 10_000_000;
+
+    private static final int HISTORY_USERS = 5_000;
+
+    private static final int BOOKINGS_PER_EVENT = 20;
+
+    private static final int LOOKUPS = 500;
+
+    @Autowired
+    private BookingPartitionService bookingPartitionService;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    private User user;
+
+    private LocalDate currentMonth;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.findOneByLogin("user").block();
+        currentMonth = LocalDate.now(ZoneOffset.UTC).withDayOfMonth(1);
+    }
+
+    @AfterEach
+    void cleanup() {
+        // the partitions of the past months only hold the bookings seeded here, archived or not
+        for (int months = 13; months <= HISTORY_MONTHS + 1; months++) {
+            execute("DROP TABLE IF EXISTS " + partitionName(currentMonth.minusMonths(months)));
+        }
+        execute("DELETE FROM booking WHERE event_id IN (SELECT id FROM event WHERE coach_name = '" + SEED + "')");
+        execute("DELETE FROM event WHERE coach_name = '" + SEED + "'");
+        execute("DELETE FROM jhi_user WHERE login LIKE '" + SEED + "-%'");
+        bookingPartitionService.refreshUpcomingHorizon().block();
+    }
+
+    @Test
+    void assertThatMaintenanceCreatesThePartitionsOfTheComingMonths() {
+        bookingPartitionService.maintainPartitions().block();
+
+        assertThat(partitionsOf("booking")).contains(
+            partitionName(currentMonth),
+            partitionName(currentMonth.plusMonths(1)),
+            partitionName(currentMonth.plusMonths(2)),
+            partitionName(currentMonth.plusMonths(3))
+        );
+        // already there
+        assertThat(bookingRepository.createPartition(currentMonth).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void assertThatPartitionCreationMovesItsBookingsOutOfTheDefaultPartition() {
+        LocalDate month = currentMonth.minusMonths(20);
+        Event event = saveEvent(month.atStartOfDay(ZoneOffset.UTC).plusDays(10));
+        Booking booking = saveBooking(event, month.atStartOfDay(ZoneOffset.UTC).plusDays(3));
+        assertThat(partitionOf(booking)).isEqualTo("booking_default");
+
+        assertThat(bookingRepository.createPartition(month).block()).isEqualTo(partitionName(month));
+
+        assertThat(partitionOf(booking)).isEqualTo(partitionName(month));
+        assertThat(bookingRepository.findById(booking.getId()).block()).isNotNull();
+    }
+
+    @Test
+    void assertThatClosedSeasonsAreArchivedAndStayInTheMemberHistory() {
+        LocalDate closedMonth = currentMonth.minusMonths(26);
+        LocalDate openMonth = currentMonth.minusMonths(25);
+        bookingRepository.createPartition(closedMonth).block();
+        bookingRepository.createPartition(openMonth).block();
+        ZonedDateTime closedEventStart = closedMonth.atStartOfDay(ZoneOffset.UTC).plusDays(20);
+        Booking pastBooking = saveBooking(saveEvent(closedEventStart), closedMonth.atStartOfDay(ZoneOffset.UTC).plusDays(2));
+        // booked long ahead: its season stays open until the event is over
+        Booking upcomingBooking = saveBooking(saveEvent(ZonedDateTime.now().plusDays(2)), openMonth.atStartOfDay(ZoneOffset.UTC).plusDays(2));
+        bookingPartitionService.coverCreatedAt(upcomingBooking.getCreatedAt());
+
+        Instant now = Instant.now();
+        List<String> archived = bookingRepository
+            .archivePartitions(currentMonth.minusMonths(24).atStartOfDay(ZoneOffset.UTC).toInstant(), now)
+            .collectList()
+            .block();
+
+        assertThat(archived).containsExactly(partitionName(closedMonth));
+        assertThat(partitionsOf("booking_archive")).contains(partitionName(closedMonth));
+        assertThat(partitionsOf("booking")).contains(partitionName(openMonth)).doesNotContain(partitionName(closedMonth));
+        assertThat(bookingRepository.findById(pastBooking.getId()).blockOptional()).isEmpty();
+        assertThat(bookingRepository.findById(upcomingBooking.getId()).blockOptional()).isPresent();
+        List<MemberBooking> history = bookingRepository
+            .findPastByUserId(user.getId(), now, now, Long.MAX_VALUE, 1_000)
+            .filter(booking -> SEED.equals(booking.coachName()))
+            .collectList()
+            .block();
+        assertThat(history).extracting(MemberBooking::id).containsExactly(pastBooking.getId());
+        Instant since = bookingPartitionService.upcomingHorizon().block();
+        List<MemberBooking> upcoming = bookingRepository
+            .findUpcomingByUserId(user.getId(), now, since, now, 0L, 1_000)
+            .filter(booking -> SEED.equals(booking.coachName()))
+            .collectList()
+            .block();
+        assertThat(upcoming).extracting(MemberBooking::id).containsExactly(upcomingBooking.getId());
+    }
+
+    @Test
+    void assertThatSeatCheckDoesNotDependOnTheCachedHorizonNorTheStoredCount() {
+        LocalDate pastMonth = currentMonth.minusMonths(14);
+        bookingRepository.createPartition(pastMonth).block();
+        ZonedDateTime startAt = ZonedDateTime.now().plusDays(2);
+        Event event = eventRepository
+            .save(new Event().coachName(SEED).startAt(startAt).endAt(startAt.plusMinutes(50)).capacity(1).status("OPEN"))
+            .block();
+        Instant cached = bookingPartitionService.refreshUpcomingHorizon().block();
+        // back-dated on another node, without the service: neither the horizon cached here nor the stored count moved
+        saveBooking(event, pastMonth.atStartOfDay(ZoneOffset.UTC).plusDays(2));
+        assertThat(cached).isAfter(pastMonth.atStartOfDay(ZoneOffset.UTC).toInstant());
+
+        Booking booking = new Booking().createdAt(ZonedDateTime.now()).userId(user.getId()).eventId(event.getId());
+
+        // full, with its waitlist closed
+        assertThat(bookingRepository.insertIfSeatAvailable(booking).blockOptional()).isEmpty();
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isZero();
+    }
+
+    @Test
+    void assertThatUpcomingLookupsSkipThePartitionsBeforeTheHorizon() throws NoSuchMethodException {
+        LocalDate pastMonth = currentMonth.minusMonths(14);
+        bookingRepository.createPartition(pastMonth).block();
+        saveBooking(saveEvent(pastMonth.atStartOfDay(ZoneOffset.UTC).plusDays(20)), pastMonth.atStartOfDay(ZoneOffset.UTC).plusDays(2));
+        Event upcomingEvent = saveEvent(ZonedDateTime.now().plusDays(2));
+        saveBooking(upcomingEvent, ZonedDateTime.now());
+
+        Instant since = bookingPartitionService.refreshUpcomingHorizon().block();
+
+        assertThat(since).isAfter(pastMonth.atStartOfDay(ZoneOffset.UTC).toInstant());
+        String query = BookingRepository.class.getMethod(
+            "findUpcomingByUserId",
+            Long.class,
+            Instant.class,
+            Instant.class,
+            Instant.class,
+            Long.class,
+            int.class
+        )
+            .getAnnotation(Query.class)
+            .value();
+        Instant now = Instant.now();
+        String plan = template
+            .getDatabaseClient()
+            .sql("EXPLAIN " + query)
+            .bind("userId", user.getId())
+            .bind("now", now.atOffset(ZoneOffset.UTC).toLocalDateTime())
+            .bind("since", since.atOffset(ZoneOffset.UTC).toLocalDateTime())
+            .bind("afterStartAt", now.atOffset(ZoneOffset.UTC).toLocalDateTime())
+            .bind("afterId", 0L)
+            .bind("limit", 20)
+            .map(row -> row.get(0, String.class))
+            .all()
+            .collect(Collectors.joining("\n"))
+            .block();
+        assertThat(plan).contains(partitionName(currentMonth)).doesNotContain(partitionName(pastMonth));
+        assertThat(bookingRepository.countByEventIdAndStatus(upcomingEvent.getId(), "BOOKED").block()).isEqualTo(1L);
+    }
+
+    /**
+     * Upcoming lookups over {@value #HISTORY_BOOKINGS} bookings spread over {@value #HISTORY_MONTHS} months: all the
+     * partitions, the partitions from the upcoming horizon on, then the hot months once the past seasons are archived.
+     * Run with {@code -Dbenchmark.partitions=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.partitions", matches = "true")
+    void benchmarkUpcomingLookupsOnLongHistory() {
+        long start = System.nanoTime();
+        for (int months = HISTORY_MONTHS; months > 0; months--) {
+            bookingRepository.createPartition(currentMonth.minusMonths(months)).block();
+        }
+        execute(
+            "INSERT INTO jhi_user (login, created_by, activated) " +
+            "SELECT '" + SEED + "-' || g, 'system', true FROM generate_series(1, " + HISTORY_USERS + ") g"
+        );
+        int events = HISTORY_BOOKINGS / BOOKINGS_PER_EVENT;
+        // one event every few minutes over the history, each one booked during the 10 days before it starts
+        execute(
+            "INSERT INTO event (coach_name, start_at, end_at, capacity, status) " +
+            "SELECT '" + SEED + "', t, t + interval '50 minutes', " + BOOKINGS_PER_EVENT + ", 'CLOSED' " +
+            "FROM (SELECT date_trunc('month', localtimestamp) - interval '" + HISTORY_MONTHS + " months' + " +
+            "g * (interval '" + HISTORY_MONTHS + " months' / " + events + ") AS t FROM generate_series(0, " + (events - 1) + ") g) s"
+        );
+        execute(
+            "INSERT INTO booking (status, created_at, user_id, event_id) " +
+            "SELECT 'BOOKED', e.start_at - (n % 10) * interval '1 day' - interval '1 hour', u.ids[1 + (e.id * 7 + n) % " + HISTORY_USERS + "], e.id " +
+            "FROM event e, generate_series(1, " + BOOKINGS_PER_EVENT + ") n, " +
+            "(SELECT array(SELECT id FROM jhi_user WHERE login LIKE '" + SEED + "-%') AS ids) u " +
+            "WHERE e.coach_name = '" + SEED + "'"
+        );
+        List<Long> members = template
+            .getDatabaseClient()
+            .sql("SELECT id FROM jhi_user WHERE login LIKE '" + SEED + "-%' ORDER BY id LIMIT " + LOOKUPS)
+            .map(row -> row.get(0, Long.class))
+            .all()
+            .collectList()
+            .block();
+        // their upcoming bookings, made this month
+        Event upcomingEvent = saveEvent(ZonedDateTime.now().plusDays(3));
+        members.forEach(member -> execute(
+            "INSERT INTO booking (status, created_at, user_id, event_id) VALUES ('BOOKED', localtimestamp, " + member + ", " + upcomingEvent.getId() + ")"
+        ));
+        execute("ANALYZE booking");
+        LOG.info("Seeded {} bookings over {} months in {} s", HISTORY_BOOKINGS, HISTORY_MONTHS, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+
+        long allPartitions = timeUpcomingLookups(members, Instant.EPOCH);
+        Instant since = bookingPartitionService.refreshUpcomingHorizon().block();
+        long pruned = timeUpcomingLookups(members, since);
+        bookingPartitionService.maintainPartitions().block();
+        long archived = timeUpcomingLookups(members, bookingPartitionService.upcomingHorizon().block());
+
+        assertThat(partitionsOf("booking_archive")).hasSizeGreaterThanOrEqualTo(HISTORY_MONTHS - 13);
+        LOG.info(
+            "{} upcoming lookups over {} bookings: {} ms on every partition, {} ms from the horizon, {} ms with the past seasons archived",
+            LOOKUPS,
+            HISTORY_BOOKINGS,
+            allPartitions,
+            pruned,
+            archived
+        );
+    }
+
+    private long timeUpcomingLookups(List<Long> members, Instant since) {
+        Instant now = Instant.now();
+        long start = System.nanoTime();
+        int found = members
+            .stream()
+            .mapToInt(member -> bookingRepository.findUpcomingByUserId(member, now, since, now, 0L, 20).collectList().block().size())
+            .sum();
+        assertThat(found).isEqualTo(members.size());
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private Event saveEvent(ZonedDateTime startAt) {
+        return eventRepository
+            .save(new Event().coachName(SEED).startAt(startAt).endAt(startAt.plusMinutes(50)).capacity(10).status("OPEN"))
+            .block();
+    }
+
+    private Booking saveBooking(Event event, ZonedDateTime createdAt) {
+        return bookingRepository
+            .save(new Booking().status("BOOKED").createdAt(createdAt).userId(user.getId()).eventId(event.getId()))
+            .block();
+    }
+
+    private String partitionOf(Booking booking) {
+        return template
+            .getDatabaseClient()
+            .sql("SELECT tableoid::regclass::text FROM booking WHERE id = :id")
+            .bind("id", booking.getId())
+            .map(row -> row.get(0, String.class))
+            .one()
+            .block();
+    }
+
+    private List<String> partitionsOf(String table) {
+        return template
+            .getDatabaseClient()
+            .sql("SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = CAST(:table AS regclass)")
+            .bind("table", table)
+            .map(row -> row.get(0, String.class))
+            .all()
+            .collectList()
+            .block();
+    }
+
+    private static String partitionName(LocalDate month) {
+        return "booking_" + month.format(PARTITION_SUFFIX);
+    }
+
+    private void execute(String sql) {
+        template.getDatabaseClient().sql(sql).fetch().rowsUpdated().block(Duration.ofMinutes(30));
+    }
+}
@@ -0,0 +1,187 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.BookingRepository;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.UserRepository;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+/**
+ * Integration tests for the {@link EventReminderService}.
+ */
+@IntegrationTest
+class EventReminderServiceIT {
+
+    private static final String SEED = "event-reminders";
+
+    private static final Duration LEAD_TIME = Duration.ofHours(24);
+
+    private static final long NOTIFY_TIMEOUT = 10_000;
+
+    private static final long QUIET_PERIOD = 3_000;
+
+    @Autowired
+    private EventReminderService eventReminderService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @MockitoBean
+    private MailService mailService;
+
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.findOneByLogin("user").block();
+    }
+
+    @AfterEach
+    void cleanup() {
+        execute("DELETE FROM booking WHERE event_id IN (SELECT id FROM event WHERE coach_name = '" + SEED + "')");
+        execute("DELETE FROM event WHERE coach_name = '" + SEED + "'");
+    }
+
+    @Test
+    void assertThatMembersAreRemindedOnceBeforeTheEvent() {
+        Event event = eventService.save(newEvent(ZonedDateTime.now().plus(LEAD_TIME).plusSeconds(1))).block();
+        saveBooking(event, "BOOKED");
+
+        verify(mailService, timeout(NOTIFY_TIMEOUT)).sendEventReminderMail(
+            argThat(users -> users.size() == 1 && users.iterator().next().getId().equals(user.getId())),
+            ofEvent(event)
+        );
+        assertThat(isReminded(event)).isTrue();
+        assertThat(eventReminderService.pendingCount()).isPositive();
+    }
+
+    @Test
+    void assertThatPostponedEventIsNotRemindedEarly() {
+        Event event = eventService.save(newEvent(ZonedDateTime.now().plus(LEAD_TIME).plusSeconds(1))).block();
+        saveBooking(event, "BOOKED");
+
+        event.setStartAt(ZonedDateTime.now().plus(LEAD_TIME).plusDays(2));
+        event.setEndAt(event.getStartAt().plusHours(1));
+        eventService.update(event).block();
+
+        verify(mailService, after(QUIET_PERIOD).never()).sendEventReminderMail(any(), ofEvent(event));
+        assertThat(isReminded(event)).isFalse();
+    }
+
+    @Test
+    void assertThatMovedEventIsRemindedAgain() {
+        Event event = eventService.save(newEvent(ZonedDateTime.now().plus(LEAD_TIME).plusSeconds(1))).block();
+        saveBooking(event, "BOOKED");
+        verify(mailService, timeout(NOTIFY_TIMEOUT)).sendEventReminderMail(any(), ofEvent(event));
+
+        // postponed by two days, then brought back within the lead time
+        event.setStartAt(ZonedDateTime.now().plus(LEAD_TIME).plusDays(2));
+        eventService.update(event).block();
+        assertThat(isReminded(event)).isFalse();
+        event.setStartAt(ZonedDateTime.now().plus(LEAD_TIME).plusSeconds(1));
+        eventService.update(event).block();
+
+        verify(mailService, timeout(NOTIFY_TIMEOUT).times(2)).sendEventReminderMail(any(), ofEvent(event));
+    }
+
+    @Test
+    void assertThatCancelledEventIsNotReminded() {
+        Event event = eventService.save(newEvent(ZonedDateTime.now().plus(LEAD_TIME).plusSeconds(2))).block();
+        saveBooking(event, "BOOKED");
+
+        eventService.cancel(event.getId()).block();
+
+        verify(mailService, after(QUIET_PERIOD).never()).sendEventReminderMail(any(), ofEvent(event));
+        assertThat(isReminded(event)).isFalse();
+    }
+
+    @Test
+    void assertThatRehydratedWheelSendsMissedRemindersOnce() {
+        // written behind the back of the event service, as if the node had been down
+        Event event = eventRepository.save(newEvent(ZonedDateTime.now().plus(LEAD_TIME).minusHours(1))).block();
+        saveBooking(event, "BOOKED");
+
+        eventReminderService.rehydrate().block();
+        verify(mailService, timeout(NOTIFY_TIMEOUT)).sendEventReminderMail(any(), ofEvent(event));
+
+        eventReminderService.rehydrate().block();
+        verify(mailService, after(QUIET_PERIOD).times(1)).sendEventReminderMail(any(), ofEvent(event));
+    }
+
+    @Test
+    void assertThatWaitlistIsClosedOnceTheEventIsOver() throws InterruptedException {
+        ZonedDateTime start = ZonedDateTime.now().minusHours(3);
+        Event event = eventRepository.save(newEvent(start).endAt(start.plusHours(1))).block();
+        Booking booked = saveBooking(event, "BOOKED");
+        Booking waiting = saveBooking(event, "FULL");
+
+        eventReminderService.rehydrate().block();
+
+        long deadline = System.currentTimeMillis() + NOTIFY_TIMEOUT;
+        while (!"CANCELLED".equals(bookingRepository.findById(waiting.getId()).block().getStatus())) {
+            assertThat(System.currentTimeMillis()).as("waitlist closed in time").isLessThan(deadline);
+            Thread.sleep(100);
+        }
+        assertThat(bookingRepository.findById(booked.getId()).block().getStatus()).isEqualTo("BOOKED");
+        // the event has started: it is too late to remind the members
+        verify(mailService, never()).sendEventReminderMail(any(), ofEvent(event));
+    }
+
+    private Event newEvent(ZonedDateTime start) {
+        return new Event().coachName(SEED).startAt(start).endAt(start.plusHours(1)).capacity(10).status("OPEN");
+    }
+
+    private Booking saveBooking(Event event, String status) {
+        return bookingRepository
+            .save(new Booking().status(status).createdAt(ZonedDateTime.now()).userId(user.getId()).eventId(event.getId()))
+            .block();
+    }
+
+    private static Event ofEvent(Event event) {
+        return argThat(notified -> notified.getId().equals(event.getId()));
+    }
+
+    private boolean isReminded(Event event) {
+        return template
+            .getDatabaseClient()
+            .sql("SELECT reminded_at IS NOT NULL AS reminded FROM event WHERE id = :id")
+            .bind("id", event.getId())
+            .map(row -> row.get("reminded", Boolean.class))
+            .one()
+            .block();
+    }
+
+    private void execute(String sql) {
+        template.getDatabaseClient().sql(sql).fetch().rowsUpdated().block();
+    }
+}
@@ -0,0 +1,129 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.service.EventReminderService.TimingWheel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Test class for the timing wheel of the {@link EventReminderService}.
+ */
+class EventReminderServiceUnitTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventReminderServiceUnitTest.class);
+
+    private static final long TICK = 1_000;
+
+    private static final int TIMERS = 100_000;
+
+    @Test
+    void testTimerFiresOnItsTickAndOnlyOnce() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule(1, 2_500);
+
+        assertThat(advance(wheel, 2_999)).isEmpty();
+        assertThat(advance(wheel, 3_000)).containsExactly(1L);
+        assertThat(advance(wheel, 10_000)).isEmpty();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void testPassedDeadlineFiresOnNextTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 10_000);
+        wheel.schedule(1, 0);
+
+        assertThat(advance(wheel, 10_999)).isEmpty();
+        assertThat(advance(wheel, 11_000)).containsExactly(1L);
+    }
+
+    @Test
+    void testRescheduledTimerFiresOnItsNewTick() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule(1, 5_000);
+        // moved up from level 0 to a higher level
+        wheel.schedule(1, 5_000_000);
+
+        assertThat(advance(wheel, 4_999_000)).isEmpty();
+        wheel.schedule(2, 4_999_500);
+        assertThat(advance(wheel, 5_000_000)).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void testCancelledTimerDoesNotFire() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule(1, 70_000);
+        wheel.schedule(2, 70_000);
+
+        assertThat(wheel.cancel(1)).isTrue();
+        assertThat(wheel.cancel(1)).isFalse();
+        assertThat(advance(wheel, 100_000)).containsExactly(2L);
+        assertThat(wheel.contains(1)).isFalse();
+    }
+
+    @Test
+    void testClearedWheelFiresNothing() {
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        wheel.schedule(1, 1_000);
+        wheel.schedule(2, 10_000_000);
+
+        wheel.clear();
+
+        assertThat(wheel.size()).isZero();
+        assertThat(advance(wheel, 20_000_000)).isEmpty();
+    }
+
+    @Test
+    void testManyTimersFireOnTheirTickAcrossAllLevels() {
+        Random random = new Random(42);
+        // a week of one second ticks spans the first four levels
+        long[] deadlines = new long[TIMERS];
+        for (int key = 0; key < TIMERS; key++) {
+            deadlines[key] = 1 + (long) (random.nextDouble() * 7 * 24 * 3_600_000);
+        }
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long usedBefore = runtime.totalMemory() - runtime.freeMemory();
+
+        TimingWheel wheel = new TimingWheel(TICK, 0);
+        for (int key = 0; key < TIMERS; key++) {
+            wheel.schedule(key, deadlines[key]);
+        }
+
+        System.gc();
+        long usedAfter = runtime.totalMemory() - runtime.freeMemory();
+        LOG.info("{} pending timers take about {} bytes each", TIMERS, (usedAfter - usedBefore) / TIMERS);
+        assertThat(wheel.size()).isEqualTo(TIMERS);
+
+        Map<Long, Long> dueTicks = new HashMap<>();
+        for (int key = 0; key < TIMERS; key++) {
+            dueTicks.put((long) key, (deadlines[key] + TICK - 1) / TICK);
+        }
+        long now = 0;
+        long fired = 0;
+        while (!dueTicks.isEmpty()) {
+            long previous = now;
+            now += random.nextInt(1_000) * TICK;
+            for (long key : advance(wheel, now)) {
+                long dueTick = dueTicks.remove(key);
+                assertThat(dueTick).as("tick of timer %d", key).isGreaterThan(previous / TICK).isLessThanOrEqualTo(now / TICK);
+                fired++;
+            }
+        }
+        assertThat(fired).isEqualTo(TIMERS);
+        assertThat(wheel.size()).isZero();
+    }
+
+    private static List<Long> advance(TimingWheel wheel, long nowMillis) {
+        List<Long> expired = new ArrayList<>();
+        wheel.advance(nowMillis, expired::add);
+        return expired;
+    }
+}
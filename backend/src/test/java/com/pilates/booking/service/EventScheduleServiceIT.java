@@ -0,0 +1,188 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.config.ApplicationProperties;
+import com.pilates.booking.config.SqlStatementRecorder;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.service.EventScheduleService.Progress;
+import com.pilates.booking.service.dto.EventScheduleDTO;
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+/**
+ * Integration tests for the {@link EventScheduleService}.
+ */
+@IntegrationTest
+@Import(SqlStatementRecorder.class)
+class EventScheduleServiceIT {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EventScheduleServiceIT.class);
+
+    private static final String SEED = "event-schedule";
+
+    // far enough ahead for the reminders to stay out of the way
+    private static final LocalDate TERM_START = LocalDate.of(2032, 1, 5);
+
+    @Autowired
+    private EventScheduleService eventScheduleService;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @AfterEach
+    void cleanup() {
+        template.getDatabaseClient().sql("DELETE FROM event WHERE coach_name LIKE '" + SEED + "-%'").fetch().rowsUpdated().block();
+    }
+
+    @Test
+    void assertThatTimetableIsInsertedAChunkOfRowsPerStatement() {
+        // 10 classes a day, every day, over 18 weeks
+        EventScheduleDTO schedule = createSchedule(TERM_START, TERM_START.plusWeeks(18).minusDays(1), 10, 1);
+        int total = 18 * 7 * 10;
+
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        List<Progress> progress = eventScheduleService
+            .publish(schedule)
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .collectList()
+            .block(Duration.ofMinutes(1));
+
+        int chunkSize = applicationProperties.getBatchSave().getChunkSize();
+        int chunks = (total + chunkSize - 1) / chunkSize;
+        assertThat(progress).hasSize(chunks).last().isEqualTo(new Progress(total, total));
+        // the events already planned over the term, then the inserts, each preceded by the draw of its ids
+        assertThat(statements).hasSize(1 + 2 * chunks);
+        assertThat(statements.subList(1, statements.size())).filteredOn(sql -> sql.startsWith("INSERT INTO event")).hasSize(chunks);
+        assertThat(countSeeded()).isEqualTo(total);
+    }
+
+    @Test
+    void assertThatOverlappingSlotsAreRejectedBeforeAnyInsert() {
+        // two coaches giving their class at the same time in the same studio
+        EventScheduleDTO schedule = createSchedule(TERM_START, TERM_START.plusWeeks(4), 1, 2);
+        Long studioId = template
+            .getDatabaseClient()
+            .sql("INSERT INTO studio (name) VALUES ('" + SEED + "') RETURNING id")
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .block();
+        schedule.getSlots().forEach(slot -> slot.setStudioId(studioId));
+
+        try {
+            assertThatThrownBy(() -> eventScheduleService.publish(schedule).blockLast())
+                .isInstanceOf(ResponseStatusException.class)
+                .satisfies(e -> assertThat(((ResponseStatusException) e).getStatusCode()).isEqualTo(HttpStatus.CONFLICT))
+                .hasMessageContaining("studio " + studioId);
+            assertThat(countSeeded()).isZero();
+        } finally {
+            template.getDatabaseClient().sql("DELETE FROM studio WHERE id = " + studioId).fetch().rowsUpdated().block();
+        }
+    }
+
+    @Test
+    void assertThatExpandedEventsSkipTheExceptions() {
+        EventScheduleDTO schedule = createSchedule(TERM_START, TERM_START.plusDays(13), 1, 1);
+        schedule.getSlots().get(0).setDaysOfWeek(EnumSet.of(DayOfWeek.MONDAY, DayOfWeek.WEDNESDAY));
+        schedule.getExceptions().add(TERM_START.plusDays(2));
+
+        List<Event> events = eventScheduleService.expand(schedule);
+
+        assertThat(events)
+            .extracting(event -> event.getStartAt().toLocalDate())
+            .containsExactly(TERM_START, TERM_START.plusDays(7), TERM_START.plusDays(9));
+        assertThat(events).allMatch(event -> event.getId() == null && "OPEN".equals(event.getStatus()));
+    }
+
+    /**
+     * A 6 months timetable of about 5,000 events, published at once then saved one event at a time as through
+     * {@code POST /api/events}. Run with {@code -Dbenchmark.schedule=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.schedule", matches = "true")
+    void benchmarkSixMonthsTimetable() {
+        // 27 classes a day over 26 weeks
+        EventScheduleDTO schedule = createSchedule(TERM_START, TERM_START.plusWeeks(26).minusDays(1), 9, 3);
+        int total = eventScheduleService.expand(schedule).size();
+
+        long start = System.nanoTime();
+        eventScheduleService.publish(schedule).blockLast(Duration.ofMinutes(5));
+        long published = System.nanoTime() - start;
+        assertThat(countSeeded()).isEqualTo(total);
+        cleanup();
+
+        start = System.nanoTime();
+        Flux.fromIterable(eventScheduleService.expand(schedule)).concatMap(eventService::save).blockLast(Duration.ofMinutes(30));
+        long saved = System.nanoTime() - start;
+        assertThat(countSeeded()).isEqualTo(total);
+
+        LOG.info(
+            "{} events: published in {} ms, saved one at a time in {} ms",
+            total,
+            TimeUnit.NANOSECONDS.toMillis(published),
+            TimeUnit.NANOSECONDS.toMillis(saved)
+        );
+        assertThat(published).isLessThan(saved);
+    }
+
+    /**
+     * A timetable of classes of an hour every day, one hour apart for each of the {@code coaches}, who all start
+     * at 7:00.
+     */
+    private static EventScheduleDTO createSchedule(LocalDate startDate, LocalDate endDate, int classesPerCoach, int coaches) {
+        EventScheduleDTO schedule = new EventScheduleDTO();
+        schedule.setStartDate(startDate);
+        schedule.setEndDate(endDate);
+        schedule.setTimeZone(ZoneOffset.UTC);
+        List<EventScheduleDTO.Slot> slots = new ArrayList<>();
+        for (int coach = 0; coach < coaches; coach++) {
+            for (int i = 0; i < classesPerCoach; i++) {
+                EventScheduleDTO.Slot slot = new EventScheduleDTO.Slot();
+                slot.setDaysOfWeek(EnumSet.allOf(DayOfWeek.class));
+                slot.setStartTime(LocalTime.of(7 + i, 0));
+                slot.setDuration(Duration.ofHours(1));
+                slot.setCoachName(SEED + "-" + coach);
+                slot.setCapacity(12);
+                slots.add(slot);
+            }
+        }
+        schedule.setSlots(slots);
+        return schedule;
+    }
+
+    private long countSeeded() {
+        return template
+            .getDatabaseClient()
+            .sql("SELECT count(*) FROM event WHERE coach_name LIKE '" + SEED + "-%'")
+            .map(row -> row.get(0, Long.class))
+            .one()
+            .block();
+    }
+}
@@ -0,0 +1,306 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.config.SqlStatementRecorder;
+import com.pilates.booking.domain.BalanceEntry;
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.BalanceEntryRepository;
+import com.pilates.booking.repository.BookingRepository;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.security.AuthoritiesConstants;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.ReactiveTransactionManager;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Integration tests for the bulk cancellation and the bookings count reconciliation of {@link EventService}.
+ */
+@IntegrationTest
+@Import(SqlStatementRecorder.class)
+class EventServiceIT {
+
+    private static final String SEED = "event-cancellation";
+
+    private static final int LARGE_EVENT_BOOKINGS = 300;
+
+    private static final long PENALTY_CENTS = 500L;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private BalanceEntryRepository balanceEntryRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ReactiveTransactionManager transactionManager;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    @MockitoBean
+    private MailService mailService;
+
+    private User user;
+
+    @BeforeEach
+    void setup() {
+        user = userRepository.findOneByLogin("user").block();
+    }
+
+    @AfterEach
+    void cleanup() {
+        execute("DELETE FROM balance_entry WHERE booking_id IN (SELECT b.id FROM booking b JOIN event e ON e.id = b.event_id WHERE e.coach_name = '" + SEED + "')");
+        execute("DELETE FROM booking WHERE event_id IN (SELECT id FROM event WHERE coach_name = '" + SEED + "')");
+        execute("DELETE FROM event WHERE coach_name = '" + SEED + "'");
+        execute("DELETE FROM jhi_user WHERE login LIKE '" + SEED + "-%'");
+    }
+
+    @Test
+    void assertThatCancellationCostsTheSameStatementsWhateverTheNumberOfBookings() {
+        Event smallEvent = saveEvent(3);
+        seedBookings(smallEvent, 3);
+        Event largeEvent = saveEvent(LARGE_EVENT_BOOKINGS);
+        seedBookings(largeEvent, LARGE_EVENT_BOOKINGS);
+
+        List<String> smallStatements = cancelRecordingStatements(smallEvent);
+        List<String> largeStatements = cancelRecordingStatements(largeEvent);
+
+        // lock the event, cancel its bookings, refund the penalties, then read the members to mail
+        assertThat(largeStatements).hasSize(4).hasSameSizeAs(smallStatements);
+        assertThat(bookingRepository.findAllByEventId(largeEvent.getId()).collectList().block())
+            .hasSize(LARGE_EVENT_BOOKINGS)
+            .allMatch(booking -> "CANCELLED".equals(booking.getStatus()) && booking.getCancelledAt() != null);
+        Event cancelled = eventRepository.findById(largeEvent.getId()).block();
+        assertThat(cancelled.getStatus()).isEqualTo("CANCELLED");
+        assertThat(cancelled.getBookingsCount()).isZero();
+        verify(mailService).sendEventCancelledMail(argThat(users -> users.size() == LARGE_EVENT_BOOKINGS), any(Event.class));
+    }
+
+    @Test
+    void assertThatPenaltiesAreRefundedOnceAndNoneIsCharged() {
+        Event event = saveEvent(2);
+        Booking booked = saveBooking(event, "BOOKED");
+        Booking lateCancelled = saveBooking(event, "CANCELLED");
+        // charged when the member cancelled within the penalty window, before the event itself was cancelled
+        balanceEntryRepository.adjustBalance(user.getId(), -PENALTY_CENTS, "LATE_CANCELLATION", lateCancelled.getId(), Instant.now()).block();
+        long balanceBefore = userRepository.findById(user.getId()).block().getBalanceCents();
+
+        eventService.cancel(event.getId()).block();
+        // cancelling again changes nothing
+        eventService.cancel(event.getId()).block();
+
+        assertThat(userRepository.findById(user.getId()).block().getBalanceCents()).isEqualTo(balanceBefore + PENALTY_CENTS);
+        List<BalanceEntry> refunds = balanceEntryRepository
+            .findAllByUserIdInOrderByUserIdAscIdAsc(List.of(user.getId()))
+            .filter(entry -> "EVENT_CANCELLED".equals(entry.getReason()))
+            .collectList()
+            .block();
+        assertThat(refunds).singleElement().satisfies(refund -> {
+            assertThat(refund.getBookingId()).isEqualTo(lateCancelled.getId());
+            assertThat(refund.getAmountCents()).isEqualTo(PENALTY_CENTS);
+        });
+        assertThat(bookingRepository.findById(booked.getId()).block().getStatus()).isEqualTo("CANCELLED");
+        // the booking cancelled before keeps its own cancellation date
+        assertThat(bookingRepository.findById(lateCancelled.getId()).block().getCancelledAt()).isBefore(ZonedDateTime.now().minusMinutes(30));
+    }
+
+    @Test
+    void assertThatEventWithoutBookingsIsCancelledWithoutMail() {
+        Event event = saveEvent(10);
+
+        Event cancelled = eventService.cancel(event.getId()).block();
+
+        assertThat(cancelled.getStatus()).isEqualTo("CANCELLED");
+        verify(mailService, never()).sendEventCancelledMail(any(), any());
+    }
+
+    @Test
+    void assertThatUnknownEventIsNotCancelled() {
+        assertThat(eventService.cancel(Long.MAX_VALUE).blockOptional()).isEmpty();
+    }
+
+    @Test
+    void assertThatCancelledEventCannotBeBooked() {
+        Event event = saveEvent(2);
+        saveBooking(event, "BOOKED");
+        eventService.cancel(event.getId()).block();
+
+        Booking booking = new Booking().userId(user.getId()).eventId(event.getId());
+        assertThatThrownBy(() -> asAdmin(bookingService.save(booking)).block()).isInstanceOfSatisfying(
+            ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT)
+        );
+        assertThat(bookingRepository.findAllByEventId(event.getId()).collectList().block()).allMatch(b ->
+            "CANCELLED".equals(b.getStatus())
+        );
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isZero();
+    }
+
+    @Test
+    void assertThatBookingOfCancelledEventCannotBeRestored() {
+        Event event = saveEvent(2);
+        Booking booked = saveBooking(event, "BOOKED");
+        eventService.cancel(event.getId()).block();
+
+        Booking restore = new Booking().id(booked.getId()).status("BOOKED");
+        assertThatThrownBy(() -> asAdmin(bookingService.partialUpdate(restore)).block()).isInstanceOfSatisfying(
+            ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT)
+        );
+        Booking cancelled = bookingRepository.findById(booked.getId()).block();
+        assertThat(cancelled.getStatus()).isEqualTo("CANCELLED");
+        cancelled.setStatus("FULL");
+        assertThatThrownBy(() -> asAdmin(bookingService.update(cancelled)).block()).isInstanceOfSatisfying(
+            ResponseStatusException.class,
+            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT)
+        );
+        assertThat(bookingRepository.findById(booked.getId()).block().getStatus()).isEqualTo("CANCELLED");
+    }
+
+    @Test
+    void assertThatWaitlistOfCancelledEventIsNotPromoted() {
+        Event event = saveEvent(1);
+        eventService.cancel(event.getId()).block();
+        // a waiting booking left on the cancelled event
+        saveBooking(event, "FULL");
+
+        assertThat(bookingRepository.promoteNextOnWaitlist(event.getId()).blockOptional()).isEmpty();
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isZero();
+    }
+
+    @Test
+    void assertThatReconciliationRacingAReservationDoesNotLoseItsSeat() throws Exception {
+        Event event = saveEvent(10);
+        // written without the booking service: the stored count drifted
+        saveBooking(event, "BOOKED");
+        Booking booking = new Booking().createdAt(ZonedDateTime.now()).userId(user.getId()).eventId(event.getId());
+        CountDownLatch reserved = new CountDownLatch(1);
+        Sinks.Empty<Void> commit = Sinks.empty();
+        CompletableFuture<Booking> reservation = TransactionalOperator.create(transactionManager)
+            .transactional(
+                eventRepository
+                    .findByIdForUpdate(event.getId())
+                    .then(bookingRepository.insertIfSeatAvailable(booking))
+                    .doOnNext(inserted -> reserved.countDown())
+                    .flatMap(inserted -> commit.asMono().thenReturn(inserted))
+            )
+            .toFuture();
+        assertThat(reserved.await(10, TimeUnit.SECONDS)).isTrue();
+
+        CompletableFuture<Long> reconciliation = eventService.reconcileBookingsCounts().toFuture();
+        awaitLockWaiter();
+        commit.tryEmitEmpty();
+
+        assertThat(reservation.get(10, TimeUnit.SECONDS).getStatus()).isEqualTo("BOOKED");
+        assertThat(reconciliation.get(10, TimeUnit.SECONDS)).isPositive();
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(2);
+    }
+
+    // the reconciliation waits on the event row lock held by the reservation
+    private void awaitLockWaiter() throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Long waiting = template
+                .getDatabaseClient()
+                .sql("SELECT count(*) AS waiting FROM pg_stat_activity WHERE wait_event_type = 'Lock'")
+                .map(row -> row.get("waiting", Long.class))
+                .one()
+                .block();
+            if (waiting > 0) {
+                return;
+            }
+            Thread.sleep(100);
+        }
+        throw new AssertionError("The reconciliation never waited on the event lock");
+    }
+
+    private <T> Mono<T> asAdmin(Mono<T> call) {
+        return call.contextWrite(
+            ReactiveSecurityContextHolder.withAuthentication(
+                new UsernamePasswordAuthenticationToken("admin", "admin", List.of(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)))
+            )
+        );
+    }
+
+    private List<String> cancelRecordingStatements(Event event) {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        eventService.cancel(event.getId()).contextWrite(SqlStatementRecorder.recordInto(statements)).block(Duration.ofMinutes(1));
+        return statements;
+    }
+
+    private Event saveEvent(int capacity) {
+        ZonedDateTime start = ZonedDateTime.now().plusHours(6);
+        return eventRepository
+            .save(new Event().coachName(SEED).startAt(start).endAt(start.plusHours(1)).capacity(capacity).status("OPEN"))
+            .block();
+    }
+
+    private Booking saveBooking(Event event, String status) {
+        Booking booking = new Booking().status(status).createdAt(ZonedDateTime.now()).userId(user.getId()).eventId(event.getId());
+        if ("CANCELLED".equals(status)) {
+            booking.setCancelledAt(ZonedDateTime.now().minusHours(1));
+        }
+        return bookingRepository.save(booking).block();
+    }
+
+    /**
+     * One member per booking, every other one on the waitlist.
+     */
+    private void seedBookings(Event event, int count) {
+        String login = SEED + "-" + event.getId() + "-";
+        execute(
+            "WITH members AS (INSERT INTO jhi_user (login, email, created_by, activated) " +
+            "SELECT '" + login + "' || g, '" + login + "' || g || '@localhost', 'system', true " +
+            "FROM generate_series(1, " + count + ") g RETURNING id) " +
+            "INSERT INTO booking (status, created_at, user_id, event_id) " +
+            "SELECT CASE WHEN id % 2 = 0 THEN 'FULL' ELSE 'BOOKED' END, localtimestamp, id, " + event.getId() + " FROM members"
+        );
+    }
+
+    private void execute(String sql) {
+        template.getDatabaseClient().sql(sql).fetch().rowsUpdated().block();
+    }
+}
@@ -0,0 +1,156 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.repository.IdempotencyRecordRepository;
+import com.pilates.booking.security.AuthoritiesConstants;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Integration tests for {@link IdempotencyService}.
+ */
+@IntegrationTest
+class IdempotencyServiceIT {
+
+    private static final String LOGIN = "admin";
+
+    private static final String SCOPE = "POST /api/bookings";
+
+    @Autowired
+    private IdempotencyService idempotencyService;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    private final AtomicInteger executions = new AtomicInteger();
+
+    @AfterEach
+    void cleanup() {
+        idempotencyRecordRepository.deleteAll().block();
+    }
+
+    @Test
+    void assertThatConcurrentRequestsWithTheSameKeyRunOnce() {
+        String key = UUID.randomUUID().toString();
+        Booking request = new Booking().eventId(1L);
+
+        List<ResponseEntity<Booking>> responses = Flux.range(0, 20)
+            .flatMap(i -> execute(key, request, () -> created(42L).delayElement(Duration.ofMillis(200))))
+            .collectList()
+            .block(Duration.ofSeconds(10));
+
+        assertThat(executions).hasValue(1);
+        assertThat(responses).hasSize(20).allMatch(response -> response.getBody().getId() == 42L);
+        assertThat(responses)
+            .filteredOn(response -> response.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER))
+            .hasSize(19);
+    }
+
+    @Test
+    void assertThatReplayReturnsTheStoredResponse() {
+        String key = UUID.randomUUID().toString();
+        Booking request = new Booking().eventId(1L);
+
+        ResponseEntity<Booking> first = execute(key, request, () -> created(42L)).block();
+        ResponseEntity<Booking> replayed = execute(key, request, () -> created(43L)).block();
+
+        assertThat(executions).hasValue(1);
+        assertThat(first.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+        assertThat(replayed.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(replayed.getHeaders().getLocation()).isEqualTo(first.getHeaders().getLocation());
+        assertThat(replayed.getBody().getId()).isEqualTo(42L);
+        assertThat(idempotencyRecordRepository.findById(IdempotencyService.recordId(LOGIN, SCOPE, key)).block().getResponseStatus()).isEqualTo(
+            201
+        );
+    }
+
+    @Test
+    void assertThatKeyReusedForAnotherRequestIsRejected() {
+        String key = UUID.randomUUID().toString();
+
+        execute(key, new Booking().eventId(1L), () -> created(42L)).block();
+
+        assertThatThrownBy(() -> execute(key, new Booking().eventId(2L), () -> created(43L)).block())
+            .isInstanceOfSatisfying(ResponseStatusException.class, e ->
+                assertThat(e.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+            );
+        assertThat(executions).hasValue(1);
+    }
+
+    @Test
+    void assertThatKeyInProgressOnAnotherNodeIsRejected() {
+        String key = UUID.randomUUID().toString();
+        Booking request = new Booking().eventId(1L);
+        Instant now = Instant.now();
+        // claimed by another node, which has not answered yet
+        idempotencyRecordRepository.claim(IdempotencyService.recordId(LOGIN, SCOPE, key), "other", now, now.plusSeconds(60)).block();
+
+        assertThatThrownBy(() -> execute(key, request, () -> created(42L)).block())
+            .isInstanceOfSatisfying(ResponseStatusException.class, e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.CONFLICT));
+        assertThat(executions).hasValue(0);
+    }
+
+    @Test
+    void assertThatFailedRequestCanBeRetriedWithTheSameKey() {
+        String key = UUID.randomUUID().toString();
+        Booking request = new Booking().eventId(1L);
+
+        assertThatThrownBy(() ->
+            execute(key, request, () -> Mono.error(new ResponseStatusException(HttpStatus.CONFLICT, "Event is full"))).block()
+        ).isInstanceOf(ResponseStatusException.class);
+        ResponseEntity<Booking> retried = execute(key, request, () -> created(42L)).block();
+
+        assertThat(executions).hasValue(2);
+        assertThat(retried.getBody().getId()).isEqualTo(42L);
+        assertThat(retried.getHeaders().containsKey(IdempotencyService.REPLAYED_HEADER)).isFalse();
+    }
+
+    @Test
+    void assertThatExpiredRecordsAreRemoved() {
+        Instant past = Instant.now().minusSeconds(60);
+        idempotencyRecordRepository.claim("expired", "hash", past.minusSeconds(60), past).block();
+
+        idempotencyService.removeExpiredRecords();
+
+        assertThat(idempotencyRecordRepository.findById("expired").block()).isNull();
+    }
+
+    private Mono<ResponseEntity<Booking>> execute(String key, Booking request, Supplier<Mono<ResponseEntity<Booking>>> action) {
+        return idempotencyService
+            .execute(key, SCOPE, request, Booking.class, () -> {
+                executions.incrementAndGet();
+                return action.get();
+            })
+            .contextWrite(
+                ReactiveSecurityContextHolder.withAuthentication(
+                    new UsernamePasswordAuthenticationToken(LOGIN, LOGIN, List.of(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)))
+                )
+            );
+    }
+
+    private static Mono<ResponseEntity<Booking>> created(Long id) {
+        return Mono.fromSupplier(() ->
+            ResponseEntity.status(HttpStatus.CREATED).header("Location", "/api/bookings/" + id).body(new Booking().id(id))
+        );
+    }
+}
@@ -5,6 +5,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.config.ApplicationProperties;
 import com.pilates.booking.config.Constants;
 import com.pilates.booking.domain.User;
 import jakarta.mail.Multipart;
@@ -18,7 +19,10 @@ import java.net.URL;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.junit.jupiter.api.BeforeEach;
@@ -29,6 +33,8 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import tech.jhipster.config.JHipsterProperties;
 
 /**
@@ -40,12 +46,16 @@ class MailServiceIT {
     private static final String[] languages = {
         // jhipster-needle-i18n-language-constant - JHipster will add/remove languages in this array
     };
+    private static final long SEND_TIMEOUT = 5000;
     private static final Pattern PATTERN_LOCALE_3 = Pattern.compile("([a-z]{2})-([a-zA-Z]{4})-([a-z]{2})");
     private static final Pattern PATTERN_LOCALE_2 = Pattern.compile("([a-z]{2})-([a-z]{2})");
 
     @Autowired
     private JHipsterProperties jHipsterProperties;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     @MockitoBean
     private JavaMailSender javaMailSender;
 
@@ -64,7 +74,7 @@ class MailServiceIT {
     @Test
     void testSendEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
@@ -77,7 +87,7 @@ class MailServiceIT {
     @Test
     void testSendHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, true);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("testSubject");
         assertThat(message.getAllRecipients()[0]).hasToString("john.doe@example.com");
@@ -90,7 +100,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, false);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
@@ -107,7 +117,7 @@ class MailServiceIT {
     @Test
     void testSendMultipartHtmlEmail() throws Exception {
         mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", true, true);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         MimeMultipart mp = (MimeMultipart) message.getContent();
         MimeBodyPart part = (MimeBodyPart) ((MimeMultipart) mp.getBodyPart(0).getContent()).getBodyPart(0);
@@ -128,7 +138,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getSubject()).isEqualTo("test title");
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
@@ -144,7 +154,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendActivationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -159,7 +169,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendCreationEmail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -174,7 +184,7 @@ class MailServiceIT {
         user.setLogin("john");
         user.setEmail("john.doe@example.com");
         mailService.sendPasswordResetMail(user);
-        verify(javaMailSender).send(messageCaptor.capture());
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
         MimeMessage message = messageCaptor.getValue();
         assertThat(message.getAllRecipients()[0]).hasToString(user.getEmail());
         assertThat(message.getFrom()[0]).hasToString(jHipsterProperties.getMail().getFrom());
@@ -190,6 +200,80 @@ class MailServiceIT {
         } catch (Exception e) {
             fail("Exception shouldn't have been thrown");
         }
+        verify(javaMailSender, timeout(SEND_TIMEOUT).times(applicationProperties.getMail().getMaxAttempts())).send(any(MimeMessage.class));
+    }
+
+    @Test
+    void testSendEmailAfterAnErrorWhileRendering() throws Exception {
+        // not an Exception: escapes the rendering of the job
+        when(javaMailSender.createMimeMessage()).thenThrow(new AssertionError("rendering failed"));
+        mailService.sendEmail("john.doe@example.com", "testSubject", "testContent", false, false);
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).createMimeMessage();
+
+        doReturn(new MimeMessage((Session) null)).when(javaMailSender).createMimeMessage();
+        mailService.sendEmail("jane.doe@example.com", "testSubject", "testContent", false, false);
+
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
+        assertThat(messageCaptor.getValue().getAllRecipients()[0]).hasToString("jane.doe@example.com");
+    }
+
+    @Test
+    void testSendEmailDoesNotBlockTheCaller() throws Exception {
+        User user = new User();
+        user.setLangKey(Constants.DEFAULT_LANGUAGE);
+        user.setLogin("john");
+        user.setEmail("john.doe@example.com");
+        // BlockHound fails any blocking call made on a non-blocking thread, such as the parallel ones
+        Mono.fromRunnable(() -> mailService.sendActivationEmail(user)).subscribeOn(Schedulers.parallel()).block();
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(messageCaptor.capture());
+        assertThat(messageCaptor.getValue().getAllRecipients()[0]).hasToString(user.getEmail());
+    }
+
+    @Test
+    void testSendEmailsInOneSession() throws Exception {
+        for (int i = 0; i < applicationProperties.getMail().getBatchSize(); i++) {
+            mailService.sendEmail("john.doe" + i + "@example.com", "testSubject", "testContent", false, false);
+        }
+        verify(javaMailSender, timeout(SEND_TIMEOUT).atLeastOnce()).send(any(MimeMessage[].class));
+    }
+
+    @Test
+    void testSendEmailFromTemplateToSeveralUsers() throws Exception {
+        when(javaMailSender.createMimeMessage()).thenAnswer(invocation -> new MimeMessage((Session) null));
+        List<MimeMessage> sent = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            for (Object message : invocation.getArguments()) {
+                sent.add((MimeMessage) message);
+            }
+            return null;
+        })
+            .when(javaMailSender)
+            .send(any(MimeMessage[].class));
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User();
+            user.setLangKey(Constants.DEFAULT_LANGUAGE);
+            user.setLogin("john" + i);
+            user.setEmail("john.doe" + i + "@example.com");
+            users.add(user);
+        }
+        User withoutEmail = new User();
+        withoutEmail.setLangKey(Constants.DEFAULT_LANGUAGE);
+        withoutEmail.setLogin("jane");
+        users.add(withoutEmail);
+
+        mailService.sendEmailFromTemplate(users, "mail/testEmail", "email.test.title");
+
+        verify(javaMailSender, timeout(SEND_TIMEOUT)).send(any(MimeMessage[].class));
+        assertThat(sent).hasSize(3);
+        for (int i = 0; i < 3; i++) {
+            MimeMessage message = sent.get(i);
+            assertThat(message.getSubject()).isEqualTo("test title");
+            assertThat(message.getAllRecipients()[0]).hasToString("john.doe" + i + "@example.com");
+            assertThat(message.getContent().toString()).isEqualToNormalizingNewlines(
+                "<html>test title, http://127.0.0.1:8080, john" + i + "</html>\n"
+            );
+        }
     }
 
     @Test
@@ -200,7 +284,7 @@ class MailServiceIT {
         for (String langKey : languages) {
             user.setLangKey(langKey);
             mailService.sendEmailFromTemplate(user, "mail/testEmail", "email.test.title");
-            verify(javaMailSender, atLeastOnce()).send(messageCaptor.capture());
+            verify(javaMailSender, timeout(SEND_TIMEOUT).atLeastOnce()).send(messageCaptor.capture());
             MimeMessage message = messageCaptor.getValue();
 
             String propertyFilePath = "i18n/messages_" + getMessageSourceSuffixForLanguage(langKey) + ".properties";
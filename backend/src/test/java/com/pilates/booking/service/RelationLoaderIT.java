@@ -0,0 +1,261 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.config.SqlStatementRecorder;
+import com.pilates.booking.domain.Booking;
+import com.pilates.booking.domain.ClassSession;
+import com.pilates.booking.domain.ClassType;
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.domain.Studio;
+import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.BookingRepository;
+import com.pilates.booking.repository.ClassSessionRepository;
+import com.pilates.booking.repository.ClassTypeRepository;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.FieldSet;
+import com.pilates.booking.repository.StudioRepository;
+import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.security.AuthoritiesConstants;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
+import reactor.core.publisher.Flux;
+
+/**
+ * Integration tests for the {@link RelationLoader}, counting the statements run to read a page and its relationships.
+ */
+@IntegrationTest
+@Import(SqlStatementRecorder.class)
+class RelationLoaderIT {
+
+    private static final String SEED = "relation-loader";
+
+    // far away from the events of the other tests
+    private static final ZonedDateTime FIRST_START = ZonedDateTime.of(2041, 1, 7, 8, 0, 0, 0, ZoneOffset.UTC);
+
+    private static final int EVENTS = 30;
+
+    @Autowired
+    private RelationLoader relationLoader;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private ClassSessionService classSessionService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private EventRepository eventRepository;
+
+    @Autowired
+    private ClassSessionRepository classSessionRepository;
+
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private StudioRepository studioRepository;
+
+    @Autowired
+    private ClassTypeRepository classTypeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
+    private List<Studio> studios;
+
+    private List<ClassType> classTypes;
+
+    private List<Event> events;
+
+    @BeforeEach
+    void seed() {
+        studios = Flux.range(0, 3)
+            .concatMap(i -> studioRepository.save(new Studio().name(SEED + "-" + i)))
+            .collectList()
+            .block();
+        classTypes = Flux.range(0, 2)
+            .concatMap(i -> classTypeRepository.save(new ClassType().name(SEED + "-" + i)))
+            .collectList()
+            .block();
+        // the events of a week cycle through a few studios and class types
+        events = Flux.range(0, EVENTS)
+            .concatMap(i ->
+                eventRepository.save(
+                    new Event()
+                        .coachName(SEED)
+                        .startAt(FIRST_START.plusHours(i))
+                        .endAt(FIRST_START.plusHours(i).plusMinutes(50))
+                        .capacity(10)
+                        .status("OPEN")
+                        .studioId(studios.get(i % studios.size()).getId())
+                        .classTypeId(classTypes.get(i % classTypes.size()).getId())
+                )
+            )
+            .collectList()
+            .block();
+    }
+
+    @AfterEach
+    void cleanup() {
+        execute("DELETE FROM booking WHERE event_id IN (SELECT id FROM event WHERE coach_name = '" + SEED + "')");
+        execute("DELETE FROM event WHERE coach_name = '" + SEED + "'");
+        execute("DELETE FROM class_session WHERE coach_name = '" + SEED + "'");
+        execute("DELETE FROM studio WHERE name LIKE '" + SEED + "-%'");
+        execute("DELETE FROM class_type WHERE name LIKE '" + SEED + "-%'");
+    }
+
+    @Test
+    void assertThatAPageOfEventsReadsEachRelatedTableOnce() {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        List<Event> page = eventService
+            .findAll(FIRST_START.minusSeconds(1), 0L, EVENTS)
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .collectList()
+            .block();
+
+        assertThat(page).extracting(Event::getId).containsExactlyElementsOf(events.stream().map(Event::getId).toList());
+        assertThat(page).allSatisfy(event -> {
+            assertThat(event.getStudio().getId()).isEqualTo(event.getStudioId());
+            assertThat(event.getClassType().getId()).isEqualTo(event.getClassTypeId());
+        });
+        // the events, then their studios and class types
+        List<String> selects = selects(statements);
+        assertThat(selects).hasSize(3);
+        assertThat(selects.get(0)).contains("FROM event").doesNotContain("JOIN");
+        assertThat(selects.get(1)).contains("FROM studio").contains("IN (");
+        assertThat(selects.get(2)).contains("FROM class_type").contains("IN (");
+    }
+
+    @Test
+    void assertThatRelatedEntitiesAreReadOncePerScope() {
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        Event middle = events.get(EVENTS / 2 - 1);
+
+        Flux.concat(
+            eventService.findAll(FIRST_START.minusSeconds(1), 0L, EVENTS / 2),
+            eventService.findAll(middle.getStartAt(), middle.getId(), EVENTS / 2)
+        )
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .contextWrite(RelationLoader::withScope)
+            .blockLast();
+
+        // the second page meets the same studios and class types as the first one
+        assertThat(selects(statements)).hasSize(4);
+    }
+
+    @Test
+    void assertThatBatchesOnlyReadTheIdsNotReadYet() {
+        RelationLoader loader = new RelationLoader(eventRepository, studioRepository, classTypeRepository, 10, Duration.ofMillis(10));
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+        List<Event> unloaded = new ArrayList<>(events);
+        unloaded.add(new Event().studioId(Long.MAX_VALUE));
+        unloaded.add(new Event());
+
+        List<Event> loaded = loader
+            .loadStudios(Flux.fromIterable(unloaded), Event::getStudioId, Event::setStudio)
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .collectList()
+            .block();
+
+        assertThat(loaded).hasSize(EVENTS + 2);
+        assertThat(loaded.subList(0, EVENTS)).allMatch(event -> event.getStudio().getName().startsWith(SEED));
+        assertThat(loaded.subList(EVENTS, EVENTS + 2)).allMatch(event -> event.getStudio() == null);
+        assertThat(loaded.get(EVENTS).getStudioId()).isEqualTo(Long.MAX_VALUE);
+        // the first batch reads all the studios, the last one the missing studio only
+        assertThat(selects(statements)).hasSize(2);
+    }
+
+    @Test
+    void assertThatOnlyTheRequestedRelationshipsOfClassSessionsAreRead() {
+        Flux.range(0, 10)
+            .concatMap(i ->
+                classSessionRepository.save(
+                    new ClassSession()
+                        .coachName(SEED)
+                        .startAt(FIRST_START.plusHours(i))
+                        .endAt(FIRST_START.plusHours(i).plusMinutes(50))
+                        .capacity(10)
+                        .studioId(studios.get(i % studios.size()).getId())
+                        .classTypeId(classTypes.get(i % classTypes.size()).getId())
+                )
+            )
+            .blockLast();
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        List<ClassSession> page = classSessionService
+            .findAll(FIRST_START.minusSeconds(1), 0L, 10, FieldSet.of(List.of("coachName", "studio")))
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .collectList()
+            .block();
+
+        assertThat(page).hasSize(10).allMatch(session -> session.getStudio() != null && session.getClassType() == null);
+        List<String> selects = selects(statements);
+        assertThat(selects).hasSize(2);
+        assertThat(selects.get(0)).contains("FROM class_session").doesNotContain("JOIN");
+        assertThat(selects.get(1)).contains("FROM studio");
+    }
+
+    @Test
+    void assertThatAPageOfBookingsReadsItsEventsOnce() {
+        User user = userRepository.findOneByLogin("user").block();
+        List<Booking> bookings = Flux.range(0, 20)
+            .concatMap(i ->
+                bookingRepository.save(
+                    new Booking().status("BOOKED").createdAt(ZonedDateTime.now()).userId(user.getId()).eventId(events.get(i % 2).getId())
+                )
+            )
+            .collectList()
+            .block();
+        UsernamePasswordAuthenticationToken admin = new UsernamePasswordAuthenticationToken(
+            "admin",
+            "admin",
+            List.of(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN))
+        );
+        List<String> statements = Collections.synchronizedList(new ArrayList<>());
+
+        List<Booking> page = bookingService
+            .findAll(bookings.get(0).getId() - 1, bookings.size(), FieldSet.of(List.of("status", "event")))
+            .contextWrite(SqlStatementRecorder.recordInto(statements))
+            .contextWrite(ReactiveSecurityContextHolder.withAuthentication(admin))
+            .collectList()
+            .block();
+
+        assertThat(page).extracting(Booking::getId).containsExactlyElementsOf(bookings.stream().map(Booking::getId).toList());
+        assertThat(page).allMatch(booking -> booking.getEvent().getId().equals(booking.getEventId()));
+        // the bookings, then their events
+        List<String> selects = selects(statements);
+        assertThat(selects).hasSize(2);
+        assertThat(selects.get(0)).contains("FROM booking").doesNotContain("JOIN");
+        assertThat(selects.get(1)).contains("FROM event").contains("IN (");
+    }
+
+    private static List<String> selects(List<String> statements) {
+        return statements.stream().filter(sql -> sql.startsWith("SELECT")).toList();
+    }
+
+    private void execute(String sql) {
+        template.getDatabaseClient().sql(sql).fetch().rowsUpdated().block();
+    }
+}
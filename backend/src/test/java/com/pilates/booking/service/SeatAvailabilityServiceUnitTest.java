@@ -0,0 +1,165 @@
+package com.pilates.booking.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import com.pilates.booking.domain.Event;
+import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.service.SeatAvailabilityService.SeatAvailability;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.StreamSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+/**
+ * Test class for the {@link SeatAvailabilityService}.
+ */
+class SeatAvailabilityServiceUnitTest {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SeatAvailabilityServiceUnitTest.class);
+
+    private static final int SUBSCRIBERS = 5_000;
+
+    /**
+     * Booked seats returned by the mocked repository, by event id.
+     */
+    private final Map<Long, Integer> booked = new ConcurrentHashMap<>();
+
+    private MeterRegistry meterRegistry;
+
+    private SeatAvailabilityService seatAvailabilityService;
+
+    @BeforeEach
+    void setup() {
+        EventRepository eventRepository = mock(EventRepository.class);
+        when(eventRepository.findAllById(anyIterable())).thenAnswer(invocation -> {
+            Iterable<Long> ids = invocation.getArgument(0);
+            return Flux.fromStream(
+                StreamSupport.stream(ids.spliterator(), false).map(id -> {
+                    Event event = new Event().id(id).capacity(10);
+                    event.setBookingsCount(booked.getOrDefault(id, 0));
+                    return event;
+                })
+            );
+        });
+        meterRegistry = new SimpleMeterRegistry();
+        // refreshed by hand
+        seatAvailabilityService = new SeatAvailabilityService(eventRepository, Duration.ofHours(1), meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        seatAvailabilityService.shutdown();
+    }
+
+    @Test
+    void testChangesArePushedOncePerRefresh() {
+        StepVerifier.create(seatAvailabilityService.updates(List.of()))
+            .then(() -> {
+                booked.put(1L, 3);
+                seatAvailabilityService.markChanged(1L).block();
+                seatAvailabilityService.markChanged(1L, null).block();
+                seatAvailabilityService.refresh().block();
+                // nothing changed since
+                seatAvailabilityService.refresh().block();
+            })
+            .expectNext(new SeatAvailability(1L, 10, 3, 7))
+            .expectNoEvent(Duration.ofMillis(100))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void testSubscriberOnlyGetsTheEventsItFollows() {
+        StepVerifier.create(seatAvailabilityService.updates(List.of(2L)))
+            .then(() -> {
+                seatAvailabilityService.markChanged(1L, 2L).block();
+                seatAvailabilityService.refresh().block();
+            })
+            .expectNext(new SeatAvailability(2L, 10, 0, 10))
+            .expectNoEvent(Duration.ofMillis(100))
+            .thenCancel()
+            .verify();
+    }
+
+    @Test
+    void testSlowSubscriberOnlyGetsTheLatestAvailabilityOfEachEvent() {
+        List<SeatAvailability> received = new CopyOnWriteArrayList<>();
+        BaseSubscriber<SeatAvailability> slowSubscriber = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // no demand yet
+            }
+
+            @Override
+            protected void hookOnNext(SeatAvailability availability) {
+                received.add(availability);
+            }
+        };
+        seatAvailabilityService.updates(List.of()).subscribe(slowSubscriber);
+
+        for (int seats = 1; seats <= 5; seats++) {
+            booked.put(1L, seats);
+            seatAvailabilityService.markChanged(1L, 2L).block();
+            seatAvailabilityService.refresh().block();
+        }
+        assertThat(received).isEmpty();
+
+        slowSubscriber.request(Long.MAX_VALUE);
+
+        // 10 updates were pushed, the subscriber gets at most one per event and per batch it could not keep up with
+        assertThat(received).hasSizeLessThanOrEqualTo(4);
+        assertThat(received).filteredOn(availability -> availability.eventId() == 1L).last().isEqualTo(new SeatAvailability(1L, 10, 5, 5));
+        assertThat(received).filteredOn(availability -> availability.eventId() == 2L).last().isEqualTo(new SeatAvailability(2L, 10, 0, 10));
+        slowSubscriber.dispose();
+    }
+
+    @Test
+    void testFanOutToThousandsOfSubscribers() throws InterruptedException {
+        System.gc();
+        long heapBefore = usedHeap();
+        CountDownLatch received = new CountDownLatch(SUBSCRIBERS);
+        List<Disposable> subscriptions = new ArrayList<>(SUBSCRIBERS);
+        for (int i = 0; i < SUBSCRIBERS; i++) {
+            subscriptions.add(seatAvailabilityService.updates(List.of()).subscribe(availability -> received.countDown()));
+        }
+        System.gc();
+        long heapPerSubscriber = (usedHeap() - heapBefore) / SUBSCRIBERS;
+        assertThat(meterRegistry.get("seats.subscribers").gauge().value()).isEqualTo(SUBSCRIBERS);
+
+        long start = System.nanoTime();
+        booked.put(1L, 1);
+        seatAvailabilityService.markChanged(1L).block();
+        seatAvailabilityService.refresh().block();
+        assertThat(received.await(10, TimeUnit.SECONDS)).isTrue();
+        long fanOutMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start);
+
+        LOG.info("Seat availability fan-out to {} subscribers: {} µs, ~{} bytes of heap per subscriber", SUBSCRIBERS, fanOutMicros, heapPerSubscriber);
+        subscriptions.forEach(Disposable::dispose);
+        assertThat(meterRegistry.get("seats.subscribers").gauge().value()).isZero();
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
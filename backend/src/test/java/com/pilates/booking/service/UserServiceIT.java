@@ -1,11 +1,13 @@
 package com.pilates.booking.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import com.pilates.booking.IntegrationTest;
 import com.pilates.booking.config.Constants;
 import com.pilates.booking.domain.User;
 import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.service.dto.AdminUserDTO;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
@@ -17,6 +19,9 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import reactor.core.publisher.Flux;
 import tech.jhipster.security.RandomUtil;
 
 /**
@@ -170,4 +175,14 @@ class UserServiceIT {
         Optional<User> maybeDbUser = userRepository.findById(dbUser.getId()).blockOptional();
         assertThat(maybeDbUser).contains(dbUser);
     }
+
+    @Test
+    void assertThatUnsupportedSortIsSignalledAsAnError() {
+        // the error is signalled on subscription, not thrown while the query is assembled
+        Flux<AdminUserDTO> users = userService.getAllManagedUsers(PageRequest.of(0, 10, Sort.by("password")));
+
+        assertThatThrownBy(() -> users.collectList().block())
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("password");
+    }
 }
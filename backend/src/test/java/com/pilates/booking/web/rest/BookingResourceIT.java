@@ -2,23 +2,52 @@ package com.pilates.booking.web.rest;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pilates.booking.IntegrationTest;
 import com.pilates.booking.domain.Booking;
 import com.pilates.booking.domain.Event;
 import com.pilates.booking.domain.User;
+import com.pilates.booking.repository.BalanceEntryRepository;
 import com.pilates.booking.repository.BookingRepository;
 import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.IdempotencyRecordRepository;
+import com.pilates.booking.repository.MemberBooking;
 import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.security.AuthoritiesConstants;
+import com.pilates.booking.service.BookingService;
+import com.pilates.booking.service.IdempotencyService;
+import com.pilates.booking.web.rest.util.KeysetPaginationUtil;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Integration tests for Booking business rules.
@@ -27,12 +56,21 @@ import org.springframework.test.web.reactive.server.WebTestClient;
 @AutoConfigureWebTestClient(timeout = IntegrationTest.DEFAULT_ENTITY_TIMEOUT)
 class BookingResourceIT {
 
+    private static final Logger LOG = LoggerFactory.getLogger(BookingResourceIT.class);
+
     private static final String ENTITY_API_URL = "/api/bookings";
+    private static final String MY_BOOKINGS_API_URL = ENTITY_API_URL + "/mine";
 
     private static final String STATUS_BOOKED = "BOOKED";
     private static final String STATUS_CANCELLED = "CANCELLED";
     private static final String STATUS_FULL = "FULL";
 
+    private static final int CONCURRENT_REQUESTS = 1000;
+    private static final int CONCURRENCY = 64;
+
+    private static final String HISTORY_SEED = "member-history";
+    private static final int HISTORY_BOOKINGS = 2_000;
+
     @Autowired
     private ObjectMapper om;
 
@@ -48,10 +86,24 @@ class BookingResourceIT {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private BalanceEntryRepository balanceEntryRepository;
+
+    @Autowired
+    private IdempotencyRecordRepository idempotencyRecordRepository;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private R2dbcEntityTemplate template;
+
     @AfterEach
     void cleanup() {
+        idempotencyRecordRepository.deleteAll().block();
         bookingRepository.deleteAll().block();
         eventRepository.deleteAll().block();
+        execute("DELETE FROM studio WHERE name = '" + HISTORY_SEED + "'");
     }
 
     @Test
@@ -237,8 +289,590 @@ class BookingResourceIT {
         assertThat(updatedUser.getBalanceCents()).isEqualTo(initialBalance - 500L);
     }
 
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void createBooking_retriedWithIdempotencyKey_shouldBookOnce() throws Exception {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(10, false);
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        Booking payload = new Booking();
+        payload.setUserId(user.getId());
+        payload.setEventId(event.getId());
+
+        Booking created = webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(payload))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectHeader()
+            .doesNotExist(IdempotencyService.REPLAYED_HEADER)
+            .expectBody(Booking.class)
+            .returnResult()
+            .getResponseBody();
+
+        Booking replayed = webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(payload))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectHeader()
+            .valueEquals(IdempotencyService.REPLAYED_HEADER, "true")
+            .expectHeader()
+            .location(ENTITY_API_URL + "/" + created.getId())
+            .expectBody(Booking.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(replayed.getId()).isEqualTo(created.getId());
+        assertThat(bookingRepository.countByEventIdAndStatus(event.getId(), STATUS_BOOKED).block()).isEqualTo(1L);
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void createBooking_withIdempotencyKeyOfAnotherRequest_shouldFail() throws Exception {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(10, false);
+        Event otherEvent = saveFutureEvent(10, false);
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(new Booking().userId(user.getId()).eventId(event.getId())))
+            .exchange()
+            .expectStatus()
+            .isCreated();
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(new Booking().userId(user.getId()).eventId(otherEvent.getId())))
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+
+        assertThat(bookingRepository.countByEventIdAndStatus(otherEvent.getId(), STATUS_BOOKED).block()).isZero();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void cancelBooking_retriedWithIdempotencyKey_shouldApplyPenaltyOnce() {
+        User user = getRegularUser();
+        long initialBalance = userRepository.findById(user.getId()).block().getBalanceCents();
+        Event event = saveEventFromNowHours(6, 1, false);
+        Booking booking = saveBooking(STATUS_BOOKED, ZonedDateTime.now(), user, event);
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        for (int attempt = 0; attempt < 3; attempt++) {
+            webTestClient
+                .post()
+                .uri(ENTITY_API_URL + "/" + booking.getId() + "/cancel")
+                .header(IdempotencyService.IDEMPOTENCY_KEY_HEADER, idempotencyKey)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.status")
+                .isEqualTo(STATUS_CANCELLED);
+        }
+
+        assertThat(userRepository.findById(user.getId()).block().getBalanceCents()).isEqualTo(initialBalance - 500L);
+        assertThat(balanceEntryRepository.findAllByUserIdInOrderByUserIdAscIdAsc(List.of(user.getId())).collectList().block())
+            .filteredOn(entry -> booking.getId().equals(entry.getBookingId()))
+            .hasSize(1);
+    }
+
+    @Test
+    void createBooking_concurrently_whenWaitlistClosed_shouldNeverOversell() {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(10, false);
+
+        List<Booking> created = reserveConcurrently(user, event);
+
+        assertThat(created).hasSize(10).allMatch(booking -> STATUS_BOOKED.equals(booking.getStatus()));
+        assertThat(bookingRepository.countByEventIdAndStatus(event.getId(), STATUS_BOOKED).block()).isEqualTo(10L);
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(10);
+    }
+
+    @Test
+    void createBooking_concurrently_whenWaitlistOpen_shouldWaitlistOverflow() {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(10, true);
+
+        List<Booking> created = reserveConcurrently(user, event);
+
+        assertThat(created).hasSize(CONCURRENT_REQUESTS);
+        assertThat(created).filteredOn(booking -> STATUS_BOOKED.equals(booking.getStatus())).hasSize(10);
+        assertThat(created).filteredOn(booking -> STATUS_FULL.equals(booking.getStatus())).hasSize(CONCURRENT_REQUESTS - 10);
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(10);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void cancelBooking_shouldReleaseBookedSeat() throws Exception {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(10, false);
+
+        Booking payload = new Booking();
+        payload.setUserId(user.getId());
+        payload.setEventId(event.getId());
+
+        Booking created = webTestClient
+            .post()
+            .uri(ENTITY_API_URL)
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(om.writeValueAsBytes(payload))
+            .exchange()
+            .expectStatus()
+            .isCreated()
+            .expectBody(Booking.class)
+            .returnResult()
+            .getResponseBody();
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(1);
+
+        webTestClient.post().uri(ENTITY_API_URL + "/" + created.getId() + "/cancel").exchange().expectStatus().isOk();
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isZero();
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void cancelBooking_shouldPromoteOldestWaitlistedBooking() {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(1, true);
+        ZonedDateTime now = ZonedDateTime.now();
+        Booking booked = saveBooking(STATUS_BOOKED, now.minusMinutes(3), user, event);
+        Booking oldestWaitlisted = saveBooking(STATUS_FULL, now.minusMinutes(2), user, event);
+        Booking newestWaitlisted = saveBooking(STATUS_FULL, now.minusMinutes(1), user, event);
+        eventRepository.adjustBookingsCount(event.getId(), 1).block();
+
+        webTestClient.post().uri(ENTITY_API_URL + "/" + booked.getId() + "/cancel").exchange().expectStatus().isOk();
+
+        assertThat(bookingRepository.findById(oldestWaitlisted.getId()).block().getStatus()).isEqualTo(STATUS_BOOKED);
+        assertThat(bookingRepository.findById(newestWaitlisted.getId()).block().getStatus()).isEqualTo(STATUS_FULL);
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void partialUpdateBooking_movedToAnotherEvent_shouldPromoteOldestWaitlistedBooking() throws Exception {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(1, true);
+        Event otherEvent = saveFutureEvent(10, false);
+        ZonedDateTime now = ZonedDateTime.now();
+        Booking booked = saveBooking(STATUS_BOOKED, now.minusMinutes(3), user, event);
+        Booking waitlisted = saveBooking(STATUS_FULL, now.minusMinutes(2), user, event);
+        eventRepository.adjustBookingsCount(event.getId(), 1).block();
+
+        Booking patch = new Booking();
+        patch.setId(booked.getId());
+        patch.setEventId(otherEvent.getId());
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL + "/" + booked.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(om.writeValueAsBytes(patch))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        assertThat(bookingRepository.findById(waitlisted.getId()).block().getStatus()).isEqualTo(STATUS_BOOKED);
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(1);
+        assertThat(eventRepository.findById(otherEvent.getId()).block().getBookingsCount()).isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void partialUpdateBooking_outOfBooked_shouldPromoteOldestWaitlistedBooking() throws Exception {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(1, true);
+        ZonedDateTime now = ZonedDateTime.now();
+        Booking booked = saveBooking(STATUS_BOOKED, now.minusMinutes(3), user, event);
+        Booking waitlisted = saveBooking(STATUS_FULL, now.minusMinutes(2), user, event);
+        eventRepository.adjustBookingsCount(event.getId(), 1).block();
+
+        Booking patch = new Booking();
+        patch.setId(booked.getId());
+        patch.setStatus(STATUS_CANCELLED);
+        webTestClient
+            .patch()
+            .uri(ENTITY_API_URL + "/" + booked.getId())
+            .contentType(MediaType.valueOf("application/merge-patch+json"))
+            .bodyValue(om.writeValueAsBytes(patch))
+            .exchange()
+            .expectStatus()
+            .isOk();
+
+        assertThat(bookingRepository.findById(waitlisted.getId()).block().getStatus()).isEqualTo(STATUS_BOOKED);
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(1);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void cancelBooking_whenEventStillFull_shouldNotPromote() {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(1, true);
+        ZonedDateTime now = ZonedDateTime.now();
+        saveBooking(STATUS_BOOKED, now.minusMinutes(3), user, event);
+        // une réservation en attente annulée ne libère aucune place
+        Booking waitlisted = saveBooking(STATUS_FULL, now.minusMinutes(2), user, event);
+        Booking nextWaitlisted = saveBooking(STATUS_FULL, now.minusMinutes(1), user, event);
+        eventRepository.adjustBookingsCount(event.getId(), 1).block();
+
+        webTestClient.post().uri(ENTITY_API_URL + "/" + waitlisted.getId() + "/cancel").exchange().expectStatus().isOk();
+
+        assertThat(bookingRepository.findById(nextWaitlisted.getId()).block().getStatus()).isEqualTo(STATUS_FULL);
+        assertThat(bookingRepository.countByEventIdAndStatus(event.getId(), STATUS_BOOKED).block()).isEqualTo(1L);
+    }
+
+    @Test
+    void cancelBooking_concurrently_shouldGiveEachFreedSeatToExactlyOneWaitlistedBooking() {
+        User user = getRegularUser();
+        int capacity = 10;
+        int waitlisted = 30;
+        Event event = saveFutureEvent(capacity, true);
+        ZonedDateTime start = ZonedDateTime.now().minusHours(1);
+        List<Booking> booked = new ArrayList<>();
+        for (int i = 0; i < capacity; i++) {
+            booked.add(saveBooking(STATUS_BOOKED, start.plusSeconds(i), user, event));
+        }
+        List<Booking> waitlist = new ArrayList<>();
+        for (int i = 0; i < waitlisted; i++) {
+            waitlist.add(saveBooking(STATUS_FULL, start.plusMinutes(1).plusSeconds(i), user, event));
+        }
+        eventRepository.adjustBookingsCount(event.getId(), capacity).block();
+
+        // chaque réservation est annulée deux fois en parallèle : la seconde annulation ne doit rien libérer
+        Flux.fromIterable(booked)
+            .concatWith(Flux.fromIterable(booked))
+            .flatMap(
+                booking -> bookingService.cancel(booking.getId()).contextWrite(ReactiveSecurityContextHolder.withAuthentication(admin())),
+                CONCURRENCY
+            )
+            .blockLast(Duration.ofMinutes(2));
+
+        List<Booking> bookings = bookingRepository.findAllByEventId(event.getId()).collectList().block();
+        assertThat(bookings).filteredOn(booking -> STATUS_CANCELLED.equals(booking.getStatus())).hasSize(capacity);
+        assertThat(bookings)
+            .filteredOn(booking -> STATUS_BOOKED.equals(booking.getStatus()))
+            .extracting(Booking::getId)
+            .containsExactlyInAnyOrderElementsOf(waitlist.subList(0, capacity).stream().map(Booking::getId).toList());
+        assertThat(bookings).filteredOn(booking -> STATUS_FULL.equals(booking.getStatus())).hasSize(waitlisted - capacity);
+        assertThat(eventRepository.findById(event.getId()).block().getBookingsCount()).isEqualTo(capacity);
+    }
+
+    @Test
+    void cancelBooking_concurrentlyWithin12h_shouldLoseNoPenalty() {
+        User user = getRegularUser();
+        long initialBalance = userRepository.findById(user.getId()).block().getBalanceCents();
+        int cancellations = 20;
+        List<Booking> booked = new ArrayList<>();
+        for (int i = 0; i < cancellations; i++) {
+            Event event = saveEventFromNowHours(6, 1, false);
+            booked.add(saveBooking(STATUS_BOOKED, ZonedDateTime.now(), user, event));
+        }
+
+        Flux.fromIterable(booked)
+            .flatMap(
+                booking -> bookingService.cancel(booking.getId()).contextWrite(ReactiveSecurityContextHolder.withAuthentication(admin())),
+                CONCURRENCY
+            )
+            .blockLast(Duration.ofMinutes(2));
+
+        assertThat(userRepository.findById(user.getId()).block().getBalanceCents()).isEqualTo(initialBalance - cancellations * 500L);
+        List<Long> bookingIds = booked.stream().map(Booking::getId).toList();
+        assertThat(balanceEntryRepository.findAllByUserIdInOrderByUserIdAscIdAsc(List.of(user.getId())).collectList().block())
+            .filteredOn(entry -> bookingIds.contains(entry.getBookingId()))
+            .hasSize(cancellations)
+            .allMatch(entry -> entry.getAmountCents() == -500L);
+    }
+
+    @Test
+    void adjustBalance_concurrently_shouldLoseNoUpdate() {
+        User user = getRegularUser();
+        long initialBalance = userRepository.findById(user.getId()).block().getBalanceCents();
+
+        Flux.range(0, CONCURRENT_REQUESTS)
+            .flatMap(
+                i -> balanceEntryRepository.adjustBalance(user.getId(), i % 2 == 0 ? 300L : -100L, "TEST", null, Instant.now()),
+                CONCURRENCY
+            )
+            .blockLast(Duration.ofMinutes(2));
+
+        assertThat(userRepository.findById(user.getId()).block().getBalanceCents()).isEqualTo(
+            initialBalance + (CONCURRENT_REQUESTS / 2) * 200L
+        );
+    }
+
+    @Test
+    @WithMockUser(username = "user", authorities = { "ROLE_USER" })
+    void getMyBookings_shouldSplitUpcomingAndPastWithEventDetails() {
+        User user = getRegularUser();
+        User other = getAdminUser();
+        Event lastWeek = saveEventFromNowHours(-24 * 7, 10, false);
+        Event yesterday = savePastEvent(10, false);
+        Event tomorrow = saveFutureEvent(10, false);
+        Event nextWeek = saveEventFromNowHours(24 * 7, 10, false);
+        Booking cancelled = saveBooking(STATUS_CANCELLED, ZonedDateTime.now().minusDays(8), user, lastWeek);
+        Booking attended = saveBooking(STATUS_BOOKED, ZonedDateTime.now().minusDays(2), user, yesterday);
+        Booking soon = saveBooking(STATUS_BOOKED, ZonedDateTime.now(), user, tomorrow);
+        Booking later = saveBooking(STATUS_FULL, ZonedDateTime.now(), user, nextWeek);
+        saveBooking(STATUS_BOOKED, ZonedDateTime.now(), other, tomorrow);
+
+        List<MemberBooking> upcoming = getMyBookings(MY_BOOKINGS_API_URL);
+        assertThat(upcoming).extracting(MemberBooking::id).containsExactly(soon.getId(), later.getId());
+        assertThat(upcoming.get(0).eventId()).isEqualTo(tomorrow.getId());
+        assertThat(upcoming.get(0).coachName()).isEqualTo("Coach");
+        assertThat(upcoming.get(0).startAt().toInstant()).isEqualTo(tomorrow.getStartAt().toInstant());
+        assertThat(upcoming.get(1).status()).isEqualTo(STATUS_FULL);
+
+        List<MemberBooking> past = getMyBookings(MY_BOOKINGS_API_URL + "?scope=past");
+        assertThat(past).extracting(MemberBooking::id).containsExactly(attended.getId(), cancelled.getId());
+        assertThat(past.get(1).status()).isEqualTo(STATUS_CANCELLED);
+
+        webTestClient.get().uri(MY_BOOKINGS_API_URL + "?scope=everything").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(MY_BOOKINGS_API_URL + "?cursor=not-a-cursor").exchange().expectStatus().isBadRequest();
+    }
+
+    /**
+     * Benchmark of a member with a long history: paging through it with the single-query endpoint, against reading the
+     * bookings then their events one by one as the client did with {@code GET /bookings}.
+     */
+    @Test
+    @WithMockUser(username = "user", authorities = { "ROLE_USER" })
+    void getMyBookings_memberWithLongHistory_shouldPageThroughItInJoinedQueries() {
+        User user = getRegularUser();
+        execute(
+            "WITH s AS (INSERT INTO studio (name) VALUES ('" + HISTORY_SEED + "') RETURNING id), " +
+            "ev AS (INSERT INTO event (coach_name, start_at, end_at, capacity, status, studio_id) " +
+            "SELECT '" + HISTORY_SEED + "', localtimestamp - g * interval '1 day', " +
+            "localtimestamp - g * interval '1 day' + interval '50 minutes', 10, 'OPEN', s.id " +
+            "FROM generate_series(1, " + HISTORY_BOOKINGS + ") g, s RETURNING id) " +
+            "INSERT INTO booking (status, created_at, user_id, event_id) SELECT 'BOOKED', localtimestamp, " + user.getId() + ", ev.id FROM ev"
+        );
+        execute("ANALYZE event, booking");
+
+        // warm up both paths
+        readHistory();
+        readHistoryEventByEvent(user);
+
+        long start = System.nanoTime();
+        List<MemberBooking> history = readHistory();
+        long joinedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        long lookedUp = readHistoryEventByEvent(user);
+        long eventByEventMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        LOG.info(
+            "History of {} bookings: {} ms through joined pages of {}, {} ms reading the events one by one",
+            HISTORY_BOOKINGS,
+            joinedMillis,
+            KeysetPaginationUtil.MAX_LIMIT,
+            eventByEventMillis
+        );
+        assertThat(lookedUp).isEqualTo(HISTORY_BOOKINGS);
+        assertThat(history).hasSize(HISTORY_BOOKINGS).extracting(MemberBooking::id).doesNotHaveDuplicates();
+        assertThat(history).isSortedAccordingTo(
+            Comparator.comparing((MemberBooking b) -> b.startAt().toInstant()).thenComparing(MemberBooking::id).reversed()
+        );
+        assertThat(history).allMatch(b -> HISTORY_SEED.equals(b.studioName()) && HISTORY_SEED.equals(b.coachName()));
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void getAllBookings_withFields_shouldReturnOnlyTheRequestedFields() {
+        User user = getRegularUser();
+        Event event = saveFutureEvent(10, false);
+        Booking first = saveBooking(STATUS_BOOKED, ZonedDateTime.now(), user, event);
+        Booking second = saveBooking(STATUS_FULL, ZonedDateTime.now(), user, event);
+
+        List<JsonNode> page = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?fields=status,eventId&limit=" + KeysetPaginationUtil.MAX_LIMIT)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .exists(HttpHeaders.LINK)
+            .expectBodyList(JsonNode.class)
+            .returnResult()
+            .getResponseBody();
+
+        assertThat(page).allSatisfy(node -> assertThat(node.fieldNames()).toIterable().isSubsetOf("id", "status", "eventId"));
+        List<JsonNode> seeded = page.stream().filter(node -> node.path("eventId").asLong() == event.getId()).toList();
+        assertThat(seeded).extracting(node -> node.get("id").asLong()).containsExactly(first.getId(), second.getId());
+        assertThat(seeded).extracting(node -> node.get("status").asText()).containsExactly(STATUS_BOOKED, STATUS_FULL);
+    }
+
+    @Test
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void getAllBookings_withUnknownField_shouldFail() {
+        webTestClient.get().uri(ENTITY_API_URL + "?fields=status,password").exchange().expectStatus().isBadRequest();
+        webTestClient.get().uri(ENTITY_API_URL + "?fields=").exchange().expectStatus().isBadRequest();
+    }
+
+    /**
+     * Benchmark of the booking list: paging through it whole, then with {@code fields=id,status,eventId}, which reads
+     * neither the user nor the event. Run with {@code -Dbenchmark.fields=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark.fields", matches = "true")
+    @WithMockUser(username = "admin", authorities = { "ROLE_ADMIN" })
+    void benchmarkBookingListWithAndWithoutFields() {
+        User user = getRegularUser();
+        execute(
+            "WITH s AS (INSERT INTO studio (name) VALUES ('" + HISTORY_SEED + "') RETURNING id), " +
+            "ev AS (INSERT INTO event (coach_name, start_at, end_at, capacity, status, studio_id) " +
+            "SELECT '" + HISTORY_SEED + "', localtimestamp - g * interval '1 day', " +
+            "localtimestamp - g * interval '1 day' + interval '50 minutes', 10, 'OPEN', s.id " +
+            "FROM generate_series(1, " + HISTORY_BOOKINGS + ") g, s RETURNING id) " +
+            "INSERT INTO booking (status, created_at, user_id, event_id) SELECT 'BOOKED', localtimestamp, " + user.getId() + ", ev.id FROM ev"
+        );
+        execute("ANALYZE event, booking");
+        String all = ENTITY_API_URL + "?limit=" + KeysetPaginationUtil.MAX_LIMIT;
+        String projected = all + "&fields=id,status,eventId";
+
+        // warm up both paths
+        readBookingList(all);
+        readBookingList(projected);
+
+        long start = System.nanoTime();
+        long allBytes = readBookingList(all);
+        long allMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        start = System.nanoTime();
+        long projectedBytes = readBookingList(projected);
+        long projectedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        LOG.info(
+            "Booking list of {} bookings: {} bytes in {} ms whole, {} bytes in {} ms with fields=id,status,eventId",
+            HISTORY_BOOKINGS,
+            allBytes,
+            allMillis,
+            projectedBytes,
+            projectedMillis
+        );
+        assertThat(projectedBytes).isLessThan(allBytes);
+    }
+
     // ---------- helpers ----------
 
+    private Booking saveBooking(String status, ZonedDateTime createdAt, User user, Event event) {
+        return bookingRepository
+            .save(new Booking().status(status).createdAt(createdAt).userId(user.getId()).eventId(event.getId()))
+            .block();
+    }
+
+    private static Authentication admin() {
+        return new UsernamePasswordAuthenticationToken("admin", "admin", List.of(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)));
+    }
+
+    /**
+     * Fires {@link #CONCURRENT_REQUESTS} reservations at the same event, {@link #CONCURRENCY} at a time, and returns
+     * the accepted ones (requests rejected with {@code 409 (Conflict)} are dropped).
+     */
+    private List<Booking> reserveConcurrently(User user, Event event) {
+        Authentication admin = admin();
+        return Flux.range(0, CONCURRENT_REQUESTS)
+            .flatMap(
+                i ->
+                    bookingService
+                        .save(new Booking().userId(user.getId()).eventId(event.getId()))
+                        .onErrorResume(
+                            e -> e instanceof ResponseStatusException rse && HttpStatus.CONFLICT.equals(rse.getStatusCode()),
+                            e -> Mono.empty()
+                        )
+                        .contextWrite(ReactiveSecurityContextHolder.withAuthentication(admin)),
+                CONCURRENCY
+            )
+            .collectList()
+            .block(Duration.ofMinutes(2));
+    }
+
+
+    private List<MemberBooking> getMyBookings(String uri) {
+        return webTestClient
+            .get()
+            .uri(uri)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBodyList(MemberBooking.class)
+            .returnResult()
+            .getResponseBody();
+    }
+
+    /**
+     * Follows the {@code next} links of the past bookings of the current user, a full page at a time.
+     */
+    private List<MemberBooking> readHistory() {
+        List<MemberBooking> history = new ArrayList<>();
+        String uri = MY_BOOKINGS_API_URL + "?scope=past&limit=" + KeysetPaginationUtil.MAX_LIMIT;
+        while (uri != null) {
+            EntityExchangeResult<List<MemberBooking>> page = webTestClient
+                .get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(MemberBooking.class)
+                .returnResult();
+            history.addAll(page.getResponseBody());
+            uri = TestUtil.nextLink(page.getResponseHeaders().getFirst(HttpHeaders.LINK));
+        }
+        return history;
+    }
+
+    /**
+     * Follows the {@code next} links of the booking list from {@code uri}, and returns the size of the pages read.
+     */
+    private long readBookingList(String uri) {
+        long bytes = 0;
+        while (uri != null) {
+            EntityExchangeResult<byte[]> page = webTestClient
+                .get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(byte[].class)
+                .returnResult();
+            bytes += page.getResponseBody().length;
+            uri = TestUtil.nextLink(page.getResponseHeaders().getFirst(HttpHeaders.LINK));
+        }
+        return bytes;
+    }
+
+    private long readHistoryEventByEvent(User user) {
+        return bookingRepository
+            .findAllByUserId(user.getId())
+            .concatMap(booking -> eventRepository.findById(booking.getEventId()))
+            .count()
+            .block(Duration.ofMinutes(2));
+    }
+
+    private void execute(String sql) {
+        template.getDatabaseClient().sql(sql).fetch().rowsUpdated().block();
+    }
+
     private User getRegularUser() {
         User user = userRepository.findOneByLogin("user").block();
         if (user != null) {
@@ -247,6 +881,10 @@ class BookingResourceIT {
         return userRepository.findAllByIdNotNull(PageRequest.of(0, 1)).blockFirst();
     }
 
+    private User getAdminUser() {
+        return userRepository.findOneByLogin("admin").block();
+    }
+
     private Event saveFutureEvent(int capacity, boolean waitlistOpen) {
         return saveEventFromNowHours(24, capacity, waitlistOpen);
     }
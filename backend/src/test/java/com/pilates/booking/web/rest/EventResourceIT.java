@@ -9,25 +9,50 @@ import static org.hamcrest.Matchers.is;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.pilates.booking.IntegrationTest;
+import com.pilates.booking.domain.Booking;
 import com.pilates.booking.domain.Event;
+import com.pilates.booking.repository.BookingRepository;
 import com.pilates.booking.repository.EntityManager;
 import com.pilates.booking.repository.EventRepository;
+import com.pilates.booking.repository.UserRepository;
+import com.pilates.booking.security.AuthoritiesConstants;
+import com.pilates.booking.service.BookingService;
+import com.pilates.booking.service.EventScheduleService.Progress;
+import com.pilates.booking.service.EventService;
+import com.pilates.booking.service.SeatAvailabilityService.SeatAvailability;
+import com.pilates.booking.service.dto.EventScheduleDTO;
+import java.time.DayOfWeek;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 /**
  * Integration tests for the {@link EventResource} REST controller.
@@ -64,6 +89,18 @@ class EventResourceIT {
     @Autowired
     private EventRepository eventRepository;
 
+    @Autowired
+    private BookingRepository bookingRepository;
+
+    @Autowired
+    private EventService eventService;
+
+    @Autowired
+    private BookingService bookingService;
+
+    @Autowired
+    private UserRepository userRepository;
+
     @Autowired
     private EntityManager em;
 
@@ -123,6 +160,7 @@ class EventResourceIT {
             eventRepository.delete(insertedEvent).block();
             insertedEvent = null;
         }
+        em.deleteAll(Booking.class).block();
         deleteEntities(em);
     }
 
@@ -289,6 +327,150 @@ class EventResourceIT {
             .value(hasItem(DEFAULT_STATUS));
     }
 
+    @Test
+    void getAllEventsWithBookingsCount() {
+        // Initialize the database
+        Event fullEvent = eventRepository.save(createEntity()).block();
+        Event emptyEvent = eventRepository.save(createEntity()).block();
+        bookingRepository.save(new Booking().status("BOOKED").eventId(fullEvent.getId())).block();
+        bookingRepository.save(new Booking().status("BOOKED").eventId(fullEvent.getId())).block();
+        bookingRepository.save(new Booking().status("CANCELLED").eventId(fullEvent.getId())).block();
+        bookingRepository.save(new Booking().status("FULL").eventId(emptyEvent.getId())).block();
+
+        // The bookings above bypassed the booking service, so the stored count drifted until reconciled
+        assertThat(eventRepository.findById(fullEvent.getId()).block().getBookingsCount()).isZero();
+        assertThat(eventService.reconcileBookingsCounts().block()).isPositive();
+
+        // Only BOOKED bookings are counted, and events without any get 0
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL)
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.[?(@.id == " + fullEvent.getId() + ")].bookingsCount")
+            .value(hasItem(2))
+            .jsonPath("$.[?(@.id == " + emptyEvent.getId() + ")].bookingsCount")
+            .value(hasItem(0));
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL_ID, fullEvent.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.bookingsCount")
+            .value(is(2));
+    }
+
+    @Test
+    void getAllEventsByCursorIsStableUnderConcurrentInserts() {
+        // Initialize the database, with start date ties so that the id has to break them
+        List<Long> seededIds = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            seededIds.add(eventRepository.save(createEntity().startAt(DEFAULT_START_AT.plusHours(i / 2))).block().getId());
+        }
+
+        // Page through while events keep being inserted before and after the current position:
+        // with limit/offset, each insert before the position would shift the next page and repeat a row
+        List<Event> read = new ArrayList<>();
+        String uri = ENTITY_API_URL + "?limit=10";
+        while (uri != null) {
+            EntityExchangeResult<List<Event>> page = webTestClient
+                .get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Event.class)
+                .returnResult();
+            assertThat(page.getResponseBody()).hasSizeLessThanOrEqualTo(10);
+            read.addAll(page.getResponseBody());
+            uri = TestUtil.nextLink(page.getResponseHeaders().getFirst(HttpHeaders.LINK));
+
+            eventRepository.save(createEntity().startAt(DEFAULT_START_AT.minusHours(1))).block();
+            eventRepository.save(createEntity().startAt(DEFAULT_START_AT.plusDays(1))).block();
+        }
+
+        assertThat(read).extracting(Event::getId).doesNotHaveDuplicates();
+        assertThat(read).isSortedAccordingTo(
+            Comparator.comparing((Event e) -> e.getStartAt().toInstant()).thenComparing(Event::getId)
+        );
+        assertThat(read).extracting(Event::getId).filteredOn(seededIds::contains).containsExactlyElementsOf(seededIds);
+    }
+
+    @Test
+    void getAllEventsWithInvalidCursor() {
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?cursor=not-a-cursor")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+
+        webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "?limit=0")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void streamSeatAvailability() {
+        Event followedEvent = eventRepository
+            .save(createEntity().startAt(ZonedDateTime.now().plusDays(1)).endAt(ZonedDateTime.now().plusDays(1).plusHours(1)).capacity(5))
+            .block();
+        Event otherEvent = eventRepository
+            .save(createEntity().startAt(ZonedDateTime.now().plusDays(1)).endAt(ZonedDateTime.now().plusDays(1).plusHours(1)).capacity(5))
+            .block();
+        Long userId = userRepository.findOneByLogin("admin").block().getId();
+
+        Flux<SeatAvailability> seats = webTestClient
+            .get()
+            .uri(ENTITY_API_URL + "/seats?eventId={id}", followedEvent.getId())
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(new ParameterizedTypeReference<ServerSentEvent<SeatAvailability>>() {})
+            .getResponseBody()
+            // skip the heartbeats
+            .filter(event -> event.data() != null)
+            .map(ServerSentEvent::data);
+
+        StepVerifier.create(seats)
+            .then(() -> {
+                book(userId, otherEvent);
+                book(userId, followedEvent);
+            })
+            .assertNext(availability -> {
+                assertThat(availability.eventId()).isEqualTo(followedEvent.getId());
+                assertThat(availability.booked()).isEqualTo(1);
+                assertThat(availability.remaining()).isEqualTo(4);
+            })
+            .thenCancel()
+            .verify(Duration.ofSeconds(10));
+    }
+
+    private void book(Long userId, Event event) {
+        bookingService
+            .save(new Booking().userId(userId).eventId(event.getId()))
+            .contextWrite(
+                ReactiveSecurityContextHolder.withAuthentication(
+                    new UsernamePasswordAuthenticationToken("admin", "admin", List.of(new SimpleGrantedAuthority(AuthoritiesConstants.ADMIN)))
+                )
+            )
+            .block();
+    }
+
     @Test
     void getEvent() {
         // Initialize the database
@@ -556,6 +738,135 @@ class EventResourceIT {
         assertDecrementedRepositoryCount(databaseSizeBeforeDelete);
     }
 
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void cancelEvent() {
+        // Initialize the database
+        insertedEvent = eventRepository.save(event).block();
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL_ID + "/cancel", event.getId())
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectBody()
+            .jsonPath("$.status")
+            .value(is("CANCELLED"))
+            .jsonPath("$.bookingsCount")
+            .value(is(0));
+
+        assertThat(eventRepository.findById(event.getId()).block().getStatus()).isEqualTo("CANCELLED");
+
+        webTestClient.post().uri(ENTITY_API_URL_ID + "/cancel", Long.MAX_VALUE).exchange().expectStatus().isNotFound();
+    }
+
+    @Test
+    void cancelEventAsUserIsForbidden() {
+        // Initialize the database
+        insertedEvent = eventRepository.save(event).block();
+
+        webTestClient.post().uri(ENTITY_API_URL_ID + "/cancel", event.getId()).exchange().expectStatus().isForbidden();
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void publishSchedule() {
+        long databaseSizeBeforePublish = getRepositoryCount();
+        // 5 weeks of mornings on Monday and Thursday, but for one Monday
+        EventScheduleDTO schedule = createSchedule(LocalDate.of(2031, 3, 3), LocalDate.of(2031, 4, 6));
+        schedule.setExceptions(Set.of(LocalDate.of(2031, 3, 10)));
+
+        List<Progress> progress = webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/schedule")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(schedule)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .expectHeader()
+            .contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .returnResult(Progress.class)
+            .getResponseBody()
+            .collectList()
+            .block(Duration.ofSeconds(5));
+
+        assertThat(progress).last().isEqualTo(new Progress(9, 9));
+        assertThat(getRepositoryCount()).isEqualTo(databaseSizeBeforePublish + 9);
+        assertThat(eventRepository.findAll().collectList().block())
+            .filteredOn(published -> DEFAULT_COACH_NAME.equals(published.getCoachName()))
+            .extracting(published -> published.getStartAt().withZoneSameInstant(ZoneId.of("Europe/Paris")).toLocalTime())
+            .hasSize(9)
+            .containsOnly(LocalTime.of(9, 0));
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void publishScheduleOverlappingAnEventIsConflict() {
+        event.setStartAt(ZonedDateTime.of(2031, 3, 3, 8, 30, 0, 0, ZoneId.of("Europe/Paris")).withZoneSameInstant(ZoneOffset.UTC));
+        event.setEndAt(event.getStartAt().plusHours(1));
+        event.setStatus("OPEN");
+        insertedEvent = eventRepository.save(event).block();
+        long databaseSizeBeforePublish = getRepositoryCount();
+
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/schedule")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(createSchedule(LocalDate.of(2031, 3, 3), LocalDate.of(2031, 4, 6)))
+            .exchange()
+            .expectStatus()
+            .isEqualTo(HttpStatus.CONFLICT);
+
+        assertSameRepositoryCount(databaseSizeBeforePublish);
+    }
+
+    @Test
+    @WithMockUser(authorities = AuthoritiesConstants.ADMIN)
+    void publishScheduleEndingBeforeItStartsIsBadRequest() {
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/schedule")
+            .contentType(MediaType.APPLICATION_JSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(createSchedule(LocalDate.of(2031, 4, 6), LocalDate.of(2031, 3, 3)))
+            .exchange()
+            .expectStatus()
+            .isBadRequest();
+    }
+
+    @Test
+    void publishScheduleAsUserIsForbidden() {
+        webTestClient
+            .post()
+            .uri(ENTITY_API_URL + "/schedule")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(createSchedule(LocalDate.of(2031, 3, 3), LocalDate.of(2031, 4, 6)))
+            .exchange()
+            .expectStatus()
+            .isForbidden();
+    }
+
+    private static EventScheduleDTO createSchedule(LocalDate startDate, LocalDate endDate) {
+        EventScheduleDTO.Slot slot = new EventScheduleDTO.Slot();
+        slot.setDaysOfWeek(Set.of(DayOfWeek.MONDAY, DayOfWeek.THURSDAY));
+        slot.setStartTime(LocalTime.of(9, 0));
+        slot.setDuration(Duration.ofMinutes(55));
+        slot.setCoachName(DEFAULT_COACH_NAME);
+        slot.setCapacity(DEFAULT_CAPACITY);
+        EventScheduleDTO schedule = new EventScheduleDTO();
+        schedule.setStartDate(startDate);
+        schedule.setEndDate(endDate);
+        // the clocks change on March 30, 2031
+        schedule.setTimeZone(ZoneId.of("Europe/Paris"));
+        schedule.setSlots(List.of(slot));
+        return schedule;
+    }
+
     protected long getRepositoryCount() {
         return eventRepository.count().block();
     }
@@ -13,6 +13,7 @@ import com.pilates.booking.repository.EntityManager;
 import com.pilates.booking.repository.PackRepository;
 import com.pilates.booking.repository.UserRepository;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.atomic.AtomicLong;
@@ -21,8 +22,10 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
 /**
@@ -297,6 +300,33 @@ class PackResourceIT {
             .value(hasItem(DEFAULT_VALIDITY_DAYS));
     }
 
+    @Test
+    void getAllPacksByCursor() {
+        // Initialize the database
+        List<Long> seededIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            seededIds.add(packRepository.save(createEntity()).block().getId());
+        }
+
+        List<Long> readIds = new ArrayList<>();
+        String uri = ENTITY_API_URL + "?limit=2";
+        while (uri != null) {
+            EntityExchangeResult<List<Pack>> page = webTestClient
+                .get()
+                .uri(uri)
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Pack.class)
+                .returnResult();
+            page.getResponseBody().forEach(p -> readIds.add(p.getId()));
+            uri = TestUtil.nextLink(page.getResponseHeaders().getFirst(HttpHeaders.LINK));
+        }
+
+        assertThat(readIds).isSorted().doesNotHaveDuplicates().containsAll(seededIds);
+    }
+
     @Test
     void getPack() {
         // Initialize the database
@@ -12,6 +12,8 @@ import java.math.BigDecimal;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeParseException;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.hamcrest.Description;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
 import org.hamcrest.TypeSafeMatcher;
@@ -24,6 +26,8 @@ import org.springframework.cglib.proxy.MethodProxy;
  */
 public final class TestUtil {
 
+    private static final Pattern NEXT_LINK = Pattern.compile("<([^>]+)>; rel=\"next\"");
+
     /**
      * Create a byte array with a specific size filled with specified data.
      *
@@ -149,6 +153,19 @@ public final class TestUtil {
         assertThat(domainObject1).hasSameHashCodeAs(domainObject2);
     }
 
+    /**
+     * Extracts the target of the {@code rel="next"} link from a {@code Link} header.
+     * @param linkHeader the value of the header, or null
+     * @return the next page uri, or null on the last page
+     */
+    public static String nextLink(String linkHeader) {
+        if (linkHeader == null) {
+            return null;
+        }
+        Matcher matcher = NEXT_LINK.matcher(linkHeader);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
     /**
      * Executes a query on the EntityManager finding all stored objects.
      * @param <T> The type of objects to be searched
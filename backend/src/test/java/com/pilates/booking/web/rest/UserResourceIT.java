@@ -268,6 +268,45 @@ class UserResourceIT {
         assertThat(foundUser.getLangKey()).isEqualTo(DEFAULT_LANGKEY);
     }
 
+    @Test
+    void getAllUsersReturnsOnlyTheRequestedPage() {
+        // Initialize the database
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User paged = createEntity();
+            users.add(userRepository.save(paged).block());
+        }
+        userRepository.saveUserAuthority(users.get(2).getId(), AuthoritiesConstants.USER).block();
+
+        // The newest users come first when sorted by id desc
+        List<AdminUserDTO> firstPage = webTestClient
+            .get()
+            .uri("/api/admin/users?sort=id,desc&page=0&size=2")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(AdminUserDTO.class)
+            .getResponseBody()
+            .collectList()
+            .block();
+        assertThat(firstPage).extracting(AdminUserDTO::getLogin).containsExactly(users.get(2).getLogin(), users.get(1).getLogin());
+        assertThat(firstPage.get(0).getAuthorities()).containsExactly(AuthoritiesConstants.USER);
+        assertThat(firstPage.get(1).getAuthorities()).isEmpty();
+
+        AdminUserDTO secondPageFirst = webTestClient
+            .get()
+            .uri("/api/admin/users?sort=id,desc&page=1&size=2")
+            .accept(MediaType.APPLICATION_JSON)
+            .exchange()
+            .expectStatus()
+            .isOk()
+            .returnResult(AdminUserDTO.class)
+            .getResponseBody()
+            .blockFirst();
+        assertThat(secondPageFirst.getLogin()).isEqualTo(users.get(0).getLogin());
+    }
+
     @Test
     void getUser() {
         // Initialize the database
@@ -1,6 +1,8 @@
 package com.pilates.booking.web.rest.errors;
 
+import com.pilates.booking.service.AdmissionRejectedException;
 import jakarta.validation.Valid;
+import java.time.Duration;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.dao.ConcurrencyFailureException;
 import org.springframework.http.HttpStatus;
@@ -47,6 +49,11 @@ public class ExceptionTranslatorTestController {
         throw new TestResponseStatusException();
     }
 
+    @GetMapping("/retry-after")
+    public void retryAfter() {
+        throw new AdmissionRejectedException(HttpStatus.TOO_MANY_REQUESTS, "test retry after", Duration.ofMillis(1500));
+    }
+
     @GetMapping("/internal-server-error")
     public void internalServerError() {
         throw new RuntimeException();